@@ -0,0 +1,39 @@
+package ch.dritz.zhaw.ci.benchmark;
+
+/**
+ * One operation to measure, e.g. a generation of an engine or a single
+ * operator applied to a population. State is created in the constructor or
+ * in setUp(), so run() only contains the measured work.
+ * @author D. Ritz
+ */
+public abstract class Benchmark
+{
+	private String name;
+
+	/**
+	 * @param name shown in the report
+	 */
+	protected Benchmark(String name)
+	{
+		this.name = name;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Called once before warm up
+	 */
+	public void setUp()
+	{
+	}
+
+	/**
+	 * Runs the operation once
+	 * @return the number of units of work done, e.g. evaluations, used to
+	 * report the throughput. Also keeps the JIT from dropping the work.
+	 */
+	public abstract long run();
+}
@@ -0,0 +1,195 @@
+package ch.dritz.zhaw.ci.benchmark;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Minimal micro benchmark harness in the spirit of JMH: time bounded warm up,
+ * several time bounded measurement iterations, the median time per operation
+ * and the bytes allocated per operation by all threads, including the workers
+ * of fork/join pools.
+ *
+ * Allocation is read from the per thread counters of the HotSpot thread bean,
+ * it is reported as -1 on VMs without them.
+ * @author D. Ritz
+ */
+public class Harness
+{
+	public static final long DEFAULT_WARMUP_MILLIS = 500L;
+	public static final long DEFAULT_ITERATION_MILLIS = 200L;
+	public static final int DEFAULT_ITERATIONS = 5;
+
+	private long warmupNanos;
+	private long iterationNanos;
+	private int iterations;
+	private PrintStream out;
+
+	private com.sun.management.ThreadMXBean threads;
+
+	// results of run() end up here, so the JIT cannot drop the work
+	private volatile long sink;
+
+	public Harness(PrintStream out)
+	{
+		this(DEFAULT_WARMUP_MILLIS, DEFAULT_ITERATION_MILLIS, DEFAULT_ITERATIONS,
+			out);
+	}
+
+	/**
+	 * @param warmupMillis time spent warming up each benchmark
+	 * @param iterationMillis duration of each measurement iteration
+	 * @param iterations number of measurement iterations
+	 * @param out where the results are printed, null for none
+	 */
+	public Harness(long warmupMillis, long iterationMillis, int iterations,
+			PrintStream out)
+	{
+		if (iterations < 1)
+			throw new IllegalArgumentException("need at least one iteration");
+		this.warmupNanos = warmupMillis * 1000000L;
+		this.iterationNanos = iterationMillis * 1000000L;
+		this.iterations = iterations;
+		this.out = out;
+
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			threads = (com.sun.management.ThreadMXBean) bean;
+			if (!threads.isThreadAllocatedMemorySupported())
+				threads = null;
+			else
+				threads.setThreadAllocatedMemoryEnabled(true);
+		}
+	}
+
+	/**
+	 * Measures the benchmark and prints the result
+	 * @param benchmark
+	 * @return the result
+	 */
+	public Result measure(Benchmark benchmark)
+	{
+		benchmark.setUp();
+
+		long sum = 0L;
+		long end = System.nanoTime() + warmupNanos;
+		while (System.nanoTime() < end)
+			sum += benchmark.run();
+
+		double[] nanosPerOp = new double[iterations];
+		long ops = 0L;
+		long units = 0L;
+		long nanos = 0L;
+		long bytes = allocatedBytes();
+		for (int i = 0; i < iterations; i++) {
+			long n = 0L;
+			long start = System.nanoTime();
+			long now;
+			do {
+				units += benchmark.run();
+				n++;
+				now = System.nanoTime();
+			} while (now - start < iterationNanos);
+			nanosPerOp[i] = (double) (now - start) / n;
+			ops += n;
+			nanos += now - start;
+		}
+		bytes = bytes < 0L ? -1L : allocatedBytes() - bytes;
+		sink += sum + units;
+
+		Arrays.sort(nanosPerOp);
+		Result ret = new Result(benchmark.getName(), nanosPerOp[iterations / 2],
+			nanosPerOp[0], nanosPerOp[iterations - 1],
+			bytes < 0L ? -1D : (double) bytes / ops,
+			units * 1e9D / nanos);
+		if (out != null)
+			out.println(ret);
+		return ret;
+	}
+
+	/**
+	 * @return bytes allocated by all live threads so far, -1 if unknown
+	 */
+	private long allocatedBytes()
+	{
+		if (threads == null)
+			return -1L;
+		long sum = 0L;
+		for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			if (bytes > 0L)
+				sum += bytes;
+		}
+		return sum;
+	}
+
+	/**
+	 * The result of one benchmark
+	 */
+	public static class Result
+	{
+		private String name;
+		private double nanosPerOp;
+		private double minNanosPerOp;
+		private double maxNanosPerOp;
+		private double bytesPerOp;
+		private double unitsPerSecond;
+
+		public Result(String name, double nanosPerOp, double minNanosPerOp,
+				double maxNanosPerOp, double bytesPerOp, double unitsPerSecond)
+		{
+			this.name = name;
+			this.nanosPerOp = nanosPerOp;
+			this.minNanosPerOp = minNanosPerOp;
+			this.maxNanosPerOp = maxNanosPerOp;
+			this.bytesPerOp = bytesPerOp;
+			this.unitsPerSecond = unitsPerSecond;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * @return median over the iterations
+		 */
+		public double getNanosPerOp()
+		{
+			return nanosPerOp;
+		}
+
+		public double getMinNanosPerOp()
+		{
+			return minNanosPerOp;
+		}
+
+		public double getMaxNanosPerOp()
+		{
+			return maxNanosPerOp;
+		}
+
+		/**
+		 * @return bytes allocated per operation, -1 if unknown
+		 */
+		public double getBytesPerOp()
+		{
+			return bytesPerOp;
+		}
+
+		/**
+		 * @return units of work (e.g. evaluations) per second
+		 */
+		public double getUnitsPerSecond()
+		{
+			return unitsPerSecond;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%-40s %12.3f us/op [%.3f, %.3f] %12.1f B/op %14.1f units/s",
+				name, nanosPerOp / 1000D, minNanosPerOp / 1000D,
+				maxNanosPerOp / 1000D, bytesPerOp, unitsPerSecond);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package ch.dritz.zhaw.ci.benchmark.tests;
+
+import ch.dritz.zhaw.ci.benchmark.Benchmark;
+import ch.dritz.zhaw.ci.benchmark.Harness;
+import ch.dritz.zhaw.ci.evolutionstrategy.CmaEvolutionStrategy;
+import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.FitnessFunction;
+import ch.dritz.zhaw.ci.fitness.Rastrigin;
+import ch.dritz.zhaw.ci.fitness.Sphere;
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.geneticalg.TournamentSelection;
+
+/**
+ * Measures the time and allocation of one generation of each engine, the
+ * units are fitness evaluations:
+ * - evolution strategy, plain and correlated, up to the maximal dimension
+ * - separable CMA-ES up to the maximal dimension, full CMA-ES up to 100
+ * - genetic algorithm rounds for growing populations. The genome is fixed to
+ *   the two 5 bit parameters of the cylinder, so only the population scales.
+ * @author D. Ritz
+ */
+public class EngineBenchmark
+{
+	private static final int MAX_FULL_CMA = 100;
+
+	public static void main(String[] args)
+	{
+		int maxDimension = 10000;
+		if (args.length > 0)
+			maxDimension = Integer.parseInt(args[0]);
+
+		Harness harness = new Harness(System.out);
+		for (int n = 10; n <= maxDimension; n *= 10) {
+			FitnessFunction[] functions = {new Sphere(n), new Rastrigin(n)};
+			for (FitnessFunction f : functions) {
+				harness.measure(strategy(f, false));
+				harness.measure(strategy(f, true));
+				harness.measure(cma(f, true));
+				if (n <= MAX_FULL_CMA)
+					harness.measure(cma(f, false));
+			}
+		}
+
+		for (int size = 30; size <= 100000; size *= 10) {
+			harness.measure(geneticAlgorithm(size, false));
+			harness.measure(geneticAlgorithm(size, true));
+		}
+	}
+
+	private static Benchmark strategy(FitnessFunction f, boolean correlated)
+	{
+		int n = f.getDimension();
+		double[] lower = new double[n];
+		double[] upper = new double[n];
+		// sphere and rastrigin share the box
+		for (int i = 0; i < n; i++) {
+			lower[i] = Rastrigin.LOWER;
+			upper[i] = Rastrigin.UPPER;
+		}
+		final EvolutionStrategy es = new EvolutionStrategy(15, 100, 5, 2,
+			new BatchEvaluator(f, null), lower, upper, 1D, correlated);
+
+		String name = String.format("es %s(%d)%s", f.getClass().getSimpleName(),
+			n, correlated ? " correlated" : "");
+		return new Benchmark(name) {
+			@Override
+			public long run()
+			{
+				long before = es.getEvaluations();
+				es.newGeneration();
+				return es.getEvaluations() - before;
+			}
+		};
+	}
+
+	private static Benchmark cma(FitnessFunction f, boolean separable)
+	{
+		int n = f.getDimension();
+		final CmaEvolutionStrategy cma = new CmaEvolutionStrategy(
+			new BatchEvaluator(f, null), new double[n], 2D, 0, separable);
+
+		String name = String.format("%s %s(%d)", separable ? "sep-cma" : "cma",
+			f.getClass().getSimpleName(), n);
+		return new Benchmark(name) {
+			@Override
+			public long run()
+			{
+				cma.newGeneration();
+				return cma.getLambda();
+			}
+		};
+	}
+
+	private static Benchmark geneticAlgorithm(int size, boolean tournament)
+	{
+		final GeneticAlgorithm ga = new GeneticAlgorithm(size);
+		if (tournament)
+			ga.setSelection(new TournamentSelection(2));
+		// without the cache every individual is evaluated
+		ga.setFitnessCache(null);
+
+		String name = String.format("ga %s(%d)", tournament ? "tournament" : "roulette",
+			size);
+		return new Benchmark(name) {
+			@Override
+			public long run()
+			{
+				long before = ga.getEvaluations();
+				ga.round(0.01D, 10);
+				return ga.getEvaluations() - before;
+			}
+		};
+	}
+}
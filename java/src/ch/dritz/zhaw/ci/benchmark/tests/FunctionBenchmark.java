@@ -0,0 +1,75 @@
+package ch.dritz.zhaw.ci.benchmark.tests;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import ch.dritz.zhaw.ci.benchmark.Benchmark;
+import ch.dritz.zhaw.ci.benchmark.Harness;
+import ch.dritz.zhaw.ci.fitness.Ackley;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.EvaluationBatch;
+import ch.dritz.zhaw.ci.fitness.FitnessFunction;
+import ch.dritz.zhaw.ci.fitness.NkLandscape;
+import ch.dritz.zhaw.ci.fitness.OneMax;
+import ch.dritz.zhaw.ci.fitness.Rastrigin;
+import ch.dritz.zhaw.ci.fitness.Rosenbrock;
+import ch.dritz.zhaw.ci.fitness.Sphere;
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Measures the evaluation cost of the benchmark functions for growing
+ * dimensions, sequential and on the common pool
+ * @author D. Ritz
+ */
+public class FunctionBenchmark
+{
+	private static final int BATCH_SIZE = 100;
+	private static final int CHUNK_SIZE = 8;
+
+	public static void main(String[] args)
+	{
+		int maxDimension = 10000;
+		if (args.length > 0)
+			maxDimension = Integer.parseInt(args[0]);
+
+		Harness harness = new Harness(System.out);
+		for (int n = 10; n <= maxDimension; n *= 10) {
+			FitnessFunction[] functions = {
+				new Sphere(n), new Rosenbrock(n), new Rastrigin(n),
+				new Ackley(n), new OneMax(n), new NkLandscape(n, 4, 1L)
+			};
+			for (FitnessFunction f : functions) {
+				harness.measure(batch(f, false));
+				harness.measure(batch(f, true));
+			}
+		}
+	}
+
+	/**
+	 * @param f
+	 * @param parallel
+	 * @return benchmark evaluating one batch of random points in [0, 1)^n
+	 */
+	private static Benchmark batch(FitnessFunction f, boolean parallel)
+	{
+		final BatchEvaluator evaluator = new BatchEvaluator(f, null,
+			parallel ? ForkJoinPool.commonPool() : null, CHUNK_SIZE);
+		final EvaluationBatch batch = new EvaluationBatch(f.getDimension(), BATCH_SIZE);
+		batch.setSize(BATCH_SIZE);
+		Random rand = new Rng(42L);
+		double[] x = batch.getX();
+		for (int i = 0; i < BATCH_SIZE * f.getDimension(); i++)
+			x[i] = rand.nextDouble();
+
+		String name = String.format("%s(%d) %s", f.getClass().getSimpleName(),
+			f.getDimension(), parallel ? "parallel" : "sequential");
+		return new Benchmark(name) {
+			@Override
+			public long run()
+			{
+				evaluator.evaluate(batch);
+				return BATCH_SIZE;
+			}
+		};
+	}
+}
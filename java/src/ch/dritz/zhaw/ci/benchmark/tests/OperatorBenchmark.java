@@ -0,0 +1,112 @@
+package ch.dritz.zhaw.ci.benchmark.tests;
+
+import java.util.Random;
+
+import ch.dritz.zhaw.ci.benchmark.Benchmark;
+import ch.dritz.zhaw.ci.benchmark.Harness;
+import ch.dritz.zhaw.ci.evolutionstrategy.Individual;
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Measures the variation operators on their own, the units are individuals:
+ * - mutation and recombination of evolution strategy individuals for growing
+ *   dimensions
+ * - selection, recombination and mutation of the genetic algorithm for
+ *   growing populations, mutation includes evaluating the population
+ * @author D. Ritz
+ */
+public class OperatorBenchmark
+{
+	private static final int NUM_PARENTS = 2;
+
+	public static void main(String[] args)
+	{
+		int maxDimension = 10000;
+		if (args.length > 0)
+			maxDimension = Integer.parseInt(args[0]);
+
+		Harness harness = new Harness(System.out);
+		for (int n = 10; n <= maxDimension; n *= 10) {
+			for (int c = 0; c < 2; c++) {
+				final boolean correlated = c == 1;
+				final Random rand = new Rng(1L);
+				final Individual ind = individual(n, correlated, rand);
+				final Individual[] pool = new Individual[NUM_PARENTS];
+				for (int i = 0; i < NUM_PARENTS; i++)
+					pool[i] = individual(n, correlated, rand);
+				final double[] work = new double[n];
+				String suffix = String.format("(%d)%s", n, correlated ? " correlated" : "");
+
+				harness.measure(new Benchmark("es mutate strategic" + suffix) {
+					@Override
+					public long run()
+					{
+						ind.recombineStrategyParams(pool[0]);
+						ind.mutateStrategicParam(rand);
+						return 1L;
+					}
+				});
+				harness.measure(new Benchmark("es mutate object" + suffix) {
+					@Override
+					public long run()
+					{
+						ind.mutateObjectParams(rand, work);
+						return 1L;
+					}
+				});
+				harness.measure(new Benchmark("es recombine" + suffix) {
+					@Override
+					public long run()
+					{
+						ind.recombineObjectParams(pool);
+						ind.recombineStrategyParams(pool[1]);
+						return 1L;
+					}
+				});
+			}
+		}
+
+		for (int size = 1000; size <= 1000000; size *= 10) {
+			final GeneticAlgorithm ga = new GeneticAlgorithm(size);
+			final int n = size;
+			String suffix = String.format("(%d)", size);
+
+			harness.measure(new Benchmark("ga selection" + suffix) {
+				@Override
+				public long run()
+				{
+					ga.selection();
+					return n;
+				}
+			});
+			harness.measure(new Benchmark("ga recombine" + suffix) {
+				@Override
+				public long run()
+				{
+					ga.recombine(n / 2);
+					return n;
+				}
+			});
+			harness.measure(new Benchmark("ga mutate" + suffix) {
+				@Override
+				public long run()
+				{
+					ga.mutate(0.01D, false);
+					return n;
+				}
+			});
+		}
+	}
+
+	private static Individual individual(int n, boolean correlated, Random rand)
+	{
+		Individual ind = new Individual(n, correlated);
+		double[] lower = new double[n];
+		double[] upper = new double[n];
+		for (int i = 0; i < n; i++)
+			upper[i] = 1D;
+		ind.randomize(lower, upper, 0.1D, rand);
+		return ind;
+	}
+}
@@ -0,0 +1,34 @@
+package ch.dritz.zhaw.ci.checkpoint;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An engine whose complete state can be saved and restored, so a run can
+ * be continued exactly where the snapshot was taken
+ * @author D. Ritz
+ */
+public interface Checkpointable
+{
+	/**
+	 * @return the maximal number of bytes written by snapshot()
+	 */
+	int getSnapshotSize();
+
+	/**
+	 * Copies the state into the buffer. Called by the thread running the
+	 * engine between two generations, so it must only copy, the buffer is
+	 * written to disk by another thread.
+	 * @param buf
+	 */
+	void snapshot(ByteBuffer buf);
+
+	/**
+	 * Restores a state of snapshot(). The instance must be configured like
+	 * the one the snapshot was taken from, e.g. the same size, selection and
+	 * evaluator.
+	 * @param buf
+	 * @throws IllegalArgumentException if the snapshot does not fit this
+	 * instance
+	 */
+	void restore(ByteBuffer buf);
+}
@@ -0,0 +1,281 @@
+package ch.dritz.zhaw.ci.checkpoint;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Writes snapshots of an engine to a file in the background. The engine's
+ * thread only copies its state into one of two buffers, a writer thread
+ * checksums the copy and replaces the file with it. If both buffers are
+ * still busy, the snapshot is skipped instead of waiting for the disk.
+ *
+ * File layout, big endian:
+ *
+ *   magic:int32 version:int32 length:int32 crc32:int32 payload[length]
+ *
+ * The file is first written next to the target and then renamed, so a crash
+ * while writing leaves the previous snapshot intact.
+ * @author D. Ritz
+ */
+public class Checkpointer
+	implements Closeable
+{
+	public static final int MAGIC = 0x43494350; // "CICP"
+	public static final int VERSION = 1;
+	public static final int HEADER = 16;
+
+	// bytes written by putRng()
+	public static final int RNG_SIZE = 4 * 8;
+
+	private static final long POLL_MS = 100L;
+
+	private File file;
+	private File tmp;
+	private boolean sync;
+
+	// two buffers: one being filled or queued, one being written
+	private BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(2);
+	private BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<ByteBuffer>(2);
+
+	private Thread writer;
+	private volatile boolean closed;
+	private volatile IOException error;
+
+	// offered and skipped are only touched by the engine's thread
+	private long offered;
+	private long skipped;
+	private long done; // guarded by this
+
+	/**
+	 * @param file the snapshot file, replaced by every snapshot
+	 * @param sync whether to force every snapshot to the disk before
+	 * replacing the file
+	 */
+	public Checkpointer(File file, boolean sync)
+	{
+		this.file = file;
+		this.sync = sync;
+		tmp = new File(file.getPath() + ".tmp");
+		free.add(ByteBuffer.allocate(HEADER));
+		free.add(ByteBuffer.allocate(HEADER));
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				writeLoop();
+			}
+		}, "checkpoint-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Takes a snapshot of the engine and hands it to the writer, never
+	 * waits for the disk
+	 * @param engine
+	 * @return false if skipped because the previous snapshots are still
+	 * being written
+	 */
+	public boolean offer(Checkpointable engine)
+	{
+		if (closed)
+			throw new IllegalStateException("closed");
+		ByteBuffer buf = free.poll();
+		if (buf == null) {
+			skipped++;
+			return false;
+		}
+		int capacity = HEADER + engine.getSnapshotSize();
+		if (buf.capacity() < capacity)
+			buf = ByteBuffer.allocate(capacity);
+
+		buf.clear();
+		buf.position(HEADER);
+		engine.snapshot(buf);
+		buf.flip();
+		offered++;
+		full.add(buf);
+		return true;
+	}
+
+	/**
+	 * Waits until all snapshots offered so far are written
+	 * @throws IOException if the last snapshot could not be written
+	 */
+	public void flush()
+		throws IOException
+	{
+		synchronized (this) {
+			while (done < offered) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted", e);
+				}
+			}
+		}
+		IOException e = error;
+		if (e != null)
+			throw e;
+	}
+
+	/**
+	 * Writes the pending snapshots and stops the writer
+	 */
+	@Override
+	public void close()
+		throws IOException
+	{
+		if (closed)
+			return;
+		try {
+			flush();
+		} finally {
+			closed = true;
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Reads the snapshot file and restores the engine from it
+	 * @param file
+	 * @param engine
+	 * @throws IOException if the file cannot be read or is corrupt
+	 */
+	public static void restore(File file, Checkpointable engine)
+		throws IOException
+	{
+		ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		if (buf.remaining() < HEADER || buf.getInt() != MAGIC)
+			throw new IOException(file + " is not a checkpoint");
+		int version = buf.getInt();
+		if (version != VERSION)
+			throw new IOException("unsupported checkpoint version " + version);
+		int length = buf.getInt();
+		int crc = buf.getInt();
+		if (length != buf.remaining() || crc != checksum(buf, HEADER, length))
+			throw new IOException(file + " is corrupt");
+		engine.restore(buf);
+	}
+
+	/**
+	 * Writes the state of a stream, see Rng.getState()
+	 * @param buf
+	 * @param rng
+	 */
+	public static void putRng(ByteBuffer buf, Rng rng)
+	{
+		for (long l : rng.getState())
+			buf.putLong(l);
+	}
+
+	/**
+	 * Restores the state of a stream written by putRng()
+	 * @param buf
+	 * @param rng
+	 */
+	public static void getRng(ByteBuffer buf, Rng rng)
+	{
+		long[] state = rng.getState();
+		for (int i = 0; i < state.length; i++)
+			state[i] = buf.getLong();
+		rng.setState(state);
+	}
+
+	/**
+	 * @return number of snapshots handed to the writer
+	 */
+	public long getOffered()
+	{
+		return offered;
+	}
+
+	/**
+	 * @return number of snapshots skipped because the writer was busy
+	 */
+	public long getSkipped()
+	{
+		return skipped;
+	}
+
+	//--------------------------------------------------------------------------
+	// writer thread
+
+	private void writeLoop()
+	{
+		CRC32 crc = new CRC32();
+		while (!closed || !full.isEmpty()) {
+			ByteBuffer buf;
+			try {
+				buf = full.poll(POLL_MS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (buf == null)
+				continue;
+
+			int length = buf.limit() - HEADER;
+			crc.reset();
+			crc.update(buf.array(), HEADER, length);
+			buf.putInt(0, MAGIC);
+			buf.putInt(4, VERSION);
+			buf.putInt(8, length);
+			buf.putInt(12, (int) crc.getValue());
+			try {
+				write(buf);
+				error = null;
+			} catch (IOException e) {
+				error = e;
+			}
+
+			free.add(buf);
+			synchronized (this) {
+				done++;
+				notifyAll();
+			}
+		}
+	}
+
+	private void write(ByteBuffer buf)
+		throws IOException
+	{
+		FileOutputStream out = new FileOutputStream(tmp);
+		try {
+			FileChannel channel = out.getChannel();
+			buf.rewind();
+			while (buf.hasRemaining())
+				channel.write(buf);
+			if (sync)
+				channel.force(true);
+		} finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static int checksum(ByteBuffer buf, int offset, int length)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(buf.array(), offset, length);
+		return (int) crc.getValue();
+	}
+}
@@ -0,0 +1,193 @@
+package ch.dritz.zhaw.ci.checkpoint.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import ch.dritz.zhaw.ci.checkpoint.Checkpointable;
+import ch.dritz.zhaw.ci.checkpoint.Checkpointer;
+import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.Rastrigin;
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.geneticalg.Replacement;
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Runs each engine for 100 generations with a checkpoint after 50, then
+ * restores a fresh, differently seeded instance from the checkpoint and
+ * runs it for the remaining 50. Both must end in exactly the same state.
+ * Finally takes a snapshot of the evolution strategy every generation to
+ * show how much cpu time the engine's thread spends on it.
+ *
+ * Argument: the checkpoint file, a temporary file by default
+ * @author D. Ritz
+ */
+public class Resume
+{
+	private static final int GENERATIONS = 100;
+	private static final int CHECKPOINT = 50;
+	private static final int DIMENSION = 10;
+	private static final int SNAPSHOTS = 2000;
+
+	private interface Engine
+		extends Checkpointable
+	{
+		void step();
+	}
+
+	public static void main(String[] args)
+		throws IOException
+	{
+		File file = args.length > 0 ? new File(args[0]) :
+			File.createTempFile("checkpoint", ".bin");
+		file.deleteOnExit();
+
+		check("GA rounds", file, ga(1L, null), ga(2L, null));
+		check("GA steady state", file, ga(1L, Replacement.OLDEST),
+			ga(2L, Replacement.OLDEST));
+		check("ES", file, es(1L), es(2L));
+
+		// cpu time of this thread only, the writer runs concurrently
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		EvolutionStrategy es = es(3L).strategy;
+		Checkpointer checkpointer = new Checkpointer(file, false);
+		for (int g = 0; g < SNAPSHOTS; g++) {
+			// warm up
+			es.newGeneration();
+			checkpointer.offer(es);
+		}
+		checkpointer.flush();
+		long offered = checkpointer.getOffered();
+		long skipped = checkpointer.getSkipped();
+
+		long snapshotNanos = 0L;
+		long start = threads.getCurrentThreadCpuTime();
+		for (int g = 0; g < SNAPSHOTS; g++) {
+			es.newGeneration();
+			long t = threads.getCurrentThreadCpuTime();
+			checkpointer.offer(es);
+			snapshotNanos += threads.getCurrentThreadCpuTime() - t;
+		}
+		long total = threads.getCurrentThreadCpuTime() - start;
+		checkpointer.close();
+		System.out.println(String.format(
+			"ES snapshot every generation: %.1f us per snapshot, %.2f%% of the cpu time, %d written, %d skipped",
+			snapshotNanos / (double) SNAPSHOTS / 1e3D,
+			100D * snapshotNanos / total, checkpointer.getOffered() - offered,
+			checkpointer.getSkipped() - skipped));
+	}
+
+	private static void check(String name, File file, Engine run, Engine resumed)
+		throws IOException
+	{
+		Checkpointer checkpointer = new Checkpointer(file, true);
+		for (int g = 1; g <= GENERATIONS; g++) {
+			run.step();
+			if (g == CHECKPOINT)
+				checkpointer.offer(run);
+		}
+		checkpointer.close();
+
+		Checkpointer.restore(file, resumed);
+		for (int g = CHECKPOINT + 1; g <= GENERATIONS; g++)
+			resumed.step();
+
+		System.out.println(String.format("%s: %d bytes, resumed run identical: %b",
+			name, file.length(), Arrays.equals(bytes(run), bytes(resumed))));
+	}
+
+	private static byte[] bytes(Checkpointable engine)
+	{
+		ByteBuffer buf = ByteBuffer.allocate(engine.getSnapshotSize());
+		engine.snapshot(buf);
+		return Arrays.copyOf(buf.array(), buf.position());
+	}
+
+	private static Engine ga(long seed, final Replacement replacement)
+	{
+		final GeneticAlgorithm ga = new GeneticAlgorithm(GeneticAlgorithm.NUM,
+			new Rng(seed));
+		// the cache is not saved, with it only the evaluations would differ
+		ga.setFitnessCache(null);
+		return new Engine() {
+			@Override
+			public void step()
+			{
+				if (replacement == null)
+					ga.round(0.01D, 10);
+				else
+					ga.steadyState(4, 0.05D, replacement);
+			}
+
+			@Override
+			public int getSnapshotSize()
+			{
+				return ga.getSnapshotSize();
+			}
+
+			@Override
+			public void snapshot(ByteBuffer buf)
+			{
+				ga.snapshot(buf);
+			}
+
+			@Override
+			public void restore(ByteBuffer buf)
+			{
+				ga.restore(buf);
+			}
+		};
+	}
+
+	private static EsEngine es(long seed)
+	{
+		double[] lower = new double[DIMENSION];
+		double[] upper = new double[DIMENSION];
+		Arrays.fill(lower, Rastrigin.LOWER);
+		Arrays.fill(upper, Rastrigin.UPPER);
+		return new EsEngine(new EvolutionStrategy(15, 100, 10, 2,
+			new BatchEvaluator(new Rastrigin(DIMENSION), null), lower, upper,
+			1D, true, ForkJoinPool.commonPool(),
+			EvolutionStrategy.DEFAULT_CHUNK_SIZE, new Rng(seed)));
+	}
+
+	private static class EsEngine
+		implements Engine
+	{
+		private EvolutionStrategy strategy;
+
+		EsEngine(EvolutionStrategy strategy)
+		{
+			this.strategy = strategy;
+		}
+
+		@Override
+		public void step()
+		{
+			strategy.newGeneration();
+		}
+
+		@Override
+		public int getSnapshotSize()
+		{
+			return strategy.getSnapshotSize();
+		}
+
+		@Override
+		public void snapshot(ByteBuffer buf)
+		{
+			strategy.snapshot(buf);
+		}
+
+		@Override
+		public void restore(ByteBuffer buf)
+		{
+			strategy.restore(buf);
+		}
+	}
+}
@@ -0,0 +1,590 @@
+package ch.dritz.zhaw.ci.differentialevolution;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.Individual;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.Cylinder;
+import ch.dritz.zhaw.ci.fitness.EvaluationBatch;
+import ch.dritz.zhaw.ci.util.IndexSort;
+import ch.dritz.zhaw.ci.util.Rng;
+import ch.dritz.zhaw.ci.util.VectorOps;
+
+/**
+ * Differential evolution minimizing a fitness function. The population is a
+ * flat matrix, row i holds the params of individual i. Each target x_i gets a
+ * trial vector: a mutant from the mutation strategy, binomial crossover with
+ * x_i and coordinates outside the bounds moved half way back to x_i. The
+ * trial replaces x_i if it is valid and not worse. Like the evolution
+ * strategy, the initial population is sampled until all are valid.
+ *
+ * Trials are created in the calling thread, straight into the rows of an
+ * evaluation batch, and evaluated as a batch by the evaluator, in parallel
+ * if it has a pool. Replacement is synchronous by default: all trials of a
+ * generation are created from the same population and replace their targets
+ * at the end. With asynchronous replacement the trials are created and
+ * evaluated in chunks, each chunk replacing its targets before the next one
+ * is created, so improvements take effect within the generation. Either way
+ * a run only depends on the seed and not on the number of threads.
+ *
+ * The mutation, crossover and repair kernels are in VectorOps.
+ * @author D. Ritz
+ */
+public class DifferentialEvolution
+{
+	public static final double DEFAULT_F = 0.5D;
+	public static final double DEFAULT_CR = 0.9D;
+	public static final double DEFAULT_P = 0.1D;
+
+	// learning rate of JADE and history size of SHADE
+	public static final double JADE_C = 0.1D;
+	public static final int SHADE_HISTORY = 10;
+
+	public static Rng rand = Rng.stream("DifferentialEvolution");
+
+	// stream of this instance, the shared one unless set
+	private Rng rng = rand;
+
+	private BatchEvaluator evaluator;
+	private MutationStrategy strategy;
+	private ParameterAdaptation adaptation;
+
+	private int n;
+	private int np;
+	private double[] lower;
+	private double[] upper;
+
+	// population, np x n
+	private double[] pop;
+	private double[] fitness;
+	private double[] g;
+	private boolean[] ok;
+
+	// replaced parents for current-to-pbest, up to np rows
+	private double[] archive;
+	private int archiveSize;
+
+	// trials of one chunk, their F and CR
+	private EvaluationBatch batch;
+	private int chunkSize;
+	private double[] trialF;
+	private double[] trialCr;
+	private double[] uniforms;
+
+	// the best p of the population, as of the start of the generation
+	private double p = DEFAULT_P;
+	private int[] order;
+	private double[] key;
+
+	// parameters: the fixed values or the means of the history
+	private double[] meanF;
+	private double[] meanCr;
+	private int historyPos;
+	private double[] successF;
+	private double[] successCr;
+	private double[] successWeight;
+	private int numSuccess;
+
+	private double[] best;
+	private double bestFitness = Double.POSITIVE_INFINITY;
+	private double bestG;
+	private int generation;
+	private long evaluations;
+
+	/**
+	 * Creates differential evolution for the cylinder problem of the other
+	 * engines
+	 * @param populationSize
+	 * @param strategy
+	 * @param adaptation
+	 */
+	public DifferentialEvolution(int populationSize, MutationStrategy strategy,
+			ParameterAdaptation adaptation)
+	{
+		this(populationSize, strategy, adaptation, defaultEvaluator(),
+			new double[] {0D, 0D},
+			new double[] {Individual.MAX_D, Individual.MAX_H}, rand);
+	}
+
+	/**
+	 * Creates differential evolution for an n-dimensional problem, drawing
+	 * from the given stream from the start
+	 * @param populationSize number of individuals, at least 4
+	 * @param strategy how mutants are created
+	 * @param adaptation how F and CR are chosen
+	 * @param evaluator evaluates the problem
+	 * @param lower lower bounds of the params
+	 * @param upper upper bounds of the params
+	 * @param rng the stream of this instance
+	 */
+	public DifferentialEvolution(int populationSize, MutationStrategy strategy,
+			ParameterAdaptation adaptation, BatchEvaluator evaluator,
+			double[] lower, double[] upper, Rng rng)
+	{
+		n = evaluator.getDimension();
+		if (lower.length != n || upper.length != n)
+			throw new IllegalArgumentException("bounds must have dimension " + n);
+		if (populationSize < 4)
+			throw new IllegalArgumentException("need at least 4 individuals");
+		this.rng = rng;
+		this.evaluator = evaluator;
+		this.strategy = strategy;
+		this.adaptation = adaptation;
+		this.lower = lower.clone();
+		this.upper = upper.clone();
+		np = populationSize;
+
+		pop = new double[np * n];
+		fitness = new double[np];
+		g = new double[np];
+		ok = new boolean[np];
+		archive = new double[np * n];
+		chunkSize = np;
+		batch = new EvaluationBatch(n, np);
+		trialF = new double[np];
+		trialCr = new double[np];
+		uniforms = new double[n];
+		order = new int[np];
+		key = new double[np];
+
+		int history = adaptation == ParameterAdaptation.SHADE ? SHADE_HISTORY : 1;
+		meanF = new double[history];
+		meanCr = new double[history];
+		for (int k = 0; k < history; k++) {
+			meanF[k] = DEFAULT_F;
+			meanCr[k] = DEFAULT_CR;
+		}
+		successF = new double[np];
+		successCr = new double[np];
+		successWeight = new double[np];
+		best = new double[n];
+
+		// ensure the initial population has only valid individuals
+		int size = 0;
+		while (size < np) {
+			int num = np - size;
+			batch.setSize(num);
+			double[] x = batch.getX();
+			for (int i = 0; i < num; i++) {
+				int offset = batch.offset(i);
+				for (int j = 0; j < n; j++)
+					x[offset + j] = lower[j] +
+						rng.nextDouble() * (upper[j] - lower[j]);
+			}
+			evaluator.evaluate(batch);
+			evaluations += batch.countEvaluated(0, num);
+			for (int i = 0; i < num; i++) {
+				if (batch.getOk()[i]) {
+					System.arraycopy(x, batch.offset(i), pop, size * n, n);
+					fitness[size] = batch.getFitness()[i];
+					g[size] = batch.getG()[i];
+					ok[size] = true;
+					offerBest(size);
+					size++;
+				}
+			}
+		}
+	}
+
+	private static BatchEvaluator defaultEvaluator()
+	{
+		Cylinder cylinder = new Cylinder(Individual.MIN_G, Individual.MAX_D,
+			Individual.MAX_H);
+		return new BatchEvaluator(cylinder, cylinder);
+	}
+
+	/**
+	 * Creates, evaluates and selects one trial per individual
+	 */
+	public void newGeneration()
+	{
+		if (strategy == MutationStrategy.CURRENT_TO_PBEST_1)
+			rank();
+		numSuccess = 0;
+
+		for (int from = 0; from < np; from += chunkSize) {
+			int to = Math.min(np, from + chunkSize);
+			batch.setSize(to - from);
+			for (int i = from; i < to; i++)
+				createTrial(i, i - from);
+
+			evaluator.evaluate(batch);
+			evaluations += batch.countEvaluated(0, to - from);
+
+			for (int i = from; i < to; i++)
+				replace(i, i - from);
+		}
+
+		adapt();
+		generation++;
+	}
+
+	/**
+	 * Moves the best p of the population to the front of order, invalid
+	 * individuals rank last
+	 */
+	private void rank()
+	{
+		for (int i = 0; i < np; i++)
+			key[i] = ok[i] ? fitness[i] : Double.POSITIVE_INFINITY;
+		IndexSort.identity(order, np);
+		IndexSort.select(order, 0, np, numBest(), key);
+	}
+
+	private int numBest()
+	{
+		return Math.max(2, (int) Math.round(p * np));
+	}
+
+	/**
+	 * Creates the trial of target i in row t of the batch
+	 * @param i
+	 * @param t
+	 */
+	private void createTrial(int i, int t)
+	{
+		int slot = meanF.length == 1 ? 0 : rng.nextInt(meanF.length);
+		double f = sampleF(slot);
+		double cr = sampleCr(slot);
+		trialF[t] = f;
+		trialCr[t] = cr;
+		double[] v = batch.getX();
+		int vOff = batch.offset(t);
+		int xOff = i * n;
+
+		if (strategy == MutationStrategy.RAND_1) {
+			int r0 = pick(i, -1, -1, np);
+			int r1 = pick(i, r0, -1, np);
+			int r2 = pick(i, r0, r1, np);
+			System.arraycopy(pop, r0 * n, v, vOff, n);
+			VectorOps.addScaledDifference(v, vOff, pop, r1 * n, pop, r2 * n, f, n);
+		} else {
+			int pbest = order[rng.nextInt(numBest())];
+			int r1 = pick(i, -1, -1, np);
+			int r2 = pick(i, r1, -1, np + archiveSize);
+			System.arraycopy(pop, xOff, v, vOff, n);
+			VectorOps.addScaledDifference(v, vOff, pop, pbest * n, pop, xOff, f, n);
+			double[] x2 = r2 < np ? pop : archive;
+			int x2Off = (r2 < np ? r2 : r2 - np) * n;
+			VectorOps.addScaledDifference(v, vOff, pop, r1 * n, x2, x2Off, f, n);
+		}
+
+		// binomial crossover, coordinate jrand always from the mutant
+		VectorOps.uniform(uniforms, 0, n, rng);
+		uniforms[rng.nextInt(n)] = -1D;
+		VectorOps.blend(v, vOff, pop, xOff, uniforms, cr, n);
+		VectorOps.midpointRepair(v, vOff, pop, xOff, lower, upper, n);
+	}
+
+	/**
+	 * @return a random index below bound, different from the three others
+	 */
+	private int pick(int a, int b, int c, int bound)
+	{
+		int r;
+		do {
+			r = rng.nextInt(bound);
+		} while (r == a || r == b || r == c);
+		return r;
+	}
+
+	/**
+	 * @param slot
+	 * @return F of a trial, Cauchy(mean, 0.1) redrawn if not positive and
+	 * cut at 1 if adaptive
+	 */
+	private double sampleF(int slot)
+	{
+		double f = meanF[slot];
+		if (adaptation == ParameterAdaptation.FIXED)
+			return f;
+		double ret;
+		do {
+			ret = f + 0.1D * Math.tan(Math.PI * (rng.nextDouble() - 0.5D));
+		} while (ret <= 0D);
+		return Math.min(1D, ret);
+	}
+
+	/**
+	 * @param slot
+	 * @return CR of a trial, N(mean, 0.1) cut to [0, 1] if adaptive
+	 */
+	private double sampleCr(int slot)
+	{
+		double cr = meanCr[slot];
+		if (adaptation == ParameterAdaptation.FIXED)
+			return cr;
+		return Math.min(1D, Math.max(0D, cr + 0.1D * rng.nextGaussian()));
+	}
+
+	/**
+	 * Replaces target i with the trial in row t of the batch if the trial
+	 * is valid and not worse
+	 * @param i
+	 * @param t
+	 */
+	private void replace(int i, int t)
+	{
+		if (!batch.getOk()[t])
+			return;
+		double f = batch.getFitness()[t];
+		if (ok[i] && f > fitness[i])
+			return;
+
+		int xOff = i * n;
+		if (ok[i] && f < fitness[i]) {
+			successF[numSuccess] = trialF[t];
+			successCr[numSuccess] = trialCr[t];
+			successWeight[numSuccess] = fitness[i] - f;
+			numSuccess++;
+			if (strategy == MutationStrategy.CURRENT_TO_PBEST_1)
+				archive(xOff);
+		}
+
+		System.arraycopy(batch.getX(), batch.offset(t), pop, xOff, n);
+		fitness[i] = f;
+		g[i] = batch.getG()[t];
+		ok[i] = true;
+		offerBest(i);
+	}
+
+	/**
+	 * Adds a replaced parent to the archive, over a random one if full
+	 * @param xOff
+	 */
+	private void archive(int xOff)
+	{
+		int k = archiveSize < np ? archiveSize++ : rng.nextInt(np);
+		System.arraycopy(pop, xOff, archive, k * n, n);
+	}
+
+	private void offerBest(int i)
+	{
+		if (ok[i] && fitness[i] < bestFitness) {
+			bestFitness = fitness[i];
+			bestG = g[i];
+			System.arraycopy(pop, i * n, best, 0, n);
+		}
+	}
+
+	/**
+	 * Moves the means of F and CR towards the successful values of the
+	 * generation
+	 */
+	private void adapt()
+	{
+		if (adaptation == ParameterAdaptation.FIXED || numSuccess == 0)
+			return;
+
+		double sumW = 0D;
+		double sumCr = 0D;
+		double sumF = 0D;
+		double sumFSq = 0D;
+		for (int k = 0; k < numSuccess; k++) {
+			// JADE weighs all successes the same
+			double w = adaptation == ParameterAdaptation.SHADE ? successWeight[k] : 1D;
+			sumW += w;
+			sumCr += w * successCr[k];
+			sumF += w * successF[k];
+			sumFSq += w * successF[k] * successF[k];
+		}
+		if (sumW <= 0D || sumF <= 0D)
+			return;
+		double cr = sumCr / sumW;
+		double lehmer = sumFSq / sumF;
+
+		if (adaptation == ParameterAdaptation.JADE) {
+			meanCr[0] = (1D - JADE_C) * meanCr[0] + JADE_C * cr;
+			meanF[0] = (1D - JADE_C) * meanF[0] + JADE_C * lehmer;
+		} else {
+			meanCr[historyPos] = cr;
+			meanF[historyPos] = lehmer;
+			historyPos = (historyPos + 1) % meanF.length;
+		}
+	}
+
+	/**
+	 * Evaluates the given params and, if valid, replaces the worst
+	 * individual with them, e.g. a good solution found elsewhere
+	 * @param x
+	 * @param xOffset
+	 * @return true if the immigrant was valid and taken
+	 */
+	public boolean immigrate(double[] x, int xOffset)
+	{
+		batch.setSize(1);
+		System.arraycopy(x, xOffset, batch.getX(), 0, n);
+		VectorOps.clamp(batch.getX(), 0, n, lower, upper);
+		evaluator.evaluate(batch);
+		evaluations++;
+		if (!batch.getOk()[0])
+			return false;
+
+		int worst = 0;
+		for (int i = 1; i < np; i++) {
+			if (!ok[i] || (ok[worst] && fitness[i] > fitness[worst]))
+				worst = i;
+		}
+		System.arraycopy(batch.getX(), 0, pop, worst * n, n);
+		fitness[worst] = batch.getFitness()[0];
+		g[worst] = batch.getG()[0];
+		ok[worst] = true;
+		offerBest(worst);
+		return true;
+	}
+
+	/**
+	 * Sets F and CR, or their initial means if adaptive. Defaults to 0.5 and
+	 * 0.9.
+	 * @param f
+	 * @param cr
+	 */
+	public void setParameters(double f, double cr)
+	{
+		if (f <= 0D || cr < 0D || cr > 1D)
+			throw new IllegalArgumentException("need F > 0 and CR in [0, 1]");
+		for (int k = 0; k < meanF.length; k++) {
+			meanF[k] = f;
+			meanCr[k] = cr;
+		}
+	}
+
+	/**
+	 * Sets the fraction of the population x_pbest is drawn from, defaults to
+	 * 0.1. At least the best two are used.
+	 * @param p
+	 */
+	public void setPBest(double p)
+	{
+		if (p <= 0D || p > 1D)
+			throw new IllegalArgumentException("p must be in (0, 1]");
+		this.p = p;
+	}
+
+	/**
+	 * Sets the number of trials created and evaluated together, each chunk
+	 * replacing its targets before the next one is created. Defaults to the
+	 * population size, i.e. synchronous replacement.
+	 * @param chunkSize 1 for fully asynchronous replacement, the population
+	 * size or more for synchronous replacement
+	 */
+	public void setChunkSize(int chunkSize)
+	{
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("chunk size must be >= 1");
+		this.chunkSize = Math.min(chunkSize, np);
+	}
+
+	/**
+	 * @return true if all trials of a generation replace their targets at
+	 * the end
+	 */
+	public boolean isSynchronous()
+	{
+		return chunkSize == np;
+	}
+
+	/**
+	 * Sets the stream this instance draws from, e.g. split from the shared
+	 * one so several instances can run in parallel without contention
+	 * @param rng
+	 */
+	public void setRandom(Rng rng)
+	{
+		this.rng = rng;
+	}
+
+	public Rng getRandom()
+	{
+		return rng;
+	}
+
+	/**
+	 * @return the best valid point found so far, not a copy
+	 */
+	public double[] getBest()
+	{
+		return best;
+	}
+
+	/**
+	 * @return the fitness of the best point, infinity if none was valid
+	 */
+	public double getBestFitness()
+	{
+		return bestFitness;
+	}
+
+	/**
+	 * @return the constraint value of the best point
+	 */
+	public double getBestG()
+	{
+		return bestG;
+	}
+
+	/**
+	 * @return the mean F over the history, the fixed F if not adaptive
+	 */
+	public double getMeanF()
+	{
+		return VectorOps.sum(meanF, 0, meanF.length) / meanF.length;
+	}
+
+	/**
+	 * @return the mean CR over the history, the fixed CR if not adaptive
+	 */
+	public double getMeanCr()
+	{
+		return VectorOps.sum(meanCr, 0, meanCr.length) / meanCr.length;
+	}
+
+	/**
+	 * @return the largest standard deviation of any param over the
+	 * population
+	 */
+	public double getDiversity()
+	{
+		double max = 0D;
+		for (int j = 0; j < n; j++) {
+			double sum = 0D;
+			double sumSq = 0D;
+			for (int i = 0; i < np; i++) {
+				double v = pop[i * n + j];
+				sum += v;
+				sumSq += v * v;
+			}
+			double mean = sum / np;
+			max = Math.max(max, sumSq / np - mean * mean);
+		}
+		return Math.sqrt(Math.max(0D, max));
+	}
+
+	public MutationStrategy getStrategy()
+	{
+		return strategy;
+	}
+
+	public ParameterAdaptation getAdaptation()
+	{
+		return adaptation;
+	}
+
+	public int getPopulationSize()
+	{
+		return np;
+	}
+
+	public int getDimension()
+	{
+		return n;
+	}
+
+	public int getGeneration()
+	{
+		return generation;
+	}
+
+	public long getEvaluations()
+	{
+		return evaluations;
+	}
+}
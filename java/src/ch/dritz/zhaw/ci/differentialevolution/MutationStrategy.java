@@ -0,0 +1,19 @@
+package ch.dritz.zhaw.ci.differentialevolution;
+
+/**
+ * How differential evolution creates the mutant vector of target x_i, both
+ * followed by binomial crossover with x_i
+ * @author D. Ritz
+ */
+public enum MutationStrategy
+{
+	/** v = x_r0 + F (x_r1 - x_r2), all random and distinct from i */
+	RAND_1,
+
+	/**
+	 * v = x_i + F (x_pbest - x_i) + F (x_r1 - x_r2), x_pbest one of the best
+	 * p of the population, x_r2 from the population or the archive of
+	 * replaced parents
+	 */
+	CURRENT_TO_PBEST_1;
+}
@@ -0,0 +1,26 @@
+package ch.dritz.zhaw.ci.differentialevolution;
+
+/**
+ * How differential evolution chooses the scale factor F and the crossover
+ * rate CR of each trial
+ * @author D. Ritz
+ */
+public enum ParameterAdaptation
+{
+	/** the same F and CR for every trial */
+	FIXED,
+
+	/**
+	 * JADE: F from Cauchy(mu_F, 0.1), CR from N(mu_CR, 0.1). After each
+	 * generation the means move towards the Lehmer mean of the successful F
+	 * and the mean of the successful CR.
+	 */
+	JADE,
+
+	/**
+	 * SHADE: like JADE, but the means come from a random slot of a history.
+	 * After each generation one slot is overwritten with the means of the
+	 * successful values, weighted by their fitness improvement.
+	 */
+	SHADE;
+}
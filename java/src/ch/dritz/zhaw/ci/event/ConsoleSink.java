@@ -0,0 +1,15 @@
+package ch.dritz.zhaw.ci.event;
+
+/**
+ * Prints each event to System.out
+ * @author D. Ritz
+ */
+public class ConsoleSink
+	implements GenerationListener
+{
+	@Override
+	public void generation(GenerationEvent event)
+	{
+		System.out.println(event);
+	}
+}
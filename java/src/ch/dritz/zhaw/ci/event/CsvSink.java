@@ -0,0 +1,87 @@
+package ch.dritz.zhaw.ci.event;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes each event as a line of comma separated values
+ * @author D. Ritz
+ */
+public class CsvSink
+	implements GenerationListener
+{
+	private Writer out;
+	private boolean header = false;
+	private IOException error;
+
+	/**
+	 * @param file the file to write, overwritten if it exists
+	 * @throws IOException
+	 */
+	public CsvSink(File file)
+		throws IOException
+	{
+		this(new BufferedWriter(new OutputStreamWriter(
+			new FileOutputStream(file), "UTF8")));
+	}
+
+	/**
+	 * @param out
+	 */
+	public CsvSink(Writer out)
+	{
+		this.out = out;
+	}
+
+	@Override
+	public void generation(GenerationEvent e)
+	{
+		if (error != null)
+			return;
+		try {
+			if (!header) {
+				out.write("source,generation,size,feasible,best,mean,g," +
+					"minSigma,meanSigma,maxSigma,mutated");
+				for (int i = 0; i < e.dimension; i++)
+					out.write(",x" + i);
+				out.write("\n");
+				header = true;
+			}
+			StringBuilder sb = new StringBuilder();
+			sb.append(e.source == null ? "" : e.source);
+			sb.append(',').append(e.generation);
+			sb.append(',').append(e.populationSize);
+			sb.append(',').append(e.feasible);
+			sb.append(',').append(e.bestFitness);
+			sb.append(',').append(e.meanFitness);
+			sb.append(',').append(e.bestG);
+			sb.append(',').append(e.minSigma);
+			sb.append(',').append(e.meanSigma);
+			sb.append(',').append(e.maxSigma);
+			sb.append(',').append(e.mutated);
+			for (int i = 0; i < e.dimension; i++)
+				sb.append(',').append(e.best[i]);
+			sb.append('\n');
+			out.write(sb.toString());
+		} catch (IOException ex) {
+			// remembered, reported by close()
+			error = ex;
+		}
+	}
+
+	/**
+	 * flushes and closes the output. Call after EventRing.close().
+	 * @throws IOException if any write failed
+	 */
+	public void close()
+		throws IOException
+	{
+		out.close();
+		if (error != null)
+			throw error;
+	}
+}
@@ -0,0 +1,174 @@
+package ch.dritz.zhaw.ci.event;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands generation statistics from the engines to the listeners. Engines
+ * publish into a lock free ring of preallocated events, a background thread
+ * drains the ring and calls the listeners. Publishing never blocks and
+ * never allocates: if the ring is full the event is dropped and counted.
+ * Multiple engines may publish into the same ring.
+ * @author D. Ritz
+ */
+public class EventRing
+{
+	private static final long IDLE_NANOS = 1000000L;
+
+	private GenerationEvent[] slots;
+	private AtomicLongArray sequence;
+	private int mask;
+	private AtomicLong publishPos = new AtomicLong();
+	private long consumePos = 0;
+
+	private List<GenerationListener> listeners =
+		new CopyOnWriteArrayList<GenerationListener>();
+	private int sampleInterval = 1;
+	private AtomicLong dropped = new AtomicLong();
+
+	private volatile boolean running = true;
+	private Thread consumer;
+
+	/**
+	 * Creates the ring and starts the consumer thread
+	 * @param capacity number of events, rounded up to a power of two
+	 * @param maxDimension parameters of the best individual kept per event
+	 */
+	public EventRing(int capacity, int maxDimension)
+	{
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		slots = new GenerationEvent[size];
+		sequence = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			slots[i] = new GenerationEvent(maxDimension);
+			sequence.set(i, i);
+		}
+		mask = size - 1;
+
+		consumer = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				consume();
+			}
+		}, "event-ring");
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	/**
+	 * @param listener
+	 */
+	public void addListener(GenerationListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param listener
+	 */
+	public void removeListener(GenerationListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Only every n-th generation is published
+	 * @param n
+	 */
+	public void setSampleInterval(int n)
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("interval must be >= 1");
+		sampleInterval = n;
+	}
+
+	/**
+	 * Allows engines to skip collecting statistics that would not be
+	 * published anyway
+	 * @param generation
+	 * @return true if the generation is published
+	 */
+	public boolean isSampled(long generation)
+	{
+		return generation % sampleInterval == 0;
+	}
+
+	/**
+	 * Copies the event into the ring, unless the generation is not sampled
+	 * or the ring is full. Never blocks.
+	 * @param event
+	 * @return true if the event was accepted
+	 */
+	public boolean publish(GenerationEvent event)
+	{
+		if (!isSampled(event.generation))
+			return false;
+
+		long pos = publishPos.get();
+		int idx;
+		while (true) {
+			idx = (int) (pos & mask);
+			long diff = sequence.get(idx) - pos;
+			if (diff == 0) {
+				if (publishPos.compareAndSet(pos, pos + 1))
+					break;
+				pos = publishPos.get();
+			} else if (diff < 0) {
+				dropped.incrementAndGet();
+				return false;
+			} else {
+				pos = publishPos.get();
+			}
+		}
+		slots[idx].copyFrom(event);
+		sequence.lazySet(idx, pos + 1);
+		return true;
+	}
+
+	/**
+	 * consumer loop, runs until closed and drained
+	 */
+	private void consume()
+	{
+		while (true) {
+			int idx = (int) (consumePos & mask);
+			if (sequence.get(idx) == consumePos + 1) {
+				GenerationEvent event = slots[idx];
+				for (GenerationListener l : listeners)
+					l.generation(event);
+				sequence.lazySet(idx, consumePos + mask + 1);
+				consumePos++;
+				continue;
+			}
+			if (!running && publishPos.get() == consumePos)
+				return;
+			LockSupport.parkNanos(this, IDLE_NANOS);
+		}
+	}
+
+	/**
+	 * Stops the consumer thread after all published events were delivered
+	 */
+	public void close()
+	{
+		running = false;
+		LockSupport.unpark(consumer);
+		try {
+			consumer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return number of events dropped because the ring was full
+	 */
+	public long getDropped()
+	{
+		return dropped.get();
+	}
+}
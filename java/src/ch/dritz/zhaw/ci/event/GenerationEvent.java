@@ -0,0 +1,222 @@
+package ch.dritz.zhaw.ci.event;
+
+/**
+ * Statistics of one generation. Instances are reused: engines fill one in
+ * place, the EventRing copies it into a preallocated slot. Listeners must
+ * copy whatever they want to keep.
+ * @author D. Ritz
+ */
+public class GenerationEvent
+{
+	String source;
+	long generation;
+	int populationSize;
+	int feasible;
+	double bestFitness;
+	double meanFitness;
+	double bestG;
+	double minSigma = Double.NaN;
+	double meanSigma = Double.NaN;
+	double maxSigma = Double.NaN;
+	int mutated = -1;
+	int dimension;
+	double[] best;
+
+	/**
+	 * @param maxDimension maximal number of parameters of the best individual
+	 */
+	public GenerationEvent(int maxDimension)
+	{
+		best = new double[maxDimension];
+	}
+
+	/**
+	 * Sets the fields common to all engines
+	 * @param source name of the engine
+	 * @param generation
+	 * @param populationSize
+	 * @param feasible number of valid individuals
+	 */
+	public void set(String source, long generation, int populationSize,
+			int feasible)
+	{
+		this.source = source;
+		this.generation = generation;
+		this.populationSize = populationSize;
+		this.feasible = feasible;
+	}
+
+	/**
+	 * @param bestFitness fitness of the best valid individual
+	 * @param meanFitness mean fitness of the valid individuals
+	 * @param bestG g() of the best valid individual
+	 */
+	public void setFitness(double bestFitness, double meanFitness, double bestG)
+	{
+		this.bestFitness = bestFitness;
+		this.meanFitness = meanFitness;
+		this.bestG = bestG;
+	}
+
+	/**
+	 * @param min
+	 * @param mean
+	 * @param max
+	 */
+	public void setSigma(double min, double mean, double max)
+	{
+		this.minSigma = min;
+		this.meanSigma = mean;
+		this.maxSigma = max;
+	}
+
+	/**
+	 * @param mutated number of individuals changed by mutation
+	 */
+	public void setMutated(int mutated)
+	{
+		this.mutated = mutated;
+	}
+
+	/**
+	 * Sets the parameters of the best individual, truncated to the capacity
+	 * @param x
+	 * @param offset
+	 * @param dimension
+	 */
+	public void setBest(double[] x, int offset, int dimension)
+	{
+		this.dimension = Math.min(dimension, best.length);
+		System.arraycopy(x, offset, best, 0, this.dimension);
+	}
+
+	/**
+	 * Sets the parameters of a two dimensional best individual
+	 * @param x0
+	 * @param x1
+	 */
+	public void setBest(double x0, double x1)
+	{
+		dimension = Math.min(2, best.length);
+		if (dimension > 0)
+			best[0] = x0;
+		if (dimension > 1)
+			best[1] = x1;
+	}
+
+	/**
+	 * copies everything from the other event, without allocating
+	 * @param o
+	 */
+	public void copyFrom(GenerationEvent o)
+	{
+		source = o.source;
+		generation = o.generation;
+		populationSize = o.populationSize;
+		feasible = o.feasible;
+		bestFitness = o.bestFitness;
+		meanFitness = o.meanFitness;
+		bestG = o.bestG;
+		minSigma = o.minSigma;
+		meanSigma = o.meanSigma;
+		maxSigma = o.maxSigma;
+		mutated = o.mutated;
+		dimension = Math.min(o.dimension, best.length);
+		System.arraycopy(o.best, 0, best, 0, dimension);
+	}
+
+	public String getSource()
+	{
+		return source;
+	}
+
+	public long getGeneration()
+	{
+		return generation;
+	}
+
+	public int getPopulationSize()
+	{
+		return populationSize;
+	}
+
+	public int getFeasible()
+	{
+		return feasible;
+	}
+
+	public double getBestFitness()
+	{
+		return bestFitness;
+	}
+
+	public double getMeanFitness()
+	{
+		return meanFitness;
+	}
+
+	public double getBestG()
+	{
+		return bestG;
+	}
+
+	public double getMinSigma()
+	{
+		return minSigma;
+	}
+
+	public double getMeanSigma()
+	{
+		return meanSigma;
+	}
+
+	public double getMaxSigma()
+	{
+		return maxSigma;
+	}
+
+	/**
+	 * @return number of mutated individuals, -1 if not applicable
+	 */
+	public int getMutated()
+	{
+		return mutated;
+	}
+
+	/**
+	 * @return number of valid entries in getBest()
+	 */
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	/**
+	 * @return parameters of the best individual, see getDimension()
+	 */
+	public double[] getBest()
+	{
+		return best;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		if (source != null)
+			sb.append(source).append(" ");
+		sb.append("generation: ").append(String.format("%03d", generation));
+		sb.append(" BEST: ");
+		for (int i = 0; i < dimension; i++)
+			sb.append(String.format("x%d: %02.3f, ", i, best[i]));
+		sb.append("fit: ").append(String.format("%04.3f", bestFitness));
+		sb.append(", g: ").append(String.format("%04.3f", bestG));
+		sb.append(", mean: ").append(String.format("%04.3f", meanFitness));
+		sb.append(", ok: ").append(feasible).append("/").append(populationSize);
+		if (!Double.isNaN(meanSigma))
+			sb.append(", sigma: ").append(String.format("%1.5f", meanSigma));
+		if (mutated >= 0)
+			sb.append(", mutated: ").append(mutated);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,14 @@
+package ch.dritz.zhaw.ci.event;
+
+/**
+ * Receives the statistics of each (sampled) generation. Called from the
+ * consumer thread of the EventRing, never from the engine's thread.
+ * @author D. Ritz
+ */
+public interface GenerationListener
+{
+	/**
+	 * @param event only valid during the call
+	 */
+	void generation(GenerationEvent event);
+}
@@ -0,0 +1,62 @@
+package ch.dritz.zhaw.ci.event;
+
+import java.io.PrintStream;
+
+/**
+ * Keeps the most recent events in a bounded history, older ones are
+ * overwritten. The events are preallocated, keeping history allocates
+ * nothing.
+ * @author D. Ritz
+ */
+public class HistorySink
+	implements GenerationListener
+{
+	private GenerationEvent[] history;
+	private long count = 0;
+
+	/**
+	 * @param capacity number of events to keep
+	 * @param maxDimension parameters of the best individual kept per event
+	 */
+	public HistorySink(int capacity, int maxDimension)
+	{
+		history = new GenerationEvent[capacity];
+		for (int i = 0; i < capacity; i++)
+			history[i] = new GenerationEvent(maxDimension);
+	}
+
+	@Override
+	public synchronized void generation(GenerationEvent event)
+	{
+		history[(int) (count % history.length)].copyFrom(event);
+		count++;
+	}
+
+	/**
+	 * @return number of events in the history
+	 */
+	public synchronized int getSize()
+	{
+		return (int) Math.min(count, history.length);
+	}
+
+	/**
+	 * @param i 0 is the oldest event still in the history
+	 * @return the event, owned by the history
+	 */
+	public synchronized GenerationEvent get(int i)
+	{
+		long first = count - getSize();
+		return history[(int) ((first + i) % history.length)];
+	}
+
+	/**
+	 * prints the history, oldest first
+	 * @param out
+	 */
+	public synchronized void print(PrintStream out)
+	{
+		for (int i = 0; i < getSize(); i++)
+			out.println(get(i));
+	}
+}
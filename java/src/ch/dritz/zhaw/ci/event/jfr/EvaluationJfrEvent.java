@@ -0,0 +1,85 @@
+package ch.dritz.zhaw.ci.event.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import ch.dritz.zhaw.ci.fitness.EvaluationBatch;
+
+/**
+ * Flight recorder event spanning the evaluation of (a chunk of) a batch
+ * @author D. Ritz
+ */
+@Name("ch.dritz.zhaw.ci.Evaluation")
+@Label("Fitness Evaluation")
+@Category({"Evolutionary Computation"})
+@Description("Evaluation of a batch of individuals")
+@StackTrace(false)
+public class EvaluationJfrEvent
+	extends jdk.jfr.Event
+{
+	// only asked whether the event is enabled, never committed
+	private static final EvaluationJfrEvent PROBE = new EvaluationJfrEvent();
+
+	@Label("Engine")
+	public String engine;
+
+	@Label("Generation")
+	public long generation;
+
+	@Label("Size")
+	public int size;
+
+	@Label("Feasible")
+	public int feasible;
+
+	@Label("Best Fitness")
+	public double bestFitness;
+
+	@Label("Mean Fitness")
+	@Description("Mean fitness of the feasible individuals")
+	public double meanFitness;
+
+	/**
+	 * Sets size and statistics from the evaluated entries from..to-1
+	 * @param batch
+	 * @param from
+	 * @param to
+	 */
+	public void set(EvaluationBatch batch, int from, int to)
+	{
+		double[] fitness = batch.getFitness();
+		boolean[] ok = batch.getOk();
+		double best = Double.NaN;
+		double sum = 0D;
+		int numOk = 0;
+		for (int i = from; i < to; i++) {
+			if (!ok[i])
+				continue;
+			if (numOk == 0 || fitness[i] < best)
+				best = fitness[i];
+			sum += fitness[i];
+			numOk++;
+		}
+		size = to - from;
+		feasible = numOk;
+		bestFitness = best;
+		meanFitness = numOk > 0 ? sum / numOk : Double.NaN;
+	}
+
+	/**
+	 * Creates and begins the event if it is enabled. Returns null otherwise,
+	 * so nothing is allocated while no recording is running.
+	 * @return the event or null
+	 */
+	public static EvaluationJfrEvent start()
+	{
+		if (!PROBE.isEnabled())
+			return null;
+		EvaluationJfrEvent ret = new EvaluationJfrEvent();
+		ret.begin();
+		return ret;
+	}
+}
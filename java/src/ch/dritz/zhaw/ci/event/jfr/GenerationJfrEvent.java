@@ -0,0 +1,69 @@
+package ch.dritz.zhaw.ci.event.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning one generation of an engine, with the
+ * statistics of the population at its end. The duration is the wall time of
+ * the generation.
+ * @author D. Ritz
+ */
+@Name("ch.dritz.zhaw.ci.Generation")
+@Label("Generation")
+@Category({"Evolutionary Computation"})
+@Description("One generation of an evolutionary engine")
+@StackTrace(false)
+public class GenerationJfrEvent
+	extends jdk.jfr.Event
+{
+	// only asked whether the event is enabled, never committed
+	private static final GenerationJfrEvent PROBE = new GenerationJfrEvent();
+
+	@Label("Engine")
+	public String engine;
+
+	@Label("Generation")
+	public long generation;
+
+	@Label("Population Size")
+	public int populationSize;
+
+	@Label("Feasible")
+	@Description("Number of individuals satisfying the constraint")
+	public int feasible;
+
+	@Label("Best Fitness")
+	public double bestFitness;
+
+	@Label("Mean Fitness")
+	@Description("Mean fitness of the feasible individuals")
+	public double meanFitness;
+
+	@Label("Min Sigma")
+	@Description("Smallest step size, NaN for engines without step sizes")
+	public double minSigma;
+
+	@Label("Mean Sigma")
+	public double meanSigma;
+
+	@Label("Max Sigma")
+	public double maxSigma;
+
+	/**
+	 * Creates and begins the event if it is enabled. Returns null otherwise,
+	 * so nothing is allocated while no recording is running.
+	 * @return the event or null
+	 */
+	public static GenerationJfrEvent start()
+	{
+		if (!PROBE.isEnabled())
+			return null;
+		GenerationJfrEvent ret = new GenerationJfrEvent();
+		ret.begin();
+		return ret;
+	}
+}
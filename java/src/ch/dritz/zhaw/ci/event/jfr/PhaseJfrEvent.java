@@ -0,0 +1,57 @@
+package ch.dritz.zhaw.ci.event.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning one phase of a generation, e.g. selection,
+ * recombination or a batch of mutations
+ * @author D. Ritz
+ */
+@Name("ch.dritz.zhaw.ci.Phase")
+@Label("Phase")
+@Category({"Evolutionary Computation"})
+@Description("One phase of a generation of an evolutionary engine")
+@StackTrace(false)
+public class PhaseJfrEvent
+	extends jdk.jfr.Event
+{
+	public static final String SELECTION = "selection";
+	public static final String RECOMBINATION = "recombination";
+	public static final String MUTATION = "mutation";
+	public static final String VARIATION = "recombination and mutation";
+	public static final String ENVIRONMENTAL_SELECTION = "environmental selection";
+
+	// only asked whether the event is enabled, never committed
+	private static final PhaseJfrEvent PROBE = new PhaseJfrEvent();
+
+	@Label("Engine")
+	public String engine;
+
+	@Label("Generation")
+	public long generation;
+
+	@Label("Phase")
+	public String phase;
+
+	@Label("Individuals")
+	@Description("Number of individuals processed")
+	public int count;
+
+	/**
+	 * Creates and begins the event if it is enabled. Returns null otherwise,
+	 * so nothing is allocated while no recording is running.
+	 * @return the event or null
+	 */
+	public static PhaseJfrEvent start()
+	{
+		if (!PROBE.isEnabled())
+			return null;
+		PhaseJfrEvent ret = new PhaseJfrEvent();
+		ret.begin();
+		return ret;
+	}
+}
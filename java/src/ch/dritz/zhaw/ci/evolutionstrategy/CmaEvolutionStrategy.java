@@ -0,0 +1,471 @@
+package ch.dritz.zhaw.ci.evolutionstrategy;
+
+import ch.dritz.zhaw.ci.event.EventRing;
+import ch.dritz.zhaw.ci.event.GenerationEvent;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.Cylinder;
+import ch.dritz.zhaw.ci.fitness.EvaluationBatch;
+import ch.dritz.zhaw.ci.util.IndexSort;
+import ch.dritz.zhaw.ci.util.Rng;
+import ch.dritz.zhaw.ci.util.SymmetricEigen;
+
+/**
+ * Covariance matrix adaptation evolution strategy (mu/mu_w, lambda)-CMA-ES
+ * minimizing a fitness function. Mean, step size, evolution paths and the
+ * covariance are kept in flat primitive arrays. The covariance is updated with
+ * the rank-one and rank-mu update, its eigendecomposition is only recomputed
+ * every O(n) generations. The whole generation is sampled into one batch and
+ * evaluated at once.
+ *
+ * The separable variant (sep-CMA-ES) only adapts the diagonal of the
+ * covariance, so time and memory per generation stay linear in n.
+ *
+ * Infeasible samples are ranked behind all feasible ones.
+ * @author D.Ritz
+ */
+public class CmaEvolutionStrategy
+{
+	public static Rng rand = Rng.stream("CmaEvolutionStrategy");
+
+	// stream of this instance, the shared one unless set
+	private Rng rng = rand;
+
+	private BatchEvaluator evaluator;
+	private EvaluationBatch batch;
+	private boolean separable;
+
+	private int n;
+	private int lambda;
+	private int mu;
+	private double[] weights;
+	private double mueff;
+
+	// strategy parameters
+	private double cc;
+	private double cs;
+	private double c1;
+	private double cmu;
+	private double damps;
+	private double chiN;
+	private int eigenInterval;
+
+	// state
+	private double[] mean;
+	private double sigma;
+	private double[] pc;
+	private double[] ps;
+	private double[] c;
+	private double[] b;
+	private double[] d;
+	private int lastEigen;
+
+	// per generation work arrays
+	private double[] arz;
+	private double[] ary;
+	private double[] key;
+	private int[] index;
+	private double[] yw;
+	private double[] zw;
+	private double[] work;
+	private double[] eigenValues;
+
+	private double[] best;
+	private double bestFitness = Double.POSITIVE_INFINITY;
+	private double bestG;
+	private int generation;
+	private long evaluations;
+
+	private EventRing events;
+	private String source;
+	private GenerationEvent event;
+
+	/**
+	 * Creates the strategy for the cylinder problem of the other engines
+	 * @param lambda number of samples per generation, 0 for the default
+	 * @param separable use the diagonal variant
+	 */
+	public CmaEvolutionStrategy(int lambda, boolean separable)
+	{
+		this(defaultEvaluator(),
+			new double[] {Individual.MAX_D / 2D, Individual.MAX_H / 2D},
+			Individual.MAX_D / 4D, lambda, separable);
+	}
+
+	/**
+	 * Creates the strategy
+	 * @param evaluator evaluates the samples
+	 * @param initialMean start point, not modified
+	 * @param initialSigma initial step size
+	 * @param lambda number of samples per generation, 0 for 4 + 3 ln(n)
+	 * @param separable only adapt the diagonal of the covariance
+	 */
+	public CmaEvolutionStrategy(BatchEvaluator evaluator, double[] initialMean,
+			double initialSigma, int lambda, boolean separable)
+	{
+		n = evaluator.getDimension();
+		if (initialMean.length != n)
+			throw new IllegalArgumentException("mean must have dimension " + n);
+		if (initialSigma <= 0D)
+			throw new IllegalArgumentException("sigma must be positive");
+		if (lambda == 0)
+			lambda = 4 + (int) (3D * Math.log(n));
+		if (lambda < 2)
+			throw new IllegalArgumentException("lambda must be at least 2");
+
+		this.evaluator = evaluator;
+		this.separable = separable;
+		this.lambda = lambda;
+		mu = lambda / 2;
+
+		weights = new double[mu];
+		double sum = 0D;
+		for (int i = 0; i < mu; i++) {
+			weights[i] = Math.log(mu + 0.5D) - Math.log(i + 1);
+			sum += weights[i];
+		}
+		double sumSq = 0D;
+		for (int i = 0; i < mu; i++) {
+			weights[i] /= sum;
+			sumSq += weights[i] * weights[i];
+		}
+		mueff = 1D / sumSq;
+
+		cc = (4D + mueff / n) / (n + 4D + 2D * mueff / n);
+		cs = (mueff + 2D) / (n + mueff + 5D);
+		c1 = 2D / ((n + 1.3D) * (n + 1.3D) + mueff);
+		cmu = Math.min(1D - c1,
+			2D * (mueff - 2D + 1D / mueff) / ((n + 2D) * (n + 2D) + mueff));
+		if (separable) {
+			// faster learning for the n instead of n^2 free parameters
+			double f = (n + 2D) / 3D;
+			c1 = Math.min(1D, c1 * f);
+			cmu = Math.min(1D - c1, cmu * f);
+		}
+		damps = 1D + 2D * Math.max(0D, Math.sqrt((mueff - 1D) / (n + 1D)) - 1D) + cs;
+		chiN = Math.sqrt(n) * (1D - 1D / (4D * n) + 1D / (21D * n * n));
+		eigenInterval = Math.max(1, (int) (1D / ((c1 + cmu) * n * 10D)));
+
+		mean = initialMean.clone();
+		sigma = initialSigma;
+		pc = new double[n];
+		ps = new double[n];
+		d = new double[n];
+		for (int i = 0; i < n; i++)
+			d[i] = 1D;
+		if (separable) {
+			c = new double[n];
+			for (int i = 0; i < n; i++)
+				c[i] = 1D;
+		} else {
+			c = new double[n * n];
+			b = new double[n * n];
+			work = new double[n * n];
+			eigenValues = new double[n];
+			for (int i = 0; i < n; i++) {
+				c[i * n + i] = 1D;
+				b[i * n + i] = 1D;
+			}
+		}
+
+		batch = new EvaluationBatch(n, lambda);
+		batch.setSize(lambda);
+		arz = new double[lambda * n];
+		ary = new double[lambda * n];
+		key = new double[lambda];
+		index = new int[lambda];
+		yw = new double[n];
+		zw = new double[n];
+		best = initialMean.clone();
+		event = new GenerationEvent(n);
+	}
+
+	private static BatchEvaluator defaultEvaluator()
+	{
+		Cylinder cylinder = new Cylinder(Individual.MIN_G, Individual.MAX_D,
+			Individual.MAX_H);
+		return new BatchEvaluator(cylinder, cylinder);
+	}
+
+	/**
+	 * Samples, evaluates and ranks lambda points, then updates the
+	 * distribution
+	 */
+	public void newGeneration()
+	{
+		sample();
+		evaluator.evaluate(batch);
+		evaluations += batch.countEvaluated(0, lambda);
+		rank();
+		update();
+		generation++;
+		publish();
+	}
+
+	/**
+	 * Samples the whole generation: z ~ N(0, I), y = B * D * z and
+	 * x = m + sigma * y
+	 */
+	private void sample()
+	{
+		double[] x = batch.getX();
+		for (int i = 0; i < arz.length; i++)
+			arz[i] = rng.nextGaussian();
+
+		for (int k = 0; k < lambda; k++) {
+			int off = k * n;
+			if (separable) {
+				for (int i = 0; i < n; i++)
+					ary[off + i] = d[i] * arz[off + i];
+			} else {
+				for (int i = 0; i < n; i++) {
+					double sum = 0D;
+					int row = i * n;
+					for (int j = 0; j < n; j++)
+						sum += b[row + j] * d[j] * arz[off + j];
+					ary[off + i] = sum;
+				}
+			}
+			for (int i = 0; i < n; i++)
+				x[off + i] = mean[i] + sigma * ary[off + i];
+		}
+	}
+
+	/**
+	 * Sorts the samples by fitness, infeasible ones last. Also tracks the
+	 * best feasible sample seen so far.
+	 */
+	private void rank()
+	{
+		double[] x = batch.getX();
+		double[] fitness = batch.getFitness();
+		boolean[] ok = batch.getOk();
+		for (int k = 0; k < lambda; k++) {
+			key[k] = ok[k] ? fitness[k] : Double.POSITIVE_INFINITY;
+			if (ok[k] && fitness[k] < bestFitness) {
+				bestFitness = fitness[k];
+				bestG = batch.getG()[k];
+				System.arraycopy(x, batch.offset(k), best, 0, n);
+			}
+		}
+		IndexSort.identity(index, lambda);
+		IndexSort.sort(index, 0, lambda, key);
+	}
+
+	/**
+	 * Moves the mean and adapts step size and covariance
+	 */
+	private void update()
+	{
+		for (int i = 0; i < n; i++) {
+			yw[i] = 0D;
+			zw[i] = 0D;
+		}
+		for (int r = 0; r < mu; r++) {
+			int off = index[r] * n;
+			double w = weights[r];
+			for (int i = 0; i < n; i++) {
+				yw[i] += w * ary[off + i];
+				zw[i] += w * arz[off + i];
+			}
+		}
+		for (int i = 0; i < n; i++)
+			mean[i] += sigma * yw[i];
+
+		// step size path, C^-1/2 * yw = B * zw
+		double csn = Math.sqrt(cs * (2D - cs) * mueff);
+		double psNorm = 0D;
+		for (int i = 0; i < n; i++) {
+			double v;
+			if (separable) {
+				v = zw[i];
+			} else {
+				v = 0D;
+				int row = i * n;
+				for (int j = 0; j < n; j++)
+					v += b[row + j] * zw[j];
+			}
+			ps[i] = (1D - cs) * ps[i] + csn * v;
+			psNorm += ps[i] * ps[i];
+		}
+		psNorm = Math.sqrt(psNorm);
+
+		double norm = psNorm / Math.sqrt(1D - Math.pow(1D - cs, 2D * (generation + 1)));
+		boolean hsig = norm / chiN < 1.4D + 2D / (n + 1D);
+		double ccn = Math.sqrt(cc * (2D - cc) * mueff);
+		for (int i = 0; i < n; i++)
+			pc[i] = (1D - cc) * pc[i] + (hsig ? ccn * yw[i] : 0D);
+
+		double decay = 1D - c1 - cmu + (hsig ? 0D : c1 * cc * (2D - cc));
+		if (separable) {
+			for (int i = 0; i < n; i++) {
+				double rankMu = 0D;
+				for (int r = 0; r < mu; r++) {
+					double y = ary[index[r] * n + i];
+					rankMu += weights[r] * y * y;
+				}
+				c[i] = decay * c[i] + c1 * pc[i] * pc[i] + cmu * rankMu;
+				d[i] = Math.sqrt(c[i]);
+			}
+		} else {
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j <= i; j++) {
+					double rankMu = 0D;
+					for (int r = 0; r < mu; r++) {
+						int off = index[r] * n;
+						rankMu += weights[r] * ary[off + i] * ary[off + j];
+					}
+					double v = decay * c[i * n + j] + c1 * pc[i] * pc[j] + cmu * rankMu;
+					c[i * n + j] = v;
+					c[j * n + i] = v;
+				}
+			}
+		}
+
+		sigma *= Math.exp((cs / damps) * (psNorm / chiN - 1D));
+
+		if (!separable && generation + 1 - lastEigen >= eigenInterval)
+			updateEigen();
+	}
+
+	/**
+	 * Recomputes B and D from C
+	 */
+	private void updateEigen()
+	{
+		lastEigen = generation + 1;
+		System.arraycopy(c, 0, work, 0, c.length);
+		SymmetricEigen.decompose(work, n, eigenValues, b);
+		for (int i = 0; i < n; i++)
+			d[i] = Math.sqrt(Math.max(eigenValues[i], 1e-20D));
+	}
+
+	private void publish()
+	{
+		if (events == null || !events.isSampled(generation))
+			return;
+
+		double[] fitness = batch.getFitness();
+		boolean[] ok = batch.getOk();
+		double sum = 0D;
+		int feasible = 0;
+		for (int k = 0; k < lambda; k++) {
+			if (ok[k]) {
+				sum += fitness[k];
+				feasible++;
+			}
+		}
+
+		double minD = Double.POSITIVE_INFINITY;
+		double maxD = 0D;
+		double sumD = 0D;
+		for (int i = 0; i < n; i++) {
+			minD = Math.min(minD, d[i]);
+			maxD = Math.max(maxD, d[i]);
+			sumD += d[i];
+		}
+
+		event.set(source, generation, lambda, feasible);
+		event.setFitness(bestFitness, feasible > 0 ? sum / feasible : Double.NaN, bestG);
+		event.setSigma(sigma * minD, sigma * sumD / n, sigma * maxD);
+		event.setBest(best, 0, n);
+		events.publish(event);
+	}
+
+	/**
+	 * Sets where the statistics of each generation are published to
+	 * @param events the ring, null to not collect any statistics
+	 * @param source name of this instance in the events
+	 */
+	public void setEventRing(EventRing events, String source)
+	{
+		this.events = events;
+		this.source = source;
+	}
+
+	/**
+	 * Sets the stream this instance draws from, e.g. split from the shared
+	 * one so several instances can run in parallel without contention
+	 * @param rng
+	 */
+	public void setRandom(Rng rng)
+	{
+		this.rng = rng;
+	}
+
+	public Rng getRandom()
+	{
+		return rng;
+	}
+
+	/**
+	 * @return the current mean, not a copy
+	 */
+	public double[] getMean()
+	{
+		return mean;
+	}
+
+	/**
+	 * @return the current step size
+	 */
+	public double getSigma()
+	{
+		return sigma;
+	}
+
+	/**
+	 * @return the best feasible point found so far, not a copy
+	 */
+	public double[] getBest()
+	{
+		return best;
+	}
+
+	/**
+	 * @return the fitness of the best point, infinity if none was feasible
+	 */
+	public double getBestFitness()
+	{
+		return bestFitness;
+	}
+
+	/**
+	 * @return the condition number of the covariance, as of the last
+	 * decomposition
+	 */
+	public double getConditionNumber()
+	{
+		double min = Double.POSITIVE_INFINITY;
+		double max = 0D;
+		for (int i = 0; i < n; i++) {
+			min = Math.min(min, d[i]);
+			max = Math.max(max, d[i]);
+		}
+		return (max * max) / (min * min);
+	}
+
+	public int getLambda()
+	{
+		return lambda;
+	}
+
+	public int getDimension()
+	{
+		return n;
+	}
+
+	public boolean isSeparable()
+	{
+		return separable;
+	}
+
+	public int getGeneration()
+	{
+		return generation;
+	}
+
+	public long getEvaluations()
+	{
+		return evaluations;
+	}
+}
@@ -0,0 +1,141 @@
+package ch.dritz.zhaw.ci.evolutionstrategy;
+
+/**
+ * Keeps the best solutions seen over several runs, sorted by fitness
+ * (minimization). Solutions closer than a minimal distance count as the same,
+ * only the better one is kept. Parameters are stored in one flat array.
+ * @author D.Ritz
+ */
+public class EliteArchive
+{
+	private int dimension;
+	private int capacity;
+	private double minDistanceSq;
+	private int size;
+	private double[] fitness;
+	private double[] params;
+
+	/**
+	 * @param dimension number of params of a solution
+	 * @param capacity number of solutions kept
+	 * @param minDistance solutions closer than this are the same
+	 */
+	public EliteArchive(int dimension, int capacity, double minDistance)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be >= 1");
+		this.dimension = dimension;
+		this.capacity = capacity;
+		this.minDistanceSq = minDistance * minDistance;
+		fitness = new double[capacity];
+		params = new double[capacity * dimension];
+	}
+
+	/**
+	 * Offers a solution, ignored if it is not better than the worst one of a
+	 * full archive or than a stored solution close to it
+	 * @param x
+	 * @param offset
+	 * @param f fitness of x
+	 * @return true if added
+	 */
+	public boolean add(double[] x, int offset, double f)
+	{
+		int near = nearest(x, offset);
+		if (near >= 0) {
+			if (f >= fitness[near])
+				return false;
+			remove(near);
+		}
+		if (size == capacity && f >= fitness[size - 1])
+			return false;
+
+		int pos = size;
+		for (int i = 0; i < size; i++) {
+			if (f < fitness[i]) {
+				pos = i;
+				break;
+			}
+		}
+
+		int last = Math.min(size, capacity - 1);
+		System.arraycopy(fitness, pos, fitness, pos + 1, last - pos);
+		System.arraycopy(params, pos * dimension, params, (pos + 1) * dimension,
+			(last - pos) * dimension);
+		fitness[pos] = f;
+		System.arraycopy(x, offset, params, pos * dimension, dimension);
+		if (size < capacity)
+			size++;
+		return true;
+	}
+
+	/**
+	 * Offers the object params of the individual
+	 * @param ind
+	 * @return true if added
+	 */
+	public boolean add(Individual ind)
+	{
+		return add(ind.data, ind.offset, ind.fitness);
+	}
+
+	/**
+	 * @return index of a solution closer than the minimal distance, -1 if none
+	 */
+	private int nearest(double[] x, int offset)
+	{
+		for (int i = 0; i < size; i++) {
+			int base = i * dimension;
+			double dist = 0D;
+			for (int j = 0; j < dimension; j++) {
+				double d = params[base + j] - x[offset + j];
+				dist += d * d;
+			}
+			if (dist <= minDistanceSq)
+				return i;
+		}
+		return -1;
+	}
+
+	private void remove(int i)
+	{
+		System.arraycopy(fitness, i + 1, fitness, i, size - i - 1);
+		System.arraycopy(params, (i + 1) * dimension, params, i * dimension,
+			(size - i - 1) * dimension);
+		size--;
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	/**
+	 * @param i rank, 0 is the best
+	 * @return the fitness of solution i
+	 */
+	public double getFitness(int i)
+	{
+		return fitness[i];
+	}
+
+	/**
+	 * @param i rank, 0 is the best
+	 * @param j index of the param
+	 * @return param j of solution i
+	 */
+	public double getParam(int i, int j)
+	{
+		return params[i * dimension + j];
+	}
+
+	public void clear()
+	{
+		size = 0;
+	}
+}
@@ -1,22 +1,93 @@
 package ch.dritz.zhaw.ci.evolutionstrategy;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ch.dritz.zhaw.ci.checkpoint.Checkpointable;
+import ch.dritz.zhaw.ci.checkpoint.Checkpointer;
+import ch.dritz.zhaw.ci.event.EventRing;
+import ch.dritz.zhaw.ci.event.GenerationEvent;
+import ch.dritz.zhaw.ci.event.jfr.EvaluationJfrEvent;
+import ch.dritz.zhaw.ci.event.jfr.GenerationJfrEvent;
+import ch.dritz.zhaw.ci.event.jfr.PhaseJfrEvent;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.Cylinder;
+import ch.dritz.zhaw.ci.fitness.EvaluationBatch;
+import ch.dritz.zhaw.ci.moo.EnvironmentalSelection;
+import ch.dritz.zhaw.ci.util.IndexSort;
+import ch.dritz.zhaw.ci.util.Rng;
+import ch.dritz.zhaw.ci.util.VectorOps;
 
 /**
- * Implementation of a simple evolution strategy for the dimensions of cylinder
- * with minimal surface and a volume of at least 300.
+ * Implementation of a simple evolution strategy, by default for the
+ * dimensions of cylinder with minimal surface and a volume of at least 300.
+ * Works for any number of object parameters, each with its own step size and
+ * optionally with correlated mutation, see Individual.
+ *
+ * Offspring are created and evaluated in fixed chunks on a fork-join pool.
+ * Each chunk draws from its own stream, split from the one of the instance at
+ * the start of every generation, so a run only depends on the seed of that
+ * stream and not on the number of threads.
+ *
+ * Generations, their phases and evaluations are recorded as flight recorder
+ * events, the chunks on the worker thread creating them.
+ *
+ * A snapshot holds the population with all strategy params, the counters
+ * and the state of the stream of the instance, see Checkpointer.
  * @author D.Ritz
  */
 public class EvolutionStrategy
+	implements Checkpointable
 {
-	public static Random rand = new Random();
+	public static final int DEFAULT_CHUNK_SIZE = 64;
+
+	public static Rng rand = Rng.stream("EvolutionStrategy");
 
-	private List<Individual> individuals;
-	private List<Individual> bestList;
+	// first int of a snapshot, "ES"
+	private static final int SNAPSHOT_TAG = 0x4553;
+
+	// stream of this instance, the shared one unless set
+	private Rng rng = rand;
+
+	/*
+	 * Double buffered, pooled population: survivors are copied from the mixed
+	 * generation into next, then current and next are swapped. Offspring are
+	 * reused every generation.
+	 */
+	private Individual[] current;
+	private Individual[] next;
+	private int size;
+	private Individual[] offspring;
+	private Individual[] mixed;
+	private int mixedSize;
+
+	// offspring chunks, each with its own pool, permutation and stream
+	private ForkJoinPool forkJoinPool;
+	private OffspringTask[] chunks;
+	private RecursiveAction allChunks;
+
+	// permutations for the tournament without replacement
+	private int[] perm1;
+	private int[] perm2;
+
+	private BatchEvaluator evaluator;
+	private EvaluationBatch batch;
+
+	// optional environmental selection replacing the tournament
+	private EnvironmentalSelection envSelection;
+	private double[] envObjectives;
+	private int[] survivors;
+
+	private int dimension;
+	private boolean correlated;
+	private double[] lower;
+	private double[] upper;
+	private double[] sigmaFloor;
 
 	private int populationSize;
 	private int numOffspring;
@@ -24,178 +95,727 @@ public class EvolutionStrategy
 	private int numParents;
 
 	private int generation;
+	private long evaluations;
+
+	// statistics
+	private EventRing events;
+	private String source;
+	// engine label of the flight recorder events, the source once set
+	private String jfrEngine = "ES";
+	private GenerationEvent event;
+
+	// the generation all flight recorder events are stamped with, taken once
+	// when newGeneration() starts
+	private int jfrGeneration;
 
 	/**
-	 * Creates the evolution strategy
+	 * Creates the evolution strategy for the cylinder problem
 	 */
 	public EvolutionStrategy(int populationSize, int numOffspring, int maxAge,
 			int numParents)
 	{
-		this.populationSize = populationSize;
-		this.numOffspring = numOffspring;
-		this.maxAge = maxAge;
-		this.numParents = numParents;
+		this(populationSize, numOffspring, maxAge, numParents,
+			defaultEvaluator());
+	}
 
-		individuals = new ArrayList<Individual>(populationSize);
-		bestList = new ArrayList<Individual>();
+	/**
+	 * Creates the evolution strategy for the problem of the given evaluator
+	 * @param evaluator evaluates a function of (d, h)
+	 */
+	public EvolutionStrategy(int populationSize, int numOffspring, int maxAge,
+			int numParents, BatchEvaluator evaluator)
+	{
+		this(populationSize, numOffspring, maxAge, numParents, evaluator,
+			new double[] {0D, 0D},
+			new double[] {Individual.MAX_D, Individual.MAX_H},
+			Individual.INITIAL_SIGMA, false);
+	}
 
-		for (int i = 0; i < populationSize; i++) {
-			Individual ind = null;
+	/**
+	 * Creates the evolution strategy for an n-dimensional problem
+	 * @param evaluator evaluates the problem
+	 * @param lower lower bounds of the object params
+	 * @param upper upper bounds of the object params
+	 * @param initialSigma initial step size of all coordinates
+	 * @param correlated whether to use correlated mutation
+	 */
+	public EvolutionStrategy(int populationSize, int numOffspring, int maxAge,
+			int numParents, BatchEvaluator evaluator, double[] lower,
+			double[] upper, double initialSigma, boolean correlated)
+	{
+		this(populationSize, numOffspring, maxAge, numParents, evaluator, lower,
+			upper, initialSigma, correlated, ForkJoinPool.commonPool(),
+			DEFAULT_CHUNK_SIZE);
+	}
 
-			// ensure the initial population has only valid individuals
-			do {
-				ind = Individual.randomIndividual(i);
-				ind.fitness();
-			} while (!ind.fitnessOk);
+	/**
+	 * Creates the evolution strategy for an n-dimensional problem
+	 * @param evaluator evaluates the problem
+	 * @param lower lower bounds of the object params
+	 * @param upper upper bounds of the object params
+	 * @param initialSigma initial step size of all coordinates
+	 * @param correlated whether to use correlated mutation
+	 * @param forkJoinPool pool creating the offspring, null for sequential
+	 * @param chunkSize number of offspring created by one task
+	 */
+	public EvolutionStrategy(int populationSize, int numOffspring, int maxAge,
+			int numParents, BatchEvaluator evaluator, double[] lower,
+			double[] upper, double initialSigma, boolean correlated,
+			ForkJoinPool forkJoinPool, int chunkSize)
+	{
+		this(populationSize, numOffspring, maxAge, numParents, evaluator, lower,
+			upper, initialSigma, correlated, forkJoinPool, chunkSize, rand);
+	}
 
-			individuals.add(ind);
+	/**
+	 * Creates the evolution strategy for an n-dimensional problem, drawing
+	 * from the given stream from the start
+	 * @param evaluator evaluates the problem
+	 * @param lower lower bounds of the object params
+	 * @param upper upper bounds of the object params
+	 * @param initialSigma initial step size of all coordinates
+	 * @param correlated whether to use correlated mutation
+	 * @param forkJoinPool pool creating the offspring, null for sequential
+	 * @param chunkSize number of offspring created by one task
+	 * @param rng the stream of this instance
+	 */
+	public EvolutionStrategy(int populationSize, int numOffspring, int maxAge,
+			int numParents, BatchEvaluator evaluator, double[] lower,
+			double[] upper, double initialSigma, boolean correlated,
+			ForkJoinPool forkJoinPool, int chunkSize, Rng rng)
+	{
+		this.rng = rng;
+		dimension = evaluator.getDimension();
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("chunk size must be >= 1");
+		if (lower.length != dimension || upper.length != dimension)
+			throw new IllegalArgumentException("bounds must have dimension " + dimension);
+		if (numParents < 1 || numParents > populationSize)
+			throw new IllegalArgumentException("need 1..populationSize parents");
+
+		this.populationSize = populationSize;
+		this.numOffspring = numOffspring;
+		this.maxAge = maxAge;
+		this.numParents = numParents;
+		this.evaluator = evaluator;
+		this.lower = lower.clone();
+		this.upper = upper.clone();
+		sigmaFloor = Individual.minSigma(lower, upper);
+		this.correlated = correlated;
+
+		int mixedCapacity = populationSize + numOffspring;
+		current = createArena(populationSize);
+		next = createArena(populationSize);
+		offspring = createArena(numOffspring);
+		mixed = new Individual[mixedCapacity];
+		perm1 = new int[mixedCapacity];
+		perm2 = new int[mixedCapacity];
+		envObjectives = new double[mixedCapacity];
+		survivors = new int[mixedCapacity];
+
+		this.forkJoinPool = forkJoinPool;
+		int numChunks = (numOffspring + chunkSize - 1) / chunkSize;
+		chunks = new OffspringTask[numChunks];
+		for (int i = 0; i < numChunks; i++) {
+			chunks[i] = new OffspringTask(i * chunkSize,
+				Math.min(numOffspring, (i + 1) * chunkSize));
+		}
+		allChunks = new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute()
+			{
+				invokeAll(chunks);
+			}
+		};
+
+		event = new GenerationEvent(dimension);
+		batch = new EvaluationBatch(dimension,
+			Math.max(populationSize, numOffspring));
+
+		// ensure the initial population has only valid individuals
+		while (size < populationSize) {
+			int num = populationSize - size;
+			for (int i = 0; i < num; i++)
+				next[i].randomize(lower, upper, initialSigma, rng);
+
+			evaluate(next, num);
+			for (int i = 0; i < num; i++) {
+				if (next[i].fitnessOk) {
+					current[size].copyFrom(next[i]);
+					current[size].index = size;
+					size++;
+				}
+			}
 		}
 
 		generation = 1;
+		jfrGeneration = generation;
 	}
 
 	/**
-	 * Creates a list of indices that can be used to randomly select from another
-	 * list. Implemented using LinkedList to enable O(1) removal of entries
-	 * @param num number of indices in the list (from 0 to num-1)
-	 * @return List
+	 * @return evaluator for the cylinder problem on the common pool
 	 */
-	private static List<Integer> createIndexList(int num)
+	static BatchEvaluator defaultEvaluator()
 	{
-		List<Integer> list = new LinkedList<Integer>();
+		Cylinder cylinder = new Cylinder(Individual.MIN_G, Individual.MAX_D,
+			Individual.MAX_H);
+		return new BatchEvaluator(cylinder, cylinder);
+	}
+
+	/**
+	 * Creates num individuals sharing one arena
+	 * @param num
+	 * @return the individuals
+	 */
+	private Individual[] createArena(int num)
+	{
+		int stride = Individual.stride(dimension, correlated);
+		double[] data = new double[num * stride];
+		Individual[] ret = new Individual[num];
 		for (int i = 0; i < num; i++)
-			list.add(i);
-		return list;
+			ret[i] = new Individual(data, i * stride, dimension, correlated);
+		return ret;
 	}
 
 	/**
-	 * create the pool by marriage of numParents individuals
-	 * @return array with the selected individuals
+	 * calculates the fitness of the first num given individuals as one batch
+	 * @param inds
+	 * @param num
 	 */
-	private Individual[] marriage()
+	private void evaluate(Individual[] inds, int num)
 	{
-		Individual[] pool = new Individual[numParents];
-		List<Integer> indices = createIndexList(individuals.size());
-		for (int i = 0; i < numParents; i++) {
-			int idx = indices.remove(rand.nextInt(indices.size()));
-			pool[i] = individuals.get(idx);
+		batch.setSize(num);
+		double[] x = batch.getX();
+		for (int i = 0; i < num; i++)
+			inds[i].getParams(x, batch.offset(i));
+
+		EvaluationJfrEvent jfr = EvaluationJfrEvent.start();
+		evaluator.evaluate(batch);
+		evaluations += batch.countEvaluated(0, num);
+		commit(jfr, 0, num);
+
+		double[] fitness = batch.getFitness();
+		double[] g = batch.getG();
+		boolean[] ok = batch.getOk();
+		for (int i = 0; i < num; i++) {
+			Individual ind = inds[i];
+			ind.fitness = fitness[i];
+			ind.g = g[i];
+			ind.fitnessOk = ok[i];
 		}
-		return pool;
 	}
 
 	/**
-	 * creates a single new Individual:
-	 * - select numParents into a pool
-	 * - recombine strategic params using discrete recombination
-	 * - mutate strategic params with non-isotropic mutation
-	 * - recombine object params using average recombination
-	 * - mutate object params using isotroptic mutation (=> new Individual)
-	 * - calcualte fitness of new Individual
-	 * @return the new offspring Individual
+	 * Draws k distinct values from the permutation of 0..n-1 in perm using a
+	 * partial Fisher-Yates shuffle. The result is in perm[0..k-1], perm stays
+	 * a permutation of 0..n-1 so it can be used again without resetting.
+	 * @param perm
+	 * @param n
+	 * @param k
+	 * @param rand
 	 */
-	private Individual createOneOffspring()
+	static void sample(int[] perm, int n, int k, Random rand)
 	{
-		// create the pool
-		Individual[] pool = marriage();
-
-		// recombine object params using average recombination
-		Individual ind = new Individual();
-		ind.recombineObjectParams(pool);
-
-		/*
-		 * Recombine strategic params using discrete recombination.
-		 * ie. just choose from the pool.
-		 */
-		int idx = rand.nextInt(pool.length);
-		ind.sigmaSigma = pool[idx].sigmaSigma;
-		ind.sigma = pool[idx].sigma;
-
-		// mutate strategic params with non-isotropic mutation
-		ind.mutateStrategicParam();
-
-		// mutate object params using isotroptic mutation
-		ind.mutateObjectParams();
-
-		// re-calculate the fitness
-		ind.fitness();
-
-		return ind;
+		for (int i = 0; i < k; i++) {
+			int j = i + rand.nextInt(n - i);
+			int tmp = perm[i];
+			perm[i] = perm[j];
+			perm[j] = tmp;
+		}
 	}
 
 	/**
-	 * Performs a rank based selection:
+	 * Performs a selection:
 	 * - age current population, drop those too old
 	 * - mix with the valid offspring
-	 * - rank based selection
-	 * - prints the best individual
-	 * @param offsprings
+	 * - tournament selection
+	 * - publishes the statistics of the new generation
 	 */
-	private void selection(List<Individual> fitOffspring)
+	private void selection()
 	{
-		// first age current population, mix them with fit offspring
-		List<Individual> mixedGen = fitOffspring;
-		for (Individual ind : individuals) {
+		// fit offspring are already in mixed, add the aged current population
+		for (int i = 0; i < size; i++) {
+			Individual ind = current[i];
 			ind.age++;
 			if (ind.age <= maxAge)
-				mixedGen.add(ind);
+				mixed[mixedSize++] = ind;
 		}
 
-		// perform a tournament selection, saving the best to bestList
-		List<Integer> indices1 = createIndexList(mixedGen.size());
-		List<Integer> indices2 = createIndexList(mixedGen.size());
+		// nothing valid is left, keep the aged population rather than none
+		if (mixedSize == 0) {
+			publish();
+			return;
+		}
 
-		Individual best = null;
-		List<Individual> selectedInd = new ArrayList<Individual>();
-		for (int i = 0; i < populationSize; i++) {
-			int r = rand.nextInt(indices1.size());
-			int idx1 = indices1.remove(r);
+		PhaseJfrEvent phase = PhaseJfrEvent.start();
+		int phaseSize = mixedSize;
+
+		int keep = Math.min(populationSize, mixedSize);
+		if (envSelection != null) {
+			environmentalSelection(keep);
+		} else {
+			// perform a tournament selection, two draws without replacement
+			IndexSort.identity(perm1, mixedSize);
+			IndexSort.identity(perm2, mixedSize);
+			sample(perm1, mixedSize, keep, rng);
+			sample(perm2, mixedSize, keep, rng);
+
+			for (int i = 0; i < keep; i++) {
+				Individual ind1 = mixed[perm1[i]];
+				Individual ind2 = mixed[perm2[i]];
+				Individual sel = ind1.fitness < ind2.fitness ? ind1 : ind2;
+				next[i].copyFrom(sel);
+				next[i].index = i;
+			}
+		}
 
-			r = rand.nextInt(indices2.size());
-			int idx2 = indices2.remove(r);
+		// replace current with new generation
+		Individual[] tmp = current;
+		current = next;
+		next = tmp;
+		size = keep;
+
+		commit(phase, envSelection != null ? PhaseJfrEvent.ENVIRONMENTAL_SELECTION
+			: PhaseJfrEvent.SELECTION, phaseSize);
+		publish();
+	}
 
-			Individual ind1 = mixedGen.get(idx1);
-			Individual ind2 = mixedGen.get(idx2);
+	/**
+	 * Ends the flight recorder event of the evaluation of the batch entries
+	 * from..to-1
+	 * @param jfr
+	 * @param from
+	 * @param to
+	 */
+	private void commit(EvaluationJfrEvent jfr, int from, int to)
+	{
+		if (jfr == null)
+			return;
+		jfr.end();
+		if (jfr.shouldCommit()) {
+			jfr.engine = jfrEngine;
+			jfr.generation = jfrGeneration;
+			jfr.set(batch, from, to);
+			jfr.commit();
+		}
+	}
 
-			Individual sel = ind1.fitness < ind2.fitness ? ind1 : ind2;
-			sel = sel.clone();
-			sel.index = i;
-			selectedInd.add(sel);
+	/**
+	 * Ends the flight recorder event of a phase
+	 * @param jfr
+	 * @param phase
+	 * @param count number of individuals processed
+	 */
+	private void commit(PhaseJfrEvent jfr, String phase, int count)
+	{
+		if (jfr == null)
+			return;
+		jfr.end();
+		if (jfr.shouldCommit()) {
+			jfr.engine = jfrEngine;
+			jfr.generation = jfrGeneration;
+			jfr.phase = phase;
+			jfr.count = count;
+			jfr.commit();
+		}
+	}
 
-			if (best == null || sel.fitness < best.fitness)
-				best = sel;
+	/**
+	 * Ends the flight recorder event of a generation and, if it is recorded,
+	 * sets the statistics of the current population
+	 * @param jfr
+	 */
+	private void commit(GenerationJfrEvent jfr)
+	{
+		if (jfr == null)
+			return;
+		jfr.end();
+		if (!jfr.shouldCommit())
+			return;
+
+		double best = Double.POSITIVE_INFINITY;
+		double sum = 0D;
+		double minSigma = Double.POSITIVE_INFINITY;
+		double maxSigma = Double.NEGATIVE_INFINITY;
+		double sumSigma = 0D;
+		for (int i = 0; i < size; i++) {
+			Individual ind = current[i];
+			best = Math.min(best, ind.fitness);
+			sum += ind.fitness;
+			int s = ind.offset + dimension;
+			minSigma = Math.min(minSigma, VectorOps.min(ind.data, s, dimension));
+			maxSigma = Math.max(maxSigma, VectorOps.max(ind.data, s, dimension));
+			sumSigma += ind.getMeanSigma();
 		}
-		bestList.add(best.clone());
+		jfr.engine = jfrEngine;
+		jfr.generation = jfrGeneration;
+		jfr.populationSize = size;
+		jfr.feasible = size;
+		jfr.bestFitness = best;
+		jfr.meanFitness = sum / size;
+		jfr.minSigma = minSigma;
+		jfr.meanSigma = sumSigma / size;
+		jfr.maxSigma = maxSigma;
+		jfr.commit();
+	}
 
-		// replace current with new generation
-		individuals = selectedInd;
+	/**
+	 * Selects the survivors from the mixed generation into next using the
+	 * environmental selection, the only objective is the fitness
+	 * @param keep
+	 */
+	private void environmentalSelection(int keep)
+	{
+		for (int i = 0; i < mixedSize; i++)
+			envObjectives[i] = mixed[i].fitness;
 
-		printBestIndividual(generation, best);
+		envSelection.select(envObjectives, 1, mixedSize, keep, survivors);
+
+		for (int i = 0; i < keep; i++) {
+			next[i].copyFrom(mixed[survivors[i]]);
+			next[i].index = i;
+		}
+	}
+
+	/**
+	 * Publishes the statistics of the current population, unless there is no
+	 * event ring or the generation is not sampled
+	 */
+	private void publish()
+	{
+		if (events == null || !events.isSampled(generation))
+			return;
+
+		Individual best = null;
+		double sum = 0D;
+		double minSigma = Double.POSITIVE_INFINITY;
+		double maxSigma = Double.NEGATIVE_INFINITY;
+		double sumSigma = 0D;
+		for (int i = 0; i < size; i++) {
+			Individual ind = current[i];
+			if (best == null || ind.fitness < best.fitness)
+				best = ind;
+			sum += ind.fitness;
+			int s = ind.offset + dimension;
+			minSigma = Math.min(minSigma, VectorOps.min(ind.data, s, dimension));
+			maxSigma = Math.max(maxSigma, VectorOps.max(ind.data, s, dimension));
+			sumSigma += ind.getMeanSigma();
+		}
+
+		event.set(source, generation, size, size);
+		event.setFitness(best.fitness, sum / size, best.g);
+		event.setSigma(minSigma, sumSigma / size, maxSigma);
+		event.setBest(best.data, best.offset, dimension);
+		events.publish(event);
 	}
 
 	/**
 	 * one round creating a new generation
-	 * - create numOffsprings new individuals
+	 * - create numOffsprings new individuals in parallel chunks
+	 * - calculate the fitness of all offspring, also in the chunks
 	 * - select from current generation and offsprings to create new generation
 	 */
 	public void newGeneration()
 	{
-		// create offsprings
-		List<Individual> fitOffspring = new ArrayList<Individual>();
-		for (int i = 0; i < numOffspring; i++) {
-			Individual ind = createOneOffspring();
+		GenerationJfrEvent jfr = GenerationJfrEvent.start();
+		jfrGeneration = generation;
 
-			/*
-			 * Pre-filter only fit offspring for selection. Saves a loop over
-			 * all offspring during selection.
-			 */
+		// split the streams of the chunks from the one of this instance
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i].rand.splitFrom(rng);
+			chunks[i].reinitialize();
+		}
+
+		// create and evaluate offsprings
+		batch.setSize(numOffspring);
+		if (forkJoinPool == null || chunks.length == 1) {
+			for (OffspringTask chunk : chunks)
+				chunk.invoke();
+		} else {
+			allChunks.reinitialize();
+			forkJoinPool.invoke(allChunks);
+		}
+		if (!evaluator.isSplittable()) {
+			EvaluationJfrEvent evaluation = EvaluationJfrEvent.start();
+			evaluator.evaluate(batch);
+			commit(evaluation, 0, numOffspring);
+		}
+		// surrogate estimates are no fitness evaluations
+		evaluations += batch.countEvaluated(0, numOffspring);
+
+		/*
+		 * Pre-filter only fit offspring for selection, in index order so the
+		 * result does not depend on the scheduling of the chunks.
+		 */
+		double[] fitness = batch.getFitness();
+		double[] g = batch.getG();
+		boolean[] ok = batch.getOk();
+		mixedSize = 0;
+		for (int i = 0; i < numOffspring; i++) {
+			Individual ind = offspring[i];
+			ind.fitness = fitness[i];
+			ind.g = g[i];
+			ind.fitnessOk = ok[i];
 			if (ind.fitnessOk)
-				fitOffspring.add(ind);
+				mixed[mixedSize++] = ind;
 		}
 
 		// select
-		selection(fitOffspring);
+		selection();
 
 		generation++;
+		commit(jfr);
+		jfrGeneration = generation;
+	}
+
+	/**
+	 * Evaluates the given object params and, if valid, replaces the worst
+	 * individual with them, e.g. a good solution found elsewhere. The step
+	 * sizes of the replaced individual are kept.
+	 * @param x
+	 * @param xOffset
+	 * @return true if the immigrant was valid and taken
+	 */
+	public boolean immigrate(double[] x, int xOffset)
+	{
+		return immigrate(x, xOffset, null, 0);
+	}
+
+	/**
+	 * Like immigrate(x, xOffset), but the replaced individual takes the step
+	 * sizes of the immigrant too, e.g. a migrant from another island
+	 * @param x
+	 * @param xOffset
+	 * @param sigma step sizes of the immigrant, null to keep the ones of the
+	 * replaced individual
+	 * @param sigmaOffset
+	 * @return true if the immigrant was valid and taken
+	 */
+	public boolean immigrate(double[] x, int xOffset, double[] sigma,
+			int sigmaOffset)
+	{
+		Individual ind = next[0];
+		System.arraycopy(x, xOffset, ind.data, ind.offset, dimension);
+		ind.clamp(lower, upper);
+		evaluate(next, 1);
+		if (!ind.fitnessOk)
+			return false;
+
+		insert(ind.data, ind.offset, sigma, sigmaOffset, ind.fitness, ind.g);
+		return true;
+	}
+
+	/**
+	 * Replaces the worst individual with an already evaluated, valid point,
+	 * e.g. one improved by a local search
+	 * @param x the object params, inside the bounds
+	 * @param xOffset
+	 * @param sigma step sizes, null to keep the ones of the replaced
+	 * individual
+	 * @param sigmaOffset
+	 * @param fitness
+	 * @param g
+	 */
+	public void insert(double[] x, int xOffset, double[] sigma, int sigmaOffset,
+			double fitness, double g)
+	{
+		Individual worst = current[0];
+		for (int i = 1; i < size; i++) {
+			if (current[i].fitness > worst.fitness)
+				worst = current[i];
+		}
+		System.arraycopy(x, xOffset, worst.data, worst.offset, dimension);
+		if (sigma != null) {
+			System.arraycopy(sigma, sigmaOffset, worst.data,
+				worst.offset + dimension, dimension);
+		}
+		worst.fitness = fitness;
+		worst.g = g;
+		worst.fitnessOk = true;
+		worst.age = 1;
+	}
+
+	/**
+	 * Sets the fitness of all individuals with exactly the given object
+	 * params without changing the params, e.g. to the fitness a local search
+	 * reached from them
+	 * @param x
+	 * @param xOffset
+	 * @param fitness
+	 * @param g
+	 * @return the number of individuals changed
+	 */
+	public int setFitness(double[] x, int xOffset, double fitness, double g)
+	{
+		int ret = 0;
+		for (int i = 0; i < size; i++) {
+			Individual ind = current[i];
+			if (Arrays.equals(x, xOffset, xOffset + dimension, ind.data,
+					ind.offset, ind.offset + dimension)) {
+				ind.fitness = fitness;
+				ind.g = g;
+				ret++;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Copies the best individuals, e.g. to send them to another island
+	 * @param count maximal number of individuals
+	 * @param x receives the object params, dimension values per individual
+	 * @param sigma receives the step sizes, dimension values per individual
+	 * @param fitness receives the fitness, one value per individual
+	 * @return the number of individuals copied, best first
+	 */
+	public int getBest(int count, double[] x, double[] sigma, double[] fitness)
+	{
+		// the selection scratch space is free between generations
+		count = Math.min(count, size);
+		for (int i = 0; i < size; i++) {
+			perm1[i] = i;
+			envObjectives[i] = current[i].fitness;
+		}
+		IndexSort.select(perm1, 0, size, count, envObjectives);
+		IndexSort.sort(perm1, 0, count, envObjectives);
+		for (int i = 0; i < count; i++) {
+			Individual ind = current[perm1[i]];
+			System.arraycopy(ind.data, ind.offset, x, i * dimension, dimension);
+			System.arraycopy(ind.data, ind.offset + dimension, sigma,
+				i * dimension, dimension);
+			fitness[i] = ind.fitness;
+		}
+		return count;
+	}
+
+	@Override
+	public int getSnapshotSize()
+	{
+		int stride = Individual.stride(dimension, correlated);
+		// tag, dimension, stride, size, individuals, counters, stream, parent
+		// permutations
+		return 4 * 4 + populationSize * (8 * stride + 8 + 8 + 1 + 4 + 4) +
+			4 + 8 + Checkpointer.RNG_SIZE + 4 + chunks.length * 4 * (1 + populationSize);
+	}
+
+	@Override
+	public void snapshot(ByteBuffer buf)
+	{
+		int stride = Individual.stride(dimension, correlated);
+		buf.putInt(SNAPSHOT_TAG);
+		buf.putInt(dimension);
+		buf.putInt(stride);
+		buf.putInt(size);
+		for (int i = 0; i < size; i++) {
+			Individual ind = current[i];
+			for (int j = 0; j < stride; j++)
+				buf.putDouble(ind.data[ind.offset + j]);
+			buf.putDouble(ind.fitness);
+			buf.putDouble(ind.g);
+			buf.put(ind.fitnessOk ? (byte) 1 : (byte) 0);
+			buf.putInt(ind.age);
+			buf.putInt(ind.index);
+		}
+		buf.putInt(generation);
+		buf.putLong(evaluations);
+		Checkpointer.putRng(buf, rng);
+
+		// the chunks shuffle their parent permutations further every
+		// generation, their streams are split anew anyway
+		buf.putInt(chunks.length);
+		for (OffspringTask chunk : chunks) {
+			buf.putInt(chunk.parentPermSize);
+			for (int i = 0; i < chunk.parentPermSize; i++)
+				buf.putInt(chunk.parentPerm[i]);
+		}
+	}
+
+	@Override
+	public void restore(ByteBuffer buf)
+	{
+		int stride = Individual.stride(dimension, correlated);
+		if (buf.getInt() != SNAPSHOT_TAG)
+			throw new IllegalArgumentException("not an evolution strategy snapshot");
+		if (buf.getInt() != dimension || buf.getInt() != stride)
+			throw new IllegalArgumentException("snapshot of another dimension or mutation");
+		int num = buf.getInt();
+		if (num < 1 || num > populationSize)
+			throw new IllegalArgumentException("bad population size: " + num);
+
+		size = num;
+		for (int i = 0; i < size; i++) {
+			Individual ind = current[i];
+			for (int j = 0; j < stride; j++)
+				ind.data[ind.offset + j] = buf.getDouble();
+			ind.fitness = buf.getDouble();
+			ind.g = buf.getDouble();
+			ind.fitnessOk = buf.get() != 0;
+			ind.age = buf.getInt();
+			ind.index = buf.getInt();
+		}
+		generation = buf.getInt();
+		jfrGeneration = generation;
+		evaluations = buf.getLong();
+		Checkpointer.getRng(buf, rng);
+
+		if (buf.getInt() != chunks.length)
+			throw new IllegalArgumentException("snapshot of another chunk size");
+		for (OffspringTask chunk : chunks) {
+			int n = buf.getInt();
+			if (n < 0 || n > populationSize)
+				throw new IllegalArgumentException("bad parent permutation");
+			chunk.parentPermSize = n;
+			for (int i = 0; i < n; i++)
+				chunk.parentPerm[i] = buf.getInt();
+		}
+	}
+
+	/**
+	 * Replaces the tournament selection with an environmental selection,
+	 * e.g. IbeaSelection
+	 * @param envSelection the selection, null for the tournament
+	 */
+	public void setEnvironmentalSelection(EnvironmentalSelection envSelection)
+	{
+		this.envSelection = envSelection;
+	}
+
+	/**
+	 * Sets where the statistics of each generation are published to
+	 * @param events the ring, null to not collect any statistics
+	 * @param source name of this instance in the events and the flight
+	 *        recorder events, null for "ES"
+	 */
+	public void setEventRing(EventRing events, String source)
+	{
+		this.events = events;
+		this.source = source;
+		jfrEngine = source != null ? source : "ES";
+	}
+
+	/**
+	 * Sets the stream this instance draws from, e.g. split from the shared
+	 * one so several instances can run in parallel without contention
+	 * @param rng
+	 */
+	public void setRandom(Rng rng)
+	{
+		this.rng = rng;
+	}
+
+	public Rng getRandom()
+	{
+		return rng;
+	}
+
+	/**
+	 * @return the number of object params
+	 */
+	public int getDimension()
+	{
+		return dimension;
 	}
 
 	/**
@@ -207,27 +827,164 @@ public class EvolutionStrategy
 	}
 
 	/**
-	 * @return the individuals
+	 * @return the number of fitness evaluations so far
 	 */
-	public List<Individual> getIndividuals()
+	public long getEvaluations()
+	{
+		return evaluations;
+	}
+
+	/**
+	 * @return the best individual of the current population, not a copy
+	 */
+	public Individual getBest()
+	{
+		Individual best = current[0];
+		for (int i = 1; i < size; i++) {
+			if (current[i].fitness < best.fitness)
+				best = current[i];
+		}
+		return best;
+	}
+
+	/**
+	 * @return the largest step size of any coordinate in the population
+	 */
+	public double getMaxSigma()
 	{
-		return individuals;
+		double max = 0D;
+		for (int i = 0; i < size; i++) {
+			Individual ind = current[i];
+			max = Math.max(max, VectorOps.max(ind.data, ind.offset + dimension,
+				dimension));
+		}
+		return max;
 	}
 
-	private void printBestIndividual(int gen, Individual ind)
+	/**
+	 * @return the largest standard deviation of any object param over the
+	 * population
+	 */
+	public double getDiversity()
 	{
-		System.out.print("generation: ");
-		System.out.print(String.format("%03d", gen));
-		System.out.print(" BEST: ");
-		System.out.println(ind);
+		double max = 0D;
+		for (int j = 0; j < dimension; j++) {
+			double sum = 0D;
+			double sumSq = 0D;
+			for (int i = 0; i < size; i++) {
+				double v = current[i].get(j);
+				sum += v;
+				sumSq += v * v;
+			}
+			double mean = sum / size;
+			max = Math.max(max, sumSq / size - mean * mean);
+		}
+		return Math.sqrt(Math.max(0D, max));
 	}
 
 	/**
-	 * Shows the best individuals from each round
+	 * @return copies of the current individuals
 	 */
-	public void showBest()
+	public List<Individual> getIndividuals()
 	{
-		for (int i = 0; i < bestList.size(); i++)
-			printBestIndividual(i, bestList.get(i));
+		List<Individual> ret = new ArrayList<Individual>(size);
+		for (int i = 0; i < size; i++)
+			ret.add(current[i].clone());
+		return ret;
+	}
+
+	/**
+	 * Creates and evaluates the offspring from..to-1. Runs concurrently with
+	 * the other chunks, only reads the current population.
+	 */
+	private class OffspringTask
+		extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int from;
+		private int to;
+		private Rng rand = new Rng(0L);
+		private Individual[] pool = new Individual[numParents];
+		private int[] parentPerm = new int[populationSize];
+		private int parentPermSize;
+		private double[] work = new double[dimension];
+
+		public OffspringTask(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			PhaseJfrEvent phase = PhaseJfrEvent.start();
+			double[] x = batch.getX();
+			for (int i = from; i < to; i++) {
+				Individual ind = offspring[i];
+				createOneOffspring(ind);
+				ind.getParams(x, batch.offset(i));
+			}
+			commit(phase, PhaseJfrEvent.VARIATION, to - from);
+
+			if (evaluator.isSplittable()) {
+				EvaluationJfrEvent evaluation = EvaluationJfrEvent.start();
+				evaluator.evaluate(batch, from, to);
+				commit(evaluation, from, to);
+			}
+		}
+
+		/**
+		 * fills the pool by marriage of numParents individuals
+		 */
+		private void marriage()
+		{
+			if (parentPermSize != size) {
+				IndexSort.identity(parentPerm, size);
+				parentPermSize = size;
+			}
+			// a shrunken population repeats its parents in the pool
+			int k = Math.min(numParents, size);
+			sample(parentPerm, size, k, rand);
+			for (int i = 0; i < numParents; i++)
+				pool[i] = current[parentPerm[i % k]];
+		}
+
+		/**
+		 * creates a single new Individual in place:
+		 * - select numParents into a pool
+		 * - recombine strategic params using discrete recombination
+		 * - mutate strategic params with non-isotropic mutation, not below
+		 *   the floor of the box
+		 * - recombine object params using average recombination
+		 * - mutate object params, optionally correlated
+		 * - clamp the object params into the bounds
+		 * The fitness is calculated later, together with the other offspring.
+		 * @param ind the pooled offspring to overwrite
+		 */
+		private void createOneOffspring(Individual ind)
+		{
+			// create the pool
+			marriage();
+
+			// recombine object params using average recombination
+			ind.recombineObjectParams(pool);
+			ind.age = 1;
+
+			/*
+			 * Recombine strategic params using discrete recombination.
+			 * ie. just choose from the pool.
+			 */
+			int idx = rand.nextInt(pool.length);
+			ind.recombineStrategyParams(pool[idx]);
+
+			// mutate strategic params with non-isotropic mutation
+			ind.mutateStrategicParam(rand, sigmaFloor);
+
+			// mutate object params, rotated if correlated
+			ind.mutateObjectParams(rand, work);
+			ind.clamp(lower, upper);
+		}
 	}
 }
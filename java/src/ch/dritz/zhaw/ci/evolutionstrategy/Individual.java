@@ -2,8 +2,16 @@ package ch.dritz.zhaw.ci.evolutionstrategy;
 
 import java.util.Random;
 
+import ch.dritz.zhaw.ci.util.Rng;
+import ch.dritz.zhaw.ci.util.VectorOps;
+
 /**
- * An individual for the evolution strategy
+ * An n-dimensional individual for the evolution strategy. Object and
+ * strategy parameters live in a slice of a flat double array, the arena,
+ * which can be shared by a whole population:
+ *   x[0..n-1], sigma[0..n-1], alpha[0..n-2]
+ * The rotation angles alpha are only present for correlated mutation. They
+ * rotate neighbouring coordinates, so correlated mutation stays linear in n.
  * @author D.Ritz
  */
 public class Individual
@@ -13,11 +21,23 @@ public class Individual
 	public static final double MAX_D = 30D;
 	public static final double MAX_H = 30D;
 
-	public static Random rand = new Random();
+	// log-normal self adaptation needs a few generations to grow sigma, so
+	// start at a scale comparable to the cylinder box
+	public static final double INITIAL_SIGMA = 1D;
+
+	// smallest step size as fraction of the extent of the box
+	public static final double MIN_SIGMA_FRACTION = 3e-3D;
+
+	// learning rate of the rotation angles, ~5 degrees
+	public static final double BETA = 0.0873D;
+
+	public static Rng rand = Rng.stream("evolutionstrategy.Individual");
 
-	// object parameters
-	double paramD = 0D;
-	double paramH = 0D;
+	// arena holding the params
+	double[] data;
+	int offset;
+	int dimension;
+	int numAngles;
 
 	// fitness
 	double fitness = 0D;
@@ -26,66 +46,137 @@ public class Individual
 
 	// strategy related params
 	int age = 1;
-	double sigma = 0.01D;
-	double sigmaSigma = 0.01D;
 
 	// other
 	int index = 0;
 
-	public Individual()
+	/**
+	 * Creates an individual with its own arena
+	 * @param dimension
+	 * @param correlated whether to keep rotation angles
+	 */
+	public Individual(int dimension, boolean correlated)
 	{
+		this(new double[stride(dimension, correlated)], 0, dimension, correlated);
+		VectorOps.fill(data, dimension, dimension, INITIAL_SIGMA);
+	}
 
+	/**
+	 * Creates an individual in the given slice of an arena, the slice is not
+	 * initialized
+	 * @param data
+	 * @param offset
+	 * @param dimension
+	 * @param correlated
+	 */
+	Individual(double[] data, int offset, int dimension, boolean correlated)
+	{
+		this.data = data;
+		this.offset = offset;
+		this.dimension = dimension;
+		this.numAngles = correlated ? dimension - 1 : 0;
 	}
 
 	public Individual(int index, double d, double h)
 	{
+		this(2, false);
 		this.index = index;
-		this.paramD = d;
-		this.paramH = h;
+		data[0] = d;
+		data[1] = h;
 	}
 
 	/**
-	 * calculates the fitness
-	 * @return true if g() >= minG
+	 * @param dimension
+	 * @param correlated
+	 * @return the number of doubles of one individual in an arena
 	 */
-	public boolean fitness()
+	public static int stride(int dimension, boolean correlated)
 	{
-		double d = paramD;
-		double h = paramH;
-
-		fitness = Math.PI * d * d / 2 + Math.PI * d * h;
+		return 2 * dimension + (correlated ? dimension - 1 : 0);
+	}
 
-		g = Math.PI * d * d * h / 4;
-		fitnessOk = (g >= MIN_G) && (d > 0D) && (d <= MAX_D) &&
-			(h > 0D) && (h <= MAX_H);
+	/**
+	 * Mutates the strategic params, the step sizes log-normal with a common
+	 * and a per coordinate factor, the angles additive
+	 */
+	public void mutateStrategicParam()
+	{
+		mutateStrategicParam(rand);
+	}
 
-		return fitnessOk;
+	/**
+	 * Mutates the strategic params drawing from the given stream
+	 * @param rand
+	 */
+	public void mutateStrategicParam(Random rand)
+	{
+		mutateStrategicParam(rand, null);
 	}
 
 	/**
-	 * Mutates the strategic param (sigma) non-isotropic.
-	 * Since it's only one param, this is extremely easy:
-	 *   tau_0 and tau_1 are the same since 'u' is 1
+	 * Mutates the strategic params drawing from the given stream, the step
+	 * sizes are kept at or above the given floor. Without one they can
+	 * shrink to 0 on a constraint boundary and freeze the run.
+	 * @param rand
+	 * @param minSigma smallest step size of each coordinate, null for none
 	 */
-	public void mutateStrategicParam()
+	public void mutateStrategicParam(Random rand, double[] minSigma)
 	{
-		sigma += sigmaSigma * rand.nextGaussian();
+		double tau0 = 1D / Math.sqrt(2D * dimension);
+		double tau = 1D / Math.sqrt(2D * Math.sqrt(dimension));
+		double common = tau0 * rand.nextGaussian();
 
-		double tau = 1D / Math.sqrt(2D);
-		sigmaSigma = Math.exp(tau * rand.nextGaussian()) *
-			sigmaSigma * Math.exp(tau * rand.nextGaussian());
+		int s = offset + dimension;
+		for (int i = 0; i < dimension; i++)
+			data[s + i] *= Math.exp(common + tau * rand.nextGaussian());
+		if (minSigma != null) {
+			for (int i = 0; i < dimension; i++)
+				data[s + i] = Math.max(minSigma[i], data[s + i]);
+		}
+
+		int a = s + dimension;
+		for (int i = 0; i < numAngles; i++) {
+			double alpha = data[a + i] + BETA * rand.nextGaussian();
+			if (alpha > Math.PI)
+				alpha -= 2D * Math.PI;
+			else if (alpha < -Math.PI)
+				alpha += 2D * Math.PI;
+			data[a + i] = alpha;
+		}
 	}
 
 	/**
-	 * Mutates the object params using isotropic mutation
+	 * Mutates the object params
 	 */
 	public void mutateObjectParams()
 	{
-		paramD += sigma * rand.nextGaussian();
-		paramH += sigma * rand.nextGaussian();
+		mutateObjectParams(rand, new double[dimension]);
+	}
+
+	/**
+	 * Mutates the object params: x += R(alpha) * (sigma * z)
+	 * @param rand
+	 * @param work scratch of at least dimension entries
+	 */
+	public void mutateObjectParams(Random rand, double[] work)
+	{
+		VectorOps.gaussian(work, 0, dimension, rand);
+		for (int i = 0; i < dimension; i++)
+			work[i] *= data[offset + dimension + i];
+
+		// rotate neighbouring coordinates, last pair first
+		int a = offset + 2 * dimension;
+		for (int i = numAngles - 1; i >= 0; i--) {
+			double alpha = data[a + i];
+			double cos = Math.cos(alpha);
+			double sin = Math.sin(alpha);
+			double z0 = work[i];
+			double z1 = work[i + 1];
+			work[i] = cos * z0 - sin * z1;
+			work[i + 1] = sin * z0 + cos * z1;
+		}
 
-		double tau = 1D / Math.sqrt(2D);
-		sigma = sigma * Math.exp(tau * rand.nextGaussian());
+		VectorOps.add(data, offset, work, 0, dimension);
 	}
 
 	/**
@@ -94,26 +185,128 @@ public class Individual
 	 */
 	public void recombineObjectParams(Individual[] pool)
 	{
-		double d = 0;
-		double h = 0;
-		for (Individual ind : pool) {
-			d += ind.paramD;
-			h += ind.paramH;
-		}
-		d /= pool.length;
-		h /= pool.length;
-		paramD = d;
-		paramH = h;
+		VectorOps.fill(data, offset, dimension, 0D);
+		for (Individual ind : pool)
+			VectorOps.add(data, offset, ind.data, ind.offset, dimension);
+		VectorOps.scale(data, offset, dimension, 1D / pool.length);
+	}
+
+	/**
+	 * Discrete recombination of the strategy params: copies the step sizes
+	 * and angles of the given parent
+	 * @param parent
+	 */
+	public void recombineStrategyParams(Individual parent)
+	{
+		System.arraycopy(parent.data, parent.offset + dimension, data,
+			offset + dimension, dimension + numAngles);
+	}
+
+	/**
+	 * @param lower
+	 * @param upper
+	 * @return the smallest step size of each coordinate in the box
+	 */
+	public static double[] minSigma(double[] lower, double[] upper)
+	{
+		double[] ret = new double[lower.length];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = MIN_SIGMA_FRACTION * (upper[i] - lower[i]);
+		return ret;
+	}
+
+	/**
+	 * Clamps the object params into the box
+	 * @param lower
+	 * @param upper
+	 */
+	public void clamp(double[] lower, double[] upper)
+	{
+		VectorOps.clamp(data, offset, dimension, lower, upper);
+	}
+
+	/**
+	 * Copies all fields of the other individual into this one, the
+	 * allocation free alternative to clone(). Both must have the same layout.
+	 * @param o
+	 */
+	public void copyFrom(Individual o)
+	{
+		System.arraycopy(o.data, o.offset, data, offset,
+			2 * dimension + numAngles);
+		fitness = o.fitness;
+		g = o.g;
+		fitnessOk = o.fitnessOk;
+		age = o.age;
+		index = o.index;
 	}
 
+	/**
+	 * @return a copy with its own arena
+	 */
 	@Override
 	protected Individual clone()
 	{
-		try {
-			return (Individual) super.clone();
-		} catch (CloneNotSupportedException e) {
-			return null;
-		}
+		Individual ret = new Individual(new double[2 * dimension + numAngles],
+			0, dimension, numAngles > 0);
+		ret.copyFrom(this);
+		return ret;
+	}
+
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	/**
+	 * @param i
+	 * @return object parameter i
+	 */
+	public double get(int i)
+	{
+		return data[offset + i];
+	}
+
+	/**
+	 * @param i
+	 * @return step size of coordinate i
+	 */
+	public double getSigma(int i)
+	{
+		return data[offset + dimension + i];
+	}
+
+	/**
+	 * @return the mean step size
+	 */
+	public double getMeanSigma()
+	{
+		return VectorOps.sum(data, offset + dimension, dimension) / dimension;
+	}
+
+	/**
+	 * Copies the object params
+	 * @param x destination
+	 * @param xOffset
+	 */
+	public void getParams(double[] x, int xOffset)
+	{
+		System.arraycopy(data, offset, x, xOffset, dimension);
+	}
+
+	public double getFitness()
+	{
+		return fitness;
+	}
+
+	public double getG()
+	{
+		return g;
+	}
+
+	public boolean isFitnessOk()
+	{
+		return fitnessOk;
 	}
 
 	@Override
@@ -121,8 +314,18 @@ public class Individual
 	{
 		StringBuilder sb = new StringBuilder();
 		sb.append("Individual at ").append(String.format("%02d", index));
-		sb.append(", d: ").append(String.format("%02.3f", paramD));
-		sb.append(", h: ").append(String.format("%02.3f", paramH));
+		if (dimension == 2) {
+			sb.append(", d: ").append(String.format("%02.3f", data[offset]));
+			sb.append(", h: ").append(String.format("%02.3f", data[offset + 1]));
+		} else {
+			sb.append(", x: [");
+			for (int i = 0; i < Math.min(dimension, 4); i++) {
+				if (i > 0)
+					sb.append(", ");
+				sb.append(String.format("%.3f", data[offset + i]));
+			}
+			sb.append(dimension > 4 ? ", ...]" : "]");
+		}
 		sb.append(", fit: ").append(String.format("%04.3f", fitness));
 		sb.append(", g: ").append(String.format("%04.3f", g));
 		sb.append(", ok: ").append(fitnessOk);
@@ -132,9 +335,32 @@ public class Individual
 	//--------------------------------------------------------------------------
 
 	public static Individual randomIndividual(int index)
+	{
+		return randomIndividual(index, rand);
+	}
+
+	public static Individual randomIndividual(int index, Random rand)
 	{
 		return new Individual(index,
 			rand.nextDouble() * MAX_D,
 			rand.nextDouble() * MAX_H);
 	}
+
+	/**
+	 * Initializes the individual uniformly in the box, with equal step sizes
+	 * and no rotation
+	 * @param lower
+	 * @param upper
+	 * @param sigma initial step size
+	 * @param rand
+	 */
+	public void randomize(double[] lower, double[] upper, double sigma,
+			Random rand)
+	{
+		for (int i = 0; i < dimension; i++)
+			data[offset + i] = lower[i] + rand.nextDouble() * (upper[i] - lower[i]);
+		VectorOps.fill(data, offset + dimension, dimension, sigma);
+		VectorOps.fill(data, offset + 2 * dimension, numAngles, 0D);
+		age = 1;
+	}
 }
@@ -0,0 +1,330 @@
+package ch.dritz.zhaw.ci.evolutionstrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.Constraint;
+import ch.dritz.zhaw.ci.fitness.Cylinder;
+import ch.dritz.zhaw.ci.fitness.EvaluationBatch;
+import ch.dritz.zhaw.ci.fitness.FitnessFunction;
+import ch.dritz.zhaw.ci.moo.EnvironmentalSelection;
+import ch.dritz.zhaw.ci.moo.Nsga2Selection;
+import ch.dritz.zhaw.ci.moo.ParetoArchive;
+import ch.dritz.zhaw.ci.util.IndexSort;
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Multi objective (mu + lambda) evolution strategy, NSGA-II style by default:
+ * - marriage of numParents distinct random individuals
+ * - average recombination and isotropic mutation as in EvolutionStrategy
+ * - all objectives of all offspring are evaluated as batches
+ * - parents and valid offspring compete in the environmental selection
+ * - every survivor is offered to a Pareto archive
+ * One run yields a whole front instead of a single trade-off.
+ * @author D.Ritz
+ */
+public class MultiObjectiveStrategy
+{
+	public static final int ARCHIVE_SIZE = 100;
+
+	public static Rng rand = Rng.stream("MultiObjectiveStrategy");
+
+	// stream of this instance, the shared one unless given
+	private Rng rng;
+
+	private int populationSize;
+	private int numOffspring;
+	private int numParents;
+	private int numObjectives;
+
+	private BatchEvaluator[] evaluators;
+	private EnvironmentalSelection selection;
+	private ParetoArchive archive;
+
+	/*
+	 * Double buffered, pooled population as in EvolutionStrategy: survivors
+	 * are copied from the candidates into next, then current and next are
+	 * swapped. Offspring are reused every generation.
+	 */
+	private Individual[] current;
+	private Individual[] next;
+	private Individual[] offspring;
+
+	// parents in 0..populationSize-1, valid offspring after them
+	private Individual[] candidates;
+	private double[] objectives;
+	private int numCandidates;
+
+	// scratch space
+	private EvaluationBatch batch;
+	private double[] tmpObjectives;
+	private int[] survivors;
+	private Individual[] pool;
+	private int[] parentPerm;
+	private double[] work = new double[2];
+	private double[] params = new double[2];
+	private double[] sigmaFloor;
+
+	private int generation;
+
+	/**
+	 * Creates the strategy for the cylinder problem: minimal surface and
+	 * maximal volume with d, h in (0, 30]
+	 */
+	public MultiObjectiveStrategy(int populationSize, int numOffspring,
+			int numParents)
+	{
+		this(populationSize, numOffspring, numParents, new Cylinder(0D,
+			Individual.MAX_D, Individual.MAX_H));
+	}
+
+	private MultiObjectiveStrategy(int populationSize, int numOffspring,
+			int numParents, Cylinder cylinder)
+	{
+		this(populationSize, numOffspring, numParents, new FitnessFunction[] {
+			cylinder, cylinder.negatedVolume()
+		}, cylinder);
+	}
+
+	/**
+	 * @param functions objectives of (d, h) to minimize
+	 * @param constraint which individuals are valid, null for all
+	 */
+	public MultiObjectiveStrategy(int populationSize, int numOffspring,
+			int numParents, FitnessFunction[] functions, Constraint constraint)
+	{
+		this(populationSize, numOffspring, numParents, functions, constraint,
+			rand);
+	}
+
+	/**
+	 * Creates the strategy drawing from the given stream from the start
+	 * @param functions objectives of (d, h) to minimize
+	 * @param constraint which individuals are valid, null for all
+	 * @param rng the stream of this instance
+	 */
+	public MultiObjectiveStrategy(int populationSize, int numOffspring,
+			int numParents, FitnessFunction[] functions, Constraint constraint,
+			Rng rng)
+	{
+		this.rng = rng;
+		if (numParents < 1 || numParents > populationSize)
+			throw new IllegalArgumentException("need 1..populationSize parents");
+
+		this.populationSize = populationSize;
+		this.numOffspring = numOffspring;
+		this.numParents = numParents;
+		this.numObjectives = functions.length;
+
+		evaluators = new BatchEvaluator[numObjectives];
+		for (int j = 0; j < numObjectives; j++) {
+			if (functions[j].getDimension() != 2)
+				throw new IllegalArgumentException("need functions of (d, h)");
+			// the constraint only needs to be checked once
+			evaluators[j] = new BatchEvaluator(functions[j],
+				j == 0 ? constraint : null);
+		}
+		selection = new Nsga2Selection();
+		archive = new ParetoArchive(numObjectives, 2, ARCHIVE_SIZE);
+
+		int capacity = populationSize + numOffspring;
+		current = createArena(populationSize);
+		next = createArena(populationSize);
+		offspring = createArena(numOffspring);
+		candidates = new Individual[capacity];
+		objectives = new double[capacity * numObjectives];
+		tmpObjectives = new double[capacity * numObjectives];
+		survivors = new int[capacity];
+		pool = new Individual[numParents];
+		parentPerm = new int[populationSize];
+		IndexSort.identity(parentPerm, populationSize);
+		batch = new EvaluationBatch(2, Math.max(populationSize, numOffspring));
+
+		// ensure the initial population has only valid individuals
+		double[] lower = new double[] {0D, 0D};
+		double[] upper = new double[] {Individual.MAX_D, Individual.MAX_H};
+		sigmaFloor = Individual.minSigma(lower, upper);
+		numCandidates = 0;
+		while (numCandidates < populationSize) {
+			int num = populationSize - numCandidates;
+			for (int i = 0; i < num; i++)
+				next[i].randomize(lower, upper, Individual.INITIAL_SIGMA, rng);
+
+			int from = numCandidates;
+			addValid(next, num);
+			for (int i = from; i < numCandidates; i++) {
+				current[i].copyFrom(candidates[i]);
+				current[i].index = i;
+				candidates[i] = current[i];
+			}
+		}
+
+		generation = 1;
+	}
+
+	/**
+	 * Creates num individuals of dimension 2 sharing one arena
+	 * @param num
+	 * @return the individuals
+	 */
+	private static Individual[] createArena(int num)
+	{
+		int stride = Individual.stride(2, false);
+		double[] data = new double[num * stride];
+		Individual[] ret = new Individual[num];
+		for (int i = 0; i < num; i++)
+			ret[i] = new Individual(data, i * stride, 2, false);
+		return ret;
+	}
+
+	/**
+	 * evaluates all objectives of the first num individuals, appends the
+	 * valid ones to the candidates
+	 * @param inds
+	 * @param num
+	 */
+	private void addValid(Individual[] inds, int num)
+	{
+		batch.setSize(num);
+		double[] x = batch.getX();
+		for (int i = 0; i < num; i++)
+			inds[i].getParams(x, batch.offset(i));
+
+		int m = numObjectives;
+		for (int j = m - 1; j >= 0; j--) {
+			evaluators[j].evaluate(batch);
+			double[] f = batch.getFitness();
+			for (int i = 0; i < num; i++)
+				tmpObjectives[i * m + j] = f[i];
+		}
+
+		boolean[] ok = batch.getOk();
+		double[] g = batch.getG();
+		for (int i = 0; i < num; i++) {
+			if (!ok[i])
+				continue;
+			Individual ind = inds[i];
+			ind.fitness = tmpObjectives[i * m];
+			ind.g = g[i];
+			ind.fitnessOk = true;
+
+			candidates[numCandidates] = ind;
+			System.arraycopy(tmpObjectives, i * m, objectives,
+				numCandidates * m, m);
+			numCandidates++;
+		}
+	}
+
+	/**
+	 * creates a single new Individual in place, as in EvolutionStrategy. The
+	 * parents are drawn without replacement.
+	 * @param ind the pooled offspring to overwrite
+	 */
+	private void createOneOffspring(Individual ind)
+	{
+		EvolutionStrategy.sample(parentPerm, populationSize, numParents, rng);
+		for (int i = 0; i < numParents; i++)
+			pool[i] = current[parentPerm[i]];
+
+		ind.recombineObjectParams(pool);
+		ind.age = 1;
+
+		int idx = rng.nextInt(pool.length);
+		ind.recombineStrategyParams(pool[idx]);
+
+		ind.mutateStrategicParam(rng, sigmaFloor);
+		ind.mutateObjectParams(rng, work);
+	}
+
+	/**
+	 * one round creating a new generation
+	 * - create numOffspring new individuals, evaluate all objectives
+	 * - environmental selection among parents and valid offspring
+	 * - offer the survivors to the archive
+	 */
+	public void newGeneration()
+	{
+		for (int i = 0; i < numOffspring; i++)
+			createOneOffspring(offspring[i]);
+		addValid(offspring, numOffspring);
+
+		int m = numObjectives;
+		selection.select(objectives, m, numCandidates, populationSize,
+			survivors);
+
+		for (int i = 0; i < populationSize; i++) {
+			int s = survivors[i];
+			next[i].copyFrom(candidates[s]);
+			next[i].index = i;
+			System.arraycopy(objectives, s * m, tmpObjectives, i * m, m);
+		}
+		Individual[] tmp = current;
+		current = next;
+		next = tmp;
+		double[] tmpObj = objectives;
+		objectives = tmpObjectives;
+		tmpObjectives = tmpObj;
+		for (int i = 0; i < populationSize; i++)
+			candidates[i] = current[i];
+		numCandidates = populationSize;
+
+		for (int i = 0; i < populationSize; i++) {
+			current[i].getParams(params, 0);
+			archive.add(objectives, i * m, params, 0);
+		}
+
+		generation++;
+	}
+
+	/**
+	 * Replaces the environmental selection, NSGA-II by default
+	 * @param selection
+	 */
+	public void setEnvironmentalSelection(EnvironmentalSelection selection)
+	{
+		this.selection = selection;
+	}
+
+	/**
+	 * Sets the stream this instance draws from, e.g. split from the shared
+	 * one so several instances can run in parallel without contention
+	 * @param rng
+	 */
+	public void setRandom(Rng rng)
+	{
+		this.rng = rng;
+	}
+
+	public Rng getRandom()
+	{
+		return rng;
+	}
+
+	/**
+	 * @return the archive of non-dominated solutions found so far
+	 */
+	public ParetoArchive getArchive()
+	{
+		return archive;
+	}
+
+	/**
+	 * @return the generation
+	 */
+	public int getGeneration()
+	{
+		return generation;
+	}
+
+	/**
+	 * @return copies of the individuals
+	 */
+	public List<Individual> getIndividuals()
+	{
+		List<Individual> ret = new ArrayList<Individual>(populationSize);
+		for (int i = 0; i < populationSize; i++)
+			ret.add(current[i].clone());
+		return ret;
+	}
+}
@@ -0,0 +1,277 @@
+package ch.dritz.zhaw.ci.evolutionstrategy;
+
+import java.util.concurrent.ForkJoinPool;
+
+import ch.dritz.zhaw.ci.event.EventRing;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Runs an EvolutionStrategy and restarts it with a fresh population as soon
+ * as it stagnates.
+ *
+ * IPOP doubles the population and offspring size with every restart. BIPOP
+ * interleaves these large runs with small ones, where the number of
+ * offspring is drawn between the default and half the current large size
+ * and the initial step size is reduced accordingly. The next run is of the
+ * regime which used fewer evaluations so far.
+ *
+ * The best individual of every generation is offered to an elite archive
+ * shared by all runs.
+ *
+ * The size of the small runs is drawn from the stream of the instance, every
+ * run gets its own stream split from it. So a restart strategy created with
+ * its own stream is reproducible and independent of other instances.
+ * @author D.Ritz
+ */
+public class RestartStrategy
+{
+	public static final int ARCHIVE_SIZE = 20;
+
+	// the large population is doubled at most this many times
+	public static final int MAX_DOUBLINGS = 9;
+
+	public static Rng rand = Rng.stream("RestartStrategy");
+
+	// stream of this instance, the shared one unless given
+	private Rng rng;
+
+	private int populationSize;
+	private int numOffspring;
+	private int maxAge;
+	private int numParents;
+	private BatchEvaluator evaluator;
+	private double[] lower;
+	private double[] upper;
+	private double initialSigma;
+	private boolean correlated;
+	private boolean bipop;
+
+	private EvolutionStrategy es;
+	private StagnationDetector detector;
+	private EliteArchive archive;
+
+	private int restarts;
+	private StagnationDetector.Reason lastReason = StagnationDetector.Reason.NONE;
+	private int doublings;
+	private boolean large;
+	private long largeEvaluations;
+	private long smallEvaluations;
+
+	private EventRing events;
+	private String source;
+
+	/**
+	 * Creates the restart strategy for the cylinder problem
+	 * @param bipop false for IPOP
+	 */
+	public RestartStrategy(int populationSize, int numOffspring, int maxAge,
+			int numParents, boolean bipop)
+	{
+		this(populationSize, numOffspring, maxAge, numParents,
+			EvolutionStrategy.defaultEvaluator(), new double[] {0D, 0D},
+			new double[] {Individual.MAX_D, Individual.MAX_H},
+			Individual.INITIAL_SIGMA, false, bipop);
+	}
+
+	/**
+	 * Creates the restart strategy, the params are those of the first run
+	 * @param evaluator evaluates the problem
+	 * @param lower lower bounds of the object params
+	 * @param upper upper bounds of the object params
+	 * @param initialSigma initial step size of all coordinates
+	 * @param correlated whether to use correlated mutation
+	 * @param bipop false for IPOP
+	 */
+	public RestartStrategy(int populationSize, int numOffspring, int maxAge,
+			int numParents, BatchEvaluator evaluator, double[] lower,
+			double[] upper, double initialSigma, boolean correlated, boolean bipop)
+	{
+		this(populationSize, numOffspring, maxAge, numParents, evaluator, lower,
+			upper, initialSigma, correlated, bipop, rand);
+	}
+
+	/**
+	 * Creates the restart strategy drawing from the given stream, the params
+	 * are those of the first run
+	 * @param evaluator evaluates the problem
+	 * @param lower lower bounds of the object params
+	 * @param upper upper bounds of the object params
+	 * @param initialSigma initial step size of all coordinates
+	 * @param correlated whether to use correlated mutation
+	 * @param bipop false for IPOP
+	 * @param rng the stream of this instance
+	 */
+	public RestartStrategy(int populationSize, int numOffspring, int maxAge,
+			int numParents, BatchEvaluator evaluator, double[] lower,
+			double[] upper, double initialSigma, boolean correlated, boolean bipop,
+			Rng rng)
+	{
+		this.rng = rng;
+		this.populationSize = populationSize;
+		this.numOffspring = numOffspring;
+		this.maxAge = maxAge;
+		this.numParents = numParents;
+		this.evaluator = evaluator;
+		this.lower = lower.clone();
+		this.upper = upper.clone();
+		this.initialSigma = initialSigma;
+		this.correlated = correlated;
+		this.bipop = bipop;
+
+		int n = evaluator.getDimension();
+		detector = new StagnationDetector(
+			10 + (int) Math.ceil(30D * n / numOffspring), 1e-10D, 1e-10D, 1e-10D);
+		double extent = 0D;
+		for (int i = 0; i < n; i++)
+			extent = Math.max(extent, upper[i] - lower[i]);
+		archive = new EliteArchive(n, ARCHIVE_SIZE, 1e-3D * extent);
+
+		large = true;
+		start(populationSize, numOffspring, initialSigma);
+	}
+
+	/**
+	 * Creates a new run
+	 */
+	private void start(int mu, int lambda, double sigma)
+	{
+		es = new EvolutionStrategy(mu, lambda, maxAge, numParents, evaluator,
+			lower, upper, sigma, correlated, ForkJoinPool.commonPool(),
+			EvolutionStrategy.DEFAULT_CHUNK_SIZE, rng.split());
+		es.setEventRing(events, source);
+		detector.reset();
+	}
+
+	/**
+	 * Books the evaluations of the finished run and starts the next one
+	 */
+	private void restart()
+	{
+		if (large)
+			largeEvaluations += es.getEvaluations();
+		else
+			smallEvaluations += es.getEvaluations();
+		restarts++;
+
+		large = !bipop || largeEvaluations <= smallEvaluations;
+		if (large) {
+			doublings = Math.min(MAX_DOUBLINGS, doublings + 1);
+			int factor = 1 << doublings;
+			start(populationSize * factor, numOffspring * factor, initialSigma);
+		} else {
+			double u = rng.nextDouble();
+			double ratio = Math.max(1D, (1 << doublings) / 2D);
+			double factor = Math.pow(ratio, u * u);
+			start((int) Math.round(populationSize * factor),
+				(int) Math.round(numOffspring * factor),
+				initialSigma * Math.pow(10D, -2D * u));
+		}
+	}
+
+	/**
+	 * Creates a new generation, restarts if the run stagnates
+	 * @return true if a restart happened
+	 */
+	public boolean newGeneration()
+	{
+		es.newGeneration();
+		archive.add(es.getBest());
+		if (!detector.update(es))
+			return false;
+		lastReason = detector.getReason();
+		restart();
+		return true;
+	}
+
+	/**
+	 * Creates generations until the budget is used up
+	 * @param maxEvaluations budget of fitness evaluations of all runs
+	 */
+	public void run(long maxEvaluations)
+	{
+		while (getEvaluations() < maxEvaluations)
+			newGeneration();
+	}
+
+	/**
+	 * Replaces the stagnation detection, applies to the next run
+	 * @param detector
+	 */
+	public void setStagnationDetector(StagnationDetector detector)
+	{
+		this.detector = detector;
+		detector.reset();
+	}
+
+	/**
+	 * Sets where the statistics of each generation are published to
+	 * @param events the ring, null to not collect any statistics
+	 * @param source name of this instance in the events
+	 */
+	public void setEventRing(EventRing events, String source)
+	{
+		this.events = events;
+		this.source = source;
+		es.setEventRing(events, source);
+	}
+
+	/**
+	 * Sets the stream this instance draws from, applies from the next restart
+	 * @param rng
+	 */
+	public void setRandom(Rng rng)
+	{
+		this.rng = rng;
+	}
+
+	public Rng getRandom()
+	{
+		return rng;
+	}
+
+	/**
+	 * @return the current run
+	 */
+	public EvolutionStrategy getStrategy()
+	{
+		return es;
+	}
+
+	/**
+	 * @return the best solutions of all runs
+	 */
+	public EliteArchive getArchive()
+	{
+		return archive;
+	}
+
+	/**
+	 * @return the reason of the last restart
+	 */
+	public StagnationDetector.Reason getLastReason()
+	{
+		return lastReason;
+	}
+
+	public int getRestarts()
+	{
+		return restarts;
+	}
+
+	/**
+	 * @return true if the current run is of the large population regime
+	 */
+	public boolean isLarge()
+	{
+		return large;
+	}
+
+	/**
+	 * @return the evaluations of all runs
+	 */
+	public long getEvaluations()
+	{
+		return largeEvaluations + smallEvaluations + es.getEvaluations();
+	}
+}
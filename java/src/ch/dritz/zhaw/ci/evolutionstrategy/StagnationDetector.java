@@ -0,0 +1,105 @@
+package ch.dritz.zhaw.ci.evolutionstrategy;
+
+/**
+ * Detects when an evolution strategy stopped making progress: the step sizes
+ * collapsed, the best fitness so far stayed flat over a number of generations
+ * or the population lost its diversity. With a floor on the step sizes, a
+ * converged run usually ends by the flat fitness.
+ * @author D.Ritz
+ */
+public class StagnationDetector
+{
+	public enum Reason
+	{
+		NONE,
+		SIGMA,
+		FLAT,
+		DIVERSITY
+	}
+
+	private double tolSigma;
+	private double tolFun;
+	private double tolDiversity;
+
+	// ring of the best fitness of the last generations
+	private double[] history;
+	private int count;
+	private Reason reason = Reason.NONE;
+
+	/**
+	 * @param historyLength number of generations the fitness must stay flat
+	 * @param tolFun maximal improvement of the best fitness to count as flat
+	 * @param tolSigma minimal largest step size
+	 * @param tolDiversity minimal largest standard deviation of the params
+	 */
+	public StagnationDetector(int historyLength, double tolFun, double tolSigma,
+			double tolDiversity)
+	{
+		if (historyLength < 2)
+			throw new IllegalArgumentException("history must be >= 2");
+		history = new double[historyLength];
+		this.tolFun = tolFun;
+		this.tolSigma = tolSigma;
+		this.tolDiversity = tolDiversity;
+	}
+
+	/**
+	 * Checks the current generation of the strategy
+	 * @param es
+	 * @return true if the strategy stagnates, see getReason()
+	 */
+	public boolean update(EvolutionStrategy es)
+	{
+		return update(es.getBest().fitness, es.getMaxSigma(), es.getDiversity());
+	}
+
+	/**
+	 * Checks one generation
+	 * @param bestFitness best fitness of the generation
+	 * @param maxSigma largest step size
+	 * @param diversity largest standard deviation of the params
+	 * @return true if stagnating, see getReason()
+	 */
+	public boolean update(double bestFitness, double maxSigma, double diversity)
+	{
+		// the best so far, aging can make the best of a generation worse
+		if (count > 0)
+			bestFitness = Math.min(bestFitness, history[(count - 1) % history.length]);
+		history[count % history.length] = bestFitness;
+		count++;
+
+		if (maxSigma < tolSigma) {
+			reason = Reason.SIGMA;
+		} else if (diversity < tolDiversity) {
+			reason = Reason.DIVERSITY;
+		} else if (count >= history.length) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (double f : history) {
+				min = Math.min(min, f);
+				max = Math.max(max, f);
+			}
+			reason = max - min <= tolFun ? Reason.FLAT : Reason.NONE;
+		} else {
+			reason = Reason.NONE;
+		}
+		return reason != Reason.NONE;
+	}
+
+	/**
+	 * Forgets the history, for the next run
+	 */
+	public void reset()
+	{
+		count = 0;
+		reason = Reason.NONE;
+	}
+
+	/**
+	 * @return why the last update() reported stagnation
+	 */
+	public Reason getReason()
+	{
+		return reason;
+	}
+}
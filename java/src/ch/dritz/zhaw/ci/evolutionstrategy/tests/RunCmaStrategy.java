@@ -0,0 +1,35 @@
+package ch.dritz.zhaw.ci.evolutionstrategy.tests;
+
+import ch.dritz.zhaw.ci.event.ConsoleSink;
+import ch.dritz.zhaw.ci.event.EventRing;
+import ch.dritz.zhaw.ci.evolutionstrategy.CmaEvolutionStrategy;
+
+/**
+ * Runs the full and the separable CMA-ES on the cylinder problem
+ * @author D.Ritz
+ */
+public class RunCmaStrategy
+{
+	public static void main(String[] args)
+	{
+		EventRing events = new EventRing(128, 2);
+		events.setSampleInterval(10);
+		events.addListener(new ConsoleSink());
+
+		CmaEvolutionStrategy cma = new CmaEvolutionStrategy(0, false);
+		cma.setEventRing(events, "cma");
+		CmaEvolutionStrategy sep = new CmaEvolutionStrategy(0, true);
+		sep.setEventRing(events, "sep-cma");
+
+		for (int i = 0; i < 100; i++) {
+			cma.newGeneration();
+			sep.newGeneration();
+		}
+
+		events.close();
+		System.out.println("cma: " + cma.getBestFitness() + " after " +
+			cma.getEvaluations() + " evaluations");
+		System.out.println("sep-cma: " + sep.getBestFitness() + " after " +
+			sep.getEvaluations() + " evaluations");
+	}
+}
@@ -0,0 +1,29 @@
+package ch.dritz.zhaw.ci.evolutionstrategy.tests;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.MultiObjectiveStrategy;
+import ch.dritz.zhaw.ci.moo.IbeaSelection;
+import ch.dritz.zhaw.ci.moo.ParetoArchive;
+
+/**
+ * Runs the multi objective strategy on the cylinder problem with IBEA
+ * instead of NSGA-II and shows the front of surface vs. volume
+ * @author D.Ritz
+ */
+public class RunIbea
+{
+	public static void main(String[] args)
+	{
+		MultiObjectiveStrategy mo = new MultiObjectiveStrategy(50, 200, 3);
+		mo.setEnvironmentalSelection(new IbeaSelection());
+		for (int i = 0; i < 200; i++)
+			mo.newGeneration();
+
+		ParetoArchive archive = mo.getArchive();
+		for (int i = 0; i < archive.getSize(); i++) {
+			System.out.print(String.format("d: %02.3f", archive.getParam(i, 0)));
+			System.out.print(String.format(", h: %02.3f", archive.getParam(i, 1)));
+			System.out.print(String.format(", surface: %04.3f", archive.getObjective(i, 0)));
+			System.out.println(String.format(", volume: %04.3f", -archive.getObjective(i, 1)));
+		}
+	}
+}
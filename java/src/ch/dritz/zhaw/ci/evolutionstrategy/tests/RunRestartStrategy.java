@@ -0,0 +1,35 @@
+package ch.dritz.zhaw.ci.evolutionstrategy.tests;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.EliteArchive;
+import ch.dritz.zhaw.ci.evolutionstrategy.RestartStrategy;
+import ch.dritz.zhaw.ci.evolutionstrategy.StagnationDetector;
+
+/**
+ * Runs the BIPOP restart strategy on the cylinder problem and prints the
+ * restarts and the elite archive
+ * @author D.Ritz
+ */
+public class RunRestartStrategy
+{
+	public static void main(String[] args)
+	{
+		RestartStrategy rs = new RestartStrategy(7, 49, 15, 3, true);
+		rs.setStagnationDetector(new StagnationDetector(20, 1e-6, 1e-6, 1e-6));
+
+		while (rs.getEvaluations() < 100000) {
+			if (rs.newGeneration()) {
+				System.out.println(String.format(
+					"restart %d after %d evaluations (%s), best: %.3f, next: %s",
+					rs.getRestarts(), rs.getEvaluations(), rs.getLastReason(),
+					rs.getArchive().getFitness(0), rs.isLarge() ? "large" : "small"));
+			}
+		}
+
+		EliteArchive archive = rs.getArchive();
+		for (int i = 0; i < Math.min(5, archive.getSize()); i++) {
+			System.out.println(String.format("d: %.3f, h: %.3f, fit: %.3f",
+				archive.getParam(i, 0), archive.getParam(i, 1),
+				archive.getFitness(i)));
+		}
+	}
+}
@@ -2,6 +2,8 @@ package ch.dritz.zhaw.ci.evolutionstrategy.tests;
 
 import java.util.List;
 
+import ch.dritz.zhaw.ci.event.ConsoleSink;
+import ch.dritz.zhaw.ci.event.EventRing;
 import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
 import ch.dritz.zhaw.ci.evolutionstrategy.Individual;
 
@@ -13,7 +15,11 @@ public class RunStrategy
 {
 	public static void main(String[] args)
 	{
+		EventRing events = new EventRing(128, 2);
+		events.addListener(new ConsoleSink());
+
 		EvolutionStrategy es = new EvolutionStrategy(7, 49, 15, 3);
+		es.setEventRing(events, null);
 
 		List<Individual> initialPopulation = es.getIndividuals();
 		for (Individual ind : initialPopulation)
@@ -21,5 +27,7 @@ public class RunStrategy
 
 		for (int i = 0; i < 100; i++)
 			es.newGeneration();
+
+		events.close();
 	}
 }
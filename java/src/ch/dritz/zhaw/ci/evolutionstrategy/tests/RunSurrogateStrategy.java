@@ -0,0 +1,39 @@
+package ch.dritz.zhaw.ci.evolutionstrategy.tests;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
+import ch.dritz.zhaw.ci.evolutionstrategy.Individual;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.Cylinder;
+import ch.dritz.zhaw.ci.fitness.KnnSurrogate;
+import ch.dritz.zhaw.ci.fitness.SurrogateEvaluator;
+
+/**
+ * Runs the evolution strategy on the cylinder problem with and without
+ * surrogate pre-screening and compares the real evaluations
+ * @author D.Ritz
+ */
+public class RunSurrogateStrategy
+{
+	public static void main(String[] args)
+	{
+		Cylinder cylinder = new Cylinder(Individual.MIN_G, Individual.MAX_D,
+			Individual.MAX_H);
+
+		BatchEvaluator plain = new BatchEvaluator(cylinder, cylinder);
+		EvolutionStrategy es = new EvolutionStrategy(7, 49, 15, 3, plain);
+		for (int i = 0; i < 100; i++)
+			es.newGeneration();
+		System.out.println(String.format("plain: %.3f after %d evaluations",
+			es.getBest().getFitness(), es.getEvaluations()));
+
+		SurrogateEvaluator screened = new SurrogateEvaluator(plain,
+			new KnnSurrogate(2, 500, 5), 0.1, 0.05, 100);
+		es = new EvolutionStrategy(7, 49, 15, 3, screened);
+		for (int i = 0; i < 100; i++)
+			es.newGeneration();
+		System.out.println(String.format(
+			"surrogate: %.3f after %d evaluations (%d real), %d estimates",
+			es.getBest().getFitness(), es.getEvaluations(),
+			screened.getRealEvaluations(), screened.getEstimates()));
+	}
+}
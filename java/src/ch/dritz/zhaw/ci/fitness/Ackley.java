@@ -0,0 +1,45 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * The Ackley function
+ *   f(x) = -20 exp(-0.2 sqrt(mean(x_i^2))) - exp(mean(cos(2 pi x_i))) + 20 + e
+ * minimum 0 at the origin. Scalable benchmark, nearly flat outside the
+ * center with many shallow local minima.
+ * @author D. Ritz
+ */
+public class Ackley
+	implements FitnessFunction
+{
+	public static final double LOWER = -32.768D;
+	public static final double UPPER = 32.768D;
+
+	private int dimension;
+
+	/**
+	 * @param dimension
+	 */
+	public Ackley(int dimension)
+	{
+		this.dimension = dimension;
+	}
+
+	@Override
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	@Override
+	public double fitness(double[] x, int offset)
+	{
+		double sumSq = 0D;
+		double sumCos = 0D;
+		for (int i = 0; i < dimension; i++) {
+			double v = x[offset + i];
+			sumSq += v * v;
+			sumCos += Math.cos(2D * Math.PI * v);
+		}
+		return -20D * Math.exp(-0.2D * Math.sqrt(sumSq / dimension))
+			- Math.exp(sumCos / dimension) + 20D + Math.E;
+	}
+}
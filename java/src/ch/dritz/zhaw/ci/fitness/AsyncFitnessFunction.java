@@ -0,0 +1,25 @@
+package ch.dritz.zhaw.ci.fitness;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An objective function that is evaluated asynchronously, e.g. by an external
+ * simulation. The parameters must not be changed by the caller until the
+ * returned future completes.
+ * @author D. Ritz
+ */
+public interface AsyncFitnessFunction
+{
+	/**
+	 * @return the number of object parameters
+	 */
+	int getDimension();
+
+	/**
+	 * starts calculating the fitness
+	 * @param x the parameters
+	 * @param offset where in x the parameters start
+	 * @return future completing with f(x)
+	 */
+	CompletableFuture<Double> fitnessAsync(double[] x, int offset);
+}
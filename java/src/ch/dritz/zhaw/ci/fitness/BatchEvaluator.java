@@ -0,0 +1,217 @@
+package ch.dritz.zhaw.ci.fitness;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+
+/**
+ * Evaluates fitness and constraint for whole batches. Batches bigger than the
+ * chunk size are split and evaluated in parallel on a fork/join pool. With an
+ * asynchronous fitness function, all evaluations of a batch are started at
+ * once and the batch completes when the last one does.
+ * @author D. Ritz
+ */
+public class BatchEvaluator
+{
+	public static final int DEFAULT_CHUNK_SIZE = 256;
+
+	private FitnessFunction function;
+	private AsyncFitnessFunction asyncFunction;
+	private Constraint constraint;
+	private ForkJoinPool pool;
+	private int chunkSize;
+
+	/**
+	 * Creates an evaluator on the common pool with the default chunk size
+	 * @param function
+	 * @param constraint the constraint, null if unconstrained
+	 */
+	public BatchEvaluator(FitnessFunction function, Constraint constraint)
+	{
+		this(function, constraint, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param function
+	 * @param constraint the constraint, null if unconstrained
+	 * @param pool the pool to run on, null to evaluate sequentially
+	 * @param chunkSize number of entries evaluated by one task
+	 */
+	public BatchEvaluator(FitnessFunction function, Constraint constraint,
+			ForkJoinPool pool, int chunkSize)
+	{
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("chunk size must be >= 1");
+		this.function = function;
+		this.constraint = constraint;
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Creates an evaluator for an asynchronous fitness function. The
+	 * constraint is still evaluated synchronously.
+	 * @param asyncFunction
+	 * @param constraint the constraint, null if unconstrained
+	 */
+	public BatchEvaluator(AsyncFitnessFunction asyncFunction, Constraint constraint)
+	{
+		this.asyncFunction = asyncFunction;
+		this.constraint = constraint;
+		this.pool = null;
+		this.chunkSize = DEFAULT_CHUNK_SIZE;
+	}
+
+	/**
+	 * @return the number of object parameters
+	 */
+	public int getDimension()
+	{
+		if (function != null)
+			return function.getDimension();
+		return asyncFunction.getDimension();
+	}
+
+	/**
+	 * @return the fitness function, null if asynchronous
+	 */
+	public FitnessFunction getFunction()
+	{
+		return function;
+	}
+
+	/**
+	 * @return the constraint, null if unconstrained
+	 */
+	public Constraint getConstraint()
+	{
+		return constraint;
+	}
+
+	/**
+	 * @return true if evaluate(batch, from, to) can be used to evaluate a
+	 * batch in independent parts
+	 */
+	public boolean isSplittable()
+	{
+		return function != null;
+	}
+
+	/**
+	 * Evaluates all entries of the batch, blocks until done
+	 * @param batch
+	 */
+	public void evaluate(EvaluationBatch batch)
+	{
+		if (asyncFunction != null) {
+			evaluateAsync(batch).join();
+			return;
+		}
+
+		int size = batch.getSize();
+		if (pool == null || size <= chunkSize)
+			evaluate(batch, 0, size);
+		else
+			pool.invoke(new EvaluationTask(batch, 0, size));
+	}
+
+	/**
+	 * Evaluates the entries from..to-1 sequentially in the calling thread
+	 * @param batch
+	 * @param from
+	 * @param to
+	 */
+	public void evaluate(EvaluationBatch batch, int from, int to)
+	{
+		double[] x = batch.getX();
+		double[] fitness = batch.getFitness();
+		for (int i = from; i < to; i++) {
+			int offset = batch.offset(i);
+			fitness[i] = function.fitness(x, offset);
+			checkConstraint(batch, i);
+		}
+	}
+
+	/**
+	 * Evaluates all entries of the batch without blocking
+	 * @param batch
+	 * @return future completing when all entries are evaluated
+	 */
+	public CompletableFuture<Void> evaluateAsync(final EvaluationBatch batch)
+	{
+		if (asyncFunction == null) {
+			return CompletableFuture.runAsync(new Runnable() {
+				@Override
+				public void run()
+				{
+					evaluate(batch);
+				}
+			}, pool != null ? pool : ForkJoinPool.commonPool());
+		}
+
+		int size = batch.getSize();
+		final double[] fitness = batch.getFitness();
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[size];
+		for (int i = 0; i < size; i++) {
+			final int idx = i;
+			checkConstraint(batch, i);
+			futures[i] = asyncFunction.fitnessAsync(batch.getX(), batch.offset(i))
+				.whenComplete(new BiConsumer<Double, Throwable>() {
+					@Override
+					public void accept(Double value, Throwable error)
+					{
+						if (error == null)
+							fitness[idx] = value;
+					}
+				});
+		}
+		return CompletableFuture.allOf(futures);
+	}
+
+	private void checkConstraint(EvaluationBatch batch, int i)
+	{
+		double[] x = batch.getX();
+		int offset = batch.offset(i);
+		if (constraint == null) {
+			batch.getG()[i] = 0D;
+			batch.getOk()[i] = true;
+		} else {
+			double g = constraint.constraint(x, offset);
+			batch.getG()[i] = g;
+			batch.getOk()[i] = constraint.isFeasible(x, offset, g);
+		}
+	}
+
+	/**
+	 * Splits the range in halves until it's no bigger than the chunk size
+	 */
+	private class EvaluationTask
+		extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private EvaluationBatch batch;
+		private int from;
+		private int to;
+
+		public EvaluationTask(EvaluationBatch batch, int from, int to)
+		{
+			this.batch = batch;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= chunkSize) {
+				evaluate(batch, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new EvaluationTask(batch, from, mid),
+				new EvaluationTask(batch, mid, to));
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * A constraint on the object parameters, split into the constraint function
+ * g() and the check whether a value of g() (and the parameters themselves)
+ * are acceptable. Must be thread safe.
+ * @author D. Ritz
+ */
+public interface Constraint
+{
+	/**
+	 * calculates the constraint function
+	 * @param x the parameters
+	 * @param offset where in x the parameters start
+	 * @return g(x)
+	 */
+	double constraint(double[] x, int offset);
+
+	/**
+	 * @param x the parameters
+	 * @param offset where in x the parameters start
+	 * @param g the value of g(x)
+	 * @return true if the parameters satisfy the constraint
+	 */
+	boolean isFeasible(double[] x, int offset, double g);
+}
@@ -0,0 +1,104 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * The cylinder problem: minimal surface with a volume of at least minG.
+ * Parameters are x = (d, h), both in (0, max].
+ * @author D. Ritz
+ */
+public class Cylinder
+	implements FitnessFunction, Constraint
+{
+	private double minG;
+	private double maxD;
+	private double maxH;
+
+	/**
+	 * @param minG the minimal volume
+	 * @param maxD the maximal diameter
+	 * @param maxH the maximal height
+	 */
+	public Cylinder(double minG, double maxD, double maxH)
+	{
+		this.minG = minG;
+		this.maxD = maxD;
+		this.maxH = maxH;
+	}
+
+	@Override
+	public int getDimension()
+	{
+		return 2;
+	}
+
+	@Override
+	public double fitness(double[] x, int offset)
+	{
+		return surface(x[offset], x[offset + 1]);
+	}
+
+	@Override
+	public double constraint(double[] x, int offset)
+	{
+		return volume(x[offset], x[offset + 1]);
+	}
+
+	@Override
+	public boolean isFeasible(double[] x, int offset, double g)
+	{
+		double d = x[offset];
+		double h = x[offset + 1];
+		return (g >= minG) && (d > 0D) && (d <= maxD) &&
+			(h > 0D) && (h <= maxH);
+	}
+
+	/**
+	 * @return the volume as an objective to minimize, i.e. -g(d, h). Used
+	 * when surface and volume are optimized as two objectives.
+	 */
+	public FitnessFunction negatedVolume()
+	{
+		return new FitnessFunction() {
+			@Override
+			public int getDimension()
+			{
+				return 2;
+			}
+
+			@Override
+			public double fitness(double[] x, int offset)
+			{
+				return -volume(x[offset], x[offset + 1]);
+			}
+		};
+	}
+
+	/**
+	 * @return the minimal volume
+	 */
+	public double getMinG()
+	{
+		return minG;
+	}
+
+	/**
+	 * The function to minimize: surface of the cylinder
+	 * @param d
+	 * @param h
+	 * @return f(d, h)
+	 */
+	public static double surface(double d, double h)
+	{
+		return Math.PI * d * d / 2 + Math.PI * d * h;
+	}
+
+	/**
+	 * The constraint: volume of the cylinder
+	 * @param d
+	 * @param h
+	 * @return g(d, h)
+	 */
+	public static double volume(double d, double h)
+	{
+		return Math.PI * d * d * h / 4;
+	}
+}
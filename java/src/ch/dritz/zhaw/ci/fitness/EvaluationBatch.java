@@ -0,0 +1,135 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * A batch of parameter vectors to evaluate together with the results, stored
+ * as flat arrays: the parameters of entry i start at i * dimension. The
+ * arrays only grow, a batch is meant to be reused for every generation.
+ * @author D. Ritz
+ */
+public class EvaluationBatch
+{
+	private int dimension;
+	private int size;
+
+	private double[] x;
+	private double[] fitness;
+	private double[] g;
+	private boolean[] ok;
+	private boolean[] estimated;
+
+	/**
+	 * @param dimension number of parameters per entry
+	 * @param capacity initial number of entries
+	 */
+	public EvaluationBatch(int dimension, int capacity)
+	{
+		this.dimension = dimension;
+		this.size = 0;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity)
+	{
+		x = new double[capacity * dimension];
+		fitness = new double[capacity];
+		g = new double[capacity];
+		ok = new boolean[capacity];
+		estimated = new boolean[capacity];
+	}
+
+	/**
+	 * Sets the number of entries, growing the arrays if needed. Contents are
+	 * not preserved when growing, the entries are marked as not estimated.
+	 * @param size
+	 */
+	public void setSize(int size)
+	{
+		if (size > fitness.length)
+			allocate(size);
+		this.size = size;
+		for (int i = 0; i < size; i++)
+			estimated[i] = false;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the number of parameters per entry
+	 */
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	/**
+	 * @param i
+	 * @return offset of the parameters of entry i in getX()
+	 */
+	public int offset(int i)
+	{
+		return i * dimension;
+	}
+
+	/**
+	 * @return the parameters of all entries
+	 */
+	public double[] getX()
+	{
+		return x;
+	}
+
+	/**
+	 * @return the fitness of all entries
+	 */
+	public double[] getFitness()
+	{
+		return fitness;
+	}
+
+	/**
+	 * @return g() of all entries
+	 */
+	public double[] getG()
+	{
+		return g;
+	}
+
+	/**
+	 * @return the feasibility of all entries
+	 */
+	public boolean[] getOk()
+	{
+		return ok;
+	}
+
+	/**
+	 * @return for all entries whether the fitness is only an estimate of a
+	 * surrogate, such entries are never ok
+	 */
+	public boolean[] getEstimated()
+	{
+		return estimated;
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @return the number of entries from..to-1 evaluated for real, the
+	 * fitness evaluations to book for them
+	 */
+	public int countEvaluated(int from, int to)
+	{
+		int ret = 0;
+		for (int i = from; i < to; i++) {
+			if (!estimated[i])
+				ret++;
+		}
+		return ret;
+	}
+}
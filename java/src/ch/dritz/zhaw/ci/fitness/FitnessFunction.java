@@ -0,0 +1,24 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * An objective function to minimize. Parameters are read from a flat array
+ * so whole populations can be stored in a single array without copying.
+ * Implementations must be thread safe, they are called concurrently by the
+ * BatchEvaluator.
+ * @author D. Ritz
+ */
+public interface FitnessFunction
+{
+	/**
+	 * @return the number of object parameters
+	 */
+	int getDimension();
+
+	/**
+	 * calculates the fitness
+	 * @param x the parameters
+	 * @param offset where in x the parameters start
+	 * @return f(x)
+	 */
+	double fitness(double[] x, int offset);
+}
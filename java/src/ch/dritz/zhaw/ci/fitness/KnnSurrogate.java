@@ -0,0 +1,138 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * Surrogate predicting by inverse distance weighting of the k nearest of the
+ * last evaluated points. The points are kept in a ring, so the model follows
+ * the population. Only feasible neighbours are used for the fitness, all of
+ * them for the feasibility.
+ * @author D. Ritz
+ */
+public class KnnSurrogate
+	implements SurrogateModel
+{
+	private int dimension;
+	private int capacity;
+	private int k;
+
+	private double[] x;
+	private double[] fitness;
+	private boolean[] ok;
+	private int size;
+	private int next;
+
+	// the k nearest of the last query, sorted by distance
+	private int[] nearest;
+	private double[] nearestDist;
+
+	/**
+	 * @param dimension
+	 * @param capacity number of points kept
+	 * @param k number of neighbours
+	 */
+	public KnnSurrogate(int dimension, int capacity, int k)
+	{
+		if (k < 1 || k > capacity)
+			throw new IllegalArgumentException("need 1 <= k <= capacity");
+		this.dimension = dimension;
+		this.capacity = capacity;
+		this.k = k;
+		x = new double[capacity * dimension];
+		fitness = new double[capacity];
+		ok = new boolean[capacity];
+		nearest = new int[k];
+		nearestDist = new double[k];
+	}
+
+	@Override
+	public void add(double[] p, int offset, double f, boolean feasible)
+	{
+		System.arraycopy(p, offset, x, next * dimension, dimension);
+		fitness[next] = f;
+		ok[next] = feasible;
+		next = (next + 1) % capacity;
+		if (size < capacity)
+			size++;
+	}
+
+	/**
+	 * Finds the nearest points
+	 * @param p
+	 * @param offset
+	 * @param feasibleOnly
+	 * @return number of neighbours found
+	 */
+	private int search(double[] p, int offset, boolean feasibleOnly)
+	{
+		int found = 0;
+		for (int i = 0; i < size; i++) {
+			if (feasibleOnly && !ok[i])
+				continue;
+			int base = i * dimension;
+			double dist = 0D;
+			for (int j = 0; j < dimension; j++) {
+				double d = x[base + j] - p[offset + j];
+				dist += d * d;
+			}
+			if (found == k && dist >= nearestDist[k - 1])
+				continue;
+
+			// insertion into the sorted neighbours
+			int pos = found < k ? found++ : k - 1;
+			while (pos > 0 && nearestDist[pos - 1] > dist) {
+				nearestDist[pos] = nearestDist[pos - 1];
+				nearest[pos] = nearest[pos - 1];
+				pos--;
+			}
+			nearestDist[pos] = dist;
+			nearest[pos] = i;
+		}
+		return found;
+	}
+
+	@Override
+	public double predict(double[] p, int offset)
+	{
+		int found = search(p, offset, true);
+		if (found == 0)
+			return Double.POSITIVE_INFINITY;
+
+		double sum = 0D;
+		double sumW = 0D;
+		for (int i = 0; i < found; i++) {
+			if (nearestDist[i] == 0D)
+				return fitness[nearest[i]];
+			double w = 1D / Math.sqrt(nearestDist[i]);
+			sum += w * fitness[nearest[i]];
+			sumW += w;
+		}
+		return sum / sumW;
+	}
+
+	@Override
+	public double feasibility(double[] p, int offset)
+	{
+		int found = search(p, offset, false);
+		if (found == 0)
+			return 1D;
+
+		int feasible = 0;
+		for (int i = 0; i < found; i++) {
+			if (ok[nearest[i]])
+				feasible++;
+		}
+		return (double) feasible / found;
+	}
+
+	@Override
+	public int getSize()
+	{
+		return size;
+	}
+
+	@Override
+	public void clear()
+	{
+		size = 0;
+		next = 0;
+	}
+}
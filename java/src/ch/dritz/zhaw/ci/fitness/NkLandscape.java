@@ -0,0 +1,75 @@
+package ch.dritz.zhaw.ci.fitness;
+
+import java.util.Random;
+
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Kauffman's NK landscape on a bit string of n bits, bit i is set if
+ * x_i >= 0.5. Each bit contributes a random value depending on itself and
+ * its k right neighbours (wrapping around), so k tunes the ruggedness from
+ * smooth (0) to random (n - 1). To be minimized, the fitness is the negated
+ * mean contribution, in [-1, 0].
+ * @author D. Ritz
+ */
+public class NkLandscape
+	implements FitnessFunction
+{
+	private int n;
+	private int k;
+	private double[] table;
+
+	/**
+	 * Creates a random landscape
+	 * @param n number of bits
+	 * @param k number of neighbours, each bit has a table of 2^(k+1) entries
+	 * @param seed seed of the tables, the same seed gives the same landscape
+	 */
+	public NkLandscape(int n, int k, long seed)
+	{
+		if (k < 0 || k >= n || k > 20)
+			throw new IllegalArgumentException("need 0 <= k < n and k <= 20");
+		this.n = n;
+		this.k = k;
+
+		Random rand = new Rng(seed);
+		table = new double[n << (k + 1)];
+		for (int i = 0; i < table.length; i++)
+			table[i] = rand.nextDouble();
+	}
+
+	@Override
+	public int getDimension()
+	{
+		return n;
+	}
+
+	@Override
+	public double fitness(double[] x, int offset)
+	{
+		int mask = (1 << (k + 1)) - 1;
+
+		// window of bit i and its k neighbours, bit i is the highest one
+		int window = 0;
+		for (int j = 0; j <= k; j++)
+			window = (window << 1) | bit(x, offset, j);
+
+		double sum = 0D;
+		for (int i = 0; i < n; i++) {
+			sum += table[(i << (k + 1)) + window];
+			int next = i + k + 1;
+			window = ((window << 1) | bit(x, offset, next < n ? next : next - n)) & mask;
+		}
+		return -sum / n;
+	}
+
+	private static int bit(double[] x, int offset, int i)
+	{
+		return x[offset + i] >= 0.5D ? 1 : 0;
+	}
+
+	public int getK()
+	{
+		return k;
+	}
+}
@@ -0,0 +1,35 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * OneMax on a bit string of n bits, bit i is set if x_i >= 0.5. To be
+ * minimized, the fitness is the number of bits not set, 0 if all are.
+ * @author D. Ritz
+ */
+public class OneMax
+	implements FitnessFunction
+{
+	private int dimension;
+
+	/**
+	 * @param dimension number of bits
+	 */
+	public OneMax(int dimension)
+	{
+		this.dimension = dimension;
+	}
+
+	@Override
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	@Override
+	public double fitness(double[] x, int offset)
+	{
+		int zeros = 0;
+		for (int i = 0; i < dimension; i++)
+			zeros += x[offset + i] >= 0.5D ? 0 : 1;
+		return zeros;
+	}
+}
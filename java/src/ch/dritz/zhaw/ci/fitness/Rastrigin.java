@@ -0,0 +1,41 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * The Rastrigin function f(x) = 10 n + sum(x_i^2 - 10 cos(2 pi x_i)),
+ * minimum 0 at the origin. Scalable benchmark with a regular grid of local
+ * minima, separable.
+ * @author D. Ritz
+ */
+public class Rastrigin
+	implements FitnessFunction
+{
+	public static final double LOWER = -5.12D;
+	public static final double UPPER = 5.12D;
+
+	private int dimension;
+
+	/**
+	 * @param dimension
+	 */
+	public Rastrigin(int dimension)
+	{
+		this.dimension = dimension;
+	}
+
+	@Override
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	@Override
+	public double fitness(double[] x, int offset)
+	{
+		double sum = 10D * dimension;
+		for (int i = 0; i < dimension; i++) {
+			double v = x[offset + i];
+			sum += v * v - 10D * Math.cos(2D * Math.PI * v);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,46 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * The Rosenbrock function
+ *   f(x) = sum(100 * (x_i+1 - x_i^2)^2 + (1 - x_i)^2)
+ * minimum 0 at (1, ..., 1). Scalable benchmark with a narrow curved valley,
+ * not separable.
+ * @author D. Ritz
+ */
+public class Rosenbrock
+	implements FitnessFunction
+{
+	public static final double LOWER = -5D;
+	public static final double UPPER = 10D;
+
+	private int dimension;
+
+	/**
+	 * @param dimension at least 2
+	 */
+	public Rosenbrock(int dimension)
+	{
+		if (dimension < 2)
+			throw new IllegalArgumentException("dimension must be >= 2");
+		this.dimension = dimension;
+	}
+
+	@Override
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	@Override
+	public double fitness(double[] x, int offset)
+	{
+		double sum = 0D;
+		for (int i = 0; i < dimension - 1; i++) {
+			double v = x[offset + i];
+			double a = x[offset + i + 1] - v * v;
+			double b = 1D - v;
+			sum += 100D * a * a + b * b;
+		}
+		return sum;
+	}
+}
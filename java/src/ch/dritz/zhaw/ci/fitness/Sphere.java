@@ -0,0 +1,40 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * The sphere function f(x) = sum(x_i^2), minimum 0 at the origin. Scalable
+ * benchmark, unimodal and separable.
+ * @author D. Ritz
+ */
+public class Sphere
+	implements FitnessFunction
+{
+	public static final double LOWER = -5.12D;
+	public static final double UPPER = 5.12D;
+
+	private int dimension;
+
+	/**
+	 * @param dimension
+	 */
+	public Sphere(int dimension)
+	{
+		this.dimension = dimension;
+	}
+
+	@Override
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	@Override
+	public double fitness(double[] x, int offset)
+	{
+		double sum = 0D;
+		for (int i = 0; i < dimension; i++) {
+			double v = x[offset + i];
+			sum += v * v;
+		}
+		return sum;
+	}
+}
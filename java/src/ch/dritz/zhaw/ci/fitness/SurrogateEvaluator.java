@@ -0,0 +1,197 @@
+package ch.dritz.zhaw.ci.fitness;
+
+import ch.dritz.zhaw.ci.util.IndexSort;
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Pre-screens a batch with a surrogate model so only the promising entries
+ * reach the real evaluator. The entries are ranked by their estimate,
+ * likely infeasible ones last. The best fraction of them plus a random
+ * fraction of the rest are evaluated for real and teach the model, the
+ * random ones keep it honest where it is wrong. All other entries get the
+ * estimate, are marked as estimated and as not ok, so the engines drop them
+ * like infeasible ones.
+ *
+ * Until the model has seen enough points, everything is evaluated for real.
+ * @author D. Ritz
+ */
+public class SurrogateEvaluator
+	extends BatchEvaluator
+{
+	public static Rng rand = Rng.stream("SurrogateEvaluator");
+
+	// stream of this instance, the shared one unless set
+	private Rng rng = rand;
+
+	private BatchEvaluator evaluator;
+	private SurrogateModel model;
+	private double realFraction;
+	private double exploreFraction;
+	private int minSamples;
+
+	private EvaluationBatch real;
+	private double[] key = new double[0];
+	private int[] order = new int[0];
+
+	private long realEvaluations;
+	private long estimates;
+
+	/**
+	 * @param evaluator evaluates for real
+	 * @param model the surrogate, trained by this evaluator
+	 * @param realFraction fraction of the best ranked entries evaluated
+	 * @param exploreFraction fraction of the other entries evaluated
+	 * @param minSamples points the model needs before screening starts
+	 */
+	public SurrogateEvaluator(BatchEvaluator evaluator, SurrogateModel model,
+			double realFraction, double exploreFraction, int minSamples)
+	{
+		super(evaluator.getFunction(), evaluator.getConstraint(), null,
+			DEFAULT_CHUNK_SIZE);
+		if (realFraction <= 0D || realFraction > 1D)
+			throw new IllegalArgumentException("real fraction must be in (0, 1]");
+		if (exploreFraction < 0D || exploreFraction > 1D)
+			throw new IllegalArgumentException("explore fraction must be in [0, 1]");
+		this.evaluator = evaluator;
+		this.model = model;
+		this.realFraction = realFraction;
+		this.exploreFraction = exploreFraction;
+		this.minSamples = minSamples;
+		real = new EvaluationBatch(evaluator.getDimension(), 0);
+	}
+
+	@Override
+	public int getDimension()
+	{
+		return evaluator.getDimension();
+	}
+
+	/**
+	 * Screening needs the whole batch
+	 */
+	@Override
+	public boolean isSplittable()
+	{
+		return false;
+	}
+
+	@Override
+	public void evaluate(EvaluationBatch batch)
+	{
+		int size = batch.getSize();
+		if (model.getSize() < minSamples) {
+			evaluator.evaluate(batch);
+			realEvaluations += size;
+			learn(batch, 0, size);
+			return;
+		}
+
+		// rank by the estimate
+		if (key.length < size) {
+			key = new double[size];
+			order = new int[size];
+		}
+		double[] x = batch.getX();
+		double[] fitness = batch.getFitness();
+		for (int i = 0; i < size; i++) {
+			int offset = batch.offset(i);
+			fitness[i] = model.predict(x, offset);
+			key[i] = model.feasibility(x, offset) >= 0.5D ?
+				fitness[i] : Double.POSITIVE_INFINITY;
+		}
+		IndexSort.identity(order, size);
+		IndexSort.sort(order, 0, size, key);
+
+		// best ones plus a random sample of the others
+		int numBest = Math.max(1, (int) Math.ceil(realFraction * size));
+		int numReal = numBest + (int) Math.round(exploreFraction * (size - numBest));
+		for (int i = numBest; i < numReal; i++) {
+			int j = i + rng.nextInt(size - i);
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+
+		int dim = batch.getDimension();
+		real.setSize(numReal);
+		double[] rx = real.getX();
+		for (int i = 0; i < numReal; i++)
+			System.arraycopy(x, batch.offset(order[i]), rx, real.offset(i), dim);
+		evaluator.evaluate(real);
+		realEvaluations += numReal;
+		learn(real, 0, numReal);
+
+		double[] g = batch.getG();
+		boolean[] ok = batch.getOk();
+		boolean[] estimated = batch.getEstimated();
+		for (int i = 0; i < numReal; i++) {
+			int idx = order[i];
+			fitness[idx] = real.getFitness()[i];
+			g[idx] = real.getG()[i];
+			ok[idx] = real.getOk()[i];
+		}
+		for (int i = numReal; i < size; i++) {
+			int idx = order[i];
+			g[idx] = Double.NaN;
+			ok[idx] = false;
+			estimated[idx] = true;
+		}
+		estimates += size - numReal;
+	}
+
+	/**
+	 * Evaluates the range for real, without screening
+	 */
+	@Override
+	public void evaluate(EvaluationBatch batch, int from, int to)
+	{
+		evaluator.evaluate(batch, from, to);
+		realEvaluations += to - from;
+		learn(batch, from, to);
+	}
+
+	private void learn(EvaluationBatch batch, int from, int to)
+	{
+		double[] x = batch.getX();
+		for (int i = from; i < to; i++) {
+			model.add(x, batch.offset(i), batch.getFitness()[i],
+				batch.getOk()[i]);
+		}
+	}
+
+	/**
+	 * @return the number of real fitness evaluations
+	 */
+	public long getRealEvaluations()
+	{
+		return realEvaluations;
+	}
+
+	/**
+	 * @return the number of entries that only got an estimate
+	 */
+	public long getEstimates()
+	{
+		return estimates;
+	}
+
+	/**
+	 * Sets the stream the random sample is drawn from, e.g. split from the
+	 * one of the engine using this evaluator
+	 * @param rng
+	 */
+	public void setRandom(Rng rng)
+	{
+		this.rng = rng;
+	}
+
+	public Rng getRandom()
+	{
+		return rng;
+	}
+
+	public SurrogateModel getModel()
+	{
+		return model;
+	}
+}
@@ -0,0 +1,39 @@
+package ch.dritz.zhaw.ci.fitness;
+
+/**
+ * A cheap model of a fitness function and its constraint, trained online
+ * from really evaluated points
+ * @author D. Ritz
+ */
+public interface SurrogateModel
+{
+	/**
+	 * Learns a really evaluated point
+	 * @param x
+	 * @param offset
+	 * @param fitness
+	 * @param ok whether the point is feasible
+	 */
+	void add(double[] x, int offset, double fitness, boolean ok);
+
+	/**
+	 * @param x
+	 * @param offset
+	 * @return the estimated fitness at x
+	 */
+	double predict(double[] x, int offset);
+
+	/**
+	 * @param x
+	 * @param offset
+	 * @return the estimated probability that x is feasible
+	 */
+	double feasibility(double[] x, int offset);
+
+	/**
+	 * @return the number of learned points
+	 */
+	int getSize();
+
+	void clear();
+}
@@ -0,0 +1,75 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.Random;
+
+/**
+ * Rank based selection using the alias method (Vose): O(n) preparation of
+ * the alias table, O(1) per draw.
+ * @author D. Ritz
+ */
+public class AliasSelection
+	extends RankBasedSelection
+{
+	private double[] prob = new double[0];
+	private int[] alias = new int[0];
+
+	// work lists for building the table
+	private int[] small = new int[0];
+	private int[] large = new int[0];
+
+	@Override
+	protected void resize(int capacity)
+	{
+		prob = new double[capacity];
+		alias = new int[capacity];
+		small = new int[capacity];
+		large = new int[capacity];
+	}
+
+	@Override
+	protected void prepare()
+	{
+		int n = numOk;
+		double scale = (double) n / totalRank();
+
+		// scaled probabilities, average is 1.0
+		int numSmall = 0;
+		int numLarge = 0;
+		for (int i = 0; i < n; i++) {
+			prob[i] = (i + 1) * scale;
+			if (prob[i] < 1D)
+				small[numSmall++] = i;
+			else
+				large[numLarge++] = i;
+		}
+
+		// fill up each small column with a part of a large one
+		while (numSmall > 0 && numLarge > 0) {
+			int s = small[--numSmall];
+			int l = large[--numLarge];
+			alias[s] = l;
+			prob[l] = (prob[l] + prob[s]) - 1D;
+			if (prob[l] < 1D)
+				small[numSmall++] = l;
+			else
+				large[numLarge++] = l;
+		}
+
+		// whatever is left is 1.0 up to rounding errors
+		while (numLarge > 0)
+			prob[large[--numLarge]] = 1D;
+		while (numSmall > 0)
+			prob[small[--numSmall]] = 1D;
+	}
+
+	@Override
+	protected void sample(int[] selected, int count, Random rand)
+	{
+		for (int i = 0; i < count; i++) {
+			int col = rand.nextInt(numOk);
+			if (rand.nextDouble() >= prob[col])
+				col = alias[col];
+			selected[i] = okIdx[col];
+		}
+	}
+}
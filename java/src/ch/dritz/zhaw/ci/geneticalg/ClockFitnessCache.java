@@ -0,0 +1,177 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.Arrays;
+
+/**
+ * Bounded fitness cache for big genome spaces. Entries are kept in fixed
+ * arrays and evicted with the CLOCK algorithm (second chance): a hit sets the
+ * reference bit, the clock hand clears reference bits until it finds an entry
+ * without, which is replaced. The genome to entry mapping is an open
+ * addressing hash table with linear probing.
+ * @author D. Ritz
+ */
+public class ClockFitnessCache
+	extends FitnessCache
+{
+	// the entries
+	private int[] keys;
+	private double[] fitness;
+	private double[] g;
+	private boolean[] ok;
+	private boolean[] referenced;
+	private int size;
+	private int hand;
+
+	// hash table, entry index + 1, 0 marks an empty slot
+	private int[] table;
+	private int mask;
+
+	private long evictions = 0;
+
+	/**
+	 * @param capacity maximal number of entries
+	 */
+	public ClockFitnessCache(int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be >= 1");
+		keys = new int[capacity];
+		fitness = new double[capacity];
+		g = new double[capacity];
+		ok = new boolean[capacity];
+		referenced = new boolean[capacity];
+
+		// keep the load factor at or below 0.5
+		int slots = Integer.highestOneBit(capacity) << 2;
+		table = new int[slots];
+		mask = slots - 1;
+		size = 0;
+		hand = 0;
+	}
+
+	private static int hash(int key)
+	{
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @param key
+	 * @return the table slot containing key, or the empty slot where it
+	 * would be inserted
+	 */
+	private int slot(int key)
+	{
+		int p = hash(key) & mask;
+		while (table[p] != 0 && keys[table[p] - 1] != key)
+			p = (p + 1) & mask;
+		return p;
+	}
+
+	@Override
+	protected boolean lookup(Population pop, int i)
+	{
+		int e = table[slot(pop.genome[i])] - 1;
+		if (e < 0)
+			return false;
+		referenced[e] = true;
+		pop.fitness[i] = fitness[e];
+		pop.g[i] = g[e];
+		pop.ok[i] = ok[e];
+		return true;
+	}
+
+	@Override
+	public void put(int genome, double fitness, double g, boolean ok)
+	{
+		int p = slot(genome);
+		int e = table[p] - 1;
+		if (e < 0) {
+			if (size < keys.length) {
+				e = size++;
+			} else {
+				e = evict();
+				p = slot(genome); // the table changed
+			}
+			keys[e] = genome;
+			table[p] = e + 1;
+			referenced[e] = false;
+		}
+		this.fitness[e] = fitness;
+		this.g[e] = g;
+		this.ok[e] = ok;
+	}
+
+	/**
+	 * advances the clock hand to the first entry without reference bit and
+	 * removes it from the hash table
+	 * @return the free entry
+	 */
+	private int evict()
+	{
+		while (referenced[hand]) {
+			referenced[hand] = false;
+			hand = (hand + 1) % keys.length;
+		}
+		int e = hand;
+		hand = (hand + 1) % keys.length;
+		remove(slot(keys[e]));
+		evictions++;
+		return e;
+	}
+
+	/**
+	 * removes the table slot p, shifting back following entries of the same
+	 * probe sequence so lookups never hit a hole
+	 * @param p
+	 */
+	private void remove(int p)
+	{
+		table[p] = 0;
+		int q = p;
+		while (true) {
+			q = (q + 1) & mask;
+			if (table[q] == 0)
+				break;
+			int home = hash(keys[table[q] - 1]) & mask;
+
+			// move the entry at q into the hole unless its home is in (p, q]
+			boolean stays = p <= q ?
+				(home > p && home <= q) : (home > p || home <= q);
+			if (!stays) {
+				table[p] = table[q];
+				table[q] = 0;
+				p = q;
+			}
+		}
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(table, 0);
+		Arrays.fill(referenced, false);
+		size = 0;
+		hand = 0;
+	}
+
+	@Override
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the number of entries evicted so far
+	 */
+	public long getEvictions()
+	{
+		return evictions;
+	}
+
+	@Override
+	public String toString()
+	{
+		return super.toString() + ", evictions: " + evictions;
+	}
+}
@@ -0,0 +1,73 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.Arrays;
+
+/**
+ * Fitness cache for small genome spaces: a table with one slot per possible
+ * genome, no hashing, no eviction
+ * @author D. Ritz
+ */
+public class DirectFitnessCache
+	extends FitnessCache
+{
+	private double[] fitness;
+	private double[] g;
+	private boolean[] ok;
+	private boolean[] known;
+	private int mask;
+	private int size;
+
+	/**
+	 * @param genomeBits number of bits in the genome
+	 */
+	public DirectFitnessCache(int genomeBits)
+	{
+		if (genomeBits < 0 || genomeBits > DIRECT_MAX_BITS)
+			throw new IllegalArgumentException("genome too big: " + genomeBits);
+		int slots = 1 << genomeBits;
+		fitness = new double[slots];
+		g = new double[slots];
+		ok = new boolean[slots];
+		known = new boolean[slots];
+		mask = slots - 1;
+		size = 0;
+	}
+
+	@Override
+	protected boolean lookup(Population pop, int i)
+	{
+		int key = pop.genome[i] & mask;
+		if (!known[key])
+			return false;
+		pop.fitness[i] = fitness[key];
+		pop.g[i] = g[key];
+		pop.ok[i] = ok[key];
+		return true;
+	}
+
+	@Override
+	public void put(int genome, double fitness, double g, boolean ok)
+	{
+		int key = genome & mask;
+		if (!known[key]) {
+			known[key] = true;
+			size++;
+		}
+		this.fitness[key] = fitness;
+		this.g[key] = g;
+		this.ok[key] = ok;
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(known, false);
+		size = 0;
+	}
+
+	@Override
+	public int getSize()
+	{
+		return size;
+	}
+}
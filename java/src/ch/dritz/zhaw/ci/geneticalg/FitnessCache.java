@@ -0,0 +1,124 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+/**
+ * Caches fitness and constraint values keyed by the packed genome. Once a
+ * population converges most individuals share a genome, so most evaluations
+ * become a lookup. Not thread safe, one instance per population.
+ * @author D. Ritz
+ */
+public abstract class FitnessCache
+{
+	/**
+	 * genome spaces up to this many bits use a direct lookup table
+	 * (2^20 entries, 17MB), anything bigger a bounded cache
+	 */
+	public static final int DIRECT_MAX_BITS = 20;
+
+	protected long hits = 0;
+	protected long misses = 0;
+
+	/**
+	 * Creates a cache suitable for the size of the genome space: a direct
+	 * lookup table if it's small enough, a bounded cache with CLOCK eviction
+	 * otherwise
+	 * @param genomeBits number of bits in the genome
+	 * @param capacity maximal number of entries of the bounded cache
+	 * @return the cache
+	 */
+	public static FitnessCache create(int genomeBits, int capacity)
+	{
+		if (genomeBits <= DIRECT_MAX_BITS)
+			return new DirectFitnessCache(genomeBits);
+		return new ClockFitnessCache(capacity);
+	}
+
+	/**
+	 * Looks up the genome of individual i and, if found, copies fitness, g()
+	 * and the feasibility into the population
+	 * @param pop
+	 * @param i
+	 * @return true if found
+	 */
+	public boolean get(Population pop, int i)
+	{
+		if (lookup(pop, i)) {
+			hits++;
+			return true;
+		}
+		misses++;
+		return false;
+	}
+
+	/**
+	 * Looks up the genome of individual i, copies the values on success
+	 * @param pop
+	 * @param i
+	 * @return true if found
+	 */
+	protected abstract boolean lookup(Population pop, int i);
+
+	/**
+	 * Stores the values for a genome, possibly evicting another one
+	 * @param genome
+	 * @param fitness
+	 * @param g
+	 * @param ok
+	 */
+	public abstract void put(int genome, double fitness, double g, boolean ok);
+
+	/**
+	 * Removes all entries, the statistics are kept
+	 */
+	public abstract void clear();
+
+	/**
+	 * @return number of entries currently cached
+	 */
+	public abstract int getSize();
+
+	/**
+	 * @return the number of lookups that were found
+	 */
+	public long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups that were not found
+	 */
+	public long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return hits / lookups, 0 if there was no lookup yet
+	 */
+	public double getHitRate()
+	{
+		long total = hits + misses;
+		return total == 0 ? 0D : (double) hits / total;
+	}
+
+	/**
+	 * resets hit and miss counters
+	 */
+	public void resetStatistics()
+	{
+		hits = 0;
+		misses = 0;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(getClass().getSimpleName());
+		sb.append(" size: ").append(getSize());
+		sb.append(", hits: ").append(hits);
+		sb.append(", misses: ").append(misses);
+		sb.append(", hit rate: ").append(String.format("%1.3f", getHitRate()));
+		return sb.toString();
+	}
+}
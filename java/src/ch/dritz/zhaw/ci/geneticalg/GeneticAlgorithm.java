@@ -1,20 +1,38 @@
 package ch.dritz.zhaw.ci.geneticalg;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
 
+import ch.dritz.zhaw.ci.checkpoint.Checkpointable;
+import ch.dritz.zhaw.ci.checkpoint.Checkpointer;
+import ch.dritz.zhaw.ci.event.EventRing;
+import ch.dritz.zhaw.ci.event.GenerationEvent;
+import ch.dritz.zhaw.ci.event.jfr.EvaluationJfrEvent;
+import ch.dritz.zhaw.ci.event.jfr.GenerationJfrEvent;
+import ch.dritz.zhaw.ci.event.jfr.PhaseJfrEvent;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.Cylinder;
+import ch.dritz.zhaw.ci.fitness.EvaluationBatch;
+import ch.dritz.zhaw.ci.moo.EnvironmentalSelection;
+import ch.dritz.zhaw.ci.util.IndexSort;
+import ch.dritz.zhaw.ci.util.IndexedHeap;
+import ch.dritz.zhaw.ci.util.Rng;
+
 /**
  * Genetic algorithm for dimensions of cylinder with minimal surface and a
  * volume of at least 300. Implemented with:
  * - Individuals with 10bits (5bit diameter, 5bit height)
- * - Rank based selection
+ * - Population stored as parallel arrays, double buffered between rounds
+ * - Pluggable selection, rank based roulette wheel selection by default
+ * - Flight recorder events for rounds, their phases and evaluations
+ * - Snapshots of the complete state, see Checkpointer
  *
  * @author D. Ritz
  */
 public class GeneticAlgorithm
+	implements Checkpointable
 {
 	public static final int BITS = 5;
 	public static final int NUM = 30;
@@ -23,10 +41,60 @@ public class GeneticAlgorithm
 	public static final int MAX = 1 << BITS;
 	public static final int MASK = MAX - 1;
 
-	public static Random rand = new Random();
+	public static final int CACHE_CAPACITY = 1 << 16;
+
+	public static Rng rand = Rng.stream("GeneticAlgorithm");
+
+	// first int of a snapshot, "GA"
+	private static final int SNAPSHOT_TAG = 0x4741;
+
+	// stream of this instance, the shared one unless set
+	private Rng rng = rand;
+
+	/*
+	 * Double buffered population: selection copies from current into next,
+	 * then the two are swapped. Nothing is allocated per generation.
+	 */
+	private Population current;
+	private Population next;
+
+	private Selection selection;
+	private FitnessCache cache;
+	private BatchEvaluator evaluator;
+
+	// scratch space for evaluation, selection and recombination
+	private EvaluationBatch batch;
+	private int[] batchIdx;
+	private int[] selected;
+	private int[] pairing;
+	private int[] migrantIdx;
+	private double[] migrantKey;
 
-	private List<Individual> individuals;
-	private List<Individual> bestList;
+	// environmental selection among parents and offspring, optional
+	private EnvironmentalSelection envSelection;
+	private Population pool;
+	private double[] envObjectives;
+	private int[] survivors;
+
+	// steady state mode
+	private IndexedHeap heap;
+	private Replacement heapMode;
+	private boolean heapValid;
+	private long[] birth;
+	private long clock;
+
+	// statistics
+	private long generation;
+	private long evaluations;
+	private EventRing events;
+	private String source;
+	// engine label of the flight recorder events, the source once set
+	private String jfrEngine = "GA";
+	private GenerationEvent event;
+
+	// the round all flight recorder events are stamped with, taken once
+	// when the round starts, phases called on their own belong to the next
+	private long jfrGeneration;
 
 
 	/**
@@ -35,71 +103,126 @@ public class GeneticAlgorithm
 	 */
 	public GeneticAlgorithm(int num)
 	{
-		individuals = new ArrayList<Individual>(num);
-		bestList = new ArrayList<Individual>();
+		this(num, rand);
+	}
 
-		for (int i = 0; i < num; i++) {
-			individuals.add(
-				Individual.encode(i, rand.nextInt(MAX), rand.nextInt(MAX)));
-		}
+	/**
+	 * Creates the genetic algorithm with num random elements, drawing from
+	 * the given stream from the start
+	 * @param num Number of random elements
+	 * @param rng the stream of this instance
+	 */
+	public GeneticAlgorithm(int num, Rng rng)
+	{
+		this.rng = rng;
+		current = new Population(num);
+		next = new Population(num);
+		selection = new RouletteSelection();
+		cache = FitnessCache.create(2 * BITS, CACHE_CAPACITY);
+		Cylinder cylinder = new Cylinder(MIN_G, MASK, MASK);
+		evaluator = new BatchEvaluator(cylinder, cylinder);
+		batch = new EvaluationBatch(2, num);
+		batchIdx = new int[num];
+		selected = new int[num];
+		pairing = new int[num];
+		IndexSort.identity(pairing, num);
+		migrantIdx = new int[num];
+		migrantKey = new double[num];
+		heap = new IndexedHeap(num);
+		heapValid = false;
+		birth = new long[num];
+		clock = 0;
+		generation = 0;
+		jfrGeneration = 1;
+		event = new GenerationEvent(2);
+
+		for (int i = 0; i < num; i++)
+			current.set(i, encode(rng.nextInt(MAX), rng.nextInt(MAX)));
+		current.size = num;
 	}
 
 	/**
-	 * Executes a rank based selection on all elements
+	 * Executes the configured selection on all elements
 	 */
-	public void rankSelection()
+	public void selection()
 	{
-		// calculate fitness, filter invalid elements
-		List<Individual> okList = new ArrayList<Individual>();
-		for (Individual ind : individuals) {
-			if (ind.fitness(MIN_G))
-				okList.add(ind);
-		}
+		Population pop = current;
 
-		// sort in preparation to calculate rank
-		Collections.sort(okList, new Comparator<Individual>() {
-			@Override
-			public int compare(Individual o1, Individual o2)
-			{
-				/*
-				 * We want to assign the highest rank the lowest fitness value
-				 * because we want to minimize f().
-				 * This sorts the biggest element first.
-				 */
-				return (int) Double.compare(o2.fitness, o1.fitness);
-			}
-		});
+		// calculate fitness
+		evaluate(pop);
 
-		// set rank based on position in sorted list
-		int ranks = 0;
-		for (int i = 0; i < okList.size(); i++) {
-			okList.get(i).rank = i + 1;
-			ranks += i + 1;
-		}
+		PhaseJfrEvent phase = PhaseJfrEvent.start();
 
-		// calculate a start value between 0.0 and 1.0 based on rank
-		double start = 0;
-		for (Individual ind : okList) {
-			ind.start = start;
-			start += 1D / (double) ranks * (double) ind.rank;
+		// nothing to select from, keep the population as it is
+		if (selection.select(pop, selected, pop.size, rng) == 0) {
+			commit(phase, PhaseJfrEvent.SELECTION, pop.size);
+			return;
 		}
 
-		// randomly select individuals
-		List<Individual> selectedInd = new ArrayList<Individual>();
-		for (int i = 0; i < individuals.size(); i++) {
-			double r = rand.nextDouble();
-			for (int j = okList.size() - 1; j >= 0; j--) {
-				Individual ind = okList.get(j);
-				if (ind.start <= r) {
-					Individual tmp = ind.duplicate();
-					tmp.index = i;
-					selectedInd.add(tmp);
-					break;
-				}
+		for (int i = 0; i < pop.size; i++)
+			pop.copy(selected[i], next, i);
+		next.size = pop.size;
+
+		swap();
+		heapValid = false;
+		commit(phase, PhaseJfrEvent.SELECTION, pop.size);
+	}
+
+	/**
+	 * calculates the fitness of all individuals not evaluated since their
+	 * genome changed. Individuals found in the cache are taken from there,
+	 * all others are decoded into a batch which is evaluated as a whole.
+	 * @param pop
+	 */
+	private void evaluate(Population pop)
+	{
+		double[] x = batch.getX();
+		int num = 0;
+		for (int i = 0; i < pop.size; i++) {
+			if (pop.evaluated[i])
+				continue;
+			if (cache != null && cache.get(pop, i)) {
+				pop.evaluated[i] = true;
+				continue;
 			}
+			int offset = batch.offset(num);
+			x[offset] = decodeD(pop.genome[i]);
+			x[offset + 1] = decodeH(pop.genome[i]);
+			batchIdx[num++] = i;
+		}
+		if (num == 0)
+			return;
+
+		EvaluationJfrEvent jfr = EvaluationJfrEvent.start();
+		batch.setSize(num);
+		evaluator.evaluate(batch);
+		evaluations += batch.countEvaluated(0, num);
+		commit(jfr, num);
+
+		double[] fitness = batch.getFitness();
+		double[] g = batch.getG();
+		boolean[] ok = batch.getOk();
+		boolean[] estimated = batch.getEstimated();
+		for (int j = 0; j < num; j++) {
+			int i = batchIdx[j];
+			pop.fitness[i] = fitness[j];
+			pop.g[i] = g[j];
+			pop.ok[i] = ok[j];
+			// surrogate estimates must not hide the real fitness later
+			pop.evaluated[i] = !estimated[j];
+			if (cache != null && !estimated[j])
+				cache.put(pop.genome[i], fitness[j], g[j], ok[j]);
 		}
+	}
 
-		individuals = selectedInd;
+	/**
+	 * swaps the current and the next population buffer
+	 */
+	private void swap()
+	{
+		Population tmp = current;
+		current = next;
+		next = tmp;
 	}
 
 	/**
@@ -110,17 +233,9 @@ public class GeneticAlgorithm
 	 */
 	public static void recombine(Individual ind1, Individual ind2)
 	{
-		/*
-		 * random position, ensuring at least one bit on the left and the right
-		 * is kept, otherwise a simple swap could happen (it still can depending
-		 * on the actual bits, but with lower probability)
-		 */
-		int where = rand.nextInt(2 * BITS - 2) + 1;
-		int mask1 = (1 << where) - 1;    // the lower bits
-		int mask2 = ~mask1 & 0x7FFFFFFF; // the higher bits
-
-		int new1 = (ind1.val & mask2) | (ind2.val & mask1);
-		int new2 = (ind1.val & mask1) | (ind2.val & mask2);
+		int where = crossoverPoint(rand);
+		int new1 = crossover(ind1.val, ind2.val, where);
+		int new2 = crossover(ind2.val, ind1.val, where);
 
 		ind1.reset();
 		ind2.reset();
@@ -128,31 +243,77 @@ public class GeneticAlgorithm
 		ind2.val = new2;
 	}
 
+	/**
+	 * Recombines the two individuals at the given positions in the population
+	 * using single point recombination at a random position
+	 * @param pop
+	 * @param i1
+	 * @param i2
+	 * @param rand
+	 */
+	private static void recombine(Population pop, int i1, int i2, Random rand)
+	{
+		int where = crossoverPoint(rand);
+		int val1 = pop.genome[i1];
+		int val2 = pop.genome[i2];
+		pop.set(i1, crossover(val1, val2, where));
+		pop.set(i2, crossover(val2, val1, where));
+	}
+
+	/**
+	 * random position, ensuring at least one bit on the left and the right
+	 * is kept, otherwise a simple swap could happen (it still can depending
+	 * on the actual bits, but with lower probability)
+	 * @param rand
+	 * @return the crossover point
+	 */
+	private static int crossoverPoint(Random rand)
+	{
+		return rand.nextInt(2 * BITS - 2) + 1;
+	}
+
+	/**
+	 * single point crossover: the higher bits from val1, the lower bits from
+	 * val2
+	 * @param val1
+	 * @param val2
+	 * @param where number of lower bits taken from val2
+	 * @return the new value
+	 */
+	private static int crossover(int val1, int val2, int where)
+	{
+		int mask1 = (1 << where) - 1;    // the lower bits
+		int mask2 = ~mask1 & 0x7FFFFFFF; // the higher bits
+		return (val1 & mask2) | (val2 & mask1);
+	}
+
 	/**
 	 * Recombine numPairs pairs with each other
 	 * @param numPairs
 	 */
 	public void recombine(int numPairs)
 	{
-		// create a list with all indices
-		List<Integer> indices = new ArrayList<Integer>(individuals.size());
-		for (int i = 0; i < individuals.size(); i++)
-			indices.add(i);
-
-		for (int i = 0; i < numPairs; i++) {
-			/*
-			 * get a random index from the list and remove to ensure each index
-			 * is only used once
-			 */
-			int r = rand.nextInt(indices.size());
-			int idx1 = indices.remove(r);
-
-			// again..
-			r = rand.nextInt(indices.size());
-			int idx2 = indices.remove(r);
+		/*
+		 * Partial Fisher-Yates shuffle of the pairing permutation: the first
+		 * 2*numPairs entries end up as a uniform random sample without
+		 * replacement, so each index is only used once. The permutation does
+		 * not need to be reset between calls, shuffling any permutation
+		 * yields a uniform sample.
+		 */
+		PhaseJfrEvent phase = PhaseJfrEvent.start();
 
-			recombine(individuals.get(idx1), individuals.get(idx2));
+		int n = current.size;
+		for (int i = 0; i < 2 * numPairs; i++) {
+			int r = i + rng.nextInt(n - i);
+			int tmp = pairing[i];
+			pairing[i] = pairing[r];
+			pairing[r] = tmp;
 		}
+
+		for (int i = 0; i < numPairs; i++)
+			recombine(current, pairing[2 * i], pairing[2 * i + 1], rng);
+		heapValid = false;
+		commit(phase, PhaseJfrEvent.RECOMBINATION, 2 * numPairs);
 	}
 
 	/**
@@ -164,16 +325,29 @@ public class GeneticAlgorithm
 	public static boolean mutate(Individual ind, double prob)
 	{
 		int old = ind.val;
+		ind.val = mutate(old, prob, rand);
+		ind.fitness(MIN_G);
+		return old != ind.val;
+	}
+
+	/**
+	 * for each bit in the value, flip with the given probability
+	 * @param val
+	 * @param prob
+	 * @param rand
+	 * @return the mutated value
+	 */
+	private static int mutate(int val, double prob, Random rand)
+	{
 		int mask = 1;
 		for (int i = 0; i < BITS; i++) {
 			double r = rand.nextDouble();
 			if (r < prob) {
-				ind.val ^= mask;
+				val ^= mask;
 			}
 			mask <<= 1;
 		}
-		ind.fitness(MIN_G);
-		return old != ind.val;
+		return val;
 	}
 
 	/**
@@ -184,82 +358,656 @@ public class GeneticAlgorithm
 	 */
 	public int mutate(double prob, boolean minOne)
 	{
+		Population pop = current;
+		PhaseJfrEvent phase = PhaseJfrEvent.start();
 		int mutated = 0;
 		do {
-			for (Individual ind : individuals) {
-				if (mutate(ind, prob))
+			for (int i = 0; i < pop.size; i++) {
+				int old = pop.genome[i];
+				int val = mutate(old, prob, rng);
+				if (val != old) {
+					pop.set(i, val);
 					mutated++;
+				}
 			}
 		} while (minOne && mutated == 0);
+		commit(phase, PhaseJfrEvent.MUTATION, pop.size);
+		evaluate(pop);
+		heapValid = false;
 		return mutated;
 	}
 
+	/**
+	 * Chooses the survivors among the parents (saved in the first half of
+	 * the pool) and the offspring (the current population). The only
+	 * objective is the fitness, invalid individuals get a fitness worse than
+	 * any valid one.
+	 */
+	private void environmentalSelection()
+	{
+		PhaseJfrEvent phase = PhaseJfrEvent.start();
+
+		int n = current.size;
+		for (int i = 0; i < n; i++)
+			current.copy(i, pool, n + i);
+		pool.size = 2 * n;
+
+		double worst = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < pool.size; i++) {
+			if (pool.ok[i])
+				worst = Math.max(worst, pool.fitness[i]);
+		}
+		for (int i = 0; i < pool.size; i++) {
+			if (pool.ok[i] || worst == Double.NEGATIVE_INFINITY)
+				envObjectives[i] = pool.fitness[i];
+			else
+				envObjectives[i] = worst + 1D;
+		}
+
+		envSelection.select(envObjectives, 1, pool.size, n, survivors);
+		for (int i = 0; i < n; i++)
+			pool.copy(survivors[i], current, i);
+		heapValid = false;
+		commit(phase, PhaseJfrEvent.ENVIRONMENTAL_SELECTION, pool.size);
+	}
+
+	/**
+	 * Steady state mode: instead of replacing the whole population, creates
+	 * numOffspring new individuals and inserts them one by one:
+	 * - select parents using binary tournaments
+	 * - recombine pairs using single point recombination
+	 * - mutate
+	 * - calculate fitness of all offspring as one batch
+	 * - replace the worst or the oldest individual
+	 * - publish statistics
+	 * Every call counts as a generation. The individual to replace is kept on top of a heap, so every
+	 * insertion is O(log n).
+	 * @param numOffspring
+	 * @param mutationProb
+	 * @param replacement which individual an offspring replaces
+	 * @return number of offspring inserted into the population
+	 */
+	public int steadyState(int numOffspring, double mutationProb,
+			Replacement replacement)
+	{
+		GenerationJfrEvent jfr = GenerationJfrEvent.start();
+		jfrGeneration = generation + 1;
+
+		Population pop = current;
+		if (!heapValid || heapMode != replacement)
+			buildHeap(replacement);
+
+		// the next buffer is unused between rounds, use it for the offspring
+		Population off = next;
+		numOffspring = Math.min(numOffspring, off.getCapacity());
+		for (int i = 0; i < numOffspring; i += 2) {
+			pop.copy(tournament(pop, rng), off, i);
+			if (i + 1 < numOffspring) {
+				pop.copy(tournament(pop, rng), off, i + 1);
+				recombine(off, i, i + 1, rng);
+			}
+		}
+		for (int i = 0; i < numOffspring; i++) {
+			int val = mutate(off.genome[i], mutationProb, rng);
+			if (val != off.genome[i])
+				off.set(i, val);
+		}
+		off.size = numOffspring;
+		evaluate(off);
+
+		int inserted = 0;
+		for (int i = 0; i < numOffspring; i++) {
+			int victim = heap.peek();
+			if (replacement == Replacement.WORST &&
+					worstKey(off, i) > heap.getKey(victim))
+				continue;
+
+			off.copy(i, pop, victim);
+			birth[victim] = ++clock;
+			heap.update(victim, heapKey(pop, victim));
+			inserted++;
+		}
+
+		generation++;
+		publish(-1);
+		commit(jfr);
+		jfrGeneration = generation + 1;
+		return inserted;
+	}
+
+	/**
+	 * builds the replacement heap over the current population
+	 * @param replacement
+	 */
+	private void buildHeap(Replacement replacement)
+	{
+		Population pop = current;
+		evaluate(pop);
+
+		heapMode = replacement;
+		for (int i = 0; i < pop.size; i++) {
+			birth[i] = clock;
+			migrantKey[i] = heapKey(pop, i);
+		}
+		heap.build(migrantKey, pop.size);
+		heapValid = true;
+	}
+
+	/**
+	 * @return the key of individual i in the replacement heap, the biggest
+	 * key is replaced first
+	 */
+	private double heapKey(Population pop, int i)
+	{
+		if (heapMode == Replacement.OLDEST)
+			return -birth[i];
+		return worstKey(pop, i);
+	}
+
+	private static double worstKey(Population pop, int i)
+	{
+		return pop.ok[i] ? pop.fitness[i] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * binary tournament, valid individuals win over invalid ones
+	 * @param pop
+	 * @param rand
+	 * @return the winner
+	 */
+	private static int tournament(Population pop, Random rand)
+	{
+		int a = rand.nextInt(pop.size);
+		int b = rand.nextInt(pop.size);
+		if (pop.ok[a] != pop.ok[b])
+			return pop.ok[a] ? a : b;
+		return pop.fitness[a] <= pop.fitness[b] ? a : b;
+	}
+
+	/**
+	 * Copies the genomes of the best valid individuals, e.g. to send them to
+	 * another island
+	 * @param genomes receives the genomes, in no particular order
+	 * @param count maximal number of genomes
+	 * @return the number of genomes copied
+	 */
+	public int getBest(int[] genomes, int count)
+	{
+		Population pop = current;
+		int numOk = 0;
+		for (int i = 0; i < pop.size; i++) {
+			if (pop.ok[i])
+				migrantIdx[numOk++] = i;
+		}
+		count = Math.min(count, numOk);
+		IndexSort.select(migrantIdx, 0, numOk, count, pop.fitness);
+		for (int i = 0; i < count; i++)
+			genomes[i] = pop.genome[migrantIdx[i]];
+		return count;
+	}
+
+	/**
+	 * Replaces the worst individuals with the given genomes, e.g. migrants
+	 * received from another island. Invalid individuals count as worst.
+	 * @param genomes
+	 * @param count
+	 */
+	public void immigrate(int[] genomes, int count)
+	{
+		Population pop = current;
+		count = Math.min(count, pop.size);
+		if (count == 0)
+			return;
+
+		// negated, so the worst come first
+		for (int i = 0; i < pop.size; i++) {
+			migrantIdx[i] = i;
+			migrantKey[i] = pop.ok[i] ? -pop.fitness[i] : Double.NEGATIVE_INFINITY;
+		}
+		IndexSort.select(migrantIdx, 0, pop.size, count, migrantKey);
+		for (int i = 0; i < count; i++)
+			pop.set(migrantIdx[i], genomes[i]);
+		evaluate(pop);
+		heapValid = false;
+	}
+
+	@Override
+	public int getSnapshotSize()
+	{
+		int num = current.getCapacity();
+		// tag, capacity, size, individuals, counters, pairing, heap, births,
+		// stream
+		return 3 * 4 + num * (4 + 8 + 8 + 1 + 4) + 3 * 8 + num * 4 + 2 + 4 +
+			num * (4 + 8) + num * 8 + Checkpointer.RNG_SIZE;
+	}
+
+	/**
+	 * Copies the population, the counters, the pairing permutation, the
+	 * replacement heap of the steady state mode and the state of the stream. The fitness cache is not
+	 * part of the snapshot, after a restore it fills again, so only the
+	 * number of evaluations can differ from an uninterrupted run.
+	 */
+	@Override
+	public void snapshot(ByteBuffer buf)
+	{
+		Population pop = current;
+		int num = pop.getCapacity();
+		buf.putInt(SNAPSHOT_TAG);
+		buf.putInt(num);
+		buf.putInt(pop.size);
+		for (int i = 0; i < pop.size; i++) {
+			buf.putInt(pop.genome[i]);
+			buf.putDouble(pop.fitness[i]);
+			buf.putDouble(pop.g[i]);
+			// bit 0: ok, bit 1: evaluated
+			buf.put((byte) ((pop.ok[i] ? 1 : 0) | (pop.evaluated[i] ? 2 : 0)));
+			buf.putInt(pop.rank[i]);
+		}
+		buf.putLong(generation);
+		buf.putLong(evaluations);
+		buf.putLong(clock);
+
+		// shuffled further by every recombination, never reset
+		for (int i = 0; i < num; i++)
+			buf.putInt(pairing[i]);
+
+		// the heap in its exact order, ties must be broken the same way
+		buf.put(heapValid ? (byte) 1 : (byte) 0);
+		buf.put((byte) (heapMode == null ? -1 : heapMode.ordinal()));
+		int heapSize = heapValid ? heap.getSize() : 0;
+		buf.putInt(heapSize);
+		for (int p = 0; p < heapSize; p++) {
+			int item = heap.getItemAt(p);
+			buf.putInt(item);
+			buf.putDouble(heap.getKey(item));
+		}
+		for (int i = 0; i < num; i++)
+			buf.putLong(birth[i]);
+
+		Checkpointer.putRng(buf, rng);
+	}
+
+	@Override
+	public void restore(ByteBuffer buf)
+	{
+		Population pop = current;
+		int num = pop.getCapacity();
+		if (buf.getInt() != SNAPSHOT_TAG)
+			throw new IllegalArgumentException("not a genetic algorithm snapshot");
+		if (buf.getInt() != num)
+			throw new IllegalArgumentException("snapshot of another population size");
+		int size = buf.getInt();
+		if (size < 0 || size > num)
+			throw new IllegalArgumentException("bad population size: " + size);
+
+		pop.size = size;
+		for (int i = 0; i < size; i++) {
+			pop.genome[i] = buf.getInt();
+			pop.fitness[i] = buf.getDouble();
+			pop.g[i] = buf.getDouble();
+			int flags = buf.get();
+			pop.ok[i] = (flags & 1) != 0;
+			pop.evaluated[i] = (flags & 2) != 0;
+			pop.rank[i] = buf.getInt();
+		}
+		generation = buf.getLong();
+		jfrGeneration = generation + 1;
+		evaluations = buf.getLong();
+		clock = buf.getLong();
+
+		for (int i = 0; i < num; i++)
+			pairing[i] = buf.getInt();
+
+		heapValid = buf.get() != 0;
+		int mode = buf.get();
+		heapMode = mode < 0 ? null : Replacement.values()[mode];
+		int heapSize = buf.getInt();
+		for (int p = 0; p < heapSize; p++) {
+			batchIdx[p] = buf.getInt();
+			migrantKey[p] = buf.getDouble();
+		}
+		heap.restore(batchIdx, migrantKey, heapSize);
+		for (int i = 0; i < num; i++)
+			birth[i] = buf.getLong();
+
+		Checkpointer.getRng(buf, rng);
+	}
+
 	/**
 	 * Shows all individuals
 	 */
 	public void show()
 	{
-		for (Individual ind : individuals) {
-			ind.fitness(MIN_G);
-			System.out.println(ind);
+		evaluate(current);
+		for (int i = 0; i < current.size; i++)
+			System.out.println(current.get(i));
+	}
+
+	/**
+	 * Publishes the statistics of the current population, unless there is no
+	 * event ring or the generation is not sampled
+	 * @param mutated number of mutated individuals, -1 if not known
+	 */
+	private void publish(int mutated)
+	{
+		if (events == null || !events.isSampled(generation))
+			return;
+
+		Population pop = current;
+		int best = -1;
+		int numOk = 0;
+		double sum = 0D;
+		for (int i = 0; i < pop.size; i++) {
+			if (!pop.ok[i])
+				continue;
+			numOk++;
+			sum += pop.fitness[i];
+			if (best < 0 || pop.fitness[i] < pop.fitness[best])
+				best = i;
+		}
+
+		event.set(source, generation, pop.size, numOk);
+		event.setMutated(mutated);
+		if (best >= 0) {
+			event.setFitness(pop.fitness[best], sum / numOk, pop.g[best]);
+			event.setBest(decodeD(pop.genome[best]), decodeH(pop.genome[best]));
+		} else {
+			event.setFitness(Double.NaN, Double.NaN, Double.NaN);
+			event.setBest(Double.NaN, Double.NaN);
 		}
+		events.publish(event);
 	}
 
 	/**
-	 * Saves the individual with the best (lowest) fitness value
+	 * Ends the flight recorder event of a round and, if it is recorded, sets
+	 * the statistics of the current population
+	 * @param jfr
 	 */
-	public void saveBest()
+	private void commit(GenerationJfrEvent jfr)
 	{
-		Individual best = null;
-		for (Individual ind : individuals) {
-			if (!ind.ok)
+		if (jfr == null)
+			return;
+		jfr.end();
+		if (!jfr.shouldCommit())
+			return;
+
+		Population pop = current;
+		double best = Double.NaN;
+		double sum = 0D;
+		int numOk = 0;
+		for (int i = 0; i < pop.size; i++) {
+			if (!pop.ok[i])
 				continue;
-			if (best == null || ind.fitness < best.fitness)
-				best = ind;
+			if (numOk == 0 || pop.fitness[i] < best)
+				best = pop.fitness[i];
+			sum += pop.fitness[i];
+			numOk++;
 		}
-		if (best != null) {
-			Individual tmp = best.duplicate();
-			tmp.index = best.index;
-			bestList.add(tmp);
+		jfr.engine = jfrEngine;
+		jfr.generation = jfrGeneration;
+		jfr.populationSize = pop.size;
+		jfr.feasible = numOk;
+		jfr.bestFitness = best;
+		jfr.meanFitness = numOk > 0 ? sum / numOk : Double.NaN;
+		jfr.minSigma = Double.NaN;
+		jfr.meanSigma = Double.NaN;
+		jfr.maxSigma = Double.NaN;
+		jfr.commit();
+	}
+
+	/**
+	 * Ends the flight recorder event of the evaluation of the first num
+	 * batch entries
+	 * @param jfr
+	 * @param num
+	 */
+	private void commit(EvaluationJfrEvent jfr, int num)
+	{
+		if (jfr == null)
+			return;
+		jfr.end();
+		if (jfr.shouldCommit()) {
+			jfr.engine = jfrEngine;
+			jfr.generation = jfrGeneration;
+			jfr.set(batch, 0, num);
+			jfr.commit();
 		}
 	}
 
 	/**
-	 * Shows the best individuals from each round
+	 * Ends the flight recorder event of a phase
+	 * @param jfr
+	 * @param phase
+	 * @param count number of individuals processed
 	 */
-	public void showBest()
+	private void commit(PhaseJfrEvent jfr, String phase, int count)
 	{
-		for (int i = 0; i < bestList.size(); i++) {
-			System.out.print("round: ");
-			System.out.print(String.format("%03d", i));
-			System.out.print(" BEST: ");
-			System.out.println(bestList.get(i));
+		if (jfr == null)
+			return;
+		jfr.end();
+		if (jfr.shouldCommit()) {
+			jfr.engine = jfrEngine;
+			jfr.generation = jfrGeneration;
+			jfr.phase = phase;
+			jfr.count = count;
+			jfr.commit();
 		}
 	}
 
 	/**
 	 * Execute a whole round
-	 * - calculate fitness (as part of rank selection)
-	 * - perform rank selection
+	 * - calculate fitness (as part of selection)
+	 * - perform selection
 	 * - optionally recombine some individuals
 	 * - mutate (and re-calculate fitness)
-	 * - save best
+	 * - optionally environmental selection among parents and offspring
+	 * - publish statistics
 	 * @param mutationProb
 	 * @param recombinePairs
 	 */
 	public void round(double mutationProb, int recombinePairs)
 	{
-		rankSelection();
+		GenerationJfrEvent jfr = GenerationJfrEvent.start();
+		jfrGeneration = generation + 1;
+
+		if (envSelection != null) {
+			evaluate(current);
+			for (int i = 0; i < current.size; i++)
+				current.copy(i, pool, i);
+		}
+
+		selection();
 		if (recombinePairs > 0)
 			recombine(recombinePairs);
 		int mutated = mutate(mutationProb, recombinePairs == 0);
-		System.out.println("Mutated: " + mutated);
-		saveBest();
+
+		if (envSelection != null)
+			environmentalSelection();
+
+		generation++;
+		publish(mutated);
+		commit(jfr);
+		jfrGeneration = generation + 1;
+	}
+
+	/**
+	 * Marks all individuals with the given genome as not evaluated, e.g. after
+	 * its fitness in the cache was replaced. They take the fitness from the
+	 * cache at the next evaluation.
+	 * @param genome
+	 * @return the number of individuals marked
+	 */
+	public int invalidate(int genome)
+	{
+		Population pop = current;
+		int ret = 0;
+		for (int i = 0; i < pop.size; i++) {
+			if (pop.genome[i] == genome) {
+				pop.evaluated[i] = false;
+				ret++;
+			}
+		}
+		if (ret > 0)
+			heapValid = false;
+		return ret;
+	}
+
+	/**
+	 * Sets the selection operator used by selection() and round(). Defaults to
+	 * rank based roulette wheel selection.
+	 * @param selection
+	 */
+	public void setSelection(Selection selection)
+	{
+		this.selection = selection;
+	}
+
+	/**
+	 * Sets an environmental selection: round() then lets parents and
+	 * offspring compete for survival, e.g. with IbeaSelection.
+	 * @param envSelection the selection, null for purely generational rounds
+	 */
+	public void setEnvironmentalSelection(EnvironmentalSelection envSelection)
+	{
+		this.envSelection = envSelection;
+		if (envSelection != null && pool == null) {
+			int capacity = 2 * current.getCapacity();
+			pool = new Population(capacity);
+			envObjectives = new double[capacity];
+			survivors = new int[capacity];
+		}
+	}
+
+	/**
+	 * Sets where the statistics of each round are published to
+	 * @param events the ring, null to not collect any statistics
+	 * @param source name of this instance in the events and the flight
+	 *        recorder events, null for "GA"
+	 */
+	public void setEventRing(EventRing events, String source)
+	{
+		this.events = events;
+		this.source = source;
+		jfrEngine = source != null ? source : "GA";
+	}
+
+	/**
+	 * @return the number of rounds (or steady state steps) so far
+	 */
+	public long getGeneration()
+	{
+		return generation;
+	}
+
+	/**
+	 * @return the number of fitness evaluations so far, cache hits excluded
+	 */
+	public long getEvaluations()
+	{
+		return evaluations;
+	}
+
+	/**
+	 * Sets the evaluator used to calculate fitness and constraint. The genome
+	 * is decoded into the two parameters (d, h). Defaults to the cylinder
+	 * problem evaluated on the common fork/join pool.
+	 * @param evaluator
+	 */
+	public void setEvaluator(BatchEvaluator evaluator)
+	{
+		if (evaluator.getDimension() != 2)
+			throw new IllegalArgumentException("need a function of (d, h)");
+		this.evaluator = evaluator;
+		if (cache != null)
+			cache.clear();
+		for (int i = 0; i < current.size; i++)
+			current.evaluated[i] = false;
+		heapValid = false;
+	}
+
+	/**
+	 * Sets the stream this instance draws from, e.g. split from the shared
+	 * one so several instances can run in parallel without contention
+	 * @param rng
+	 */
+	public void setRandom(Rng rng)
+	{
+		this.rng = rng;
+	}
+
+	public Rng getRandom()
+	{
+		return rng;
 	}
 
+	/**
+	 * Sets the fitness cache. Defaults to a direct lookup table over the whole
+	 * genome space.
+	 * @param cache the cache, null to always evaluate
+	 */
+	public void setFitnessCache(FitnessCache cache)
+	{
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the fitness cache, including hit and miss statistics
+	 */
+	public FitnessCache getFitnessCache()
+	{
+		return cache;
+	}
+
+	/**
+	 * @return the current population
+	 */
+	public Population getPopulation()
+	{
+		return current;
+	}
+
+	/**
+	 * Creates standalone copies of all individuals. Changes to the returned
+	 * individuals are not reflected in the population.
+	 * @return the individuals
+	 */
 	public List<Individual> getIndividuals()
 	{
-		return individuals;
+		List<Individual> ret = new ArrayList<Individual>(current.size);
+		for (int i = 0; i < current.size; i++)
+			ret.add(current.get(i));
+		return ret;
+	}
+
+	/**
+	 * Encodes d and h into a single value
+	 * @param d
+	 * @param h
+	 * @return the value
+	 */
+	public static int encode(int d, int h)
+	{
+		return (d & MASK) << BITS | (h & MASK);
+	}
+
+	/**
+	 * Decodes 'd' from the value
+	 * @param val
+	 * @return d
+	 */
+	public static int decodeD(int val)
+	{
+		return (val >> BITS) & MASK;
+	}
+
+	/**
+	 * Decodes 'h' from the value
+	 * @param val
+	 * @return h
+	 */
+	public static int decodeH(int val)
+	{
+		return val & MASK;
 	}
 
 	/**
@@ -270,10 +1018,9 @@ public class GeneticAlgorithm
 	public static class Individual
 	{
 		int index;
-		Integer val;
+		int val;
 
 		int rank = 0;
-		double start = 0D;
 		double fitness = 0D;
 		double g = 0D;
 		boolean ok = false;
@@ -289,7 +1036,7 @@ public class GeneticAlgorithm
 		{
 			Individual ret = new Individual();
 			ret.index = index;
-			ret.val = (d & MASK) << BITS | (h & MASK);
+			ret.val = GeneticAlgorithm.encode(d, h);
 			return ret;
 		}
 
@@ -299,7 +1046,7 @@ public class GeneticAlgorithm
 		 */
 		public int decodeD()
 		{
-			return (val >> BITS) & MASK;
+			return GeneticAlgorithm.decodeD(val);
 		}
 
 		/**
@@ -308,7 +1055,7 @@ public class GeneticAlgorithm
 		 */
 		public int decodeH()
 		{
-			return val & MASK;
+			return GeneticAlgorithm.decodeH(val);
 		}
 
 		/**
@@ -321,9 +1068,9 @@ public class GeneticAlgorithm
 			double d = decodeD();
 			double h = decodeH();
 
-			fitness = Math.PI * d * d / 2 + Math.PI * d * h;
+			fitness = Cylinder.surface(d, h);
 
-			g = Math.PI * d * d * h / 4;
+			g = Cylinder.volume(d, h);
 			ok = g >= minG;
 
 			return ok;
@@ -334,7 +1081,6 @@ public class GeneticAlgorithm
 		 */
 		public void reset()
 		{
-			start = 0D;
 			rank = 0;
 			fitness = 0D;
 			g = 0D;
@@ -359,7 +1105,6 @@ public class GeneticAlgorithm
 			sb.append(", g: ").append(String.format("%04.3f", g));
 			sb.append(", ok: ").append(ok);
 			sb.append(", rank: ").append(rank);
-			sb.append(", start: ").append(String.format("%1.3f", start));
 
 			return sb.toString();
 		}
@@ -376,7 +1121,6 @@ public class GeneticAlgorithm
 			ind.g = g;
 			ind.ok = ok;
 			ind.rank = rank;
-			ind.start = start;
 			return ind;
 		}
 	}
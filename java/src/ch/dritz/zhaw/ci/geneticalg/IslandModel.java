@@ -0,0 +1,174 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Island model: several independent genetic algorithms, each running on its
+ * own thread, exchanging their best individuals every few rounds. Migrants
+ * are passed through lock free bounded queues, an island never waits for
+ * another one: a full queue drops the migrants, an empty queue means there
+ * are none this time.
+ * @author D. Ritz
+ */
+public class IslandModel
+{
+	private static final int QUEUE_FACTOR = 4;
+
+	private GeneticAlgorithm[] islands;
+	private MigrantQueue[] inbox;
+	private int[][] neighbours;
+
+	private int interval;
+	private int numMigrants;
+
+	// statistics, per island, only written by the island's own thread
+	private long[] sent;
+	private long[] dropped;
+	private long[] received;
+
+	/**
+	 * @param numIslands number of islands (and threads)
+	 * @param islandSize number of individuals per island
+	 * @param topology where migrants are sent to
+	 * @param interval number of rounds between two migrations
+	 * @param numMigrants number of individuals sent to each neighbour
+	 */
+	public IslandModel(int numIslands, int islandSize, Topology topology,
+			int interval, int numMigrants)
+	{
+		if (interval < 1)
+			throw new IllegalArgumentException("interval must be >= 1");
+
+		this.interval = interval;
+		this.numMigrants = Math.min(numMigrants, islandSize);
+
+		islands = new GeneticAlgorithm[numIslands];
+		inbox = new MigrantQueue[numIslands];
+		neighbours = new int[numIslands][];
+		for (int i = 0; i < numIslands; i++) {
+			islands[i] = new GeneticAlgorithm(islandSize);
+			islands[i].setRandom(GeneticAlgorithm.rand.split());
+			neighbours[i] = topology.neighbours(i, numIslands);
+		}
+
+		// room for a few migrations from every island sending to this one
+		int[] senders = new int[numIslands];
+		for (int[] n : neighbours) {
+			for (int j : n)
+				senders[j]++;
+		}
+		for (int i = 0; i < numIslands; i++) {
+			inbox[i] = new MigrantQueue(
+				QUEUE_FACTOR * Math.max(1, senders[i]) * Math.max(1, numMigrants));
+		}
+
+		sent = new long[numIslands];
+		dropped = new long[numIslands];
+		received = new long[numIslands];
+	}
+
+	/**
+	 * Runs the given number of rounds on all islands in parallel, returns
+	 * when all islands are done
+	 * @param rounds
+	 * @param mutationProb
+	 * @param recombinePairs
+	 */
+	public void run(final int rounds, final double mutationProb,
+			final int recombinePairs)
+	{
+		List<Thread> threads = new ArrayList<Thread>(islands.length);
+		for (int i = 0; i < islands.length; i++) {
+			final int island = i;
+			Thread t = new Thread(new Runnable() {
+				@Override
+				public void run()
+				{
+					runIsland(island, rounds, mutationProb, recombinePairs);
+				}
+			}, "island-" + i);
+			threads.add(t);
+			t.start();
+		}
+
+		for (Thread t : threads) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private void runIsland(int island, int rounds, double mutationProb,
+			int recombinePairs)
+	{
+		GeneticAlgorithm ga = islands[island];
+		int[] migrants = new int[Math.max(1, ga.getPopulation().getCapacity())];
+
+		for (int r = 1; r <= rounds; r++) {
+			ga.round(mutationProb, recombinePairs);
+
+			// take whatever arrived so far
+			int num = 0;
+			int genome;
+			while (num < migrants.length &&
+					(genome = inbox[island].poll()) != MigrantQueue.EMPTY)
+				migrants[num++] = genome;
+			if (num > 0) {
+				ga.immigrate(migrants, num);
+				received[island] += num;
+			}
+
+			if (r % interval != 0)
+				continue;
+
+			num = ga.getBest(migrants, numMigrants);
+			for (int n : neighbours[island]) {
+				for (int i = 0; i < num; i++) {
+					if (inbox[n].offer(migrants[i]))
+						sent[island]++;
+					else
+						dropped[island]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the islands
+	 */
+	public GeneticAlgorithm[] getIslands()
+	{
+		return islands;
+	}
+
+	/**
+	 * @param island
+	 * @return number of migrants sent by the island
+	 */
+	public long getSent(int island)
+	{
+		return sent[island];
+	}
+
+	/**
+	 * @param island
+	 * @return number of migrants dropped because a queue was full
+	 */
+	public long getDropped(int island)
+	{
+		return dropped[island];
+	}
+
+	/**
+	 * @param island
+	 * @return number of migrants received by the island
+	 */
+	public long getReceived(int island)
+	{
+		return received[island];
+	}
+}
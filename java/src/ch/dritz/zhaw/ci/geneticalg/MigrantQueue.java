@@ -0,0 +1,98 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free bounded queue of genomes for migration between islands. Multiple
+ * producers, multiple consumers, based on Dmitry Vyukov's bounded queue:
+ * every slot carries a sequence number telling whether it is ready to be
+ * written or read. Neither offer() nor poll() ever block, a full queue simply
+ * drops the migrant.
+ * @author D. Ritz
+ */
+public class MigrantQueue
+{
+	public static final int EMPTY = -1;
+
+	private int[] buffer;
+	private AtomicLongArray sequence;
+	private int mask;
+
+	private AtomicLong enqueuePos = new AtomicLong();
+	private AtomicLong dequeuePos = new AtomicLong();
+
+	/**
+	 * @param capacity rounded up to the next power of two
+	 */
+	public MigrantQueue(int capacity)
+	{
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		buffer = new int[size];
+		sequence = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++)
+			sequence.set(i, i);
+		mask = size - 1;
+	}
+
+	/**
+	 * adds a genome to the queue
+	 * @param genome must not be negative
+	 * @return false if the queue was full
+	 */
+	public boolean offer(int genome)
+	{
+		long pos = enqueuePos.get();
+		int idx;
+		while (true) {
+			idx = (int) (pos & mask);
+			long diff = sequence.get(idx) - pos;
+			if (diff == 0) {
+				if (enqueuePos.compareAndSet(pos, pos + 1))
+					break;
+				pos = enqueuePos.get();
+			} else if (diff < 0) {
+				return false;
+			} else {
+				pos = enqueuePos.get();
+			}
+		}
+		buffer[idx] = genome;
+		sequence.lazySet(idx, pos + 1);
+		return true;
+	}
+
+	/**
+	 * removes a genome from the queue
+	 * @return the genome or EMPTY
+	 */
+	public int poll()
+	{
+		long pos = dequeuePos.get();
+		int idx;
+		while (true) {
+			idx = (int) (pos & mask);
+			long diff = sequence.get(idx) - (pos + 1);
+			if (diff == 0) {
+				if (dequeuePos.compareAndSet(pos, pos + 1))
+					break;
+				pos = dequeuePos.get();
+			} else if (diff < 0) {
+				return EMPTY;
+			} else {
+				pos = dequeuePos.get();
+			}
+		}
+		int genome = buffer[idx];
+		sequence.lazySet(idx, pos + mask + 1);
+		return genome;
+	}
+
+	/**
+	 * @return the capacity
+	 */
+	public int getCapacity()
+	{
+		return buffer.length;
+	}
+}
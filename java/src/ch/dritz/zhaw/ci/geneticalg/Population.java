@@ -0,0 +1,141 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm.Individual;
+
+/**
+ * A population of the genetic algorithm stored as parallel primitive arrays
+ * (struct of arrays): slot i of every array belongs to individual i. The
+ * arrays are allocated once, individuals are only ever copied between slots.
+ * A slot is marked evaluated until its genome changes, so unchanged
+ * individuals are not evaluated again.
+ * @author D. Ritz
+ */
+public class Population
+{
+	int size;
+
+	int[] genome;
+	double[] fitness;
+	double[] g;
+	boolean[] ok;
+	int[] rank;
+	boolean[] evaluated;
+
+	/**
+	 * Creates a population with room for capacity individuals
+	 * @param capacity
+	 */
+	public Population(int capacity)
+	{
+		genome = new int[capacity];
+		fitness = new double[capacity];
+		g = new double[capacity];
+		ok = new boolean[capacity];
+		rank = new int[capacity];
+		evaluated = new boolean[capacity];
+		size = 0;
+	}
+
+	/**
+	 * @return the number of individuals
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the maximum number of individuals
+	 */
+	public int getCapacity()
+	{
+		return genome.length;
+	}
+
+	/**
+	 * @param i
+	 * @return the genome of individual i
+	 */
+	public int getGenome(int i)
+	{
+		return genome[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the fitness of individual i, as of the last evaluation
+	 */
+	public double getFitness(int i)
+	{
+		return fitness[i];
+	}
+
+	/**
+	 * @param i
+	 * @return true if individual i satisfied the constraint at the last
+	 * evaluation
+	 */
+	public boolean isOk(int i)
+	{
+		return ok[i];
+	}
+
+	/**
+	 * Sets the genome of individual i and resets everything else
+	 * @param i
+	 * @param val
+	 */
+	void set(int i, int val)
+	{
+		genome[i] = val;
+		reset(i);
+	}
+
+	/**
+	 * resets everything but the genome of individual i, it needs to be
+	 * evaluated again
+	 * @param i
+	 */
+	void reset(int i)
+	{
+		fitness[i] = 0D;
+		g[i] = 0D;
+		ok[i] = false;
+		rank[i] = 0;
+		evaluated[i] = false;
+	}
+
+	/**
+	 * Copies individual i into slot j of the other population
+	 * @param i
+	 * @param to
+	 * @param j
+	 */
+	void copy(int i, Population to, int j)
+	{
+		to.genome[j] = genome[i];
+		to.fitness[j] = fitness[i];
+		to.g[j] = g[i];
+		to.ok[j] = ok[i];
+		to.rank[j] = rank[i];
+		to.evaluated[j] = evaluated[i];
+	}
+
+	/**
+	 * Creates a standalone copy of individual i. Allocates, so only meant for
+	 * output and inspection, not for the generation loop.
+	 * @param i
+	 * @return the individual
+	 */
+	public Individual get(int i)
+	{
+		Individual ind = new Individual();
+		ind.index = i;
+		ind.val = genome[i];
+		ind.fitness = fitness[i];
+		ind.g = g[i];
+		ind.ok = ok[i];
+		ind.rank = rank[i];
+		return ind;
+	}
+}
@@ -0,0 +1,88 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.Random;
+
+import ch.dritz.zhaw.ci.util.IndexSort;
+
+/**
+ * Base for selection operators that draw proportional to the rank: the valid
+ * individuals are sorted by fitness, the one with the highest fitness gets
+ * rank 1, the one with the lowest rank n. The probability to be drawn is
+ * rank / (n * (n + 1) / 2).
+ * @author D. Ritz
+ */
+public abstract class RankBasedSelection
+	implements Selection
+{
+	/** indices of the valid individuals, highest fitness (lowest rank) first */
+	protected int[] okIdx = new int[0];
+	protected int numOk;
+
+	@Override
+	public int select(Population pop, int[] selected, int count, Random rand)
+	{
+		rank(pop);
+		if (numOk == 0)
+			return 0;
+
+		prepare();
+		sample(selected, count, rand);
+		return count;
+	}
+
+	/**
+	 * filters the valid individuals, sorts them and assigns the rank
+	 * @param pop
+	 */
+	private void rank(Population pop)
+	{
+		if (okIdx.length < pop.size) {
+			okIdx = new int[pop.size];
+			resize(pop.size);
+		}
+
+		numOk = 0;
+		for (int i = 0; i < pop.size; i++) {
+			if (pop.ok[i])
+				okIdx[numOk++] = i;
+		}
+
+		/*
+		 * We want to assign the highest rank the lowest fitness value
+		 * because we want to minimize f().
+		 * This sorts the biggest element first.
+		 */
+		IndexSort.sortDescending(okIdx, 0, numOk, pop.fitness);
+		for (int i = 0; i < numOk; i++)
+			pop.rank[okIdx[i]] = i + 1;
+	}
+
+	/**
+	 * @return the sum of all ranks
+	 */
+	protected double totalRank()
+	{
+		return (double) numOk * (numOk + 1) / 2D;
+	}
+
+	/**
+	 * called when the population grew, allows sub classes to resize their
+	 * scratch space
+	 * @param capacity
+	 */
+	protected abstract void resize(int capacity);
+
+	/**
+	 * prepares the sampling after the ranks have been assigned. The rank of
+	 * okIdx[i] is i + 1.
+	 */
+	protected abstract void prepare();
+
+	/**
+	 * draws count individuals
+	 * @param selected
+	 * @param count
+	 * @param rand
+	 */
+	protected abstract void sample(int[] selected, int count, Random rand);
+}
@@ -0,0 +1,17 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+/**
+ * Which individual an offspring replaces in the steady state mode
+ * @author D. Ritz
+ */
+public enum Replacement
+{
+	/**
+	 * the one with the highest fitness (invalid ones first), only if the
+	 * offspring is not worse
+	 */
+	WORST,
+
+	/** the one that has been in the population the longest, always */
+	OLDEST;
+}
@@ -0,0 +1,58 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.Random;
+
+/**
+ * Rank based roulette wheel selection. Each draw is a binary search over the
+ * prefix sums of the rank probabilities: O(n) preparation, O(log n) per draw.
+ * @author D. Ritz
+ */
+public class RouletteSelection
+	extends RankBasedSelection
+{
+	private double[] start = new double[0];
+
+	@Override
+	protected void resize(int capacity)
+	{
+		start = new double[capacity];
+	}
+
+	@Override
+	protected void prepare()
+	{
+		// calculate a start value between 0.0 and 1.0 based on rank
+		double ranks = totalRank();
+		double s = 0;
+		for (int i = 0; i < numOk; i++) {
+			start[i] = s;
+			s += 1D / ranks * (double) (i + 1);
+		}
+	}
+
+	@Override
+	protected void sample(int[] selected, int count, Random rand)
+	{
+		for (int i = 0; i < count; i++)
+			selected[i] = okIdx[find(rand.nextDouble())];
+	}
+
+	/**
+	 * binary search for the last position with start <= r
+	 * @param r
+	 * @return position
+	 */
+	private int find(double r)
+	{
+		int lo = 0;
+		int hi = numOk - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (start[mid] <= r)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+}
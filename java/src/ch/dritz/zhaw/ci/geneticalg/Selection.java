@@ -0,0 +1,24 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.Random;
+
+/**
+ * A parent selection operator for the genetic algorithm. Implementations keep
+ * their scratch space between calls, so an instance must not be shared
+ * between populations used concurrently.
+ * @author D. Ritz
+ */
+public interface Selection
+{
+	/**
+	 * Selects count individuals (with replacement) from the evaluated
+	 * population. Only individuals that satisfy the constraint are selected.
+	 * @param pop the evaluated population
+	 * @param selected receives the indices of the selected individuals
+	 * @param count number of individuals to select
+	 * @param rand
+	 * @return the number of selected individuals, 0 if there was no valid
+	 * individual to select from
+	 */
+	int select(Population pop, int[] selected, int count, Random rand);
+}
@@ -0,0 +1,84 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+/**
+ * Defines where the migrants of an island go
+ * @author D. Ritz
+ */
+public enum Topology
+{
+	/** to the next island, the last one sends to the first */
+	RING,
+
+	/**
+	 * islands on a grid wrapped at the edges, migrants go to the left,
+	 * right, upper and lower neighbour
+	 */
+	TORUS,
+
+	/** to all other islands */
+	FULL;
+
+	/**
+	 * @param island
+	 * @param numIslands
+	 * @return the islands receiving migrants from the given island
+	 */
+	public int[] neighbours(int island, int numIslands)
+	{
+		if (numIslands < 2)
+			return new int[0];
+
+		switch (this) {
+		case RING:
+			return new int[] { (island + 1) % numIslands };
+
+		case TORUS:
+			// as square as possible: rows is the biggest divisor <= sqrt(n)
+			int rows = (int) Math.sqrt(numIslands);
+			while (numIslands % rows != 0)
+				rows--;
+			int cols = numIslands / rows;
+			int row = island / cols;
+			int col = island % cols;
+
+			int[] tmp = new int[] {
+				row * cols + (col + 1) % cols,
+				row * cols + (col + cols - 1) % cols,
+				((row + 1) % rows) * cols + col,
+				((row + rows - 1) % rows) * cols + col
+			};
+			return distinctWithout(tmp, island);
+
+		default:
+			int[] ret = new int[numIslands - 1];
+			for (int i = 0, j = 0; i < numIslands; i++) {
+				if (i != island)
+					ret[j++] = i;
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * removes duplicates and self references, small grids wrap onto the
+	 * same neighbour
+	 */
+	private static int[] distinctWithout(int[] vals, int self)
+	{
+		int[] tmp = new int[vals.length];
+		int n = 0;
+		outer:
+		for (int v : vals) {
+			if (v == self)
+				continue;
+			for (int i = 0; i < n; i++) {
+				if (tmp[i] == v)
+					continue outer;
+			}
+			tmp[n++] = v;
+		}
+		int[] ret = new int[n];
+		System.arraycopy(tmp, 0, ret, 0, n);
+		return ret;
+	}
+}
@@ -0,0 +1,52 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.Random;
+
+/**
+ * k-tournament selection: draws k valid individuals at random and takes the
+ * one with the lowest fitness. O(n) to filter the valid individuals, O(k) per
+ * draw, no sorting at all.
+ * @author D. Ritz
+ */
+public class TournamentSelection
+	implements Selection
+{
+	private int size;
+	private int[] okIdx = new int[0];
+
+	/**
+	 * @param size the tournament size k
+	 */
+	public TournamentSelection(int size)
+	{
+		if (size < 1)
+			throw new IllegalArgumentException("tournament size must be >= 1");
+		this.size = size;
+	}
+
+	@Override
+	public int select(Population pop, int[] selected, int count, Random rand)
+	{
+		if (okIdx.length < pop.size)
+			okIdx = new int[pop.size];
+
+		int numOk = 0;
+		for (int i = 0; i < pop.size; i++) {
+			if (pop.ok[i])
+				okIdx[numOk++] = i;
+		}
+		if (numOk == 0)
+			return 0;
+
+		for (int i = 0; i < count; i++) {
+			int best = okIdx[rand.nextInt(numOk)];
+			for (int j = 1; j < size; j++) {
+				int other = okIdx[rand.nextInt(numOk)];
+				if (pop.fitness[other] < pop.fitness[best])
+					best = other;
+			}
+			selected[i] = best;
+		}
+		return count;
+	}
+}
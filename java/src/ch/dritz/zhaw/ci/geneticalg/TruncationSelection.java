@@ -0,0 +1,50 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.Random;
+
+import ch.dritz.zhaw.ci.util.IndexSort;
+
+/**
+ * Truncation selection: only the best fraction of the valid individuals is
+ * kept, every one of them with the same probability. The best individuals are
+ * found with a quickselect in expected O(n), the survivors are not sorted.
+ * @author D. Ritz
+ */
+public class TruncationSelection
+	implements Selection
+{
+	private double fraction;
+	private int[] okIdx = new int[0];
+
+	/**
+	 * @param fraction the fraction of valid individuals to keep, (0, 1]
+	 */
+	public TruncationSelection(double fraction)
+	{
+		if (fraction <= 0D || fraction > 1D)
+			throw new IllegalArgumentException("fraction must be in (0, 1]");
+		this.fraction = fraction;
+	}
+
+	@Override
+	public int select(Population pop, int[] selected, int count, Random rand)
+	{
+		if (okIdx.length < pop.size)
+			okIdx = new int[pop.size];
+
+		int numOk = 0;
+		for (int i = 0; i < pop.size; i++) {
+			if (pop.ok[i])
+				okIdx[numOk++] = i;
+		}
+		if (numOk == 0)
+			return 0;
+
+		int keep = Math.max(1, (int) Math.ceil(fraction * numOk));
+		IndexSort.select(okIdx, 0, numOk, keep, pop.fitness);
+
+		for (int i = 0; i < count; i++)
+			selected[i] = okIdx[rand.nextInt(keep)];
+		return count;
+	}
+}
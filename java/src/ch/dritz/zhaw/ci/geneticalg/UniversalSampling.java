@@ -0,0 +1,45 @@
+package ch.dritz.zhaw.ci.geneticalg;
+
+import java.util.Random;
+
+/**
+ * Rank based stochastic universal sampling: a single random number places
+ * count equally spaced pointers on the wheel. O(n + count) in total and with
+ * minimal spread, i.e. the number of copies of an individual never deviates
+ * more than one from its expected value.
+ * @author D. Ritz
+ */
+public class UniversalSampling
+	extends RankBasedSelection
+{
+	@Override
+	protected void resize(int capacity)
+	{
+		// nothing to do
+	}
+
+	@Override
+	protected void prepare()
+	{
+		// nothing to do, the ranks are implicit
+	}
+
+	@Override
+	protected void sample(int[] selected, int count, Random rand)
+	{
+		double ranks = totalRank();
+		double step = ranks / count;
+		double pointer = rand.nextDouble() * step;
+
+		int j = 0;
+		double end = 1D; // cumulative rank up to and including position j
+		for (int i = 0; i < count; i++) {
+			while (end <= pointer && j < numOk - 1) {
+				j++;
+				end += j + 1;
+			}
+			selected[i] = okIdx[j];
+			pointer += step;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package ch.dritz.zhaw.ci.geneticalg.tests;
 
+import ch.dritz.zhaw.ci.event.EventRing;
+import ch.dritz.zhaw.ci.event.HistorySink;
 import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
 
 /**
@@ -12,7 +14,12 @@ public class FullP1NoRecomb
 {
 	public static void main(String[] args)
 	{
+		EventRing events = new EventRing(128, 2);
+		HistorySink history = new HistorySink(100, 2);
+		events.addListener(history);
+
 		GeneticAlgorithm me = new GeneticAlgorithm(GeneticAlgorithm.NUM);
+		me.setEventRing(events, null);
 		me.show();
 
 		for (int i = 0; i < 100; i++) {
@@ -22,6 +29,7 @@ public class FullP1NoRecomb
 			me.round(0.01D, 0);
 			me.show();
 		}
-		me.showBest();
+		events.close();
+		history.print(System.out);
 	}
 }
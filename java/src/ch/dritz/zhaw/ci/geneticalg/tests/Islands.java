@@ -0,0 +1,32 @@
+package ch.dritz.zhaw.ci.geneticalg.tests;
+
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.geneticalg.IslandModel;
+import ch.dritz.zhaw.ci.geneticalg.Topology;
+
+/**
+ * The full algorithm on 4 islands connected as a ring with
+ * - 1% mutation probability
+ * - recombination of 10 pairs per round
+ * - 2 migrants every 5 rounds
+ * @author D. Ritz
+ */
+public class Islands
+{
+	public static void main(String[] args)
+	{
+		IslandModel model = new IslandModel(4, GeneticAlgorithm.NUM,
+			Topology.RING, 5, 2);
+		model.run(100, 0.01D, 10);
+
+		GeneticAlgorithm[] islands = model.getIslands();
+		for (int i = 0; i < islands.length; i++) {
+			System.out.print("============= Island ");
+			System.out.print(i);
+			System.out.print(String.format(" (sent: %d, dropped: %d, received: %d)",
+				model.getSent(i), model.getDropped(i), model.getReceived(i)));
+			System.out.println(" ===========================================");
+			islands[i].show();
+		}
+	}
+}
@@ -16,7 +16,7 @@ public class RankSelection
 		GeneticAlgorithm me = new GeneticAlgorithm(GeneticAlgorithm.NUM);
 		me.show();
 		System.out.println(" ============================ Rank Selection ===============================");
-		me.rankSelection();
+		me.selection();
 		me.show();
 	}
 }
@@ -0,0 +1,55 @@
+package ch.dritz.zhaw.ci.geneticalg.tests;
+
+import ch.dritz.zhaw.ci.geneticalg.AliasSelection;
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.geneticalg.RouletteSelection;
+import ch.dritz.zhaw.ci.geneticalg.Selection;
+import ch.dritz.zhaw.ci.geneticalg.TournamentSelection;
+import ch.dritz.zhaw.ci.geneticalg.TruncationSelection;
+import ch.dritz.zhaw.ci.geneticalg.UniversalSampling;
+
+/**
+ * Measures the time of one selection step for all selection operators and
+ * growing population sizes
+ * @author D. Ritz
+ */
+public class SelectionBenchmark
+{
+	private static final int REPEAT = 5;
+
+	public static void main(String[] args)
+	{
+		int maxSize = 1000000;
+		if (args.length > 0)
+			maxSize = Integer.parseInt(args[0]);
+
+		String[] names = {
+			"roulette", "alias", "sus", "tournament(2)", "truncation(0.5)"
+		};
+
+		for (int size = 1000; size <= maxSize; size *= 10) {
+			GeneticAlgorithm me = new GeneticAlgorithm(size);
+			Selection[] ops = {
+				new RouletteSelection(),
+				new AliasSelection(),
+				new UniversalSampling(),
+				new TournamentSelection(2),
+				new TruncationSelection(0.5D)
+			};
+
+			for (int i = 0; i < ops.length; i++) {
+				me.setSelection(ops[i]);
+				me.selection(); // warm up
+
+				long start = System.nanoTime();
+				for (int j = 0; j < REPEAT; j++)
+					me.selection();
+				long nanos = (System.nanoTime() - start) / REPEAT;
+
+				System.out.print(String.format("size: %7d", size));
+				System.out.print(String.format(" %-16s", names[i]));
+				System.out.println(String.format(" %10.3f ms", nanos / 1000000D));
+			}
+		}
+	}
+}
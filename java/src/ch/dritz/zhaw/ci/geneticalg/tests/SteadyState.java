@@ -0,0 +1,42 @@
+package ch.dritz.zhaw.ci.geneticalg.tests;
+
+import ch.dritz.zhaw.ci.event.EventRing;
+import ch.dritz.zhaw.ci.event.HistorySink;
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.geneticalg.Replacement;
+
+/**
+ * The steady state algorithm with
+ * - 1% mutation probability
+ * - 2 offspring per step, replacing the worst individual
+ * - 15 steps per round, i.e. as many offspring as the population size
+ * @author D. Ritz
+ */
+public class SteadyState
+{
+	public static void main(String[] args)
+	{
+		// one event per round, i.e. every 15th step
+		EventRing events = new EventRing(128, 2);
+		events.setSampleInterval(GeneticAlgorithm.NUM / 2);
+		HistorySink history = new HistorySink(100, 2);
+		events.addListener(history);
+
+		GeneticAlgorithm me = new GeneticAlgorithm(GeneticAlgorithm.NUM);
+		me.setEventRing(events, null);
+		me.show();
+
+		for (int i = 0; i < 100; i++) {
+			System.out.print("============= Round ");
+			System.out.print(String.format("%03d", i));
+			System.out.println(" ===========================================================");
+			int inserted = 0;
+			for (int j = 0; j < GeneticAlgorithm.NUM / 2; j++)
+				inserted += me.steadyState(2, 0.01D, Replacement.WORST);
+			System.out.println("Inserted: " + inserted);
+		}
+		me.show();
+		events.close();
+		history.print(System.out);
+	}
+}
@@ -0,0 +1,128 @@
+package ch.dritz.zhaw.ci.memetic;
+
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.EvaluationBatch;
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+
+/**
+ * Steepest ascent hill climbing on a genome of the genetic algorithm: all
+ * genomes one bit flip away are evaluated as one batch, the climber moves to
+ * the best valid one that improves the fitness and stops at a local optimum
+ * or when the budget is used up. The start is evaluated together with its
+ * first neighbourhood.
+ *
+ * The climb is deterministic, so the fitness it reaches is a function of the
+ * start genome. Holds the state of one climb, one instance per concurrent
+ * climb.
+ * @author D. Ritz
+ */
+public class BitFlipHillClimber
+{
+	private static final int GENOME_BITS = 2 * GeneticAlgorithm.BITS;
+
+	private BatchEvaluator evaluator;
+	private EvaluationBatch batch;
+
+	private int genome;
+	private double fitness;
+	private double g;
+	private boolean ok;
+	private int evaluations;
+
+	/**
+	 * @param evaluator evaluates a function of the decoded (d, h)
+	 */
+	public BitFlipHillClimber(BatchEvaluator evaluator)
+	{
+		if (evaluator.getDimension() != 2)
+			throw new IllegalArgumentException("need a function of (d, h)");
+		this.evaluator = evaluator;
+		batch = new EvaluationBatch(2, GENOME_BITS + 1);
+	}
+
+	/**
+	 * Climbs from the given genome
+	 * @param start
+	 * @param budget maximal number of evaluations, only whole neighbourhoods
+	 * are evaluated
+	 * @return true if a better valid genome was found
+	 */
+	public boolean climb(int start, int budget)
+	{
+		genome = start;
+		ok = false;
+		evaluations = 0;
+
+		// the start is the last entry of the first batch
+		int n = GENOME_BITS + 1;
+		boolean improved = false;
+		while (evaluations + n <= budget) {
+			batch.setSize(n);
+			double[] x = batch.getX();
+			for (int i = 0; i < n; i++) {
+				int val = i < GENOME_BITS ? genome ^ (1 << i) : genome;
+				int offset = batch.offset(i);
+				x[offset] = GeneticAlgorithm.decodeD(val);
+				x[offset + 1] = GeneticAlgorithm.decodeH(val);
+			}
+			evaluator.evaluate(batch, 0, n);
+			evaluations += n;
+
+			double[] f = batch.getFitness();
+			boolean[] valid = batch.getOk();
+			if (n > GENOME_BITS) {
+				fitness = f[GENOME_BITS];
+				g = batch.getG()[GENOME_BITS];
+				ok = valid[GENOME_BITS];
+				n = GENOME_BITS;
+			}
+
+			int best = -1;
+			for (int i = 0; i < n; i++) {
+				if (valid[i] && (!ok || f[i] < fitness) &&
+						(best < 0 || f[i] < f[best]))
+					best = i;
+			}
+			if (best < 0)
+				break;
+
+			genome ^= 1 << best;
+			fitness = f[best];
+			g = batch.getG()[best];
+			ok = true;
+			improved = true;
+		}
+		return improved;
+	}
+
+	/**
+	 * @return the best genome found by the last climb
+	 */
+	public int getGenome()
+	{
+		return genome;
+	}
+
+	public double getFitness()
+	{
+		return fitness;
+	}
+
+	public double getG()
+	{
+		return g;
+	}
+
+	public boolean isOk()
+	{
+		return ok;
+	}
+
+	/**
+	 * @return the number of evaluations of the last climb
+	 */
+	public int getEvaluations()
+	{
+		return evaluations;
+	}
+}
@@ -0,0 +1,208 @@
+package ch.dritz.zhaw.ci.memetic;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+
+/**
+ * Memetic evolution strategy: every interval generations the best
+ * individuals are refined by a budgeted pattern search. The searches start
+ * from copies of the elites and run on the pool while the strategy creates
+ * the next generation, the results are written back after both are done:
+ *
+ * - lamarckian: the improved point replaces the worst individual, keeping
+ *   the step sizes of the elite it came from
+ * - baldwinian: the elite keeps its params, but takes the fitness of the
+ *   improved point, if it survived the generation
+ *
+ * The evaluations of the searches are counted on top of the ones of the
+ * strategy.
+ * @author D. Ritz
+ */
+public class MemeticEvolutionStrategy
+{
+	public static final double DEFAULT_MIN_STEP = 1e-6D;
+
+	// initial step of a search as a fraction of the box, the step sizes of
+	// the elites have usually collapsed by the time a search helps
+	public static final double INITIAL_STEP = 0.01D;
+
+	private EvolutionStrategy es;
+	private ForkJoinPool pool;
+	private int interval;
+	private int numElites;
+	private int budget;
+	private boolean lamarckian;
+
+	// copies of the elites, dimension values per elite
+	private int dimension;
+	private double[] eliteX;
+	private double[] eliteSigma;
+	private double[] eliteFitness;
+	private int numRefined;
+	private double[] initialStep;
+
+	private PatternSearch[] searches;
+	private RefineTask[] tasks;
+
+	private int generation;
+	private long localEvaluations;
+	private long improvements;
+	private double bestFitness = Double.POSITIVE_INFINITY;
+
+	/**
+	 * @param es the strategy, already initialized
+	 * @param evaluator evaluates the problem of the strategy
+	 * @param lower lower bounds of the object params
+	 * @param upper upper bounds of the object params
+	 * @param interval number of generations between two refinements
+	 * @param numElites number of individuals refined
+	 * @param budget maximal number of evaluations of one search
+	 * @param lamarckian true to write the improved params back, false to
+	 * only write the fitness back
+	 * @param pool pool running the searches, null to run them before the
+	 * generation in the calling thread
+	 */
+	public MemeticEvolutionStrategy(EvolutionStrategy es,
+			BatchEvaluator evaluator, double[] lower, double[] upper,
+			int interval, int numElites, int budget, boolean lamarckian,
+			ForkJoinPool pool)
+	{
+		if (interval < 1)
+			throw new IllegalArgumentException("interval must be >= 1");
+		if (numElites < 1)
+			throw new IllegalArgumentException("need at least one elite");
+		this.es = es;
+		this.pool = pool;
+		this.interval = interval;
+		this.numElites = numElites;
+		this.budget = budget;
+		this.lamarckian = lamarckian;
+
+		dimension = es.getDimension();
+		eliteX = new double[numElites * dimension];
+		eliteSigma = new double[numElites * dimension];
+		eliteFitness = new double[numElites];
+		initialStep = new double[dimension];
+		for (int i = 0; i < dimension; i++)
+			initialStep[i] = INITIAL_STEP * (upper[i] - lower[i]);
+		searches = new PatternSearch[numElites];
+		tasks = new RefineTask[numElites];
+		for (int i = 0; i < numElites; i++) {
+			searches[i] = new PatternSearch(evaluator, lower, upper,
+				DEFAULT_MIN_STEP);
+			tasks[i] = new RefineTask(i);
+		}
+	}
+
+	/**
+	 * Creates the next generation and, every interval generations, refines
+	 * the elites of the current one concurrently
+	 */
+	public void newGeneration()
+	{
+		numRefined = 0;
+		if (generation % interval == 0)
+			numRefined = es.getBest(numElites, eliteX, eliteSigma, eliteFitness);
+
+		if (pool == null) {
+			for (int i = 0; i < numRefined; i++)
+				tasks[i].compute();
+			es.newGeneration();
+		} else {
+			for (int i = 0; i < numRefined; i++) {
+				tasks[i].reinitialize();
+				pool.execute(tasks[i]);
+			}
+			es.newGeneration();
+			for (int i = 0; i < numRefined; i++)
+				tasks[i].join();
+		}
+
+		for (int i = 0; i < numRefined; i++)
+			writeBack(i);
+		bestFitness = Math.min(bestFitness, es.getBest().getFitness());
+		generation++;
+	}
+
+	private void writeBack(int i)
+	{
+		PatternSearch search = searches[i];
+		localEvaluations += search.getEvaluations();
+		if (!search.isOk() || search.getFitness() >= eliteFitness[i])
+			return;
+
+		improvements++;
+		bestFitness = Math.min(bestFitness, search.getFitness());
+		if (lamarckian) {
+			es.insert(search.getX(), 0, eliteSigma, i * dimension,
+				search.getFitness(), search.getG());
+		} else {
+			es.setFitness(eliteX, i * dimension, search.getFitness(),
+				search.getG());
+		}
+	}
+
+	public EvolutionStrategy getStrategy()
+	{
+		return es;
+	}
+
+	/**
+	 * @return the evaluations of the strategy and of the searches
+	 */
+	public long getEvaluations()
+	{
+		return es.getEvaluations() + localEvaluations;
+	}
+
+	/**
+	 * @return the evaluations of the searches only
+	 */
+	public long getLocalEvaluations()
+	{
+		return localEvaluations;
+	}
+
+	/**
+	 * @return the number of searches that found a better point
+	 */
+	public long getImprovements()
+	{
+		return improvements;
+	}
+
+	/**
+	 * @return the best fitness of any valid point found so far, by the
+	 * strategy or by a search
+	 */
+	public double getBestFitness()
+	{
+		return bestFitness;
+	}
+
+	/**
+	 * Refines one elite, reads nothing but its copy
+	 */
+	private class RefineTask
+		extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int index;
+
+		public RefineTask(int index)
+		{
+			this.index = index;
+		}
+
+		@Override
+		protected void compute()
+		{
+			searches[index].search(eliteX, index * dimension, initialStep, 0,
+				budget);
+		}
+	}
+}
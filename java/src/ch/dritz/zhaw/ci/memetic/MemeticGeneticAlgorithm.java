@@ -0,0 +1,218 @@
+package ch.dritz.zhaw.ci.memetic;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.geneticalg.FitnessCache;
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.geneticalg.Population;
+
+/**
+ * Memetic genetic algorithm: every interval rounds the best genomes are
+ * refined by bit flip hill climbing. The climbs start from copies of the
+ * elites and run on the pool while the algorithm does the next round, the
+ * results are written back after both are done:
+ *
+ * - lamarckian: the improved genomes replace the worst individuals, their
+ *   fitness is put into the fitness cache first so they are not evaluated
+ *   again
+ * - baldwinian: the fitness the climb reached is put into the fitness cache
+ *   for the start genome, every individual with that genome is invalidated
+ *   and takes it at the next evaluation. As the climb is deterministic, this
+ *   is the fitness of the genome after learning. Needs a fitness cache.
+ *
+ * Every genome is climbed from at most once, a converged population would
+ * otherwise repeat the same climb. The evaluations of the climbs are counted
+ * on top of the ones of the algorithm.
+ * @author D. Ritz
+ */
+public class MemeticGeneticAlgorithm
+{
+	private GeneticAlgorithm ga;
+	private ForkJoinPool pool;
+	private int interval;
+	private int numElites;
+	private int budget;
+	private boolean lamarckian;
+
+	private int[] elites;
+	private int[] improved;
+	private int numRefined;
+	private BitSet climbed;
+
+	private BitFlipHillClimber[] climbers;
+	private ClimbTask[] tasks;
+
+	private int generation;
+	private long localEvaluations;
+	private long improvements;
+	private double bestFitness = Double.POSITIVE_INFINITY;
+
+	/**
+	 * @param ga the genetic algorithm
+	 * @param evaluator evaluates a function of the decoded (d, h), the same
+	 * problem as the one of the algorithm
+	 * @param interval number of rounds between two refinements
+	 * @param numElites number of genomes refined
+	 * @param budget maximal number of evaluations of one climb
+	 * @param lamarckian true to write the improved genomes back, false to
+	 * only write the fitness back
+	 * @param pool pool running the climbs, null to run them before the round
+	 * in the calling thread
+	 */
+	public MemeticGeneticAlgorithm(GeneticAlgorithm ga, BatchEvaluator evaluator,
+			int interval, int numElites, int budget, boolean lamarckian,
+			ForkJoinPool pool)
+	{
+		if (interval < 1)
+			throw new IllegalArgumentException("interval must be >= 1");
+		if (numElites < 1)
+			throw new IllegalArgumentException("need at least one elite");
+		if (!lamarckian && ga.getFitnessCache() == null)
+			throw new IllegalArgumentException("baldwinian learning needs a fitness cache");
+		this.ga = ga;
+		this.pool = pool;
+		this.interval = interval;
+		this.numElites = numElites;
+		this.budget = budget;
+		this.lamarckian = lamarckian;
+
+		elites = new int[numElites];
+		improved = new int[numElites];
+		climbed = new BitSet(1 << (2 * GeneticAlgorithm.BITS));
+		climbers = new BitFlipHillClimber[numElites];
+		tasks = new ClimbTask[numElites];
+		for (int i = 0; i < numElites; i++) {
+			climbers[i] = new BitFlipHillClimber(evaluator);
+			tasks[i] = new ClimbTask(i);
+		}
+	}
+
+	/**
+	 * Does the next round and, every interval rounds, refines the elites of
+	 * the current population concurrently
+	 * @param mutationProb
+	 * @param recombinePairs
+	 */
+	public void round(double mutationProb, int recombinePairs)
+	{
+		numRefined = 0;
+		if (generation % interval == 0) {
+			int num = ga.getBest(elites, numElites);
+			for (int i = 0; i < num; i++) {
+				if (!climbed.get(elites[i])) {
+					climbed.set(elites[i]);
+					elites[numRefined++] = elites[i];
+				}
+			}
+		}
+
+		if (pool == null) {
+			for (int i = 0; i < numRefined; i++)
+				tasks[i].compute();
+			ga.round(mutationProb, recombinePairs);
+		} else {
+			for (int i = 0; i < numRefined; i++) {
+				tasks[i].reinitialize();
+				pool.execute(tasks[i]);
+			}
+			ga.round(mutationProb, recombinePairs);
+			for (int i = 0; i < numRefined; i++)
+				tasks[i].join();
+		}
+
+		// the cache is not thread safe, only touch it after the round
+		FitnessCache cache = ga.getFitnessCache();
+		int numImproved = 0;
+		for (int i = 0; i < numRefined; i++) {
+			BitFlipHillClimber climber = climbers[i];
+			localEvaluations += climber.getEvaluations();
+			if (climber.getGenome() == elites[i])
+				continue;
+
+			improvements++;
+			bestFitness = Math.min(bestFitness, climber.getFitness());
+			if (lamarckian) {
+				if (cache != null) {
+					cache.put(climber.getGenome(), climber.getFitness(),
+						climber.getG(), true);
+				}
+				improved[numImproved++] = climber.getGenome();
+			} else {
+				cache.put(elites[i], climber.getFitness(), climber.getG(), true);
+				ga.invalidate(elites[i]);
+			}
+		}
+		if (numImproved > 0)
+			ga.immigrate(improved, numImproved);
+
+		Population pop = ga.getPopulation();
+		for (int i = 0; i < pop.getSize(); i++) {
+			if (pop.isOk(i))
+				bestFitness = Math.min(bestFitness, pop.getFitness(i));
+		}
+		generation++;
+	}
+
+	public GeneticAlgorithm getAlgorithm()
+	{
+		return ga;
+	}
+
+	/**
+	 * @return the evaluations of the algorithm and of the climbs
+	 */
+	public long getEvaluations()
+	{
+		return ga.getEvaluations() + localEvaluations;
+	}
+
+	/**
+	 * @return the evaluations of the climbs only
+	 */
+	public long getLocalEvaluations()
+	{
+		return localEvaluations;
+	}
+
+	/**
+	 * @return the number of climbs that found a better genome
+	 */
+	public long getImprovements()
+	{
+		return improvements;
+	}
+
+	/**
+	 * @return the best fitness of any valid genome found so far, by the
+	 * algorithm or by a climb
+	 */
+	public double getBestFitness()
+	{
+		return bestFitness;
+	}
+
+	/**
+	 * Climbs from one elite, reads nothing but its copy
+	 */
+	private class ClimbTask
+		extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int index;
+
+		public ClimbTask(int index)
+		{
+			this.index = index;
+		}
+
+		@Override
+		protected void compute()
+		{
+			climbers[index].climb(elites[index], budget);
+		}
+	}
+}
@@ -0,0 +1,242 @@
+package ch.dritz.zhaw.ci.memetic;
+
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.EvaluationBatch;
+import ch.dritz.zhaw.ci.util.VectorOps;
+
+/**
+ * Compass search with a tangent step along an active constraint. Each
+ * iteration polls the 2n points x +- step_i e_i, clamped into the bounds, as
+ * one batch and moves to the best valid one improving the fitness. From
+ * inside the feasible region this walks straight to the constraint boundary.
+ *
+ * On the boundary of a curved constraint no coordinate direction is both
+ * valid and improving, which is where the evolution strategy creeps. If some
+ * probes of a failed poll are invalid, fitness and constraint values of the
+ * probes give central difference gradients: the search steps along the
+ * projection of the negative fitness gradient onto the tangent of the
+ * constraint and moves back onto the constraint value of the current point
+ * along the constraint gradient, with a second, overshooting correction if
+ * the first one is not valid yet. A successful tangent step doubles all
+ * steps, a failed iteration halves them.
+ *
+ * The search stops when the budget is used up or the largest step is below
+ * the minimal step. Holds the state of one search, one instance per
+ * concurrent search.
+ * @author D. Ritz
+ */
+public class PatternSearch
+{
+	private BatchEvaluator evaluator;
+	private int dimension;
+	private double[] lower;
+	private double[] upper;
+	private double minStep;
+
+	private EvaluationBatch poll;
+	private EvaluationBatch probe;
+	private double[] x;
+	private double[] step;
+	private double[] gradF;
+	private double[] gradG;
+	private double fitness;
+	private double g;
+	private boolean ok;
+	private int evaluations;
+
+	/**
+	 * @param evaluator evaluates the problem
+	 * @param lower lower bounds of the params
+	 * @param upper upper bounds of the params
+	 * @param minStep the search stops when all steps are below this
+	 */
+	public PatternSearch(BatchEvaluator evaluator, double[] lower,
+			double[] upper, double minStep)
+	{
+		dimension = evaluator.getDimension();
+		if (lower.length != dimension || upper.length != dimension)
+			throw new IllegalArgumentException("bounds must have dimension " + dimension);
+		if (minStep <= 0D)
+			throw new IllegalArgumentException("minimal step must be positive");
+		this.evaluator = evaluator;
+		this.lower = lower.clone();
+		this.upper = upper.clone();
+		this.minStep = minStep;
+
+		poll = new EvaluationBatch(dimension, 2 * dimension + 1);
+		probe = new EvaluationBatch(dimension, 1);
+		x = new double[dimension];
+		step = new double[dimension];
+		gradF = new double[dimension];
+		gradG = new double[dimension];
+	}
+
+	/**
+	 * Searches from the given point, which is evaluated together with the
+	 * first poll
+	 * @param start the params
+	 * @param startOffset
+	 * @param initialStep the initial step of each coordinate
+	 * @param stepOffset
+	 * @param budget maximal number of evaluations, an iteration is only
+	 * started if a whole poll and a tangent step fit
+	 * @return true if a valid point better than the start was found
+	 */
+	public boolean search(double[] start, int startOffset, double[] initialStep,
+			int stepOffset, int budget)
+	{
+		System.arraycopy(start, startOffset, x, 0, dimension);
+		System.arraycopy(initialStep, stepOffset, step, 0, dimension);
+		VectorOps.clamp(x, 0, dimension, lower, upper);
+		ok = false;
+		evaluations = 0;
+
+		// the start is the last entry of the first poll
+		int n = 2 * dimension + 1;
+		boolean improved = false;
+		while (evaluations + n + 3 <= budget &&
+				VectorOps.max(step, 0, dimension) >= minStep) {
+			poll.setSize(n);
+			double[] probes = poll.getX();
+			for (int i = 0; i < n; i++) {
+				int offset = poll.offset(i);
+				System.arraycopy(x, 0, probes, offset, dimension);
+				if (i < 2 * dimension) {
+					int j = i >> 1;
+					probes[offset + j] += (i & 1) == 0 ? step[j] : -step[j];
+					VectorOps.clamp(probes, offset, dimension, lower, upper);
+				}
+			}
+			evaluator.evaluate(poll, 0, n);
+			evaluations += n;
+
+			double[] f = poll.getFitness();
+			boolean[] valid = poll.getOk();
+			if (n > 2 * dimension) {
+				fitness = f[n - 1];
+				g = poll.getG()[n - 1];
+				ok = valid[n - 1];
+				n = 2 * dimension;
+			}
+
+			int best = -1;
+			boolean active = false;
+			for (int i = 0; i < n; i++) {
+				if (!valid[i])
+					active = true;
+				else if ((!ok || f[i] < fitness) && (best < 0 || f[i] < f[best]))
+					best = i;
+			}
+
+			if (best >= 0) {
+				System.arraycopy(probes, poll.offset(best), x, 0, dimension);
+				fitness = f[best];
+				g = poll.getG()[best];
+				ok = true;
+				improved = true;
+			} else if (ok && active && evaluator.getConstraint() != null &&
+					tangentStep()) {
+				VectorOps.scale(step, 0, dimension, 2D);
+				improved = true;
+			} else {
+				VectorOps.scale(step, 0, dimension, 0.5D);
+			}
+		}
+		return improved;
+	}
+
+	/**
+	 * Steps along the constraint boundary using the gradients from the last
+	 * poll
+	 * @return true if the step found a better valid point and moved there
+	 */
+	private boolean tangentStep()
+	{
+		double[] probes = poll.getX();
+		double[] f = poll.getFitness();
+		double[] pg = poll.getG();
+		for (int j = 0; j < dimension; j++) {
+			double h = probes[poll.offset(2 * j) + j] -
+				probes[poll.offset(2 * j + 1) + j];
+			if (h == 0D)
+				return false;
+			gradF[j] = (f[2 * j] - f[2 * j + 1]) / h;
+			gradG[j] = (pg[2 * j] - pg[2 * j + 1]) / h;
+		}
+
+		// u = -gradF projected onto the tangent, kept in gradF
+		double gg = VectorOps.dot(gradG, 0, gradG, 0, dimension);
+		if (gg == 0D)
+			return false;
+		double fg = VectorOps.dot(gradF, 0, gradG, 0, dimension);
+		VectorOps.scale(gradF, 0, dimension, -1D);
+		VectorOps.axpy(fg / gg, gradG, 0, gradF, 0, dimension);
+		double norm = Math.sqrt(VectorOps.dot(gradF, 0, gradF, 0, dimension));
+		if (norm == 0D)
+			return false;
+
+		probe.setSize(1);
+		double[] y = probe.getX();
+		double length = Math.sqrt(VectorOps.dot(step, 0, step, 0, dimension));
+		System.arraycopy(x, 0, y, 0, dimension);
+		VectorOps.axpy(length / norm, gradF, 0, y, 0, dimension);
+		evaluateProbe();
+
+		// back onto the constraint value of x, overshooting the second time
+		for (int k = 1; k <= 2; k++) {
+			double c = k * (g - probe.getG()[0]) / gg;
+			VectorOps.axpy(c, gradG, 0, y, 0, dimension);
+			evaluateProbe();
+			if (probe.getOk()[0])
+				break;
+		}
+		if (!probe.getOk()[0] || probe.getFitness()[0] >= fitness)
+			return false;
+
+		System.arraycopy(y, 0, x, 0, dimension);
+		fitness = probe.getFitness()[0];
+		g = probe.getG()[0];
+		return true;
+	}
+
+	private void evaluateProbe()
+	{
+		VectorOps.clamp(probe.getX(), 0, dimension, lower, upper);
+		evaluator.evaluate(probe, 0, 1);
+		evaluations++;
+	}
+
+	/**
+	 * @return the params of the best point found by the last search
+	 */
+	public double[] getX()
+	{
+		return x;
+	}
+
+	public double getFitness()
+	{
+		return fitness;
+	}
+
+	public double getG()
+	{
+		return g;
+	}
+
+	/**
+	 * @return true if the best point of the last search is valid
+	 */
+	public boolean isOk()
+	{
+		return ok;
+	}
+
+	/**
+	 * @return the number of evaluations of the last search
+	 */
+	public int getEvaluations()
+	{
+		return evaluations;
+	}
+}
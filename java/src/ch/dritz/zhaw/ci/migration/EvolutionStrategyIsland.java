@@ -0,0 +1,65 @@
+package ch.dritz.zhaw.ci.migration;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
+import ch.dritz.zhaw.ci.geneticalg.Topology;
+
+/**
+ * Island running an evolution strategy, migrants are sent with their object
+ * params, step sizes and fitness. The receiving island takes the step sizes
+ * along, they are adapted to the region the migrant comes from.
+ * @author D. Ritz
+ */
+public class EvolutionStrategyIsland
+	extends Island
+{
+	private EvolutionStrategy es;
+
+	/**
+	 * @param es
+	 * @param transport this island's end of the transport
+	 * @param topology where migrants are sent to
+	 * @param interval number of generations between two migrations
+	 * @param numMigrants number of individuals sent to each neighbour
+	 */
+	public EvolutionStrategyIsland(EvolutionStrategy es, Transport transport,
+			Topology topology, int interval, int numMigrants)
+	{
+		super(transport, topology, interval, numMigrants);
+		this.es = es;
+	}
+
+	@Override
+	protected void step()
+	{
+		es.newGeneration();
+	}
+
+	@Override
+	protected void emigrate(Migrants m)
+	{
+		m.setReal(getIsland(), es.getDimension(), numMigrants);
+		m.setCount(es.getBest(numMigrants, m.getX(), m.getSigma(),
+			m.getFitness()));
+	}
+
+	@Override
+	protected void immigrate(Migrants m)
+	{
+		int dimension = es.getDimension();
+		if (m.getType() != Migrants.REAL || m.getDimension() != dimension)
+			return;
+		for (int i = 0; i < m.getCount(); i++)
+			es.immigrate(m.getX(), i * dimension, m.getSigma(), i * dimension);
+	}
+
+	@Override
+	public double getBestFitness()
+	{
+		return es.getBest().getFitness();
+	}
+
+	public EvolutionStrategy getStrategy()
+	{
+		return es;
+	}
+}
@@ -0,0 +1,75 @@
+package ch.dritz.zhaw.ci.migration;
+
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.geneticalg.Population;
+import ch.dritz.zhaw.ci.geneticalg.Topology;
+
+/**
+ * Island running a genetic algorithm, migrants are sent as packed genomes
+ * @author D. Ritz
+ */
+public class GeneticAlgorithmIsland
+	extends Island
+{
+	public static final int GENOME_BITS = 2 * GeneticAlgorithm.BITS;
+
+	private GeneticAlgorithm ga;
+	private double mutationProb;
+	private int recombinePairs;
+
+	/**
+	 * @param ga
+	 * @param mutationProb
+	 * @param recombinePairs
+	 * @param transport this island's end of the transport
+	 * @param topology where migrants are sent to
+	 * @param interval number of rounds between two migrations
+	 * @param numMigrants number of individuals sent to each neighbour
+	 */
+	public GeneticAlgorithmIsland(GeneticAlgorithm ga, double mutationProb,
+			int recombinePairs, Transport transport, Topology topology,
+			int interval, int numMigrants)
+	{
+		super(transport, topology, interval, numMigrants);
+		this.ga = ga;
+		this.mutationProb = mutationProb;
+		this.recombinePairs = recombinePairs;
+	}
+
+	@Override
+	protected void step()
+	{
+		ga.round(mutationProb, recombinePairs);
+	}
+
+	@Override
+	protected void emigrate(Migrants m)
+	{
+		m.setGenomes(getIsland(), GENOME_BITS, numMigrants);
+		m.setCount(ga.getBest(m.getGenomes(), numMigrants));
+	}
+
+	@Override
+	protected void immigrate(Migrants m)
+	{
+		if (m.getType() == Migrants.GENOMES && m.getBits() == GENOME_BITS)
+			ga.immigrate(m.getGenomes(), m.getCount());
+	}
+
+	@Override
+	public double getBestFitness()
+	{
+		Population pop = ga.getPopulation();
+		double best = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < pop.getSize(); i++) {
+			if (pop.isOk(i))
+				best = Math.min(best, pop.getFitness(i));
+		}
+		return best;
+	}
+
+	public GeneticAlgorithm getGeneticAlgorithm()
+	{
+		return ga;
+	}
+}
@@ -0,0 +1,127 @@
+package ch.dritz.zhaw.ci.migration;
+
+import ch.dritz.zhaw.ci.geneticalg.Topology;
+
+/**
+ * One island of a distributed island model, running an optimizer in this
+ * process and exchanging its best individuals with the islands of other
+ * processes through a transport. Like IslandModel, an island never waits for
+ * another one: migrants are taken when they have arrived and dropped when
+ * the transport cannot take them.
+ * @author D. Ritz
+ */
+public abstract class Island
+{
+	protected Transport transport;
+	private int[] neighbours;
+	private int interval;
+	protected int numMigrants;
+
+	// reused for every migration
+	protected Migrants outgoing = new Migrants();
+	private Migrants incoming = new Migrants();
+
+	// statistics
+	private long sent;
+	private long dropped;
+	private long received;
+
+	/**
+	 * @param transport this island's end of the transport
+	 * @param topology where migrants are sent to
+	 * @param interval number of generations between two migrations
+	 * @param numMigrants number of individuals sent to each neighbour
+	 */
+	public Island(Transport transport, Topology topology, int interval,
+			int numMigrants)
+	{
+		if (interval < 1)
+			throw new IllegalArgumentException("interval must be >= 1");
+		this.transport = transport;
+		this.interval = interval;
+		this.numMigrants = numMigrants;
+		neighbours = topology.neighbours(transport.getIsland(),
+			transport.getNumIslands());
+	}
+
+	/**
+	 * Runs the given number of generations
+	 * @param generations
+	 */
+	public void run(int generations)
+	{
+		for (int g = 1; g <= generations; g++) {
+			step();
+
+			// take whatever arrived so far
+			while (transport.receive(incoming)) {
+				immigrate(incoming);
+				received += incoming.getCount();
+			}
+
+			if (g % interval != 0)
+				continue;
+
+			emigrate(outgoing);
+			if (outgoing.getCount() == 0)
+				continue;
+			for (int n : neighbours) {
+				if (transport.send(n, outgoing))
+					sent += outgoing.getCount();
+				else
+					dropped += outgoing.getCount();
+			}
+		}
+	}
+
+	/**
+	 * Runs one generation
+	 */
+	protected abstract void step();
+
+	/**
+	 * Fills the batch with the best individuals, at most numMigrants
+	 * @param m
+	 */
+	protected abstract void emigrate(Migrants m);
+
+	/**
+	 * Replaces the worst individuals with the migrants received
+	 * @param m
+	 */
+	protected abstract void immigrate(Migrants m);
+
+	/**
+	 * @return the fitness of the best individual
+	 */
+	public abstract double getBestFitness();
+
+	public int getIsland()
+	{
+		return transport.getIsland();
+	}
+
+	/**
+	 * @return number of migrants sent
+	 */
+	public long getSent()
+	{
+		return sent;
+	}
+
+	/**
+	 * @return number of migrants dropped because the transport was full
+	 */
+	public long getDropped()
+	{
+		return dropped;
+	}
+
+	/**
+	 * @return number of migrants received
+	 */
+	public long getReceived()
+	{
+		return received;
+	}
+}
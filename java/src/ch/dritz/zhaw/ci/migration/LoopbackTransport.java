@@ -0,0 +1,107 @@
+package ch.dritz.zhaw.ci.migration;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport between islands within one process, e.g. for tests. Batches go
+ * through the wire format like on a socket, but the frames are passed
+ * through bounded in-memory queues.
+ * @author D. Ritz
+ */
+public class LoopbackTransport
+	implements Transport
+{
+	public static final int DEFAULT_CAPACITY = 64;
+
+	private int island;
+	private BlockingQueue<ByteBuffer>[] inbox;
+	private volatile boolean closed;
+
+	private AtomicLong bytesSent = new AtomicLong();
+	private AtomicLong dropped = new AtomicLong();
+
+	private LoopbackTransport(int island, BlockingQueue<ByteBuffer>[] inbox)
+	{
+		this.island = island;
+		this.inbox = inbox;
+	}
+
+	/**
+	 * Creates the ends of the given number of connected islands
+	 * @param numIslands
+	 * @param capacity number of batches an island can have waiting
+	 * @return one end per island
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public static LoopbackTransport[] create(int numIslands, int capacity)
+	{
+		BlockingQueue<ByteBuffer>[] inbox = new BlockingQueue[numIslands];
+		for (int i = 0; i < numIslands; i++)
+			inbox[i] = new ArrayBlockingQueue<ByteBuffer>(capacity);
+
+		LoopbackTransport[] ret = new LoopbackTransport[numIslands];
+		for (int i = 0; i < numIslands; i++)
+			ret[i] = new LoopbackTransport(i, inbox);
+		return ret;
+	}
+
+	@Override
+	public int getIsland()
+	{
+		return island;
+	}
+
+	@Override
+	public int getNumIslands()
+	{
+		return inbox.length;
+	}
+
+	@Override
+	public boolean send(int island, Migrants m)
+	{
+		if (closed || island == this.island)
+			return false;
+		ByteBuffer frame = ByteBuffer.allocate(WireFormat.frameSize(m));
+		WireFormat.encode(m, frame);
+		frame.flip();
+		if (!inbox[island].offer(frame)) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		bytesSent.addAndGet(frame.limit());
+		return true;
+	}
+
+	@Override
+	public boolean receive(Migrants m)
+	{
+		ByteBuffer frame = inbox[island].poll();
+		if (frame == null)
+			return false;
+		WireFormat.decode(frame, m);
+		return true;
+	}
+
+	@Override
+	public long getBytesSent()
+	{
+		return bytesSent.get();
+	}
+
+	@Override
+	public long getDropped()
+	{
+		return dropped.get();
+	}
+
+	@Override
+	public void close()
+	{
+		closed = true;
+		inbox[island].clear();
+	}
+}
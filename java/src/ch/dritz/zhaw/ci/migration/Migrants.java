@@ -0,0 +1,138 @@
+package ch.dritz.zhaw.ci.migration;
+
+/**
+ * A batch of migrants sent from one island to another in a single frame.
+ * Either genomes of a genetic algorithm or real valued individuals of an
+ * evolution strategy: object params, step sizes and fitness, all in flat
+ * arrays. A batch is reused for every migration, the arrays only grow.
+ * @author D. Ritz
+ */
+public class Migrants
+{
+	public static final byte GENOMES = 1;
+	public static final byte REAL = 2;
+
+	byte type;
+	int source;
+	int count;
+
+	// GENOMES: bits per genome and the genomes
+	int bits;
+	int[] genomes = new int[0];
+
+	// REAL: dimension and count * dimension params and step sizes
+	int dimension;
+	double[] x = new double[0];
+	double[] sigma = new double[0];
+	double[] fitness = new double[0];
+
+	/**
+	 * Prepares the batch for count genomes of the given width
+	 * @param source island sending the batch
+	 * @param bits bits per genome, 1..31
+	 * @param count
+	 */
+	public void setGenomes(int source, int bits, int count)
+	{
+		if (bits < 1 || bits > 31)
+			throw new IllegalArgumentException("need 1..31 bits per genome");
+		type = GENOMES;
+		this.source = source;
+		this.bits = bits;
+		this.count = count;
+		if (genomes.length < count)
+			genomes = new int[count];
+	}
+
+	/**
+	 * Prepares the batch for count real valued individuals
+	 * @param source island sending the batch
+	 * @param dimension number of object params
+	 * @param count
+	 */
+	public void setReal(int source, int dimension, int count)
+	{
+		if (dimension < 1)
+			throw new IllegalArgumentException("dimension must be positive");
+		type = REAL;
+		this.source = source;
+		this.dimension = dimension;
+		this.count = count;
+		int n = count * dimension;
+		if (x.length < n) {
+			x = new double[n];
+			sigma = new double[n];
+		}
+		if (fitness.length < count)
+			fitness = new double[count];
+	}
+
+	/**
+	 * @param count the number of migrants actually filled in, not more than
+	 * prepared for
+	 */
+	public void setCount(int count)
+	{
+		this.count = count;
+	}
+
+	public byte getType()
+	{
+		return type;
+	}
+
+	/**
+	 * @return the island that sent the batch
+	 */
+	public int getSource()
+	{
+		return source;
+	}
+
+	public int getCount()
+	{
+		return count;
+	}
+
+	public int getBits()
+	{
+		return bits;
+	}
+
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	/**
+	 * @return the genomes, not a copy
+	 */
+	public int[] getGenomes()
+	{
+		return genomes;
+	}
+
+	/**
+	 * @return the object params, dimension values per migrant, not a copy
+	 */
+	public double[] getX()
+	{
+		return x;
+	}
+
+	/**
+	 * @return the step sizes, dimension values per migrant, not a copy
+	 */
+	public double[] getSigma()
+	{
+		return sigma;
+	}
+
+	/**
+	 * @return the fitness, one value per migrant, not a copy
+	 */
+	public double[] getFitness()
+	{
+		return fitness;
+	}
+}
@@ -0,0 +1,458 @@
+package ch.dritz.zhaw.ci.migration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport between islands in different processes, on the same or on other
+ * hosts, over TCP. Every island listens on its own address and opens one
+ * connection to each island it sends to, so a connection only carries data
+ * in one direction.
+ *
+ * All socket I/O is non-blocking and done by a single thread per island
+ * driven by a selector. The island thread only encodes a batch into a frame
+ * and queues it. The I/O thread writes all frames queued for a peer with one
+ * gathering write and cuts the incoming byte stream back into frames. Peers
+ * not up yet, or gone, are retried every RECONNECT_MS; meanwhile their frames
+ * queue up until the byte limit is reached, then frames are dropped.
+ * @author D. Ritz
+ */
+public class SocketTransport
+	implements Transport
+{
+	public static final int DEFAULT_QUEUE_BYTES = 1 << 20;
+
+	private static final long RECONNECT_MS = 200L;
+	private static final long SELECT_MS = 100L;
+	private static final int READ_BUFFER = 1 << 16;
+	private static final int MAX_GATHER = 64;
+
+	private int island;
+	private InetSocketAddress[] addresses;
+	private int maxQueueBytes;
+
+	private Selector selector;
+	private ServerSocketChannel server;
+	private Peer[] peers;
+	private Thread io;
+	private volatile boolean closed;
+
+	// complete frames received, decoded by the island thread
+	private Queue<ByteBuffer> inbox = new ConcurrentLinkedQueue<ByteBuffer>();
+	private AtomicInteger inboxBytes = new AtomicInteger();
+
+	private AtomicLong bytesSent = new AtomicLong();
+	private AtomicLong bytesReceived = new AtomicLong();
+	private AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Listens on the address of the island and starts the I/O thread
+	 * @param island this island
+	 * @param addresses the addresses of all islands
+	 * @throws IOException if the address of the island cannot be bound
+	 */
+	public SocketTransport(int island, InetSocketAddress[] addresses)
+		throws IOException
+	{
+		this(island, addresses, DEFAULT_QUEUE_BYTES);
+	}
+
+	/**
+	 * Listens on the address of the island and starts the I/O thread
+	 * @param island this island
+	 * @param addresses the addresses of all islands
+	 * @param maxQueueBytes bytes queued per peer, and received but not taken
+	 * yet, before batches are dropped
+	 * @throws IOException if the address of the island cannot be bound
+	 */
+	public SocketTransport(int island, InetSocketAddress[] addresses,
+			int maxQueueBytes)
+		throws IOException
+	{
+		if (island < 0 || island >= addresses.length)
+			throw new IllegalArgumentException("island out of range");
+		this.island = island;
+		this.addresses = addresses.clone();
+		this.maxQueueBytes = maxQueueBytes;
+
+		peers = new Peer[addresses.length];
+		for (int i = 0; i < peers.length; i++)
+			peers[i] = new Peer(i);
+
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		try {
+			server.setOption(StandardSocketOptions.SO_REUSEADDR, Boolean.TRUE);
+			server.bind(addresses[island]);
+			server.configureBlocking(false);
+			server.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			server.close();
+			selector.close();
+			throw e;
+		}
+
+		io = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				loop();
+			}
+		}, "migration-io-" + island);
+		io.setDaemon(true);
+		io.start();
+	}
+
+	/**
+	 * @param host
+	 * @param basePort port of island 0, the others follow
+	 * @param numIslands
+	 * @return the addresses of islands on consecutive ports of one host
+	 */
+	public static InetSocketAddress[] consecutivePorts(String host, int basePort,
+			int numIslands)
+	{
+		InetSocketAddress[] ret = new InetSocketAddress[numIslands];
+		for (int i = 0; i < numIslands; i++)
+			ret[i] = new InetSocketAddress(host, basePort + i);
+		return ret;
+	}
+
+	@Override
+	public int getIsland()
+	{
+		return island;
+	}
+
+	@Override
+	public int getNumIslands()
+	{
+		return addresses.length;
+	}
+
+	@Override
+	public boolean send(int island, Migrants m)
+	{
+		if (closed || island == this.island)
+			return false;
+
+		int size = WireFormat.frameSize(m);
+		Peer peer = peers[island];
+		if (peer.queuedBytes.get() + size > maxQueueBytes) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		ByteBuffer frame = ByteBuffer.allocate(size);
+		WireFormat.encode(m, frame);
+		frame.flip();
+		peer.queuedBytes.addAndGet(size);
+		peer.queue.offer(frame);
+		selector.wakeup();
+		return true;
+	}
+
+	@Override
+	public boolean receive(Migrants m)
+	{
+		ByteBuffer frame = inbox.poll();
+		if (frame == null)
+			return false;
+		inboxBytes.addAndGet(-frame.limit());
+		WireFormat.decode(frame, m);
+		return true;
+	}
+
+	@Override
+	public long getBytesSent()
+	{
+		return bytesSent.get();
+	}
+
+	/**
+	 * @return the number of bytes received so far
+	 */
+	public long getBytesReceived()
+	{
+		return bytesReceived.get();
+	}
+
+	@Override
+	public long getDropped()
+	{
+		return dropped.get();
+	}
+
+	/**
+	 * @param island
+	 * @return whether the connection to the island is up
+	 */
+	public boolean isConnected(int island)
+	{
+		return peers[island].connected;
+	}
+
+	@Override
+	public void close()
+	{
+		if (closed)
+			return;
+		closed = true;
+		selector.wakeup();
+		try {
+			io.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// everything below runs on the I/O thread only
+
+	private void loop()
+	{
+		try {
+			while (!closed) {
+				long now = System.currentTimeMillis();
+				for (Peer peer : peers) {
+					if (peer.island == island || !peer.hasData())
+						continue;
+					if (peer.channel == null) {
+						if (now >= peer.nextAttempt)
+							connect(peer);
+					} else if (peer.connected) {
+						write(peer);
+					}
+				}
+
+				selector.select(SELECT_MS);
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable())
+						accept();
+					else if (key.isConnectable())
+						finishConnect((Peer) key.attachment());
+					else if (key.isReadable())
+						read(key);
+					else if (key.isWritable())
+						write((Peer) key.attachment());
+				}
+			}
+		} catch (IOException e) {
+			// the selector itself failed, nothing left to do
+		} finally {
+			for (SelectionKey key : selector.keys())
+				closeQuietly(key);
+			try {
+				selector.close();
+			} catch (IOException e) {
+				// closing anyway
+			}
+		}
+	}
+
+	private void accept()
+		throws IOException
+	{
+		SocketChannel channel = server.accept();
+		if (channel == null)
+			return;
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ,
+			ByteBuffer.allocate(READ_BUFFER));
+	}
+
+	private void connect(Peer peer)
+	{
+		try {
+			peer.channel = SocketChannel.open();
+			peer.channel.configureBlocking(false);
+			peer.channel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+			if (peer.channel.connect(addresses[peer.island])) {
+				peer.key = peer.channel.register(selector, 0, peer);
+				peer.connected = true;
+				write(peer);
+			} else {
+				peer.key = peer.channel.register(selector, SelectionKey.OP_CONNECT,
+					peer);
+			}
+		} catch (IOException e) {
+			fail(peer);
+		}
+	}
+
+	private void finishConnect(Peer peer)
+	{
+		try {
+			if (!peer.channel.finishConnect())
+				return;
+			peer.connected = true;
+			peer.key.interestOps(0);
+			write(peer);
+		} catch (IOException e) {
+			fail(peer);
+		}
+	}
+
+	/**
+	 * Writes as many queued frames as the socket takes, with one gathering
+	 * write, and waits for the socket to become writable if not all fit
+	 */
+	private void write(Peer peer)
+	{
+		Queue<ByteBuffer> queue = peer.queue;
+		ArrayDeque<ByteBuffer> pending = peer.pending;
+		ByteBuffer frame;
+		while (pending.size() < MAX_GATHER && (frame = queue.poll()) != null)
+			pending.add(frame);
+		if (pending.isEmpty())
+			return;
+
+		pending.toArray(peer.gather);
+		try {
+			long written = peer.channel.write(peer.gather, 0, pending.size());
+			bytesSent.addAndGet(written);
+		} catch (IOException e) {
+			fail(peer);
+			return;
+		}
+		while (!pending.isEmpty() && !pending.peek().hasRemaining())
+			peer.queuedBytes.addAndGet(-pending.poll().limit());
+
+		peer.key.interestOps(pending.isEmpty() && queue.isEmpty() ? 0 :
+			SelectionKey.OP_WRITE);
+	}
+
+	/**
+	 * Reads what is available and queues all complete frames for the island
+	 * thread
+	 */
+	private void read(SelectionKey key)
+	{
+		SocketChannel channel = (SocketChannel) key.channel();
+		ByteBuffer buf = (ByteBuffer) key.attachment();
+		try {
+			int num = channel.read(buf);
+			if (num < 0) {
+				closeQuietly(key);
+				return;
+			}
+			bytesReceived.addAndGet(num);
+
+			buf.flip();
+			int size;
+			while ((size = WireFormat.completeFrame(buf)) > 0) {
+				if (inboxBytes.get() + size > maxQueueBytes) {
+					dropped.incrementAndGet();
+				} else {
+					ByteBuffer frame = ByteBuffer.allocate(size);
+					int limit = buf.limit();
+					buf.limit(buf.position() + size);
+					frame.put(buf);
+					buf.limit(limit);
+					frame.flip();
+					inboxBytes.addAndGet(size);
+					inbox.offer(frame);
+					continue;
+				}
+				buf.position(buf.position() + size);
+			}
+
+			// a frame bigger than the buffer, grow it
+			if (buf.remaining() >= 4 && buf.position() == 0 &&
+					buf.limit() == buf.capacity()) {
+				ByteBuffer bigger = ByteBuffer.allocate(4 + buf.getInt(0));
+				bigger.put(buf);
+				key.attach(bigger);
+				return;
+			}
+			buf.compact();
+		} catch (IOException e) {
+			closeQuietly(key);
+		} catch (IllegalArgumentException e) {
+			// garbage on the stream, the connection is of no use anymore
+			closeQuietly(key);
+		}
+	}
+
+	/**
+	 * Drops the connection, the frame written partially is sent again in
+	 * full on the next connection
+	 */
+	private void fail(Peer peer)
+	{
+		if (peer.key != null)
+			peer.key.cancel();
+		if (peer.channel != null)
+			closeQuietly(peer.channel);
+		peer.key = null;
+		peer.channel = null;
+		peer.connected = false;
+		peer.nextAttempt = System.currentTimeMillis() + RECONNECT_MS;
+		ByteBuffer head = peer.pending.peek();
+		if (head != null)
+			head.rewind();
+	}
+
+	private static void closeQuietly(SelectionKey key)
+	{
+		key.cancel();
+		closeQuietly(key.channel());
+	}
+
+	private static void closeQuietly(Channel channel)
+	{
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// closing anyway
+		}
+	}
+
+	/**
+	 * The connection to an island this one sends to
+	 */
+	private static class Peer
+	{
+		int island;
+
+		// filled by the island thread, emptied by the I/O thread
+		Queue<ByteBuffer> queue = new ConcurrentLinkedQueue<ByteBuffer>();
+		AtomicInteger queuedBytes = new AtomicInteger();
+
+		// I/O thread only
+		ArrayDeque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+		ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+		SocketChannel channel;
+		SelectionKey key;
+		long nextAttempt;
+
+		volatile boolean connected;
+
+		Peer(int island)
+		{
+			this.island = island;
+		}
+
+		boolean hasData()
+		{
+			return !pending.isEmpty() || !queue.isEmpty();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package ch.dritz.zhaw.ci.migration;
+
+import java.io.Closeable;
+
+/**
+ * Carries batches of migrants between islands, each island has its own end
+ * of the transport. Neither sending nor receiving ever blocks: a batch that
+ * does not fit into the queue towards its island is dropped, like a full
+ * MigrantQueue drops a migrant.
+ * @author D. Ritz
+ */
+public interface Transport
+	extends Closeable
+{
+	/**
+	 * @return the island owning this end
+	 */
+	int getIsland();
+
+	/**
+	 * @return the number of islands connected by the transport
+	 */
+	int getNumIslands();
+
+	/**
+	 * Queues a batch for another island. The batch is encoded right away and
+	 * can be reused as soon as this returns.
+	 * @param island the receiving island
+	 * @param m
+	 * @return false if the batch was dropped
+	 */
+	boolean send(int island, Migrants m);
+
+	/**
+	 * Takes the next batch received
+	 * @param m receives the batch
+	 * @return false if nothing was received
+	 */
+	boolean receive(Migrants m);
+
+	/**
+	 * @return the number of bytes sent so far
+	 */
+	long getBytesSent();
+
+	/**
+	 * @return the number of batches dropped so far, sending or receiving
+	 */
+	long getDropped();
+
+	/**
+	 * Closes this end, batches still queued are lost
+	 */
+	@Override
+	void close();
+}
@@ -0,0 +1,156 @@
+package ch.dritz.zhaw.ci.migration;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary encoding of a batch of migrants, one frame per batch:
+ *
+ *   frame   := length:int32 magic:int8 type:int8 source:int32 count:int32 payload
+ *   GENOMES := bits:int8 genomes, packed with bits per genome, most significant
+ *              bit first, padded to a full byte
+ *   REAL    := dimension:int32 x:float64[count * dimension]
+ *              sigma:float64[count * dimension] fitness:float64[count]
+ *
+ * All numbers big endian, length counts the bytes following it. The 30
+ * genomes of 10 bits of a genetic algorithm island fit into 53 bytes.
+ * @author D. Ritz
+ */
+public final class WireFormat
+{
+	public static final byte MAGIC = (byte) 0xC1;
+
+	// length, magic, type, source, count
+	public static final int HEADER = 4 + 1 + 1 + 4 + 4;
+
+	// refuse anything bigger, a corrupt length would allocate just as much
+	public static final int MAX_FRAME = 16 << 20;
+
+	private WireFormat()
+	{
+	}
+
+	/**
+	 * @param m
+	 * @return the size of the frame of the batch, including the length
+	 */
+	public static int frameSize(Migrants m)
+	{
+		if (m.type == Migrants.GENOMES)
+			return HEADER + 1 + (int) (((long) m.count * m.bits + 7) / 8);
+		return HEADER + 4 + 8 * (2 * m.count * m.dimension + m.count);
+	}
+
+	/**
+	 * Writes the frame of the batch
+	 * @param m
+	 * @param buf must have frameSize(m) bytes remaining
+	 */
+	public static void encode(Migrants m, ByteBuffer buf)
+	{
+		int size = frameSize(m);
+		if (size > MAX_FRAME)
+			throw new IllegalArgumentException("batch too large: " + size + " bytes");
+
+		buf.putInt(size - 4);
+		buf.put(MAGIC);
+		buf.put(m.type);
+		buf.putInt(m.source);
+		buf.putInt(m.count);
+
+		if (m.type == Migrants.GENOMES) {
+			buf.put((byte) m.bits);
+			long acc = 0L;
+			int numBits = 0;
+			int mask = (1 << m.bits) - 1;
+			for (int i = 0; i < m.count; i++) {
+				acc = (acc << m.bits) | (m.genomes[i] & mask);
+				numBits += m.bits;
+				while (numBits >= 8) {
+					numBits -= 8;
+					buf.put((byte) (acc >>> numBits));
+				}
+				acc &= (1L << numBits) - 1;
+			}
+			if (numBits > 0)
+				buf.put((byte) (acc << (8 - numBits)));
+		} else {
+			int n = m.count * m.dimension;
+			buf.putInt(m.dimension);
+			for (int i = 0; i < n; i++)
+				buf.putDouble(m.x[i]);
+			for (int i = 0; i < n; i++)
+				buf.putDouble(m.sigma[i]);
+			for (int i = 0; i < m.count; i++)
+				buf.putDouble(m.fitness[i]);
+		}
+	}
+
+	/**
+	 * Checks whether a complete frame starts at the position of the buffer
+	 * @param buf
+	 * @return the size of the frame including the length, -1 if not complete
+	 * yet
+	 */
+	public static int completeFrame(ByteBuffer buf)
+	{
+		if (buf.remaining() < 4)
+			return -1;
+		int length = buf.getInt(buf.position());
+		if (length < HEADER - 4 || length > MAX_FRAME - 4)
+			throw new IllegalArgumentException("bad frame length: " + length);
+		return buf.remaining() < 4 + length ? -1 : 4 + length;
+	}
+
+	/**
+	 * Reads one frame into the batch
+	 * @param buf positioned at the start of a complete frame, positioned
+	 * after it on return
+	 * @param m receives the migrants
+	 */
+	public static void decode(ByteBuffer buf, Migrants m)
+	{
+		int end = buf.position() + 4 + buf.getInt();
+		if (buf.get() != MAGIC)
+			throw new IllegalArgumentException("bad magic");
+		byte type = buf.get();
+		int source = buf.getInt();
+		int count = buf.getInt();
+		if (count < 0)
+			throw new IllegalArgumentException("bad count: " + count);
+
+		if (type == Migrants.GENOMES) {
+			int bits = buf.get();
+			if ((long) count * bits > 8L * (end - buf.position()))
+				throw new IllegalArgumentException("truncated genomes");
+			m.setGenomes(source, bits, count);
+			long acc = 0L;
+			int numBits = 0;
+			int mask = (1 << bits) - 1;
+			for (int i = 0; i < count; i++) {
+				while (numBits < bits) {
+					acc = (acc << 8) | (buf.get() & 0xFF);
+					numBits += 8;
+				}
+				numBits -= bits;
+				m.genomes[i] = (int) (acc >>> numBits) & mask;
+				acc &= (1L << numBits) - 1;
+			}
+		} else if (type == Migrants.REAL) {
+			int dimension = buf.getInt();
+			if (dimension < 1 ||
+					8L * (2L * count * dimension + count) != end - buf.position())
+				throw new IllegalArgumentException("bad real valued batch");
+			m.setReal(source, dimension, count);
+			int n = count * dimension;
+			for (int i = 0; i < n; i++)
+				m.x[i] = buf.getDouble();
+			for (int i = 0; i < n; i++)
+				m.sigma[i] = buf.getDouble();
+			for (int i = 0; i < count; i++)
+				m.fitness[i] = buf.getDouble();
+		} else {
+			throw new IllegalArgumentException("bad type: " + type);
+		}
+		buf.position(end);
+	}
+}
@@ -0,0 +1,166 @@
+package ch.dritz.zhaw.ci.migration.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.Rastrigin;
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.geneticalg.Topology;
+import ch.dritz.zhaw.ci.migration.EvolutionStrategyIsland;
+import ch.dritz.zhaw.ci.migration.GeneticAlgorithmIsland;
+import ch.dritz.zhaw.ci.migration.Island;
+import ch.dritz.zhaw.ci.migration.LoopbackTransport;
+import ch.dritz.zhaw.ci.migration.SocketTransport;
+import ch.dritz.zhaw.ci.migration.Transport;
+
+/**
+ * Islands of the genetic algorithm on the cylinder problem (ga) or of the
+ * evolution strategy on the 10 dimensional Rastrigin function (es),
+ * connected as a ring:
+ *
+ *   loopback ga|es [islands]             all islands in this process
+ *   spawn ga|es [islands] [basePort]     one process per island, over sockets
+ *   island ga|es index islands basePort  a single island, started by spawn
+ *
+ * JVM options given to spawn with -Dislands.jvm="..." are passed on to the
+ * island processes, e.g. a heap size or a collector.
+ * @author D. Ritz
+ */
+public class RemoteIslands
+{
+	private static final int GENERATIONS = 200;
+	private static final int INTERVAL = 5;
+	private static final int MIGRANTS = 2;
+	private static final int DIMENSION = 10;
+	private static final int BASE_PORT = 47100;
+
+	public static void main(String[] args)
+		throws Exception
+	{
+		String mode = args.length > 0 ? args[0] : "loopback";
+		String kind = args.length > 1 ? args[1] : "ga";
+
+		if ("loopback".equals(mode)) {
+			int n = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+			loopback(kind, n);
+		} else if ("spawn".equals(mode)) {
+			int n = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+			int port = args.length > 3 ? Integer.parseInt(args[3]) : BASE_PORT;
+			spawn(kind, n, port);
+		} else if ("island".equals(mode)) {
+			island(kind, Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+				Integer.parseInt(args[4]));
+		} else {
+			System.err.println("usage: RemoteIslands loopback|spawn|island ga|es ...");
+		}
+	}
+
+	private static void loopback(final String kind, int n)
+		throws InterruptedException
+	{
+		final Transport[] transports = LoopbackTransport.create(n,
+			LoopbackTransport.DEFAULT_CAPACITY);
+		final Island[] islands = new Island[n];
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < n; i++) {
+			islands[i] = create(kind, transports[i]);
+			final Island island = islands[i];
+			Thread t = new Thread(new Runnable() {
+				@Override
+				public void run()
+				{
+					island.run(GENERATIONS);
+				}
+			}, "island-" + i);
+			threads.add(t);
+			t.start();
+		}
+		for (Thread t : threads)
+			t.join();
+		for (int i = 0; i < n; i++) {
+			report(islands[i], transports[i]);
+			transports[i].close();
+		}
+	}
+
+	private static void spawn(String kind, int n, int port)
+		throws IOException, InterruptedException
+	{
+		String java = System.getProperty("java.home") + File.separator + "bin" +
+			File.separator + "java";
+		String jvmOptions = System.getProperty("islands.jvm", "").trim();
+
+		List<Process> processes = new ArrayList<Process>();
+		for (int i = 0; i < n; i++) {
+			List<String> cmd = new ArrayList<String>();
+			cmd.add(java);
+			if (!jvmOptions.isEmpty()) {
+				for (String opt : jvmOptions.split("\\s+"))
+					cmd.add(opt);
+			}
+			cmd.add("-cp");
+			cmd.add(System.getProperty("java.class.path"));
+			cmd.add(RemoteIslands.class.getName());
+			cmd.add("island");
+			cmd.add(kind);
+			cmd.add(Integer.toString(i));
+			cmd.add(Integer.toString(n));
+			cmd.add(Integer.toString(port));
+			processes.add(new ProcessBuilder(cmd).inheritIO().start());
+		}
+		for (Process p : processes)
+			p.waitFor();
+	}
+
+	private static void island(String kind, int index, int n, int port)
+		throws IOException, InterruptedException
+	{
+		InetSocketAddress[] addresses = SocketTransport.consecutivePorts(
+			"127.0.0.1", port, n);
+		SocketTransport transport = new SocketTransport(index, addresses);
+		Island island = create(kind, transport);
+		island.run(GENERATIONS);
+
+		// give the last migrants a moment to leave before closing
+		Thread.sleep(200L);
+		report(island, transport);
+		System.out.println(String.format("    bytes received: %d",
+			transport.getBytesReceived()));
+		transport.close();
+	}
+
+	private static Island create(String kind, Transport transport)
+	{
+		if ("es".equals(kind)) {
+			double[] lower = new double[DIMENSION];
+			double[] upper = new double[DIMENSION];
+			for (int i = 0; i < DIMENSION; i++) {
+				lower[i] = Rastrigin.LOWER;
+				upper[i] = Rastrigin.UPPER;
+			}
+			EvolutionStrategy es = new EvolutionStrategy(15, 100, 10, 2,
+				new BatchEvaluator(new Rastrigin(DIMENSION), null), lower, upper,
+				1D, false, null, EvolutionStrategy.DEFAULT_CHUNK_SIZE,
+				EvolutionStrategy.rand.split());
+			return new EvolutionStrategyIsland(es, transport, Topology.RING,
+				INTERVAL, MIGRANTS);
+		}
+		GeneticAlgorithm ga = new GeneticAlgorithm(GeneticAlgorithm.NUM,
+			GeneticAlgorithm.rand.split());
+		return new GeneticAlgorithmIsland(ga, 0.01D, 10, transport,
+			Topology.RING, INTERVAL, MIGRANTS);
+	}
+
+	private static void report(Island island, Transport transport)
+	{
+		System.out.println(String.format(
+			"island %d: best %.4f, sent: %d, dropped: %d, received: %d, bytes sent: %d",
+			island.getIsland(), island.getBestFitness(), island.getSent(),
+			island.getDropped(), island.getReceived(), transport.getBytesSent()));
+	}
+}
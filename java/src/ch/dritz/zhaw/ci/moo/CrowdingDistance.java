@@ -0,0 +1,57 @@
+package ch.dritz.zhaw.ci.moo;
+
+import ch.dritz.zhaw.ci.util.IndexSort;
+
+/**
+ * Crowding distance as in NSGA-II: for each member of a front the sum over
+ * all objectives of the normalized distance between its two neighbours. The
+ * extremes of each objective get an infinite distance.
+ * @author D. Ritz
+ */
+public class CrowdingDistance
+{
+	private double[] key = new double[0];
+
+	/**
+	 * @param obj objective vectors, objective j of i at i * m + j
+	 * @param m number of objectives
+	 * @param n number of vectors in obj
+	 * @param members the members of the front, reordered by this method
+	 * @param from first member (inclusive)
+	 * @param to last member (exclusive)
+	 * @param distance receives the distance, indexed like obj
+	 */
+	public void compute(double[] obj, int m, int n, int[] members, int from,
+			int to, double[] distance)
+	{
+		if (key.length < n)
+			key = new double[n];
+
+		for (int i = from; i < to; i++)
+			distance[members[i]] = 0D;
+		if (to - from <= 2) {
+			for (int i = from; i < to; i++)
+				distance[members[i]] = Double.POSITIVE_INFINITY;
+			return;
+		}
+
+		for (int j = 0; j < m; j++) {
+			for (int i = from; i < to; i++)
+				key[members[i]] = obj[members[i] * m + j];
+			IndexSort.sort(members, from, to, key);
+
+			double min = key[members[from]];
+			double max = key[members[to - 1]];
+			distance[members[from]] = Double.POSITIVE_INFINITY;
+			distance[members[to - 1]] = Double.POSITIVE_INFINITY;
+			if (max == min)
+				continue;
+
+			double range = max - min;
+			for (int i = from + 1; i < to - 1; i++) {
+				int p = members[i];
+				distance[p] += (key[members[i + 1]] - key[members[i - 1]]) / range;
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package ch.dritz.zhaw.ci.moo;
+
+/**
+ * Chooses the survivors of a generation based on the objective vectors of all
+ * candidates. All objectives are minimized. Implementations keep their
+ * scratch space between calls and are not thread safe.
+ * @author D. Ritz
+ */
+public interface EnvironmentalSelection
+{
+	/**
+	 * @param objectives objective vectors, objective j of candidate i is at
+	 * i * numObjectives + j
+	 * @param numObjectives
+	 * @param size number of candidates
+	 * @param keep number of survivors, at most size
+	 * @param survivors receives the indices of the survivors
+	 */
+	void select(double[] objectives, int numObjectives, int size, int keep,
+		int[] survivors);
+}
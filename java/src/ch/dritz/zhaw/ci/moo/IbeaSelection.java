@@ -0,0 +1,208 @@
+package ch.dritz.zhaw.ci.moo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Environmental selection of IBEA with the additive epsilon indicator.
+ * Objectives are normalized to [0, 1], then
+ *   I(a, b) = max_j (f_j(a) - f_j(b))
+ *   F(x) = sum over y != x of -exp(-I(y, x) / (c * kappa))
+ * with c the maximal absolute indicator value. The candidate with the lowest
+ * F is removed until only keep are left. Instead of recomputing everything
+ * after each removal, the removed candidate's contribution is added back to
+ * the others, O(n) per removal.
+ *
+ * The indicator matrix is a single primitive array, stored transposed so
+ * the terms making up F(x) are contiguous. It is computed in parallel.
+ * @author D. Ritz
+ */
+public class IbeaSelection
+	implements EnvironmentalSelection
+{
+	public static final double DEFAULT_KAPPA = 0.05D;
+
+	private static final int PARALLEL_ROWS = 64;
+
+	private double kappa;
+	private ForkJoinPool pool;
+
+	// scratch space
+	private double[] norm = new double[0];
+	private double[] terms = new double[0]; // terms[x * n + y] for I(y, x)
+	private double[] rowMax = new double[0];
+	private double[] fitness = new double[0];
+	private boolean[] removed = new boolean[0];
+
+	/**
+	 * Uses the default kappa and the common pool
+	 */
+	public IbeaSelection()
+	{
+		this(DEFAULT_KAPPA, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param kappa scaling factor of the fitness
+	 * @param pool pool for the indicator matrix, null for sequential
+	 */
+	public IbeaSelection(double kappa, ForkJoinPool pool)
+	{
+		this.kappa = kappa;
+		this.pool = pool;
+	}
+
+	@Override
+	public void select(double[] objectives, int numObjectives, int size,
+			int keep, int[] survivors)
+	{
+		int n = size;
+		int m = numObjectives;
+		if (fitness.length < n) {
+			rowMax = new double[n];
+			fitness = new double[n];
+			removed = new boolean[n];
+		}
+		if (norm.length < n * m)
+			norm = new double[n * m];
+		if (terms.length < n * n)
+			terms = new double[n * n];
+
+		normalize(objectives, m, n);
+
+		// pass 1: indicator values and their maximum
+		run(new MatrixTask(m, n, 0, n, 0D));
+		double c = 0D;
+		for (int x = 0; x < n; x++)
+			c = Math.max(c, rowMax[x]);
+		if (c == 0D)
+			c = 1D;
+
+		// pass 2: indicator to fitness terms, F(x)
+		run(new MatrixTask(m, n, 0, n, c * kappa));
+
+		for (int x = 0; x < n; x++)
+			removed[x] = false;
+
+		// remove the worst one by one, updating the others
+		for (int remaining = n; remaining > keep; remaining--) {
+			int worst = -1;
+			for (int x = 0; x < n; x++) {
+				if (!removed[x] && (worst < 0 || fitness[x] < fitness[worst]))
+					worst = x;
+			}
+			removed[worst] = true;
+			for (int x = 0; x < n; x++) {
+				if (!removed[x])
+					fitness[x] += terms[x * n + worst];
+			}
+		}
+
+		int k = 0;
+		for (int x = 0; x < n && k < keep; x++) {
+			if (!removed[x])
+				survivors[k++] = x;
+		}
+	}
+
+	/**
+	 * normalizes each objective to [0, 1] over all candidates
+	 */
+	private void normalize(double[] obj, int m, int n)
+	{
+		for (int j = 0; j < m; j++) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < n; i++) {
+				min = Math.min(min, obj[i * m + j]);
+				max = Math.max(max, obj[i * m + j]);
+			}
+			double range = max > min ? max - min : 1D;
+			for (int i = 0; i < n; i++)
+				norm[i * m + j] = (obj[i * m + j] - min) / range;
+		}
+	}
+
+	private void run(MatrixTask task)
+	{
+		if (pool == null || task.to - task.from <= PARALLEL_ROWS)
+			task.invoke();
+		else
+			pool.invoke(task);
+	}
+
+	/**
+	 * @return F of the candidates of the last selection, updated up to the
+	 * last removal
+	 */
+	public double[] getFitness()
+	{
+		return fitness;
+	}
+
+	/**
+	 * Works on the rows from..to-1 of the (transposed) matrix. Without scale
+	 * it computes the indicator values and the maximum per row, with a scale
+	 * it turns them into fitness terms and sums them up to F(x).
+	 */
+	private class MatrixTask
+		extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int m, n, from, to;
+		private double scale;
+
+		public MatrixTask(int m, int n, int from, int to, double scale)
+		{
+			this.m = m;
+			this.n = n;
+			this.from = from;
+			this.to = to;
+			this.scale = scale;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from > PARALLEL_ROWS) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new MatrixTask(m, n, from, mid, scale),
+					new MatrixTask(m, n, mid, to, scale));
+				return;
+			}
+
+			for (int x = from; x < to; x++) {
+				int row = x * n;
+				if (scale == 0D) {
+					double max = 0D;
+					for (int y = 0; y < n; y++) {
+						double eps = indicator(y, x);
+						terms[row + y] = eps;
+						max = Math.max(max, Math.abs(eps));
+					}
+					rowMax[x] = max;
+				} else {
+					double sum = 0D;
+					for (int y = 0; y < n; y++) {
+						double t = y == x ? 0D : Math.exp(-terms[row + y] / scale);
+						terms[row + y] = t;
+						sum += t;
+					}
+					fitness[x] = -sum;
+				}
+			}
+		}
+
+		/**
+		 * @return the additive epsilon indicator I(a, b)
+		 */
+		private double indicator(int a, int b)
+		{
+			double eps = Double.NEGATIVE_INFINITY;
+			for (int j = 0; j < m; j++)
+				eps = Math.max(eps, norm[a * m + j] - norm[b * m + j]);
+			return eps;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+package ch.dritz.zhaw.ci.moo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ch.dritz.zhaw.ci.util.IndexSort;
+
+/**
+ * Sorts objective vectors into non-dominated fronts: front 0 is not dominated
+ * by anything, front k only by members of fronts < k. All objectives are
+ * minimized.
+ * - two objectives: sweep over the vectors sorted by the first objective,
+ *   the front of each vector is found with a binary search, O(n log n)
+ * - more objectives: the dominance relation is computed in parallel into a
+ *   bit matrix, then the fronts are peeled off as in NSGA-II, O(m n^2)
+ * @author D. Ritz
+ */
+public class NonDominatedSort
+{
+	private static final int PARALLEL_ROWS = 64;
+
+	private ForkJoinPool pool;
+
+	// scratch space
+	private int[] order = new int[0];
+	private double[] key = new double[0];
+	private double[] key2 = new double[0];
+	private double[] frontF1 = new double[0];
+	private double[] frontF2 = new double[0];
+	private long[] dominates = new long[0];
+	private int[] count = new int[0];
+	private int[] current = new int[0];
+	private int[] nextFront = new int[0];
+
+	/**
+	 * Creates a sort using the common pool for the general case
+	 */
+	public NonDominatedSort()
+	{
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pool the pool for the general case, null for sequential
+	 */
+	public NonDominatedSort(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+
+	/**
+	 * @param obj objective vectors, objective j of i at i * m + j
+	 * @param m number of objectives
+	 * @param a
+	 * @param b
+	 * @return true if a dominates b: not worse in any, better in at least one
+	 */
+	public static boolean dominates(double[] obj, int m, int a, int b)
+	{
+		return dominates(obj, a * m, obj, b * m, m);
+	}
+
+	/**
+	 * @param a
+	 * @param aOffset where the objective vector of a starts
+	 * @param b
+	 * @param bOffset where the objective vector of b starts
+	 * @param m number of objectives
+	 * @return true if a dominates b: not worse in any, better in at least one
+	 */
+	public static boolean dominates(double[] a, int aOffset, double[] b,
+			int bOffset, int m)
+	{
+		boolean better = false;
+		for (int j = 0; j < m; j++) {
+			if (a[aOffset + j] > b[bOffset + j])
+				return false;
+			if (a[aOffset + j] < b[bOffset + j])
+				better = true;
+		}
+		return better;
+	}
+
+	/**
+	 * @param obj objective vectors, objective j of i at i * m + j
+	 * @param m number of objectives
+	 * @param n number of vectors
+	 * @param front receives the front of each vector
+	 * @return the number of fronts
+	 */
+	public int sort(double[] obj, int m, int n, int[] front)
+	{
+		if (n == 0)
+			return 0;
+		if (m == 2)
+			return sort2(obj, n, front);
+		return sortGeneral(obj, m, n, front);
+	}
+
+	private void ensureCapacity(int n)
+	{
+		if (order.length >= n)
+			return;
+		order = new int[n];
+		key = new double[n];
+		key2 = new double[n];
+		frontF1 = new double[n];
+		frontF2 = new double[n];
+		count = new int[n];
+		current = new int[n];
+		nextFront = new int[n];
+	}
+
+	/**
+	 * two objectives: sweep in order of the first objective (ties by the
+	 * second), keeping the last member of each front. Each front is a
+	 * staircase, the last member has the lowest second objective.
+	 */
+	private int sort2(double[] obj, int n, int[] front)
+	{
+		ensureCapacity(n);
+
+		// sort by f1, ties by f2
+		IndexSort.identity(order, n);
+		for (int i = 0; i < n; i++)
+			key[i] = obj[2 * i];
+		IndexSort.sort(order, 0, n, key);
+		int i = 0;
+		while (i < n) {
+			int j = i + 1;
+			while (j < n && key[order[j]] == key[order[i]])
+				j++;
+			if (j - i > 1) {
+				for (int k = i; k < j; k++)
+					key2[order[k]] = obj[2 * order[k] + 1];
+				IndexSort.sort(order, i, j, key2);
+			}
+			i = j;
+		}
+
+		int numFronts = 0;
+		for (int k = 0; k < n; k++) {
+			int p = order[k];
+			double f1 = obj[2 * p];
+			double f2 = obj[2 * p + 1];
+
+			// first front not dominating p, dominated fronts come first
+			int lo = 0;
+			int hi = numFronts;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				boolean dominated = frontF2[mid] < f2 ||
+					(frontF2[mid] == f2 && frontF1[mid] < f1);
+				if (dominated)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			if (lo == numFronts)
+				numFronts++;
+			front[p] = lo;
+			frontF1[lo] = f1;
+			frontF2[lo] = f2;
+		}
+		return numFronts;
+	}
+
+	/**
+	 * general case: dominance bit matrix, then front peeling
+	 */
+	private int sortGeneral(final double[] obj, final int m, final int n,
+			int[] front)
+	{
+		ensureCapacity(n);
+		final int words = (n + 63) >>> 6;
+		if (dominates.length < n * words)
+			dominates = new long[n * words];
+
+		RecursiveAction task = new DominanceTask(obj, m, n, words, 0, n);
+		if (pool == null || n <= PARALLEL_ROWS)
+			task.invoke();
+		else
+			pool.invoke(task);
+
+		// count[q] = number of vectors dominating q
+		int numCurrent = 0;
+		for (int q = 0; q < n; q++) {
+			if (count[q] == 0) {
+				current[numCurrent++] = q;
+				front[q] = 0;
+			}
+		}
+
+		int numFronts = 0;
+		while (numCurrent > 0) {
+			int numNext = 0;
+			for (int i = 0; i < numCurrent; i++) {
+				int p = current[i];
+				int row = p * words;
+				for (int w = 0; w < words; w++) {
+					long bits = dominates[row + w];
+					while (bits != 0) {
+						int q = (w << 6) + Long.numberOfTrailingZeros(bits);
+						bits &= bits - 1;
+						if (--count[q] == 0) {
+							front[q] = numFronts + 1;
+							nextFront[numNext++] = q;
+						}
+					}
+				}
+			}
+			numFronts++;
+			int[] tmp = current;
+			current = nextFront;
+			nextFront = tmp;
+			numCurrent = numNext;
+		}
+		return numFronts;
+	}
+
+	/**
+	 * computes rows from..to-1 of the dominance matrix and how often each
+	 * vector in these rows is dominated
+	 */
+	private class DominanceTask
+		extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private double[] obj;
+		private int m, n, words, from, to;
+
+		public DominanceTask(double[] obj, int m, int n, int words, int from,
+				int to)
+		{
+			this.obj = obj;
+			this.m = m;
+			this.n = n;
+			this.words = words;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from > PARALLEL_ROWS) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new DominanceTask(obj, m, n, words, from, mid),
+					new DominanceTask(obj, m, n, words, mid, to));
+				return;
+			}
+
+			for (int p = from; p < to; p++) {
+				int row = p * words;
+				for (int w = 0; w < words; w++)
+					dominates[row + w] = 0L;
+				int dominatedBy = 0;
+				for (int q = 0; q < n; q++) {
+					if (dominates(obj, m, p, q))
+						dominates[row + (q >>> 6)] |= 1L << q;
+					else if (dominates(obj, m, q, p))
+						dominatedBy++;
+				}
+				count[p] = dominatedBy;
+			}
+		}
+	}
+}
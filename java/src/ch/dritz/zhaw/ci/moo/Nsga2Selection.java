@@ -0,0 +1,105 @@
+package ch.dritz.zhaw.ci.moo;
+
+import ch.dritz.zhaw.ci.util.IndexSort;
+
+/**
+ * Environmental selection of NSGA-II: the survivors are taken front by front,
+ * the front that doesn't fit completely is truncated by crowding distance,
+ * keeping the least crowded members.
+ * @author D. Ritz
+ */
+public class Nsga2Selection
+	implements EnvironmentalSelection
+{
+	private NonDominatedSort sort;
+	private CrowdingDistance crowding = new CrowdingDistance();
+
+	private int[] front = new int[0];
+	private int[] byFront = new int[0];
+	private double[] key = new double[0];
+	private double[] distance = new double[0];
+	private int numFronts;
+
+	public Nsga2Selection()
+	{
+		this(new NonDominatedSort());
+	}
+
+	/**
+	 * @param sort the non dominated sort to use
+	 */
+	public Nsga2Selection(NonDominatedSort sort)
+	{
+		this.sort = sort;
+	}
+
+	@Override
+	public void select(double[] objectives, int numObjectives, int size,
+			int keep, int[] survivors)
+	{
+		if (front.length < size) {
+			front = new int[size];
+			byFront = new int[size];
+			key = new double[size];
+			distance = new double[size];
+		}
+
+		numFronts = sort.sort(objectives, numObjectives, size, front);
+
+		// order all candidates by front
+		for (int i = 0; i < size; i++) {
+			byFront[i] = i;
+			key[i] = front[i];
+		}
+		IndexSort.sort(byFront, 0, size, key);
+
+		int taken = 0;
+		int start = 0;
+		while (taken < keep) {
+			int f = front[byFront[start]];
+			int end = start;
+			while (end < size && front[byFront[end]] == f)
+				end++;
+
+			if (end - start <= keep - taken) {
+				for (int i = start; i < end; i++)
+					survivors[taken++] = byFront[i];
+			} else {
+				// least crowded first
+				crowding.compute(objectives, numObjectives, size, byFront,
+					start, end, distance);
+				for (int i = start; i < end; i++)
+					key[byFront[i]] = -distance[byFront[i]];
+				IndexSort.sort(byFront, start, end, key);
+				for (int i = start; taken < keep; i++)
+					survivors[taken++] = byFront[i];
+			}
+			start = end;
+		}
+	}
+
+	/**
+	 * @return the front of each candidate of the last selection
+	 */
+	public int[] getFronts()
+	{
+		return front;
+	}
+
+	/**
+	 * @return the number of fronts of the last selection
+	 */
+	public int getNumFronts()
+	{
+		return numFronts;
+	}
+
+	/**
+	 * @return the crowding distance of the candidates in the truncated front
+	 * of the last selection
+	 */
+	public double[] getDistance()
+	{
+		return distance;
+	}
+}
@@ -0,0 +1,153 @@
+package ch.dritz.zhaw.ci.moo;
+
+/**
+ * Bounded archive of mutually non-dominated solutions: objective vectors
+ * together with their parameters. A new solution is only accepted if no
+ * member dominates (or equals) it, members dominated by it are removed. If
+ * the archive is full, the most crowded member is dropped.
+ * @author D. Ritz
+ */
+public class ParetoArchive
+{
+	private int numObjectives;
+	private int dimension;
+	private int capacity;
+	private int size;
+
+	private double[] obj;
+	private double[] x;
+
+	// scratch for crowding
+	private int[] members;
+	private double[] distance;
+	private CrowdingDistance crowding = new CrowdingDistance();
+
+	/**
+	 * @param numObjectives
+	 * @param dimension number of parameters per solution
+	 * @param capacity maximal number of solutions kept
+	 */
+	public ParetoArchive(int numObjectives, int dimension, int capacity)
+	{
+		this.numObjectives = numObjectives;
+		this.dimension = dimension;
+		this.capacity = capacity;
+
+		// one extra slot for the new solution before truncation
+		obj = new double[(capacity + 1) * numObjectives];
+		x = new double[(capacity + 1) * dimension];
+		members = new int[capacity + 1];
+		distance = new double[capacity + 1];
+	}
+
+	/**
+	 * Offers a solution to the archive
+	 * @param objectives
+	 * @param objOffset where the objective vector starts
+	 * @param params
+	 * @param paramOffset where the parameters start
+	 * @return true if the solution was added
+	 */
+	public boolean add(double[] objectives, int objOffset, double[] params,
+			int paramOffset)
+	{
+		int m = numObjectives;
+		for (int i = 0; i < size; i++) {
+			if (NonDominatedSort.dominates(obj, i * m, objectives, objOffset, m) ||
+					equal(i, objectives, objOffset))
+				return false;
+		}
+
+		int i = 0;
+		while (i < size) {
+			if (NonDominatedSort.dominates(objectives, objOffset, obj, i * m, m))
+				remove(i);
+			else
+				i++;
+		}
+
+		System.arraycopy(objectives, objOffset, obj, size * m, m);
+		System.arraycopy(params, paramOffset, x, size * dimension, dimension);
+		size++;
+
+		if (size > capacity)
+			remove(mostCrowded());
+		return true;
+	}
+
+	private boolean equal(int i, double[] objectives, int objOffset)
+	{
+		for (int j = 0; j < numObjectives; j++) {
+			if (obj[i * numObjectives + j] != objectives[objOffset + j])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * removes member i by moving the last member into its place
+	 * @param i
+	 */
+	private void remove(int i)
+	{
+		size--;
+		if (i == size)
+			return;
+		int m = numObjectives;
+		System.arraycopy(obj, size * m, obj, i * m, m);
+		System.arraycopy(x, size * dimension, x, i * dimension, dimension);
+	}
+
+	/**
+	 * @return the member with the smallest crowding distance
+	 */
+	private int mostCrowded()
+	{
+		for (int i = 0; i < size; i++)
+			members[i] = i;
+		crowding.compute(obj, numObjectives, size, members, 0, size, distance);
+
+		int worst = 0;
+		for (int i = 1; i < size; i++) {
+			if (distance[i] < distance[worst])
+				worst = i;
+		}
+		return worst;
+	}
+
+	/**
+	 * @return number of solutions in the archive
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @param i
+	 * @param j
+	 * @return objective j of solution i
+	 */
+	public double getObjective(int i, int j)
+	{
+		return obj[i * numObjectives + j];
+	}
+
+	/**
+	 * @param i
+	 * @param j
+	 * @return parameter j of solution i
+	 */
+	public double getParam(int i, int j)
+	{
+		return x[i * dimension + j];
+	}
+
+	/**
+	 * removes all solutions
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+}
@@ -0,0 +1,151 @@
+package ch.dritz.zhaw.ci.neural;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Labeled samples for classification, the inputs of all samples in one flat
+ * array, one row per sample
+ * @author D. Ritz
+ */
+public class Dataset
+{
+	// optdigits: 8x8 blocks counting the set pixels of 4x4 areas, 0..16
+	public static final int OPTDIGITS_INPUTS = 64;
+	public static final int OPTDIGITS_CLASSES = 10;
+	public static final double OPTDIGITS_MAX = 16D;
+
+	private double[] inputs;
+	private int[] labels;
+	private int numInputs;
+	private int numClasses;
+	private int size;
+
+	/**
+	 * @param inputs numInputs values per sample
+	 * @param labels class of each sample, 0..numClasses-1
+	 * @param numInputs
+	 * @param numClasses
+	 */
+	public Dataset(double[] inputs, int[] labels, int numInputs, int numClasses)
+	{
+		if (inputs.length != labels.length * numInputs)
+			throw new IllegalArgumentException("need numInputs values per label");
+		this.inputs = inputs;
+		this.labels = labels;
+		this.numInputs = numInputs;
+		this.numClasses = numClasses;
+		size = labels.length;
+	}
+
+	/**
+	 * Reads one of the optdigits files, optdigits.tra or optdigits.tes, from
+	 * the UCI archive. The inputs are scaled to 0..1.
+	 * @param zip the archive
+	 * @param entry name of the file in the archive
+	 * @return the samples
+	 * @throws IOException
+	 */
+	public static Dataset readOptdigits(File zip, String entry)
+		throws IOException
+	{
+		ZipFile file = new ZipFile(zip);
+		try {
+			ZipEntry e = file.getEntry(entry);
+			if (e == null)
+				throw new IOException(entry + " not found in " + zip);
+			return readCsv(new InputStreamReader(file.getInputStream(e),
+				StandardCharsets.US_ASCII), OPTDIGITS_INPUTS, OPTDIGITS_CLASSES,
+				1D / OPTDIGITS_MAX);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Reads comma separated samples, the inputs followed by the class
+	 * @param reader closed when done
+	 * @param numInputs
+	 * @param numClasses
+	 * @param scale factor applied to all inputs
+	 * @return the samples
+	 * @throws IOException
+	 */
+	public static Dataset readCsv(Reader reader, int numInputs, int numClasses,
+			double scale)
+		throws IOException
+	{
+		BufferedReader in = new BufferedReader(reader);
+		double[] inputs = new double[1024 * numInputs];
+		int[] labels = new int[1024];
+		int size = 0;
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty())
+					continue;
+				String[] parts = line.split(",");
+				if (parts.length != numInputs + 1)
+					throw new IOException("expected " + (numInputs + 1) + " values: " + line);
+				if (size == labels.length) {
+					labels = Arrays.copyOf(labels, 2 * size);
+					inputs = Arrays.copyOf(inputs, 2 * size * numInputs);
+				}
+				for (int i = 0; i < numInputs; i++)
+					inputs[size * numInputs + i] = scale * Double.parseDouble(parts[i].trim());
+				int label = Integer.parseInt(parts[numInputs].trim());
+				if (label < 0 || label >= numClasses)
+					throw new IOException("bad class: " + line);
+				labels[size++] = label;
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("not a number", e);
+		} finally {
+			in.close();
+		}
+		return new Dataset(Arrays.copyOf(inputs, size * numInputs),
+			Arrays.copyOf(labels, size), numInputs, numClasses);
+	}
+
+	/**
+	 * @return the inputs, one row per sample, not a copy
+	 */
+	public double[] getInputs()
+	{
+		return inputs;
+	}
+
+	/**
+	 * @return the classes, not a copy
+	 */
+	public int[] getLabels()
+	{
+		return labels;
+	}
+
+	public int getNumInputs()
+	{
+		return numInputs;
+	}
+
+	public int getNumClasses()
+	{
+		return numClasses;
+	}
+
+	/**
+	 * @return the number of samples
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+}
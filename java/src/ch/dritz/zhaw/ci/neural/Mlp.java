@@ -0,0 +1,182 @@
+package ch.dritz.zhaw.ci.neural;
+
+import java.util.Random;
+
+import ch.dritz.zhaw.ci.util.VectorOps;
+
+/**
+ * Multilayer perceptron with one tanh hidden layer and a softmax output,
+ * the weights read from a flat array so a whole population of networks can
+ * live in one array. Layout of the weights:
+ *
+ *   W1[numInputs][numHidden] b1[numHidden] W2[numHidden][numOutputs] b2[numOutputs]
+ *
+ * The forward pass works on a batch of samples at once: both layers are a
+ * matrix product of the batch with the weights, computed row by row as a
+ * sequence of axpy over contiguous rows of the weights. Zero inputs, most of
+ * the pixels of a digit, are skipped.
+ *
+ * The network itself holds no state, it can be shared between threads.
+ * @author D. Ritz
+ */
+public class Mlp
+{
+	private int numInputs;
+	private int numHidden;
+	private int numOutputs;
+
+	// offsets into the weights
+	private int b1;
+	private int w2;
+	private int b2;
+	private int numWeights;
+
+	/**
+	 * @param numInputs
+	 * @param numHidden
+	 * @param numOutputs
+	 */
+	public Mlp(int numInputs, int numHidden, int numOutputs)
+	{
+		if (numInputs < 1 || numHidden < 1 || numOutputs < 2)
+			throw new IllegalArgumentException("need inputs, hidden units and 2+ outputs");
+		this.numInputs = numInputs;
+		this.numHidden = numHidden;
+		this.numOutputs = numOutputs;
+
+		b1 = numInputs * numHidden;
+		w2 = b1 + numHidden;
+		b2 = w2 + numHidden * numOutputs;
+		numWeights = b2 + numOutputs;
+	}
+
+	/**
+	 * Initializes the weights uniformly scaled by the fan in and the biases
+	 * with zero
+	 * @param w
+	 * @param wOffset
+	 * @param rand
+	 */
+	public void initialize(double[] w, int wOffset, Random rand)
+	{
+		double s1 = 1D / Math.sqrt(numInputs);
+		double s2 = 1D / Math.sqrt(numHidden);
+		for (int i = 0; i < b1; i++)
+			w[wOffset + i] = s1 * (2D * rand.nextDouble() - 1D);
+		VectorOps.fill(w, wOffset + b1, numHidden, 0D);
+		for (int i = w2; i < b2; i++)
+			w[wOffset + i] = s2 * (2D * rand.nextDouble() - 1D);
+		VectorOps.fill(w, wOffset + b2, numOutputs, 0D);
+	}
+
+	/**
+	 * Computes the output activations, before the softmax, of a batch of
+	 * samples
+	 * @param w the weights
+	 * @param wOffset
+	 * @param x the inputs of all samples, one row per sample
+	 * @param rows the samples of the batch
+	 * @param numRows
+	 * @param hidden receives the hidden activations, numRows * numHidden
+	 * @param out receives the outputs, numRows * numOutputs
+	 */
+	public void forward(double[] w, int wOffset, double[] x, int[] rows,
+			int numRows, double[] hidden, double[] out)
+	{
+		// hidden = tanh(X W1 + b1)
+		for (int r = 0; r < numRows; r++) {
+			int xOff = rows[r] * numInputs;
+			int hOff = r * numHidden;
+			System.arraycopy(w, wOffset + b1, hidden, hOff, numHidden);
+			for (int k = 0; k < numInputs; k++) {
+				double a = x[xOff + k];
+				if (a != 0D)
+					VectorOps.axpy(a, w, wOffset + k * numHidden, hidden, hOff, numHidden);
+			}
+			for (int j = 0; j < numHidden; j++)
+				hidden[hOff + j] = Math.tanh(hidden[hOff + j]);
+		}
+
+		// out = hidden W2 + b2
+		int w2Off = wOffset + w2;
+		for (int r = 0; r < numRows; r++) {
+			int hOff = r * numHidden;
+			int oOff = r * numOutputs;
+			System.arraycopy(w, wOffset + b2, out, oOff, numOutputs);
+			for (int k = 0; k < numHidden; k++) {
+				VectorOps.axpy(hidden[hOff + k], w, w2Off + k * numOutputs, out,
+					oOff, numOutputs);
+			}
+		}
+	}
+
+	/**
+	 * Mean softmax cross entropy of a batch
+	 * @param out outputs of forward()
+	 * @param labels the classes of all samples
+	 * @param rows the samples of the batch
+	 * @param numRows
+	 * @return the mean loss
+	 */
+	public double crossEntropy(double[] out, int[] labels, int[] rows,
+			int numRows)
+	{
+		double sum = 0D;
+		for (int r = 0; r < numRows; r++) {
+			int oOff = r * numOutputs;
+			double max = VectorOps.max(out, oOff, numOutputs);
+			double z = 0D;
+			for (int j = 0; j < numOutputs; j++)
+				z += Math.exp(out[oOff + j] - max);
+			// -log softmax of the right class
+			sum += max + Math.log(z) - out[oOff + labels[rows[r]]];
+		}
+		return sum / numRows;
+	}
+
+	/**
+	 * @param out outputs of forward()
+	 * @param labels the classes of all samples
+	 * @param rows the samples of the batch
+	 * @param numRows
+	 * @return the number of samples classified correctly
+	 */
+	public int countCorrect(double[] out, int[] labels, int[] rows, int numRows)
+	{
+		int ret = 0;
+		for (int r = 0; r < numRows; r++) {
+			int oOff = r * numOutputs;
+			int best = 0;
+			for (int j = 1; j < numOutputs; j++) {
+				if (out[oOff + j] > out[oOff + best])
+					best = j;
+			}
+			if (best == labels[rows[r]])
+				ret++;
+		}
+		return ret;
+	}
+
+	public int getNumInputs()
+	{
+		return numInputs;
+	}
+
+	public int getNumHidden()
+	{
+		return numHidden;
+	}
+
+	public int getNumOutputs()
+	{
+		return numOutputs;
+	}
+
+	/**
+	 * @return the number of weights, including the biases
+	 */
+	public int getNumWeights()
+	{
+		return numWeights;
+	}
+}
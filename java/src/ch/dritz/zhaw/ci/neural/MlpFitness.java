@@ -0,0 +1,148 @@
+package ch.dritz.zhaw.ci.neural;
+
+import java.util.Random;
+
+import ch.dritz.zhaw.ci.fitness.FitnessFunction;
+import ch.dritz.zhaw.ci.util.IndexSort;
+
+/**
+ * Fitness of the weights of a network: the mean cross entropy on a mini
+ * batch of the training samples. All networks of a generation see the same
+ * mini batch, nextBatch() draws a new one between two generations. The
+ * whole training set is used if the mini batch is not smaller.
+ *
+ * Evaluations run concurrently, each thread with its own activations.
+ * @author D. Ritz
+ */
+public class MlpFitness
+	implements FitnessFunction
+{
+	private Mlp mlp;
+	private Dataset data;
+
+	// the current mini batch, a prefix of the permutation
+	private int[] perm;
+	private int batchSize;
+
+	private ThreadLocal<double[][]> activations;
+
+	/**
+	 * @param mlp the network, its inputs and outputs must match the data
+	 * @param data the training samples
+	 * @param batchSize samples per mini batch
+	 */
+	public MlpFitness(Mlp mlp, Dataset data, int batchSize)
+	{
+		if (mlp.getNumInputs() != data.getNumInputs() ||
+				mlp.getNumOutputs() != data.getNumClasses())
+			throw new IllegalArgumentException("network does not match the data");
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batch size must be positive");
+		this.mlp = mlp;
+		this.data = data;
+		this.batchSize = Math.min(batchSize, data.getSize());
+
+		perm = new int[data.getSize()];
+		IndexSort.identity(perm, perm.length);
+
+		final int hiddenSize = this.batchSize * mlp.getNumHidden();
+		final int outSize = this.batchSize * mlp.getNumOutputs();
+		activations = new ThreadLocal<double[][]>() {
+			@Override
+			protected double[][] initialValue()
+			{
+				return new double[][] {
+					new double[hiddenSize],
+					new double[outSize]
+				};
+			}
+		};
+	}
+
+	/**
+	 * Draws the next mini batch, without replacement. Must not be called
+	 * while a batch is evaluated.
+	 * @param rand
+	 */
+	public void nextBatch(Random rand)
+	{
+		if (batchSize == perm.length)
+			return;
+		for (int i = 0; i < batchSize; i++) {
+			int j = i + rand.nextInt(perm.length - i);
+			int tmp = perm[i];
+			perm[i] = perm[j];
+			perm[j] = tmp;
+		}
+	}
+
+	@Override
+	public int getDimension()
+	{
+		return mlp.getNumWeights();
+	}
+
+	@Override
+	public double fitness(double[] x, int offset)
+	{
+		double[][] act = activations.get();
+		mlp.forward(x, offset, data.getInputs(), perm, batchSize, act[0], act[1]);
+		return mlp.crossEntropy(act[1], data.getLabels(), perm, batchSize);
+	}
+
+	/**
+	 * @param w the weights
+	 * @param wOffset
+	 * @param set the samples
+	 * @return the mean cross entropy over all samples
+	 */
+	public double loss(double[] w, int wOffset, Dataset set)
+	{
+		double sum = 0D;
+		double[][] act = activations.get();
+		int[] rows = new int[batchSize];
+		for (int from = 0; from < set.getSize(); from += batchSize) {
+			int num = fill(rows, from, set.getSize());
+			mlp.forward(w, wOffset, set.getInputs(), rows, num, act[0], act[1]);
+			sum += num * mlp.crossEntropy(act[1], set.getLabels(), rows, num);
+		}
+		return sum / set.getSize();
+	}
+
+	/**
+	 * @param w the weights
+	 * @param wOffset
+	 * @param set the samples
+	 * @return the fraction of the samples classified correctly
+	 */
+	public double accuracy(double[] w, int wOffset, Dataset set)
+	{
+		int correct = 0;
+		double[][] act = activations.get();
+		int[] rows = new int[batchSize];
+		for (int from = 0; from < set.getSize(); from += batchSize) {
+			int num = fill(rows, from, set.getSize());
+			mlp.forward(w, wOffset, set.getInputs(), rows, num, act[0], act[1]);
+			correct += mlp.countCorrect(act[1], set.getLabels(), rows, num);
+		}
+		return (double) correct / set.getSize();
+	}
+
+	private int fill(int[] rows, int from, int size)
+	{
+		int num = Math.min(batchSize, size - from);
+		for (int i = 0; i < num; i++)
+			rows[i] = from + i;
+		return num;
+	}
+
+	public Mlp getMlp()
+	{
+		return mlp;
+	}
+
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+}
@@ -0,0 +1,110 @@
+package ch.dritz.zhaw.ci.neural.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.CmaEvolutionStrategy;
+import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.moo.Nsga2Selection;
+import ch.dritz.zhaw.ci.neural.Dataset;
+import ch.dritz.zhaw.ci.neural.Mlp;
+import ch.dritz.zhaw.ci.neural.MlpFitness;
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Evolves the weights of a 64-16-10 network classifying the optdigits
+ * digits, with the separable CMA-ES and with the evolution strategy, each
+ * generation on a new mini batch. Every network is evaluated on its own
+ * task of the common pool.
+ *
+ * With 1000 generations the separable CMA-ES reaches about 91% on the test
+ * samples. The self-adaptive evolution strategy selects its parents by
+ * truncation, the binary tournament is too weak on the noisy mini batches:
+ * its 1210 step sizes drift upwards and the accuracy falls to 15% to 30%.
+ * With truncation it reaches 85% to 91%.
+ *
+ * Arguments: the optdigits.zip archive (default ../slides/optdigits.zip,
+ * relative to the project directory), the number of generations (default
+ * 1000) and of hidden units (default 16)
+ * @author D. Ritz
+ */
+public class Neuroevolution
+{
+	private static final int BATCH_SIZE = 128;
+	private static final int REPORT_INTERVAL = 100;
+
+	public static void main(String[] args)
+		throws IOException
+	{
+		File zip = new File(args.length > 0 ? args[0] : "../slides/optdigits.zip");
+		int generations = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int numHidden = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+		Dataset train = Dataset.readOptdigits(zip, "optdigits.tra");
+		Dataset test = Dataset.readOptdigits(zip, "optdigits.tes");
+		Mlp mlp = new Mlp(train.getNumInputs(), numHidden, train.getNumClasses());
+		System.out.println(String.format("%d training, %d test samples, %d weights",
+			train.getSize(), test.getSize(), mlp.getNumWeights()));
+
+		Rng rand = Rng.stream("Neuroevolution");
+		double[] initial = new double[mlp.getNumWeights()];
+		mlp.initialize(initial, 0, rand);
+
+		System.out.println("============================ sep-CMA-ES ===============================");
+		MlpFitness fitness = new MlpFitness(mlp, train, BATCH_SIZE);
+		CmaEvolutionStrategy cma = new CmaEvolutionStrategy(evaluator(fitness),
+			initial, 0.1D, 32, true);
+		long start = System.nanoTime();
+		for (int g = 1; g <= generations; g++) {
+			fitness.nextBatch(rand);
+			cma.newGeneration();
+			if (g % REPORT_INTERVAL == 0 || g == generations)
+				report(g, cma.getEvaluations(), start, fitness, cma.getMean(), train, test);
+		}
+
+		System.out.println("============================ ES ===============================");
+		double[] lower = new double[mlp.getNumWeights()];
+		double[] upper = new double[mlp.getNumWeights()];
+		for (int i = 0; i < lower.length; i++) {
+			lower[i] = -1D;
+			upper[i] = 1D;
+		}
+		fitness = new MlpFitness(mlp, train, BATCH_SIZE);
+		// no parent survives, its fitness on an old mini batch is not comparable
+		EvolutionStrategy es = new EvolutionStrategy(8, 48, 1, 2,
+			evaluator(fitness), lower, upper, 0.02D, false,
+			ForkJoinPool.commonPool(), 1, rand.split());
+		// on the single objective the fronts are the ranks: truncation
+		es.setEnvironmentalSelection(new Nsga2Selection());
+		double[] best = new double[mlp.getNumWeights()];
+		start = System.nanoTime();
+		for (int g = 1; g <= generations; g++) {
+			fitness.nextBatch(rand);
+			es.newGeneration();
+			if (g % REPORT_INTERVAL == 0 || g == generations) {
+				es.getBest().getParams(best, 0);
+				report(g, es.getEvaluations(), start, fitness, best, train, test);
+			}
+		}
+	}
+
+	/**
+	 * @return an evaluator running every network on its own task
+	 */
+	private static BatchEvaluator evaluator(MlpFitness fitness)
+	{
+		return new BatchEvaluator(fitness, null, ForkJoinPool.commonPool(), 1);
+	}
+
+	private static void report(int generation, long evaluations, long start,
+			MlpFitness fitness, double[] w, Dataset train, Dataset test)
+	{
+		double seconds = (System.nanoTime() - start) / 1e9D;
+		System.out.println(String.format(
+			"generation %5d: train loss %.4f, train accuracy %.4f, test accuracy %.4f, %.0f evaluations/s",
+			generation, fitness.loss(w, 0, train), fitness.accuracy(w, 0, train),
+			fitness.accuracy(w, 0, test), evaluations / seconds));
+	}
+}
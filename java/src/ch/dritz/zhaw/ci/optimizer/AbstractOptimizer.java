@@ -0,0 +1,95 @@
+package ch.dritz.zhaw.ci.optimizer;
+
+/**
+ * Base of the engine adapters: keeps the name and the best solution so far
+ * and implements run() on top of step()
+ * @author D. Ritz
+ */
+public abstract class AbstractOptimizer
+	implements Optimizer
+{
+	// steps in a row without a single evaluation until run() gives up, e.g.
+	// a converged genetic algorithm only hitting its cache
+	public static final int MAX_IDLE_STEPS = 100;
+
+	private String name;
+	private int dimension;
+	private double[] best;
+	private double bestFitness = Double.POSITIVE_INFINITY;
+
+	/**
+	 * @param name
+	 * @param dimension number of entries of a solution
+	 */
+	protected AbstractOptimizer(String name, int dimension)
+	{
+		this.name = name;
+		this.dimension = dimension;
+		best = new double[dimension];
+	}
+
+	@Override
+	public long run(long budget)
+	{
+		long start = getEvaluations();
+		long end = start + budget;
+		int idle = 0;
+		while (!isFinished() && getEvaluations() < end && idle < MAX_IDLE_STEPS) {
+			long before = getEvaluations();
+			step();
+			idle = getEvaluations() == before ? idle + 1 : 0;
+		}
+		return getEvaluations() - start;
+	}
+
+	/**
+	 * Takes the given solution as the best one if it is better
+	 * @param x
+	 * @param xOffset
+	 * @param fitness
+	 */
+	protected void offer(double[] x, int xOffset, double fitness)
+	{
+		if (fitness < bestFitness) {
+			bestFitness = fitness;
+			System.arraycopy(x, xOffset, best, 0, dimension);
+		}
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public int getDimension()
+	{
+		return dimension;
+	}
+
+	@Override
+	public double getBestFitness()
+	{
+		return bestFitness;
+	}
+
+	@Override
+	public void getBest(double[] x)
+	{
+		System.arraycopy(best, 0, x, 0, dimension);
+	}
+
+	@Override
+	public boolean isFinished()
+	{
+		return false;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%s: %.3f after %d evaluations", name,
+			bestFitness, getEvaluations());
+	}
+}
@@ -0,0 +1,98 @@
+package ch.dritz.zhaw.ci.optimizer;
+
+import java.util.Random;
+
+import ch.dritz.zhaw.ci.tsp.Annealing;
+import ch.dritz.zhaw.ci.tsp.Path;
+
+/**
+ * Runs simulated annealing on a traveling salesman path as optimizer, one
+ * temperature level per step. Once frozen, the annealing is heated up again
+ * starting from the best path, so it never finishes. Solutions are the town
+ * indices in the order of the path.
+ * @author D. Ritz
+ */
+public class AnnealingOptimizer
+	extends AbstractOptimizer
+{
+	private Annealing annealing;
+	private Path template;
+	private double[] x;
+
+	/**
+	 * Creates the annealing with its own stream split from the shared one
+	 * @param name
+	 * @param initial the path to start from
+	 * @param startTemperature
+	 * @param endTemperature
+	 * @param cooling
+	 * @param iterations moves per temperature level
+	 */
+	public AnnealingOptimizer(String name, Path initial, double startTemperature,
+			double endTemperature, double cooling, int iterations)
+	{
+		this(name, initial, startTemperature, endTemperature, cooling,
+			iterations, Annealing.rand.split());
+	}
+
+	/**
+	 * Creates the annealing drawing from the given stream
+	 * @param name
+	 * @param initial the path to start from
+	 * @param startTemperature
+	 * @param endTemperature
+	 * @param cooling
+	 * @param iterations moves per temperature level
+	 * @param rng
+	 */
+	public AnnealingOptimizer(String name, Path initial, double startTemperature,
+			double endTemperature, double cooling, int iterations, Random rng)
+	{
+		super(name, initial.getSize());
+		template = initial;
+		x = new double[initial.getSize()];
+		annealing = new Annealing(initial, rng);
+		annealing.setSchedule(startTemperature, endTemperature, cooling,
+			iterations);
+		offerBest();
+	}
+
+	@Override
+	public void step()
+	{
+		if (annealing.isFrozen())
+			annealing.reheat();
+		annealing.step();
+		offerBest();
+	}
+
+	private void offerBest()
+	{
+		Path best = annealing.getBest();
+		if (best.measure() < getBestFitness()) {
+			for (int i = 0; i < x.length; i++)
+				x[i] = best.getTownAtPosition(i);
+			offer(x, 0, best.measure());
+		}
+	}
+
+	@Override
+	public void inject(double[] x)
+	{
+		Path path = template.clone();
+		for (int i = 0; i < x.length; i++)
+			path.setTownAtPosition(i, (int) x[i]);
+		annealing.inject(path);
+	}
+
+	@Override
+	public long getEvaluations()
+	{
+		return annealing.getEvaluations();
+	}
+
+	public Annealing getAnnealing()
+	{
+		return annealing;
+	}
+}
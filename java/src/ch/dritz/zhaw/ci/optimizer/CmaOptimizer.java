@@ -0,0 +1,61 @@
+package ch.dritz.zhaw.ci.optimizer;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.CmaEvolutionStrategy;
+
+/**
+ * Runs a CMA-ES as optimizer, one generation per step. The strategy has no
+ * population to put an injected solution into, and moving the mean would
+ * break its step size adaptation, so injected solutions are ignored.
+ * @author D. Ritz
+ */
+public class CmaOptimizer
+	extends AbstractOptimizer
+{
+	// the distribution has collapsed below this step size
+	public static final double MIN_SIGMA = 1e-12D;
+
+	private CmaEvolutionStrategy cma;
+
+	/**
+	 * Wraps the given strategy. If it still draws from the shared stream, it
+	 * gets its own split from it.
+	 * @param name
+	 * @param cma
+	 */
+	public CmaOptimizer(String name, CmaEvolutionStrategy cma)
+	{
+		super(name, cma.getDimension());
+		this.cma = cma;
+		if (cma.getRandom() == CmaEvolutionStrategy.rand)
+			cma.setRandom(CmaEvolutionStrategy.rand.split());
+	}
+
+	@Override
+	public void step()
+	{
+		cma.newGeneration();
+		offer(cma.getBest(), 0, cma.getBestFitness());
+	}
+
+	@Override
+	public void inject(double[] x)
+	{
+	}
+
+	@Override
+	public boolean isFinished()
+	{
+		return cma.getSigma() < MIN_SIGMA;
+	}
+
+	@Override
+	public long getEvaluations()
+	{
+		return cma.getEvaluations();
+	}
+
+	public CmaEvolutionStrategy getStrategy()
+	{
+		return cma;
+	}
+}
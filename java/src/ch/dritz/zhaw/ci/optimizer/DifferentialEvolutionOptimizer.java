@@ -0,0 +1,62 @@
+package ch.dritz.zhaw.ci.optimizer;
+
+import ch.dritz.zhaw.ci.differentialevolution.DifferentialEvolution;
+
+/**
+ * Runs differential evolution as optimizer, one generation per step.
+ * Injected solutions replace the worst individual.
+ * @author D. Ritz
+ */
+public class DifferentialEvolutionOptimizer
+	extends AbstractOptimizer
+{
+	// the population has collapsed below this spread
+	public static final double MIN_DIVERSITY = 1e-12D;
+
+	private DifferentialEvolution de;
+
+	/**
+	 * Wraps the given differential evolution. If it still draws from the
+	 * shared stream, it gets its own split from it.
+	 * @param name
+	 * @param de
+	 */
+	public DifferentialEvolutionOptimizer(String name, DifferentialEvolution de)
+	{
+		super(name, de.getDimension());
+		this.de = de;
+		if (de.getRandom() == DifferentialEvolution.rand)
+			de.setRandom(DifferentialEvolution.rand.split());
+		offer(de.getBest(), 0, de.getBestFitness());
+	}
+
+	@Override
+	public void step()
+	{
+		de.newGeneration();
+		offer(de.getBest(), 0, de.getBestFitness());
+	}
+
+	@Override
+	public void inject(double[] x)
+	{
+		de.immigrate(x, 0);
+	}
+
+	@Override
+	public boolean isFinished()
+	{
+		return de.getDiversity() < MIN_DIVERSITY;
+	}
+
+	@Override
+	public long getEvaluations()
+	{
+		return de.getEvaluations();
+	}
+
+	public DifferentialEvolution getEngine()
+	{
+		return de;
+	}
+}
@@ -0,0 +1,65 @@
+package ch.dritz.zhaw.ci.optimizer;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
+import ch.dritz.zhaw.ci.evolutionstrategy.Individual;
+
+/**
+ * Runs an evolution strategy as optimizer, one generation per step.
+ * Injected solutions replace the worst individual.
+ * @author D. Ritz
+ */
+public class EvolutionStrategyOptimizer
+	extends AbstractOptimizer
+{
+	private EvolutionStrategy es;
+	private double[] x;
+
+	/**
+	 * Wraps the given evolution strategy. If it still draws from the shared
+	 * stream, it gets its own split from it.
+	 * @param name
+	 * @param es
+	 */
+	public EvolutionStrategyOptimizer(String name, EvolutionStrategy es)
+	{
+		super(name, es.getDimension());
+		this.es = es;
+		x = new double[es.getDimension()];
+		if (es.getRandom() == EvolutionStrategy.rand)
+			es.setRandom(EvolutionStrategy.rand.split());
+		offerBest();
+	}
+
+	@Override
+	public void step()
+	{
+		es.newGeneration();
+		offerBest();
+	}
+
+	private void offerBest()
+	{
+		Individual best = es.getBest();
+		if (best.isFitnessOk() && best.getFitness() < getBestFitness()) {
+			best.getParams(x, 0);
+			offer(x, 0, best.getFitness());
+		}
+	}
+
+	@Override
+	public void inject(double[] x)
+	{
+		es.immigrate(x, 0);
+	}
+
+	@Override
+	public long getEvaluations()
+	{
+		return es.getEvaluations();
+	}
+
+	public EvolutionStrategy getStrategy()
+	{
+		return es;
+	}
+}
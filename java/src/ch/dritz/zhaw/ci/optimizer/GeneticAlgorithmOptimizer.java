@@ -0,0 +1,78 @@
+package ch.dritz.zhaw.ci.optimizer;
+
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.geneticalg.Population;
+
+/**
+ * Runs a genetic algorithm as optimizer, one round per step. Solutions are
+ * the decoded (d, h), injected solutions are rounded onto the grid of the
+ * genome.
+ * @author D. Ritz
+ */
+public class GeneticAlgorithmOptimizer
+	extends AbstractOptimizer
+{
+	private GeneticAlgorithm ga;
+	private double mutationProb;
+	private int recombinePairs;
+
+	private double[] x = new double[2];
+	private int[] genome = new int[1];
+
+	/**
+	 * Wraps the given genetic algorithm. If it still draws from the shared
+	 * stream, it gets its own split from it.
+	 * @param name
+	 * @param ga
+	 * @param mutationProb mutation probability of each round
+	 * @param recombinePairs number of pairs recombined each round
+	 */
+	public GeneticAlgorithmOptimizer(String name, GeneticAlgorithm ga,
+			double mutationProb, int recombinePairs)
+	{
+		super(name, 2);
+		this.ga = ga;
+		this.mutationProb = mutationProb;
+		this.recombinePairs = recombinePairs;
+		if (ga.getRandom() == GeneticAlgorithm.rand)
+			ga.setRandom(GeneticAlgorithm.rand.split());
+	}
+
+	@Override
+	public void step()
+	{
+		ga.round(mutationProb, recombinePairs);
+
+		Population pop = ga.getPopulation();
+		for (int i = 0; i < pop.getSize(); i++) {
+			if (!pop.isOk(i) || pop.getFitness(i) >= getBestFitness())
+				continue;
+			x[0] = GeneticAlgorithm.decodeD(pop.getGenome(i));
+			x[1] = GeneticAlgorithm.decodeH(pop.getGenome(i));
+			offer(x, 0, pop.getFitness(i));
+		}
+	}
+
+	@Override
+	public void inject(double[] x)
+	{
+		genome[0] = GeneticAlgorithm.encode(toGrid(x[0]), toGrid(x[1]));
+		ga.immigrate(genome, 1);
+	}
+
+	private static int toGrid(double v)
+	{
+		return (int) Math.max(0L, Math.min(GeneticAlgorithm.MASK, Math.round(v)));
+	}
+
+	@Override
+	public long getEvaluations()
+	{
+		return ga.getEvaluations();
+	}
+
+	public GeneticAlgorithm getGeneticAlgorithm()
+	{
+		return ga;
+	}
+}
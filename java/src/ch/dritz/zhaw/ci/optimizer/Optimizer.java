@@ -0,0 +1,66 @@
+package ch.dritz.zhaw.ci.optimizer;
+
+/**
+ * Common view on the engines minimizing a problem: stepwise execution,
+ * evaluation counting and exchange of the best solution. A solution is a
+ * double vector of getDimension() entries, whatever the representation of
+ * the engine (bits, reals, town order) is.
+ *
+ * An optimizer is used by one thread at a time, but several optimizers run
+ * concurrently, so each owns its random stream.
+ * @author D. Ritz
+ */
+public interface Optimizer
+{
+	/**
+	 * @return name of the engine and configuration, for logging
+	 */
+	String getName();
+
+	/**
+	 * @return the number of entries of a solution
+	 */
+	int getDimension();
+
+	/**
+	 * Runs one step of the engine, e.g. a generation or a temperature level
+	 */
+	void step();
+
+	/**
+	 * Runs steps until the given number of further evaluations is used up,
+	 * the engine is finished or no longer evaluates anything
+	 * @param budget number of evaluations
+	 * @return the number of evaluations actually used, may exceed the budget
+	 * by up to one step
+	 */
+	long run(long budget);
+
+	/**
+	 * @return the number of fitness evaluations so far
+	 */
+	long getEvaluations();
+
+	/**
+	 * @return the fitness of the best valid solution so far, infinity if none
+	 */
+	double getBestFitness();
+
+	/**
+	 * Copies the best valid solution so far
+	 * @param x receives getDimension() entries
+	 */
+	void getBest(double[] x);
+
+	/**
+	 * Hands a good solution found elsewhere to the engine. Engines without a
+	 * population may ignore it.
+	 * @param x
+	 */
+	void inject(double[] x);
+
+	/**
+	 * @return true if further steps would not make any progress
+	 */
+	boolean isFinished();
+}
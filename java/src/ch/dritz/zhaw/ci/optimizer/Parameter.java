@@ -0,0 +1,88 @@
+package ch.dritz.zhaw.ci.optimizer;
+
+import java.util.Random;
+
+/**
+ * A tunable parameter with its range, e.g. a mutation probability or a
+ * population size
+ * @author D. Ritz
+ */
+public class Parameter
+{
+	private String name;
+	private double lower;
+	private double upper;
+	private boolean integer;
+	private boolean logScale;
+
+	/**
+	 * @param name
+	 * @param lower smallest value
+	 * @param upper largest value
+	 * @param integer whether only integer values are allowed
+	 * @param logScale sample uniformly on a log scale, e.g. for probabilities
+	 * spanning several orders of magnitude. Needs a positive range.
+	 */
+	public Parameter(String name, double lower, double upper, boolean integer,
+			boolean logScale)
+	{
+		if (lower > upper)
+			throw new IllegalArgumentException("lower > upper");
+		if (logScale && lower <= 0D)
+			throw new IllegalArgumentException("log scale needs a positive range");
+		this.name = name;
+		this.lower = lower;
+		this.upper = upper;
+		this.integer = integer;
+		this.logScale = logScale;
+	}
+
+	/**
+	 * @param rand
+	 * @return a random value in the range
+	 */
+	public double sample(Random rand)
+	{
+		double ret;
+		if (logScale) {
+			double l = Math.log(lower);
+			ret = Math.exp(l + rand.nextDouble() * (Math.log(upper) - l));
+		} else {
+			ret = lower + rand.nextDouble() * (upper - lower);
+		}
+		if (integer)
+			ret = Math.round(ret);
+		return Math.min(upper, Math.max(lower, ret));
+	}
+
+	/**
+	 * @param value
+	 * @return the value formatted as name=value
+	 */
+	public String format(double value)
+	{
+		if (integer)
+			return String.format("%s=%d", name, (long) value);
+		return String.format("%s=%.4g", name, value);
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public double getLower()
+	{
+		return lower;
+	}
+
+	public double getUpper()
+	{
+		return upper;
+	}
+
+	public boolean isInteger()
+	{
+		return integer;
+	}
+}
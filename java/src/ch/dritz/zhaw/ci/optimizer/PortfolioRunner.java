@@ -0,0 +1,233 @@
+package ch.dritz.zhaw.ci.optimizer;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a portfolio of optimizers on the same problem using successive
+ * halving: the budget is split into ceil(log2(n)) rounds of equal size. In
+ * each round all remaining optimizers run concurrently on the pool, each with
+ * an equal share of the round budget. Afterwards the worse half is dropped
+ * and the best solution found by any optimizer (the incumbent) is injected
+ * into the survivors. Whatever budget is left at the end goes to the winner.
+ * @author D. Ritz
+ */
+public class PortfolioRunner
+{
+	private ForkJoinPool pool;
+	private List<Arm> arms = new ArrayList<Arm>();
+	private int dimension = -1;
+
+	private double[] incumbent;
+	private double incumbentFitness = Double.POSITIVE_INFINITY;
+	private Optimizer winner;
+	private long evaluations;
+
+	private PrintStream log;
+
+	/**
+	 * @param pool the pool running the optimizers, null to run them one
+	 * after the other
+	 */
+	public PortfolioRunner(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+
+	/**
+	 * Adds an optimizer, all must solve the same problem
+	 * @param optimizer
+	 */
+	public void add(Optimizer optimizer)
+	{
+		if (dimension < 0) {
+			dimension = optimizer.getDimension();
+			incumbent = new double[dimension];
+		} else if (optimizer.getDimension() != dimension) {
+			throw new IllegalArgumentException("all optimizers need dimension " + dimension);
+		}
+		arms.add(new Arm(optimizer));
+	}
+
+	/**
+	 * Sets where the eliminations are logged to
+	 * @param log the stream, null for no logging
+	 */
+	public void setLog(PrintStream log)
+	{
+		this.log = log;
+	}
+
+	/**
+	 * Runs the portfolio
+	 * @param budget total number of evaluations of all optimizers
+	 * @return the winning optimizer
+	 */
+	public Optimizer run(long budget)
+	{
+		if (arms.isEmpty())
+			throw new IllegalStateException("no optimizers added");
+
+		List<Arm> alive = new ArrayList<Arm>(arms);
+		int rounds = 1;
+		while ((1 << rounds) < alive.size())
+			rounds++;
+		long roundBudget = budget / rounds;
+
+		for (int round = 0; round < rounds && alive.size() > 1; round++) {
+			runAll(alive, roundBudget / alive.size());
+			updateIncumbent(alive);
+
+			Collections.sort(alive, Arm.BY_FITNESS);
+			int keep = (alive.size() + 1) / 2;
+			if (log != null) {
+				log.println(String.format("round %d, incumbent %.3f", round,
+					incumbentFitness));
+				for (int i = 0; i < alive.size(); i++)
+					log.println((i < keep ? "  keep " : "  drop ") + alive.get(i));
+			}
+			alive.subList(keep, alive.size()).clear();
+
+			for (Arm arm : alive) {
+				if (arm.optimizer.getBestFitness() > incumbentFitness)
+					arm.optimizer.inject(incumbent);
+			}
+		}
+
+		// the winner gets the rest
+		Arm last = alive.get(0);
+		if (budget > evaluations)
+			runAll(alive.subList(0, 1), budget - evaluations);
+		updateIncumbent(alive);
+		winner = last.optimizer;
+		if (log != null)
+			log.println("winner " + last);
+		return winner;
+	}
+
+	/**
+	 * Runs the given arms concurrently, each with the same budget
+	 * @param alive
+	 * @param budget
+	 */
+	private void runAll(List<Arm> alive, long budget)
+	{
+		for (Arm arm : alive) {
+			arm.budget = budget;
+			arm.reinitialize();
+		}
+		if (pool == null || alive.size() == 1) {
+			for (Arm arm : alive)
+				arm.invoke();
+		} else {
+			final List<Arm> tasks = alive;
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute()
+				{
+					invokeAll(tasks);
+				}
+			});
+		}
+		for (Arm arm : alive) {
+			evaluations += arm.used;
+			arm.improvement = arm.startFitness - arm.optimizer.getBestFitness();
+		}
+	}
+
+	private void updateIncumbent(List<Arm> alive)
+	{
+		for (Arm arm : alive) {
+			if (arm.optimizer.getBestFitness() < incumbentFitness) {
+				incumbentFitness = arm.optimizer.getBestFitness();
+				arm.optimizer.getBest(incumbent);
+			}
+		}
+	}
+
+	/**
+	 * @return the best solution of all optimizers, not a copy
+	 */
+	public double[] getBest()
+	{
+		return incumbent;
+	}
+
+	public double getBestFitness()
+	{
+		return incumbentFitness;
+	}
+
+	/**
+	 * @return the last remaining optimizer, null if not run yet
+	 */
+	public Optimizer getWinner()
+	{
+		return winner;
+	}
+
+	/**
+	 * @return the number of evaluations of all optimizers
+	 */
+	public long getEvaluations()
+	{
+		return evaluations;
+	}
+
+	/**
+	 * One optimizer of the portfolio, run as task for one round
+	 */
+	private static class Arm
+		extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		/*
+		 * After the incumbent was injected, several optimizers may hold the
+		 * same best solution. The one improving the most in the round ranks
+		 * first among equals.
+		 */
+		static final Comparator<Arm> BY_FITNESS = new Comparator<Arm>() {
+			@Override
+			public int compare(Arm a1, Arm a2)
+			{
+				int ret = Double.compare(a1.optimizer.getBestFitness(),
+					a2.optimizer.getBestFitness());
+				if (ret == 0)
+					ret = Double.compare(a2.improvement, a1.improvement);
+				return ret;
+			}
+		};
+
+		private Optimizer optimizer;
+		private long budget;
+		private long used;
+		private double startFitness;
+		private double improvement;
+
+		public Arm(Optimizer optimizer)
+		{
+			this.optimizer = optimizer;
+		}
+
+		@Override
+		protected void compute()
+		{
+			startFitness = optimizer.getBestFitness();
+			used = optimizer.run(budget);
+		}
+
+		@Override
+		public String toString()
+		{
+			return optimizer.toString();
+		}
+	}
+}
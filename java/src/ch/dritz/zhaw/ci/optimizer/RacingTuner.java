@@ -0,0 +1,426 @@
+package ch.dritz.zhaw.ci.optimizer;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ch.dritz.zhaw.ci.util.Rng;
+import ch.dritz.zhaw.ci.util.Statistics;
+
+/**
+ * Tunes the parameters of an optimizer by racing (F-race): all candidate
+ * configurations are run on the same seeds, one block of runs per seed. The
+ * runs of a block are ranked and, after a minimal number of blocks, the
+ * Friedman test decides whether the candidates differ at all. If they do,
+ * every candidate whose rank sum is significantly worse than the one of the
+ * best candidate (Conover's post-hoc test) is dropped. The race ends with a
+ * single candidate or after the maximal number of blocks.
+ *
+ * The runs of the alive candidates are run in parallel on the pool, the
+ * first blocks all at once. Each run gets its own stream seeded by the
+ * block, so all candidates see the same random numbers on a seed.
+ * @author D. Ritz
+ */
+public class RacingTuner
+{
+	public static final int DEFAULT_MIN_BLOCKS = 5;
+	public static final int DEFAULT_MAX_BLOCKS = 50;
+	public static final double DEFAULT_ALPHA = 0.05D;
+
+	public static Rng rand = Rng.stream("RacingTuner");
+
+	// stream of this instance, the shared one unless set
+	private Rng rng = rand;
+
+	/**
+	 * Creates the optimizer of a configuration
+	 */
+	public interface Factory
+	{
+		/**
+		 * @param values one value per parameter
+		 * @param rng the stream the optimizer must draw all its random numbers
+		 * from, owned by the optimizer
+		 * @return the optimizer
+		 */
+		Optimizer create(double[] values, Rng rng);
+	}
+
+	private Factory factory;
+	private Parameter[] parameters;
+	private long budget;
+	private ForkJoinPool pool;
+
+	private int minBlocks = DEFAULT_MIN_BLOCKS;
+	private int maxBlocks = DEFAULT_MAX_BLOCKS;
+	private double alpha = DEFAULT_ALPHA;
+
+	private List<Candidate> candidates = new ArrayList<Candidate>();
+	private long[] seeds;
+	private int blocks;
+	private long runs;
+	private Candidate winner;
+
+	private PrintStream log;
+
+	/**
+	 * @param factory creates the optimizers
+	 * @param parameters the parameters to tune
+	 * @param budget evaluations of each run
+	 * @param pool the pool running the runs, null to run them one after the
+	 * other
+	 */
+	public RacingTuner(Factory factory, Parameter[] parameters, long budget,
+			ForkJoinPool pool)
+	{
+		if (budget < 1)
+			throw new IllegalArgumentException("budget must be positive");
+		this.factory = factory;
+		this.parameters = parameters.clone();
+		this.budget = budget;
+		this.pool = pool;
+	}
+
+	/**
+	 * Sets when the tests start and when the race ends
+	 * @param minBlocks blocks before the first test, at least 2
+	 * @param maxBlocks blocks at most
+	 * @param alpha significance level of the tests
+	 */
+	public void setLimits(int minBlocks, int maxBlocks, double alpha)
+	{
+		if (minBlocks < 2 || maxBlocks < minBlocks)
+			throw new IllegalArgumentException("need 2 <= minBlocks <= maxBlocks");
+		if (alpha <= 0D || alpha >= 1D)
+			throw new IllegalArgumentException("alpha must be in (0, 1)");
+		this.minBlocks = minBlocks;
+		this.maxBlocks = maxBlocks;
+		this.alpha = alpha;
+	}
+
+	/**
+	 * Adds a candidate with the given values, e.g. a known configuration
+	 * @param values one value per parameter
+	 */
+	public void addCandidate(double... values)
+	{
+		if (values.length != parameters.length)
+			throw new IllegalArgumentException("need " + parameters.length + " values");
+		candidates.add(new Candidate(values.clone()));
+	}
+
+	/**
+	 * Adds num candidates with random values from the parameter ranges
+	 * @param num
+	 * @param rand
+	 */
+	public void sample(int num, Random rand)
+	{
+		for (int i = 0; i < num; i++) {
+			double[] values = new double[parameters.length];
+			for (int j = 0; j < parameters.length; j++)
+				values[j] = parameters[j].sample(rand);
+			candidates.add(new Candidate(values));
+		}
+	}
+
+	/**
+	 * Sets where the eliminations are logged to
+	 * @param log the stream, null for no logging
+	 */
+	public void setLog(PrintStream log)
+	{
+		this.log = log;
+	}
+
+	/**
+	 * Sets the stream the seeds of the blocks are drawn from
+	 * @param rng
+	 */
+	public void setRandom(Rng rng)
+	{
+		this.rng = rng;
+	}
+
+	public Rng getRandom()
+	{
+		return rng;
+	}
+
+	/**
+	 * Runs the race
+	 * @return the winning candidate
+	 */
+	public Candidate race()
+	{
+		if (candidates.isEmpty())
+			throw new IllegalStateException("no candidates");
+
+		seeds = new long[maxBlocks];
+		for (int i = 0; i < maxBlocks; i++)
+			seeds[i] = rng.nextLong();
+		for (Candidate c : candidates)
+			c.results = new double[maxBlocks];
+
+		List<Candidate> alive = new ArrayList<Candidate>(candidates);
+		blocks = 0;
+		runs = 0;
+		while (blocks < maxBlocks && alive.size() > 1) {
+			int next = blocks == 0 ? minBlocks : blocks + 1;
+			runBlocks(alive, blocks, next);
+			blocks = next;
+			eliminate(alive);
+		}
+		if (blocks == 0) {
+			// a single candidate, no race needed
+			runBlocks(alive, 0, 1);
+			blocks = 1;
+		}
+
+		rankSums(alive);
+		winner = alive.get(0);
+		for (Candidate c : alive) {
+			if (c.rankSum < winner.rankSum ||
+					(c.rankSum == winner.rankSum && c.getMean() < winner.getMean()))
+				winner = c;
+		}
+		if (log != null) {
+			log.println(String.format("winner after %d blocks and %d runs (without racing: %d): %s",
+				blocks, runs, (long) candidates.size() * blocks, winner));
+		}
+		return winner;
+	}
+
+	/**
+	 * Runs the blocks from..to-1 of all alive candidates
+	 * @param alive
+	 * @param from
+	 * @param to
+	 */
+	private void runBlocks(List<Candidate> alive, int from, int to)
+	{
+		final List<Run> tasks = new ArrayList<Run>();
+		for (Candidate c : alive) {
+			for (int b = from; b < to; b++)
+				tasks.add(new Run(c, b));
+		}
+		if (pool == null) {
+			for (Run run : tasks)
+				run.invoke();
+		} else {
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute()
+				{
+					invokeAll(tasks);
+				}
+			});
+		}
+		runs += tasks.size();
+	}
+
+	/**
+	 * Computes the rank sums of the alive candidates over all blocks so far
+	 * @param alive
+	 * @return sum of the squared ranks, A of the Friedman test
+	 */
+	private double rankSums(List<Candidate> alive)
+	{
+		int k = alive.size();
+		double[] values = new double[k];
+		double[] ranks = new double[k];
+		int[] idx = new int[k];
+		double sumSq = 0D;
+		for (Candidate c : alive)
+			c.rankSum = 0D;
+		for (int b = 0; b < blocks; b++) {
+			for (int j = 0; j < k; j++)
+				values[j] = alive.get(j).results[b];
+			Statistics.rank(values, k, ranks, idx);
+			for (int j = 0; j < k; j++) {
+				alive.get(j).rankSum += ranks[j];
+				sumSq += ranks[j] * ranks[j];
+			}
+		}
+		return sumSq;
+	}
+
+	/**
+	 * Friedman test over all blocks so far and, if significant, drops the
+	 * candidates significantly worse than the best one
+	 * @param alive
+	 */
+	private void eliminate(List<Candidate> alive)
+	{
+		int k = alive.size();
+		int b = blocks;
+		double a = rankSums(alive);
+		double c = b * k * (k + 1D) * (k + 1D) / 4D;
+		if (a - c <= 0D)
+			return; // all tied in every block
+
+		double expected = b * (k + 1D) / 2D;
+		double sumSq = 0D;
+		double dev = 0D;
+		Candidate best = alive.get(0);
+		for (Candidate cand : alive) {
+			sumSq += cand.rankSum * cand.rankSum;
+			dev += (cand.rankSum - expected) * (cand.rankSum - expected);
+			if (cand.rankSum < best.rankSum)
+				best = cand;
+		}
+		double t = (k - 1D) * dev / (a - c);
+		double p = 1D - Statistics.chiSquareCdf(t, k - 1);
+		if (p >= alpha)
+			return;
+
+		int df = (b - 1) * (k - 1);
+		double critical = Statistics.studentTQuantile(1D - alpha / 2D, df) *
+			Math.sqrt(2D * (b * a - sumSq) / df);
+		List<Candidate> dropped = new ArrayList<Candidate>();
+		for (Candidate cand : alive) {
+			if (cand.rankSum - best.rankSum > critical) {
+				cand.eliminated = b;
+				dropped.add(cand);
+			}
+		}
+		alive.removeAll(dropped);
+
+		if (log != null && !dropped.isEmpty()) {
+			log.println(String.format("block %d, p = %.2g, %d alive, best: %s", b, p,
+				alive.size(), best));
+			for (Candidate cand : dropped)
+				log.println("  drop " + cand);
+		}
+	}
+
+	/**
+	 * @return all candidates, including the dropped ones
+	 */
+	public List<Candidate> getCandidates()
+	{
+		return candidates;
+	}
+
+	/**
+	 * @return the winner of the last race, null if none
+	 */
+	public Candidate getWinner()
+	{
+		return winner;
+	}
+
+	/**
+	 * @return the number of runs of the last race
+	 */
+	public long getRuns()
+	{
+		return runs;
+	}
+
+	/**
+	 * @return the number of blocks of the last race
+	 */
+	public int getBlocks()
+	{
+		return blocks;
+	}
+
+	/**
+	 * One configuration in the race
+	 */
+	public class Candidate
+	{
+		private double[] values;
+		private double[] results;
+		private double rankSum;
+		private int eliminated = -1;
+
+		private Candidate(double[] values)
+		{
+			this.values = values;
+		}
+
+		/**
+		 * @return the parameter values, not a copy
+		 */
+		public double[] getValues()
+		{
+			return values;
+		}
+
+		/**
+		 * @param block
+		 * @return the best fitness of the run on the given block
+		 */
+		public double getResult(int block)
+		{
+			return results[block];
+		}
+
+		/**
+		 * @return the mean best fitness over the blocks run
+		 */
+		public double getMean()
+		{
+			int n = eliminated < 0 ? blocks : eliminated;
+			double sum = 0D;
+			for (int i = 0; i < n; i++)
+				sum += results[i];
+			return sum / n;
+		}
+
+		/**
+		 * @return the block it was dropped after, -1 if still alive
+		 */
+		public int getEliminated()
+		{
+			return eliminated;
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < parameters.length; i++) {
+				if (i > 0)
+					sb.append(", ");
+				sb.append(parameters[i].format(values[i]));
+			}
+			sb.append(String.format(" (mean %.3f)", getMean()));
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * One run of a candidate on the seed of a block
+	 */
+	private class Run
+		extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private Candidate candidate;
+		private int block;
+
+		public Run(Candidate candidate, int block)
+		{
+			this.candidate = candidate;
+			this.block = block;
+		}
+
+		@Override
+		protected void compute()
+		{
+			Optimizer optimizer = factory.create(candidate.values,
+				new Rng(seeds[block]));
+			optimizer.run(budget);
+			candidate.results[block] = optimizer.getBestFitness();
+		}
+	}
+}
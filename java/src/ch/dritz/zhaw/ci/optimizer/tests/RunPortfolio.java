@@ -0,0 +1,72 @@
+package ch.dritz.zhaw.ci.optimizer.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.CmaEvolutionStrategy;
+import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.geneticalg.TournamentSelection;
+import ch.dritz.zhaw.ci.optimizer.AnnealingOptimizer;
+import ch.dritz.zhaw.ci.optimizer.CmaOptimizer;
+import ch.dritz.zhaw.ci.optimizer.EvolutionStrategyOptimizer;
+import ch.dritz.zhaw.ci.optimizer.GeneticAlgorithmOptimizer;
+import ch.dritz.zhaw.ci.optimizer.PortfolioRunner;
+import ch.dritz.zhaw.ci.tsp.TravelingSalesman;
+
+/**
+ * Races genetic algorithms, evolution strategies and CMA-ES on the cylinder
+ * problem, and simulated annealing with different cooling on the TSP given
+ * as first argument
+ * @author D. Ritz
+ */
+public class RunPortfolio
+{
+	public static void main(String[] args)
+		throws IOException
+	{
+		ForkJoinPool pool = new ForkJoinPool();
+
+		System.out.println("============================ Cylinder ===============================");
+		PortfolioRunner cylinder = new PortfolioRunner(pool);
+		cylinder.setLog(System.out);
+
+		cylinder.add(new GeneticAlgorithmOptimizer("ga p10",
+			new GeneticAlgorithm(GeneticAlgorithm.NUM), 0.1D, 0));
+		cylinder.add(new GeneticAlgorithmOptimizer("ga p1 recomb",
+			new GeneticAlgorithm(GeneticAlgorithm.NUM), 0.01D, 10));
+		GeneticAlgorithm tournament = new GeneticAlgorithm(GeneticAlgorithm.NUM);
+		tournament.setSelection(new TournamentSelection(2));
+		cylinder.add(new GeneticAlgorithmOptimizer("ga tournament", tournament,
+			0.05D, 5));
+		cylinder.add(new EvolutionStrategyOptimizer("es 15/100",
+			new EvolutionStrategy(15, 100, 5, 2)));
+		cylinder.add(new EvolutionStrategyOptimizer("es 30/200",
+			new EvolutionStrategy(30, 200, 10, 3)));
+		cylinder.add(new CmaOptimizer("cma", new CmaEvolutionStrategy(0, false)));
+		cylinder.add(new CmaOptimizer("sep-cma", new CmaEvolutionStrategy(0, true)));
+
+		cylinder.run(20000);
+		System.out.println(String.format("best d: %.3f, h: %.3f, fit: %.3f after %d evaluations",
+			cylinder.getBest()[0], cylinder.getBest()[1], cylinder.getBestFitness(),
+			cylinder.getEvaluations()));
+
+		if (args.length < 1)
+			return;
+
+		System.out.println("============================ TSP ===============================");
+		TravelingSalesman tsp = new TravelingSalesman(new File(args[0]));
+		PortfolioRunner salesman = new PortfolioRunner(pool);
+		salesman.setLog(System.out);
+		double[] coolings = {0.8D, 0.9D, 0.95D, 0.99D};
+		for (double cooling : coolings) {
+			salesman.add(new AnnealingOptimizer("sa " + cooling,
+				tsp.getInitialPath(), 300D, 20D, cooling, 200));
+		}
+
+		salesman.run(2000000);
+		System.out.println(String.format("best: %.0f after %d evaluations",
+			salesman.getBestFitness(), salesman.getEvaluations()));
+	}
+}
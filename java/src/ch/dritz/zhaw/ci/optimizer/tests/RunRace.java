@@ -0,0 +1,114 @@
+package ch.dritz.zhaw.ci.optimizer.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import ch.dritz.zhaw.ci.evolutionstrategy.EvolutionStrategy;
+import ch.dritz.zhaw.ci.evolutionstrategy.Individual;
+import ch.dritz.zhaw.ci.fitness.BatchEvaluator;
+import ch.dritz.zhaw.ci.fitness.Cylinder;
+import ch.dritz.zhaw.ci.geneticalg.GeneticAlgorithm;
+import ch.dritz.zhaw.ci.optimizer.AnnealingOptimizer;
+import ch.dritz.zhaw.ci.optimizer.EvolutionStrategyOptimizer;
+import ch.dritz.zhaw.ci.optimizer.GeneticAlgorithmOptimizer;
+import ch.dritz.zhaw.ci.optimizer.Optimizer;
+import ch.dritz.zhaw.ci.optimizer.Parameter;
+import ch.dritz.zhaw.ci.optimizer.RacingTuner;
+import ch.dritz.zhaw.ci.tsp.Path;
+import ch.dritz.zhaw.ci.tsp.TravelingSalesman;
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Races the parameters of
+ * - the genetic algorithm rounds on the cylinder problem, including the
+ *   settings of the Full* drivers, for about 100 rounds each
+ * - the evolution strategy constructor on the cylinder problem
+ * - the cooling of the simulated annealing, on the TSP given as first
+ *   argument
+ * @author D. Ritz
+ */
+public class RunRace
+{
+	private static final int CANDIDATES = 20;
+
+	public static void main(String[] args)
+		throws IOException
+	{
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+
+		System.out.println("============================ GA round ===============================");
+		RacingTuner ga = new RacingTuner(new RacingTuner.Factory() {
+			@Override
+			public Optimizer create(double[] values, Rng rng)
+			{
+				GeneticAlgorithm ga = new GeneticAlgorithm(GeneticAlgorithm.NUM, rng);
+				// count every individual, like the rounds of the Full* drivers
+				ga.setFitnessCache(null);
+				return new GeneticAlgorithmOptimizer("ga", ga, values[0],
+					(int) values[1]);
+			}
+		}, new Parameter[] {
+			new Parameter("mutationProb", 0.001D, 0.5D, false, true),
+			new Parameter("recombinePairs", 0D, GeneticAlgorithm.NUM / 2, true, false)
+		}, 100 * GeneticAlgorithm.NUM, pool);
+		ga.setLog(System.out);
+		ga.addCandidate(0.1D, 0D);   // FullNoRecomb
+		ga.addCandidate(0.01D, 0D);  // FullP1NoRecomb
+		ga.addCandidate(0.3D, 0D);   // FullP30NoRecomb
+		ga.addCandidate(0.01D, 10D); // FullRecomb
+		ga.sample(CANDIDATES, RacingTuner.rand);
+		ga.race();
+
+		System.out.println("============================ ES ===============================");
+		RacingTuner es = new RacingTuner(new RacingTuner.Factory() {
+			@Override
+			public Optimizer create(double[] values, Rng rng)
+			{
+				Cylinder cylinder = new Cylinder(Individual.MIN_G, Individual.MAX_D,
+					Individual.MAX_H);
+				int populationSize = (int) values[0];
+				EvolutionStrategy es = new EvolutionStrategy(populationSize,
+					(int) values[1], (int) values[2],
+					Math.min(populationSize, (int) values[3]),
+					new BatchEvaluator(cylinder, cylinder),
+					new double[] {0D, 0D},
+					new double[] {Individual.MAX_D, Individual.MAX_H},
+					Individual.INITIAL_SIGMA, false, null,
+					EvolutionStrategy.DEFAULT_CHUNK_SIZE, rng);
+				return new EvolutionStrategyOptimizer("es", es);
+			}
+		}, new Parameter[] {
+			new Parameter("populationSize", 2D, 50D, true, false),
+			new Parameter("numOffspring", 10D, 300D, true, false),
+			new Parameter("maxAge", 1D, 20D, true, false),
+			new Parameter("numParents", 1D, 5D, true, false)
+		}, 3000, pool);
+		es.setLog(System.out);
+		es.addCandidate(7D, 49D, 15D, 3D);
+		es.sample(CANDIDATES, RacingTuner.rand);
+		es.race();
+
+		if (args.length < 1)
+			return;
+
+		System.out.println("============================ SA cooling ===============================");
+		final Path initial = new TravelingSalesman(new File(args[0])).getInitialPath();
+		RacingTuner sa = new RacingTuner(new RacingTuner.Factory() {
+			@Override
+			public Optimizer create(double[] values, Rng rng)
+			{
+				return new AnnealingOptimizer("sa", initial, values[0], 20D,
+					values[1], (int) values[2], rng);
+			}
+		}, new Parameter[] {
+			new Parameter("startTemperature", 50D, 1000D, false, true),
+			new Parameter("cooling", 0.8D, 0.999D, false, false),
+			new Parameter("iterations", 50D, 1000D, true, true)
+		}, 200000, pool);
+		sa.setLog(System.out);
+		sa.addCandidate(300D, 0.99D, 200D);
+		sa.sample(CANDIDATES, RacingTuner.rand);
+		sa.race();
+	}
+}
@@ -0,0 +1,180 @@
+package ch.dritz.zhaw.ci.tsp;
+
+import java.util.Random;
+
+import ch.dritz.zhaw.ci.util.Rng;
+
+/**
+ * Simulated annealing on a path using random 2-opt moves. Runs one
+ * temperature level per step(), so it can be driven stepwise or with run().
+ * Every level starts from the best path found so far.
+ * @author D. Ritz
+ */
+public class Annealing
+{
+	public static final double START_TEMPERATURE = 300D;
+	public static final double END_TEMPERATURE = 20D;
+	public static final double COOLING = 0.99D;
+	public static final int ITERATIONS = 200;
+
+	private static final double CONSTANT = 1.0;
+
+	public static Rng rand = Rng.stream("Annealing");
+
+	private Random rng;
+
+	private double startTemperature = START_TEMPERATURE;
+	private double endTemperature = END_TEMPERATURE;
+	private double cooling = COOLING;
+	private int iterations = ITERATIONS;
+
+	private double temperature;
+	private Path best;
+	private long evaluations;
+
+	/**
+	 * @param initial the path to start from
+	 * @param rng the stream to draw from, owned by this instance
+	 */
+	public Annealing(Path initial, Random rng)
+	{
+		this.rng = rng;
+		best = initial;
+		temperature = startTemperature;
+	}
+
+	/**
+	 * Sets the cooling schedule and restarts at the new start temperature
+	 * @param startTemperature
+	 * @param endTemperature annealing is frozen below this temperature
+	 * @param cooling factor applied to the temperature after each level
+	 * @param iterations number of moves per temperature level
+	 */
+	public void setSchedule(double startTemperature, double endTemperature,
+			double cooling, int iterations)
+	{
+		if (cooling <= 0D || cooling >= 1D)
+			throw new IllegalArgumentException("cooling must be in (0, 1)");
+		if (iterations < 1)
+			throw new IllegalArgumentException("need at least one iteration");
+		this.startTemperature = startTemperature;
+		this.endTemperature = endTemperature;
+		this.cooling = cooling;
+		this.iterations = iterations;
+		temperature = startTemperature;
+	}
+
+	/**
+	 * randomly applies 2-opt to generate a new path
+	 * @param s current path
+	 * @param rand
+	 * @return new path
+	 */
+	public static Path generatePath(Path s, Random rand)
+	{
+		Path sNew = null;
+		do  {
+			int i1 = rand.nextInt(s.getSize());
+			int i2 = rand.nextInt(s.getSize());
+			sNew =  s.apply2opt(i1, i2);
+		} while (sNew == null);
+		return sNew;
+	}
+
+	/**
+	 * selects between the old and the new path using the metropolis function
+	 * @param s the current path
+	 * @param sNew the new path
+	 * @param temperature the current temperature
+	 * @param rand
+	 * @return the selected path
+	 */
+	public static Path metropolisSelection(Path s, Path sNew, double temperature,
+			Random rand)
+	{
+		if (sNew.measure() < s.measure())
+			return sNew;
+
+		double diff = (double) s.measure() - sNew.measure();
+		double exp = (diff / (temperature * CONSTANT));
+		double m = Math.exp(exp);
+		double r = rand.nextDouble();
+		if (m >= r)
+			return sNew;
+		return s;
+	}
+
+	/**
+	 * Runs one temperature level, then cools down
+	 */
+	public void step()
+	{
+		Path s = best;
+		for (int i = 0; i < iterations; i++) {
+			Path sNew = generatePath(s, rng);
+			s = metropolisSelection(s, sNew, temperature, rng);
+			if (s.measure() < best.measure())
+				best = s;
+		}
+		evaluations += iterations;
+		temperature *= cooling;
+	}
+
+	/**
+	 * Runs until frozen
+	 * @return the best path
+	 */
+	public Path run()
+	{
+		while (!isFrozen())
+			step();
+		return best;
+	}
+
+	/**
+	 * Heats up to the start temperature again, continuing from the best path
+	 */
+	public void reheat()
+	{
+		temperature = startTemperature;
+	}
+
+	/**
+	 * Continues from the given path if it is shorter than the best one
+	 * @param path
+	 */
+	public void inject(Path path)
+	{
+		if (path.measure() < best.measure())
+			best = path;
+	}
+
+	/**
+	 * @return true when the temperature dropped to the end temperature
+	 */
+	public boolean isFrozen()
+	{
+		return temperature <= endTemperature;
+	}
+
+	public double getTemperature()
+	{
+		return temperature;
+	}
+
+	/**
+	 * @return the best path so far
+	 */
+	public Path getBest()
+	{
+		return best;
+	}
+
+	/**
+	 * @return the number of paths measured so far
+	 */
+	public long getEvaluations()
+	{
+		return evaluations;
+	}
+}
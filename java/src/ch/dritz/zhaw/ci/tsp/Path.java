@@ -61,9 +61,12 @@ public class Path
 	{
 		if (totalDist != 0)
 			return totalDist;
+		// sum up locally, paths are shared between threads
+		int dist = 0;
 		for (int i = 0; i < order.length; i++)
-			totalDist += table.getDistance(getTownAtPosition(i), getTownAtPosition(i + 1));
-		return totalDist;
+			dist += table.getDistance(getTownAtPosition(i), getTownAtPosition(i + 1));
+		totalDist = dist;
+		return dist;
 	}
 
 	public Path clone()
@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+import ch.dritz.zhaw.ci.util.Rng;
+
 /**
  * Solves the traveling salesman problem using simulated annealing
  * @author D. Ritz
@@ -15,11 +17,10 @@ import java.util.Random;
 public strictfp class TravelingSalesman
 {
 	private static final int START_TOWN = 0; // where the tour starts
-	private static final double CONSTANT = 1.0;
 
 	private Table table;
 	private int size;
-	private Random rand;
+	private Rng rand;
 	private Path initialPath;
 	private Path bestPath;
 	private List<Thread> threads;
@@ -29,7 +30,7 @@ public strictfp class TravelingSalesman
 	{
 		table = Parser.parse(file);
 		size = table.getSize();
-		rand = new Random();
+		rand = Rng.stream("TravelingSalesman").split();
 		threads = new ArrayList<Thread>();
 
 		initialize();
@@ -80,67 +81,21 @@ public strictfp class TravelingSalesman
 	}
 
 	/**
-	 * randomly applies 2-opt to generate a new path
-	 * @param s current path
-	 * @return new path
-	 */
-	private Path generatePath(Path s)
-	{
-		Path sNew = null;
-		do  {
-			int i1 = rand.nextInt(s.getSize());
-			int i2 = rand.nextInt(s.getSize());
-			sNew =  s.apply2opt(i1, i2);
-		} while (sNew == null);
-		return sNew;
-	}
-
-	/**
-	 * selects between the old and the new path using the metropolis function
-	 * @param s the current path
-	 * @param sNew the new path
-	 * @param temperature the current temperature
-	 * @return the selected path
+	 * finds a solution to the TSP using simulated annealing
 	 */
-	private Path metropolisSelection(Path s, Path sNew, double temperature)
-	{
-		if (sNew.measure() < s.measure())
-			return sNew;
-
-		double diff = (double) s.measure() - sNew.measure();
-		double exp = (diff / (temperature * CONSTANT));
-		double m = Math.exp(exp);
-		double r = rand.nextDouble();
-		if (m >= r)
-			return sNew;
-		return s;
-	}
-
-	private double newTemp(double temperature)
+	public Path findSolution()
 	{
-//		return temperature - 5D;
-		return temperature * 0.99;
+		return findSolution(rand);
 	}
 
 	/**
-	 * finds a solution to the TSP using simulated annealing
+	 * finds a solution to the TSP using simulated annealing, drawing from the
+	 * given stream
+	 * @param rand
 	 */
-	public Path findSolution()
+	private Path findSolution(Random rand)
 	{
-		Path s = initialPath;
-		Path sBest = s;
-		double t = 300D;
-		while (t > 20) {
-			s = sBest;
-			for (int i = 0; i < 200; i++) {
-				Path sNew = generatePath(s);
-				s = metropolisSelection(s, sNew, t);
-				if (s.measure() < sBest.measure())
-					sBest = s;
-			}
-			t = newTemp(t);
-		}
-
+		Path sBest = new Annealing(initialPath, rand).run();
 		setBestPath(sBest);
 		return sBest;
 	}
@@ -151,14 +106,20 @@ public strictfp class TravelingSalesman
 			bestPath = path;
 	}
 
+	/**
+	 * starts a thread running the given number of annealings, each thread
+	 * gets its own stream split from the one of this instance
+	 * @param number
+	 */
 	public void findBestOutOf(final int number)
 	{
+		final Rng threadRand = rand.split();
 		Thread t = new Thread(new Runnable() {
 			@Override
 			public void run()
 			{
 				for (int i = 0; i < number; i++)
-					findSolution();
+					findSolution(threadRand);
 			}
 		});
 		threads.add(t);
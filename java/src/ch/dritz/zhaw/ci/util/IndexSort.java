@@ -0,0 +1,152 @@
+package ch.dritz.zhaw.ci.util;
+
+/**
+ * Sorts an array of indices by a primitive key without boxing and without
+ * allocating. The key array itself is never touched, only the permutation.
+ * @author D. Ritz
+ */
+public final class IndexSort
+{
+	private static final int INSERTION_THRESHOLD = 16;
+
+	private IndexSort()
+	{
+	}
+
+	/**
+	 * Sorts idx[from..to) ascending by key[idx[i]]
+	 * @param idx the index permutation to sort
+	 * @param from first position (inclusive)
+	 * @param to last position (exclusive)
+	 * @param key the key values, indexed by the values in idx
+	 */
+	public static void sort(int[] idx, int from, int to, double[] key)
+	{
+		int lo = from;
+		int hi = to - 1;
+		while (hi - lo >= INSERTION_THRESHOLD) {
+			int p = partition(idx, lo, hi, key);
+
+			// recurse into the smaller half only, keeps the stack at O(log n)
+			if (p - lo < hi - p) {
+				sort(idx, lo, p, key);
+				lo = p + 1;
+			} else {
+				sort(idx, p + 1, hi + 1, key);
+				hi = p - 1;
+			}
+		}
+		insertionSort(idx, lo, hi, key);
+	}
+
+	/**
+	 * Sorts idx[from..to) descending by key[idx[i]]
+	 * @param idx the index permutation to sort
+	 * @param from first position (inclusive)
+	 * @param to last position (exclusive)
+	 * @param key the key values, indexed by the values in idx
+	 */
+	public static void sortDescending(int[] idx, int from, int to, double[] key)
+	{
+		sort(idx, from, to, key);
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			int tmp = idx[i];
+			idx[i] = idx[j];
+			idx[j] = tmp;
+		}
+	}
+
+	/**
+	 * Partially sorts idx[from..to) so that the k positions from 'from' on hold
+	 * the k smallest keys (in no particular order) and everything after them
+	 * is not smaller. Expected O(n).
+	 * @param idx the index permutation to partition
+	 * @param from first position (inclusive)
+	 * @param to last position (exclusive)
+	 * @param k number of smallest elements wanted
+	 * @param key the key values, indexed by the values in idx
+	 */
+	public static void select(int[] idx, int from, int to, int k, double[] key)
+	{
+		int lo = from;
+		int hi = to - 1;
+		int nth = from + k - 1;
+		if (k <= 0 || nth >= hi)
+			return;
+		while (hi - lo >= INSERTION_THRESHOLD) {
+			int p = partition(idx, lo, hi, key);
+			if (p == nth)
+				return;
+			if (p < nth)
+				lo = p + 1;
+			else
+				hi = p - 1;
+		}
+		insertionSort(idx, lo, hi, key);
+	}
+
+	/**
+	 * Fills idx[0..n) with the identity permutation
+	 * @param idx
+	 * @param n
+	 */
+	public static void identity(int[] idx, int n)
+	{
+		for (int i = 0; i < n; i++)
+			idx[i] = i;
+	}
+
+	private static void insertionSort(int[] idx, int lo, int hi, double[] key)
+	{
+		for (int i = lo + 1; i <= hi; i++) {
+			int v = idx[i];
+			double k = key[v];
+			int j = i - 1;
+			while (j >= lo && key[idx[j]] > k) {
+				idx[j + 1] = idx[j];
+				j--;
+			}
+			idx[j + 1] = v;
+		}
+	}
+
+	/**
+	 * Hoare style partition with median of three pivot. Returns the final
+	 * position of the pivot.
+	 */
+	private static int partition(int[] idx, int lo, int hi, double[] key)
+	{
+		int mid = (lo + hi) >>> 1;
+		if (key[idx[mid]] < key[idx[lo]])
+			swap(idx, lo, mid);
+		if (key[idx[hi]] < key[idx[lo]])
+			swap(idx, lo, hi);
+		if (key[idx[hi]] < key[idx[mid]])
+			swap(idx, mid, hi);
+
+		// move the pivot out of the way
+		swap(idx, mid, hi - 1);
+		double pivot = key[idx[hi - 1]];
+
+		int i = lo;
+		int j = hi - 1;
+		while (true) {
+			while (key[idx[++i]] < pivot)
+				;
+			while (key[idx[--j]] > pivot)
+				;
+			if (i >= j)
+				break;
+			swap(idx, i, j);
+		}
+		swap(idx, i, hi - 1);
+		return i;
+	}
+
+	private static void swap(int[] idx, int i, int j)
+	{
+		int tmp = idx[i];
+		idx[i] = idx[j];
+		idx[j] = tmp;
+	}
+}
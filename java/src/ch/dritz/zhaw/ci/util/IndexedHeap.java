@@ -0,0 +1,210 @@
+package ch.dritz.zhaw.ci.util;
+
+/**
+ * Binary max-heap of the items 0..capacity-1, each with a double key. Knows
+ * the position of every item, so the key of any item can be changed and any
+ * item can be removed in O(log n).
+ * @author D. Ritz
+ */
+public class IndexedHeap
+{
+	private double[] key;
+	private int[] heap;
+	private int[] pos; // position of an item in heap, -1 if not contained
+	private int size;
+
+	/**
+	 * @param capacity items are 0..capacity-1
+	 */
+	public IndexedHeap(int capacity)
+	{
+		key = new double[capacity];
+		heap = new int[capacity];
+		pos = new int[capacity];
+		clear();
+	}
+
+	/**
+	 * removes all items
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < pos.length; i++)
+			pos[i] = -1;
+		size = 0;
+	}
+
+	/**
+	 * @return the number of items
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @param item
+	 * @return true if the item is in the heap
+	 */
+	public boolean contains(int item)
+	{
+		return pos[item] >= 0;
+	}
+
+	/**
+	 * @param item
+	 * @return the key of the item
+	 */
+	public double getKey(int item)
+	{
+		return key[item];
+	}
+
+	/**
+	 * adds the item or changes its key if already contained
+	 * @param item
+	 * @param k
+	 */
+	public void update(int item, double k)
+	{
+		if (pos[item] < 0) {
+			key[item] = k;
+			heap[size] = item;
+			pos[item] = size;
+			up(size++);
+			return;
+		}
+
+		double old = key[item];
+		key[item] = k;
+		if (k > old)
+			up(pos[item]);
+		else if (k < old)
+			down(pos[item]);
+	}
+
+	/**
+	 * @return the item with the biggest key, -1 if empty
+	 */
+	public int peek()
+	{
+		return size == 0 ? -1 : heap[0];
+	}
+
+	/**
+	 * removes the item with the biggest key
+	 * @return the item, -1 if empty
+	 */
+	public int poll()
+	{
+		if (size == 0)
+			return -1;
+		int item = heap[0];
+		remove(item);
+		return item;
+	}
+
+	/**
+	 * removes the item if contained
+	 * @param item
+	 */
+	public void remove(int item)
+	{
+		int p = pos[item];
+		if (p < 0)
+			return;
+
+		pos[item] = -1;
+		size--;
+		if (p == size)
+			return;
+
+		// move the last one into the hole and restore the heap order
+		int last = heap[size];
+		heap[p] = last;
+		pos[last] = p;
+		up(p);
+		down(pos[last]);
+	}
+
+	/**
+	 * Builds the heap from items 0..n-1 with the given keys in O(n)
+	 * @param keys
+	 * @param n
+	 */
+	public void build(double[] keys, int n)
+	{
+		clear();
+		for (int i = 0; i < n; i++) {
+			key[i] = keys[i];
+			heap[i] = i;
+			pos[i] = i;
+		}
+		size = n;
+		for (int i = size / 2 - 1; i >= 0; i--)
+			down(i);
+	}
+
+	/**
+	 * @param p
+	 * @return the item at position p of the heap array, e.g. to save the
+	 * heap with its exact order
+	 */
+	public int getItemAt(int p)
+	{
+		return heap[p];
+	}
+
+	/**
+	 * Restores a heap saved item by item with getItemAt(), in exactly the
+	 * same order, so ties are broken the same way as before
+	 * @param items the items in heap order
+	 * @param keys the keys, in the same order
+	 * @param n
+	 */
+	public void restore(int[] items, double[] keys, int n)
+	{
+		clear();
+		for (int i = 0; i < n; i++) {
+			heap[i] = items[i];
+			pos[items[i]] = i;
+			key[items[i]] = keys[i];
+		}
+		size = n;
+	}
+
+	private void up(int p)
+	{
+		int item = heap[p];
+		double k = key[item];
+		while (p > 0) {
+			int parent = (p - 1) >>> 1;
+			if (key[heap[parent]] >= k)
+				break;
+			heap[p] = heap[parent];
+			pos[heap[p]] = p;
+			p = parent;
+		}
+		heap[p] = item;
+		pos[item] = p;
+	}
+
+	private void down(int p)
+	{
+		int item = heap[p];
+		double k = key[item];
+		int half = size >>> 1;
+		while (p < half) {
+			int child = 2 * p + 1;
+			if (child + 1 < size && key[heap[child + 1]] > key[heap[child]])
+				child++;
+			if (k >= key[heap[child]])
+				break;
+			heap[p] = heap[child];
+			pos[heap[p]] = p;
+			p = child;
+		}
+		heap[p] = item;
+		pos[item] = p;
+	}
+}
@@ -0,0 +1,236 @@
+package ch.dritz.zhaw.ci.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Splittable, unsynchronized random number generator (SplitMix64). Meant to
+ * be owned by one thread: workers, islands and replicas get their own stream
+ * using split() instead of sharing one generator.
+ *
+ * The static streams of the engines are registered by name and derived from
+ * one master seed, setMasterSeed() makes a whole run reproducible.
+ *
+ * Extends Random so it can be passed wherever a Random is expected, but none
+ * of the methods are synchronized.
+ * @author D. Ritz
+ */
+public class Rng
+	extends Random
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+	private static long masterSeed = mix64(System.nanoTime() ^ System.identityHashCode(Rng.class));
+	private static final Map<String, Rng> streams = new HashMap<String, Rng>();
+
+	private long seed;
+	private long gamma;
+	private double nextGaussian;
+	private boolean haveNextGaussian;
+
+	/**
+	 * Creates a generator with the given seed
+	 * @param seed
+	 */
+	public Rng(long seed)
+	{
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	private Rng(long seed, long gamma)
+	{
+		super(0L);
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Returns the stream of the given name, derived from the master seed
+	 * @param name
+	 * @return the stream, the same instance for the same name
+	 */
+	public static synchronized Rng stream(String name)
+	{
+		Rng ret = streams.get(name);
+		if (ret == null) {
+			ret = new Rng(derive(name));
+			streams.put(name, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Sets the master seed and reseeds all named streams from it
+	 * @param seed
+	 */
+	public static synchronized void setMasterSeed(long seed)
+	{
+		masterSeed = seed;
+		for (Map.Entry<String, Rng> e : streams.entrySet())
+			e.getValue().setSeed(derive(e.getKey()));
+	}
+
+	public static synchronized long getMasterSeed()
+	{
+		return masterSeed;
+	}
+
+	private static long derive(String name)
+	{
+		return mix64(masterSeed ^ mix64(name.hashCode() * GOLDEN_GAMMA));
+	}
+
+	/**
+	 * @return a new, independent generator, advancing this one
+	 */
+	public Rng split()
+	{
+		return new Rng(mix64(nextSeed()), mixGamma(nextSeed()));
+	}
+
+	/**
+	 * Turns this generator into a new one split from the parent, the
+	 * allocation free version of split()
+	 * @param parent
+	 */
+	public void splitFrom(Rng parent)
+	{
+		seed = mix64(parent.nextSeed());
+		gamma = mixGamma(parent.nextSeed());
+		haveNextGaussian = false;
+	}
+
+	/**
+	 * Resets the generator to the seed with the default increment
+	 */
+	@Override
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+		this.gamma = GOLDEN_GAMMA;
+		this.haveNextGaussian = false;
+	}
+
+	/**
+	 * @return the complete state, to be restored with setState()
+	 */
+	public long[] getState()
+	{
+		return new long[] {seed, gamma, haveNextGaussian ? 1L : 0L,
+			Double.doubleToRawLongBits(nextGaussian)};
+	}
+
+	/**
+	 * Restores a state of getState(), the stream continues exactly
+	 * @param state
+	 */
+	public void setState(long[] state)
+	{
+		seed = state[0];
+		gamma = state[1];
+		haveNextGaussian = state[2] != 0L;
+		nextGaussian = Double.longBitsToDouble(state[3]);
+	}
+
+	private long nextSeed()
+	{
+		return seed += gamma;
+	}
+
+	@Override
+	protected int next(int bits)
+	{
+		return (int) (mix64(nextSeed()) >>> (64 - bits));
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return (int) (mix64(nextSeed()) >>> 32);
+	}
+
+	/**
+	 * Unbiased bounded int using a multiplication instead of a division,
+	 * see D. Lemire, Fast Random Integer Generation in an Interval, 2019
+	 */
+	@Override
+	public int nextInt(int bound)
+	{
+		if (bound <= 0)
+			throw new IllegalArgumentException("bound must be positive");
+		long m = (mix64(nextSeed()) >>> 32) * bound;
+		long low = m & 0xFFFFFFFFL;
+		if (low < bound) {
+			long threshold = (0x100000000L - bound) % bound;
+			while (low < threshold) {
+				m = (mix64(nextSeed()) >>> 32) * bound;
+				low = m & 0xFFFFFFFFL;
+			}
+		}
+		return (int) (m >>> 32);
+	}
+
+	@Override
+	public long nextLong()
+	{
+		return mix64(nextSeed());
+	}
+
+	@Override
+	public double nextDouble()
+	{
+		return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT;
+	}
+
+	@Override
+	public boolean nextBoolean()
+	{
+		return mix64(nextSeed()) < 0L;
+	}
+
+	/**
+	 * Marsaglia polar method like Random, without the lock and with Math
+	 * instead of StrictMath
+	 */
+	@Override
+	public double nextGaussian()
+	{
+		if (haveNextGaussian) {
+			haveNextGaussian = false;
+			return nextGaussian;
+		}
+		double v1, v2, s;
+		do {
+			v1 = 2D * nextDouble() - 1D;
+			v2 = 2D * nextDouble() - 1D;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1D || s == 0D);
+		double multiplier = Math.sqrt(-2D * Math.log(s) / s);
+		nextGaussian = v2 * multiplier;
+		haveNextGaussian = true;
+		return v1 * multiplier;
+	}
+
+	private static long mix64(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return an odd increment with enough bit transitions
+	 */
+	private static long mixGamma(long z)
+	{
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+	}
+}
@@ -0,0 +1,207 @@
+package ch.dritz.zhaw.ci.util;
+
+/**
+ * Ranks and the distribution functions needed by the rank based tests,
+ * using the series and continued fractions of Numerical Recipes
+ * @author D. Ritz
+ */
+public final class Statistics
+{
+	private static final int MAX_ITERATIONS = 500;
+	private static final double EPSILON = 1e-14D;
+	private static final double TINY = 1e-300D;
+
+	private static final double[] LANCZOS = {
+		76.18009172947146D, -86.50532032941677D, 24.01409824083091D,
+		-1.231739572450155D, 0.1208650973866179e-2D, -0.5395239384953e-5D
+	};
+
+	private Statistics()
+	{
+	}
+
+	/**
+	 * Ranks the n values starting at 1, ties get the average of their ranks
+	 * @param values
+	 * @param n
+	 * @param ranks receives the rank of each value
+	 * @param idx scratch of at least n entries
+	 */
+	public static void rank(double[] values, int n, double[] ranks, int[] idx)
+	{
+		IndexSort.identity(idx, n);
+		IndexSort.sort(idx, 0, n, values);
+		int i = 0;
+		while (i < n) {
+			int j = i + 1;
+			while (j < n && values[idx[j]] == values[idx[i]])
+				j++;
+			double rank = (i + j + 1) / 2D;
+			for (int k = i; k < j; k++)
+				ranks[idx[k]] = rank;
+			i = j;
+		}
+	}
+
+	/**
+	 * @param x
+	 * @return ln(gamma(x)) for x > 0
+	 */
+	public static double logGamma(double x)
+	{
+		double tmp = x + 5.5D;
+		tmp -= (x + 0.5D) * Math.log(tmp);
+		double ser = 1.000000000190015D;
+		double y = x;
+		for (double c : LANCZOS)
+			ser += c / ++y;
+		return -tmp + Math.log(2.5066282746310005D * ser / x);
+	}
+
+	/**
+	 * @param a
+	 * @param x
+	 * @return the regularized lower incomplete gamma function P(a, x)
+	 */
+	public static double gammaP(double a, double x)
+	{
+		if (x <= 0D)
+			return 0D;
+		if (x < a + 1D) {
+			double ap = a;
+			double sum = 1D / a;
+			double del = sum;
+			for (int n = 0; n < MAX_ITERATIONS; n++) {
+				del *= x / ++ap;
+				sum += del;
+				if (Math.abs(del) < Math.abs(sum) * EPSILON)
+					break;
+			}
+			return sum * Math.exp(-x + a * Math.log(x) - logGamma(a));
+		}
+
+		double b = x + 1D - a;
+		double c = 1D / TINY;
+		double d = 1D / b;
+		double h = d;
+		for (int i = 1; i <= MAX_ITERATIONS; i++) {
+			double an = -i * (i - a);
+			b += 2D;
+			d = an * d + b;
+			if (Math.abs(d) < TINY)
+				d = TINY;
+			c = b + an / c;
+			if (Math.abs(c) < TINY)
+				c = TINY;
+			d = 1D / d;
+			double del = d * c;
+			h *= del;
+			if (Math.abs(del - 1D) < EPSILON)
+				break;
+		}
+		return 1D - Math.exp(-x + a * Math.log(x) - logGamma(a)) * h;
+	}
+
+	/**
+	 * @param x
+	 * @param a
+	 * @param b
+	 * @return the regularized incomplete beta function I_x(a, b)
+	 */
+	public static double beta(double x, double a, double b)
+	{
+		if (x <= 0D)
+			return 0D;
+		if (x >= 1D)
+			return 1D;
+		double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) +
+			a * Math.log(x) + b * Math.log(1D - x));
+		if (x < (a + 1D) / (a + b + 2D))
+			return front * betaFraction(x, a, b) / a;
+		return 1D - front * betaFraction(1D - x, b, a) / b;
+	}
+
+	private static double betaFraction(double x, double a, double b)
+	{
+		double qab = a + b;
+		double qap = a + 1D;
+		double qam = a - 1D;
+		double c = 1D;
+		double d = 1D - qab * x / qap;
+		if (Math.abs(d) < TINY)
+			d = TINY;
+		d = 1D / d;
+		double h = d;
+		for (int m = 1; m <= MAX_ITERATIONS; m++) {
+			int m2 = 2 * m;
+			double aa = m * (b - m) * x / ((qam + m2) * (a + m2));
+			d = 1D + aa * d;
+			if (Math.abs(d) < TINY)
+				d = TINY;
+			c = 1D + aa / c;
+			if (Math.abs(c) < TINY)
+				c = TINY;
+			d = 1D / d;
+			h *= d * c;
+			aa = -(a + m) * (qab + m) * x / ((a + m2) * (qap + m2));
+			d = 1D + aa * d;
+			if (Math.abs(d) < TINY)
+				d = TINY;
+			c = 1D + aa / c;
+			if (Math.abs(c) < TINY)
+				c = TINY;
+			d = 1D / d;
+			double del = d * c;
+			h *= del;
+			if (Math.abs(del - 1D) < EPSILON)
+				break;
+		}
+		return h;
+	}
+
+	/**
+	 * @param x
+	 * @param df degrees of freedom
+	 * @return P(X <= x) of the chi-squared distribution
+	 */
+	public static double chiSquareCdf(double x, int df)
+	{
+		return gammaP(df / 2D, x / 2D);
+	}
+
+	/**
+	 * @param t
+	 * @param df degrees of freedom
+	 * @return P(T <= t) of Student's t distribution
+	 */
+	public static double studentTCdf(double t, int df)
+	{
+		double tail = 0.5D * beta(df / (df + t * t), df / 2D, 0.5D);
+		return t >= 0D ? 1D - tail : tail;
+	}
+
+	/**
+	 * @param p probability in (0, 1)
+	 * @param df degrees of freedom
+	 * @return t with P(T <= t) = p, found by bisection
+	 */
+	public static double studentTQuantile(double p, int df)
+	{
+		if (p <= 0D || p >= 1D)
+			throw new IllegalArgumentException("p must be in (0, 1)");
+		if (p < 0.5D)
+			return -studentTQuantile(1D - p, df);
+		double lo = 0D;
+		double hi = 1D;
+		while (studentTCdf(hi, df) < p)
+			hi *= 2D;
+		for (int i = 0; i < 100 && hi - lo > 1e-12D; i++) {
+			double mid = (lo + hi) / 2D;
+			if (studentTCdf(mid, df) < p)
+				lo = mid;
+			else
+				hi = mid;
+		}
+		return (lo + hi) / 2D;
+	}
+}
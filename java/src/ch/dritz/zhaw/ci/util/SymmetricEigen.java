@@ -0,0 +1,95 @@
+package ch.dritz.zhaw.ci.util;
+
+/**
+ * Eigen decomposition of a symmetric matrix using cyclic Jacobi rotations.
+ * Works in place on preallocated arrays, matrices are stored row major in
+ * flat arrays.
+ * @author D. Ritz
+ */
+public final class SymmetricEigen
+{
+	private static final int MAX_SWEEPS = 50;
+
+	private SymmetricEigen()
+	{
+	}
+
+	/**
+	 * Decomposes a = V * diag(values) * V^T
+	 * @param a the symmetric n x n matrix, destroyed
+	 * @param n
+	 * @param values receives the eigenvalues
+	 * @param vectors receives the eigenvectors as columns
+	 * @return the number of sweeps needed
+	 */
+	public static int decompose(double[] a, int n, double[] values,
+			double[] vectors)
+	{
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++)
+				vectors[i * n + j] = i == j ? 1D : 0D;
+		}
+
+		int sweep;
+		for (sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+			double off = 0D;
+			double diag = 0D;
+			for (int i = 0; i < n; i++) {
+				diag += a[i * n + i] * a[i * n + i];
+				for (int j = i + 1; j < n; j++)
+					off += a[i * n + j] * a[i * n + j];
+			}
+			if (off <= 1e-30 * diag || off == 0D)
+				break;
+
+			for (int p = 0; p < n - 1; p++) {
+				for (int q = p + 1; q < n; q++) {
+					double apq = a[p * n + q];
+					if (apq == 0D)
+						continue;
+					rotate(a, vectors, n, p, q);
+				}
+			}
+		}
+
+		for (int i = 0; i < n; i++)
+			values[i] = a[i * n + i];
+		return sweep;
+	}
+
+	/**
+	 * one Jacobi rotation zeroing a[p][q]
+	 */
+	private static void rotate(double[] a, double[] v, int n, int p, int q)
+	{
+		double app = a[p * n + p];
+		double aqq = a[q * n + q];
+		double apq = a[p * n + q];
+
+		double theta = (aqq - app) / (2D * apq);
+		double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1D));
+		if (theta == 0D)
+			t = 1D;
+		double c = 1D / Math.sqrt(t * t + 1D);
+		double s = t * c;
+
+		for (int k = 0; k < n; k++) {
+			double akp = a[k * n + p];
+			double akq = a[k * n + q];
+			a[k * n + p] = c * akp - s * akq;
+			a[k * n + q] = s * akp + c * akq;
+		}
+		for (int k = 0; k < n; k++) {
+			double apk = a[p * n + k];
+			double aqk = a[q * n + k];
+			a[p * n + k] = c * apk - s * aqk;
+			a[q * n + k] = s * apk + c * aqk;
+		}
+		for (int k = 0; k < n; k++) {
+			double vkp = v[k * n + p];
+			double vkq = v[k * n + q];
+			v[k * n + p] = c * vkp - s * vkq;
+			v[k * n + q] = s * vkp + c * vkq;
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package ch.dritz.zhaw.ci.util;
+
+import java.util.Random;
+
+/**
+ * Element wise kernels on slices of flat double arrays. The loops are kept
+ * simple, without branches or calls, so the JIT can unroll and vectorise
+ * them.
+ * @author D. Ritz
+ */
+public final class VectorOps
+{
+	private VectorOps()
+	{
+	}
+
+	/**
+	 * a[off..off+n-1] = value
+	 */
+	public static void fill(double[] a, int off, int n, double value)
+	{
+		for (int i = 0; i < n; i++)
+			a[off + i] = value;
+	}
+
+	/**
+	 * dst += src
+	 */
+	public static void add(double[] dst, int dOff, double[] src, int sOff, int n)
+	{
+		for (int i = 0; i < n; i++)
+			dst[dOff + i] += src[sOff + i];
+	}
+
+	/**
+	 * a *= factor
+	 */
+	public static void scale(double[] a, int off, int n, double factor)
+	{
+		for (int i = 0; i < n; i++)
+			a[off + i] *= factor;
+	}
+
+	/**
+	 * y += alpha * x
+	 */
+	public static void axpy(double alpha, double[] x, int xOff, double[] y,
+			int yOff, int n)
+	{
+		for (int i = 0; i < n; i++)
+			y[yOff + i] += alpha * x[xOff + i];
+	}
+
+	/**
+	 * dst += factor * (a - b), the difference vector of differential
+	 * evolution
+	 */
+	public static void addScaledDifference(double[] dst, int dOff, double[] a,
+			int aOff, double[] b, int bOff, double factor, int n)
+	{
+		for (int i = 0; i < n; i++)
+			dst[dOff + i] += factor * (a[aOff + i] - b[bOff + i]);
+	}
+
+	/**
+	 * dst[i] = u[i] < threshold ? dst[i] : src[i], e.g. binomial crossover
+	 * with uniform samples u
+	 */
+	public static void blend(double[] dst, int dOff, double[] src, int sOff,
+			double[] u, double threshold, int n)
+	{
+		for (int i = 0; i < n; i++)
+			dst[dOff + i] = u[i] < threshold ? dst[dOff + i] : src[sOff + i];
+	}
+
+	/**
+	 * Moves coordinates outside the box [lower, upper] to the middle between
+	 * the bound and the same coordinate of a reference point inside the box
+	 * @param a
+	 * @param off
+	 * @param ref
+	 * @param refOff
+	 * @param lower
+	 * @param upper
+	 * @param n
+	 */
+	public static void midpointRepair(double[] a, int off, double[] ref,
+			int refOff, double[] lower, double[] upper, int n)
+	{
+		for (int i = 0; i < n; i++) {
+			double v = a[off + i];
+			double r = ref[refOff + i];
+			v = v < lower[i] ? 0.5D * (lower[i] + r) : v;
+			a[off + i] = v > upper[i] ? 0.5D * (upper[i] + r) : v;
+		}
+	}
+
+	/**
+	 * dst += a * b, element wise
+	 */
+	public static void addProduct(double[] dst, int dOff, double[] a, int aOff,
+			double[] b, int bOff, int n)
+	{
+		for (int i = 0; i < n; i++)
+			dst[dOff + i] += a[aOff + i] * b[bOff + i];
+	}
+
+	/**
+	 * @return the dot product of the two slices
+	 */
+	public static double dot(double[] a, int aOff, double[] b, int bOff, int n)
+	{
+		double sum = 0D;
+		for (int i = 0; i < n; i++)
+			sum += a[aOff + i] * b[bOff + i];
+		return sum;
+	}
+
+	/**
+	 * @return the sum of the slice
+	 */
+	public static double sum(double[] a, int off, int n)
+	{
+		double sum = 0D;
+		for (int i = 0; i < n; i++)
+			sum += a[off + i];
+		return sum;
+	}
+
+	/**
+	 * @return the minimum of the slice, infinity if empty
+	 */
+	public static double min(double[] a, int off, int n)
+	{
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++)
+			min = Math.min(min, a[off + i]);
+		return min;
+	}
+
+	/**
+	 * @return the maximum of the slice, -infinity if empty
+	 */
+	public static double max(double[] a, int off, int n)
+	{
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++)
+			max = Math.max(max, a[off + i]);
+		return max;
+	}
+
+	/**
+	 * Clamps the slice into the per coordinate box [lower, upper]
+	 * @param a
+	 * @param off
+	 * @param n
+	 * @param lower
+	 * @param upper
+	 */
+	public static void clamp(double[] a, int off, int n, double[] lower,
+			double[] upper)
+	{
+		for (int i = 0; i < n; i++)
+			a[off + i] = Math.min(upper[i], Math.max(lower[i], a[off + i]));
+	}
+
+	/**
+	 * @return true if the slice is inside the box [lower, upper]
+	 */
+	public static boolean inside(double[] a, int off, int n, double[] lower,
+			double[] upper)
+	{
+		int outside = 0;
+		for (int i = 0; i < n; i++) {
+			double v = a[off + i];
+			outside += (v < lower[i] || v > upper[i]) ? 1 : 0;
+		}
+		return outside == 0;
+	}
+
+	/**
+	 * Fills the slice with standard normal samples. Kept apart from the
+	 * arithmetic kernels since the generator cannot be vectorised.
+	 * @param a
+	 * @param off
+	 * @param n
+	 * @param rand
+	 */
+	public static void gaussian(double[] a, int off, int n, Random rand)
+	{
+		for (int i = 0; i < n; i++)
+			a[off + i] = rand.nextGaussian();
+	}
+
+	/**
+	 * Fills the slice with uniform samples in [0, 1)
+	 * @param a
+	 * @param off
+	 * @param n
+	 * @param rand
+	 */
+	public static void uniform(double[] a, int off, int n, Random rand)
+	{
+		for (int i = 0; i < n; i++)
+			a[off + i] = rand.nextDouble();
+	}
+}